@@ -0,0 +1,183 @@
+"""
+Creates data/test.arrow, which is used by TestDataImport.testArrow.
+
+The file is written in the Arrow IPC file format (metadata version V4) with a
+minimal flatbuffer serializer, so that only the Python standard library is
+required. It contains a dictionary-encoded column, a nullable column, timestamps
+of all units and unsigned 64-bit integers which exceed the range of signed longs.
+If pyarrow is installed, the file is read back with it and compared with the
+values written.
+
+Usage: python3 test_arrow.py
+"""
+import os
+import struct
+
+# Minimal flatbuffer serializer: objects are placed after their referencing slot
+class Table:
+    def __init__(self, fields):
+        self.fields = fields  # dict id -> (fmt, value) ; fmt 'o' = offset to child
+class Str:
+    def __init__(self, s): self.s = s.encode('utf-8')
+class OffVec:
+    def __init__(self, items): self.items = items
+class StructVec:
+    def __init__(self, items, size): self.items = items; self.size = size  # items: bytes
+
+buf = bytearray()
+def align(n):
+    while len(buf) % n: buf.append(0)
+
+def place(obj):
+    if isinstance(obj, Str):
+        align(4); p = len(buf)
+        buf.extend(struct.pack('<i', len(obj.s))); buf.extend(obj.s); buf.append(0)
+        return p
+    if isinstance(obj, StructVec):
+        while (len(buf) + 4) % 8: buf.append(0)
+        p = len(buf)
+        buf.extend(struct.pack('<i', len(obj.items)))
+        for it in obj.items: buf.extend(it)
+        return p
+    if isinstance(obj, OffVec):
+        align(4); p = len(buf)
+        buf.extend(struct.pack('<i', len(obj.items)))
+        slots = []
+        for it in obj.items:
+            slots.append(len(buf)); buf.extend(b'\0\0\0\0')
+        for s, it in zip(slots, obj.items):
+            q = place(it); struct.pack_into('<I', buf, s, q - s)
+        return p
+    # table
+    ids = sorted(obj.fields)
+    nfields = (max(ids) + 1) if ids else 0
+    # inline layout
+    layout = []; off = 4
+    for i in ids:
+        fmt, v = obj.fields[i]
+        size = 4 if fmt == 'o' else struct.calcsize('<' + fmt)
+        while off % size: off += 1
+        layout.append((i, off, fmt, v)); off += size
+    tsize = off
+    vt = struct.pack('<HH', 4 + 2 * nfields, tsize)
+    offs = [0] * nfields
+    for i, o, f, v in layout: offs[i] = o
+    vt += b''.join(struct.pack('<H', o) for o in offs)
+    align(2); vpos = len(buf); buf.extend(vt)
+    align(8); tpos = len(buf)
+    buf.extend(b'\0' * tsize)
+    struct.pack_into('<i', buf, tpos, tpos - vpos)
+    children = []
+    for i, o, f, v in layout:
+        if f == 'o': children.append((tpos + o, v))
+        else: struct.pack_into('<' + f, buf, tpos + o, v)
+    for s, child in children:
+        q = place(child); struct.pack_into('<I', buf, s, q - s)
+    return tpos
+
+def serialize(root):
+    global buf
+    buf = bytearray(b'\0' * 8)
+    p = place(root)
+    struct.pack_into('<I', buf, 0, p)
+    align(8)
+    return bytes(buf)
+
+# Schema
+def field(name, nullable, type_id, type_table, dictionary=None):
+    f = {0: ('o', Str(name)), 1: ('?', nullable), 2: ('B', type_id), 3: ('o', type_table), 5: ('o', OffVec([]))}
+    if dictionary is not None: f[4] = ('o', dictionary)
+    return Table(f)
+def int_type(bits, signed): return Table({0: ('i', bits), 1: ('?', signed)})
+def schema():
+    return Table({1: ('o', OffVec([
+        field('age', False, 2, int_type(32, True)),
+        field('gender', False, 5, Table({}), Table({0: ('q', 7), 1: ('o', int_type(32, True))})),
+        field('zipcode', False, 5, Table({})),
+        field('weight', True, 3, Table({0: ('h', 2)})),
+        field('timestamp_s', False, 10, Table({0: ('h', 0)})),
+        field('timestamp_ms', False, 10, Table({0: ('h', 1)})),
+        field('timestamp_us', False, 10, Table({0: ('h', 2)})),
+        field('timestamp_ns', False, 10, Table({0: ('h', 3)})),
+        field('uint64', False, 2, int_type(64, False)),
+    ]))})
+
+def message(header_type, header, body_length):
+    return serialize(Table({0: ('h', 4), 1: ('B', header_type), 2: ('o', header), 3: ('q', body_length)}))
+
+def pad8(b):
+    return b + b'\0' * ((8 - len(b) % 8) % 8)
+
+def utf8_buffers(values):
+    offsets = [0]; data = b''
+    for v in values:
+        data += v.encode('utf-8'); offsets.append(len(data))
+    return [b'', struct.pack('<%di' % len(offsets), *offsets), data]
+
+def record_batch(length, nodes, buffers):
+    body = b''; descs = []
+    for b in buffers:
+        descs.append(struct.pack('<qq', len(body), len(b)))
+        body += pad8(b)
+    rb = Table({0: ('q', length), 1: ('o', StructVec([struct.pack('<qq', *n) for n in nodes], 16)), 2: ('o', StructVec(descs, 16))})
+    return rb, body
+
+rows = [(34, 'male', '81667', 70.5), (45, 'female', '81675', None), (66, 'male', '81925', 80.0),
+        (70, 'female', '81931', 65.25), (34, 'female', '81931', None), (70, 'male', '81931', 90.0),
+        (45, 'male', '81931', 77.0)]
+genders = ['male', 'female']
+nanos = [1500000000 * 10**9 + i * 123456789 for i in range(7)]
+nanos[4] = -1
+nanos[5] = 1500000000 * 10**9 + 5
+uint64 = [0, 1, 2**63 - 1, 2**63, 2**64 - 1, 2**63 + 42, 42]
+
+
+out = bytearray(b'ARROW1\0\0')
+def encapsulate(meta, body):
+    global out
+    start = len(out)
+    meta = pad8(meta)
+    out += struct.pack('<Ii', 0xFFFFFFFF, len(meta)) + meta
+    out += body
+    return struct.pack('<qi4xq', start, 8 + len(meta), len(body))
+
+encapsulate(message(1, schema(), 0), b'')
+rb, body = record_batch(2, [(2, 0)], utf8_buffers(genders))
+dict_block = encapsulate(message(2, Table({0: ('q', 7), 1: ('o', rb)}), len(body)), body)
+batches = []
+for part in (rows[:4], rows[4:]):
+    n = len(part)
+    validity = 0
+    for i, r in enumerate(part):
+        if r[3] is not None: validity |= 1 << i
+    buffers = [b'', struct.pack('<%di' % n, *[r[0] for r in part]),
+               b'', struct.pack('<%di' % n, *[genders.index(r[1]) for r in part])] + \
+              utf8_buffers([r[2] for r in part]) + \
+              [bytes([validity]), struct.pack('<%dd' % n, *[r[3] if r[3] is not None else 0.0 for r in part])]
+    ts = nanos[:4] if n == 4 else nanos[4:]
+    for div in (10**9, 10**6, 10**3, 1):
+        buffers += [b'', struct.pack('<%dq' % n, *[t // div for t in ts])]
+    buffers += [b'', struct.pack('<%dQ' % n, *(uint64[:4] if n == 4 else uint64[4:]))]
+    nulls = sum(1 for r in part if r[3] is None)
+    rb, body = record_batch(n, [(n, 0), (n, 0), (n, 0), (n, nulls), (n, 0), (n, 0), (n, 0), (n, 0), (n, 0)], buffers)
+    batches.append(encapsulate(message(3, rb, len(body)), body))
+
+footer = serialize(Table({0: ('h', 4), 1: ('o', schema()), 2: ('o', StructVec([dict_block], 24)), 3: ('o', StructVec(batches, 24))}))
+out += footer + struct.pack('<i', len(footer)) + b'ARROW1'
+path = os.path.join(os.path.dirname(os.path.abspath(__file__)), 'test.arrow')
+with open(path, 'wb') as file:
+    file.write(out)
+
+# Compare with a reference implementation, if available
+try:
+    import pyarrow
+except ImportError:
+    pyarrow = None
+if pyarrow is not None:
+    table = pyarrow.ipc.open_file(path).read_all()
+    assert table.column('age').to_pylist() == [r[0] for r in rows]
+    assert table.column('gender').to_pylist() == [r[1] for r in rows]
+    assert table.column('zipcode').to_pylist() == [r[2] for r in rows]
+    assert table.column('weight').to_pylist() == [r[3] for r in rows]
+    assert table.column('timestamp_ns').cast(pyarrow.int64()).to_pylist() == nanos
+    assert table.column('uint64').to_pylist() == uint64
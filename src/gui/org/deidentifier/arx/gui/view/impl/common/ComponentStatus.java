@@ -29,7 +29,8 @@ import org.eclipse.swt.widgets.Control;
 
 /**
  * This class implements a wrapper around a control that displays the current status:
- * (1) nothing to display, (2) working, (3) done (shows the control).
+ * (1) nothing to display, (2) working, (3) preliminary (shows the disabled control while
+ * work is still in progress), (4) done (shows the control).
  *
  * @author Fabian Prasser
  */
@@ -110,6 +111,7 @@ public class ComponentStatus {
      * Enables status 'done'. Shows the actual control.
      */
     public void setDone(){
+        this.child.setEnabled(true);
         this.layout.topControl = child;
         this.parent.layout();
     }
@@ -118,14 +120,26 @@ public class ComponentStatus {
      * Enables status 'empty'.
      */
     public void setEmpty(){
+        this.child.setEnabled(true);
         this.layout.topControl = empty;
         this.parent.layout();
     }
+
+    /**
+     * Enables status 'preliminary'. Shows the actual control, which is disabled
+     * until the status is set to 'done'.
+     */
+    public void setPreliminary(){
+        this.child.setEnabled(false);
+        this.layout.topControl = child;
+        this.parent.layout();
+    }
     
     /**
      * Enables status 'working'.
      */
     public void setWorking(){
+        this.child.setEnabled(true);
         this.layout.topControl = working;
         this.parent.layout();
     }
@@ -353,6 +353,13 @@ public abstract class ViewStatistics<T extends AnalysisContextVisualization> imp
         this.status.setEmpty();
     }
     
+    /**
+     * Status preliminary, i.e. intermediate results are shown while the computation is still running.
+     */
+    protected void setStatusPreliminary(){
+        this.status.setPreliminary();
+    }
+    
     /**
      * Status working.
      */
@@ -18,6 +18,7 @@ package org.deidentifier.arx.gui.view.impl.utility;
 
 import org.deidentifier.arx.aggregates.StatisticsBuilderInterruptible;
 import org.deidentifier.arx.aggregates.StatisticsEquivalenceClasses;
+import org.deidentifier.arx.aggregates.StatisticsListener;
 import org.deidentifier.arx.gui.Controller;
 import org.deidentifier.arx.gui.model.ModelEvent.ModelPart;
 import org.deidentifier.arx.gui.resources.Resources;
@@ -30,6 +31,7 @@ import org.eclipse.swt.SWT;
 import org.eclipse.swt.layout.FillLayout;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.TableColumn;
 import org.eclipse.swt.widgets.TableItem;
 
@@ -163,6 +165,7 @@ public class ViewStatisticsEquivalenceClassTable extends ViewStatistics<Analysis
 
         // The statistics builder
         final StatisticsBuilderInterruptible builder = context.handle.getStatistics().getInterruptibleInstance();
+        final Display display = table.getDisplay();
         
         // Create an analysis
         Analysis analysis = new Analysis(){
@@ -172,7 +175,7 @@ public class ViewStatisticsEquivalenceClassTable extends ViewStatistics<Analysis
 
             @Override
             public int getProgress() {
-                return 0;
+                return builder.getProgress();
             }
             
             @Override
@@ -189,35 +192,7 @@ public class ViewStatisticsEquivalenceClassTable extends ViewStatistics<Analysis
                 }
 
                 // Now update the table
-                table.setRedraw(false);
-                table.removeAll();
-                
-                createItem(Resources.getMessage("EquivalenceClassStatistics.4"), //$NON-NLS-1$
-                               format(summary.getAverageEquivalenceClassSizeIncludingOutliers(), summary.getNumberOfTuplesIncludingOutliers()),
-                               format(summary.getAverageEquivalenceClassSize(), summary.getNumberOfTuples()));
-                
-                createItem(Resources.getMessage("EquivalenceClassStatistics.5"), //$NON-NLS-1$
-                           format(summary.getMaximalEquivalenceClassSizeIncludingOutliers(), summary.getNumberOfTuplesIncludingOutliers()),
-                           format(summary.getMaximalEquivalenceClassSize(), summary.getNumberOfTuples()));
-
-                createItem(Resources.getMessage("EquivalenceClassStatistics.6"), //$NON-NLS-1$
-                           format(summary.getMinimalEquivalenceClassSizeIncludingOutliers(), summary.getNumberOfTuplesIncludingOutliers()),
-                           format(summary.getMinimalEquivalenceClassSize(), summary.getNumberOfTuples()));
-
-                createItem(Resources.getMessage("EquivalenceClassStatistics.7"), //$NON-NLS-1$
-                           SWTUtil.getPrettyString(summary.getNumberOfEquivalenceClassesIncludingOutliers()),
-                           SWTUtil.getPrettyString(summary.getNumberOfEquivalenceClasses()));
-
-                createItem(Resources.getMessage("EquivalenceClassStatistics.8"), //$NON-NLS-1$
-                           SWTUtil.getPrettyString(summary.getNumberOfTuplesIncludingOutliers()),
-                           format(summary.getNumberOfTuples(), summary.getNumberOfTuplesIncludingOutliers()));
-
-                createItem(Resources.getMessage("EquivalenceClassStatistics.9"), //$NON-NLS-1$
-                           format(summary.getNumberOfOutlyingTuples(), summary.getNumberOfTuplesIncludingOutliers()),
-                           SWTUtil.getPrettyString(0));
-                
-                table.setRedraw(true);
-                
+                setTable(summary);
                 setStatusDone();
             }
 
@@ -237,7 +212,21 @@ public class ViewStatisticsEquivalenceClassTable extends ViewStatistics<Analysis
                 long time = System.currentTimeMillis();
                 
                 // Perform work
-                this.summary = builder.getEquivalenceClassStatistics();
+                this.summary = builder.getEquivalenceClassStatistics(new StatisticsListener<StatisticsEquivalenceClasses>() {
+                    @Override
+                    public void update(final StatisticsEquivalenceClasses result, int progress) {
+                        
+                        // Show intermediate results
+                        display.asyncExec(new Runnable() {
+                            public void run() {
+                                if (!stopped && isEnabled() && !table.isDisposed()) {
+                                    setTable(result);
+                                    setStatusPreliminary();
+                                }
+                            }
+                        });
+                    }
+                });
 
                 // Our users are patient
                 while (System.currentTimeMillis() - time < MINIMAL_WORKING_TIME && !stopped){
@@ -261,4 +250,42 @@ public class ViewStatisticsEquivalenceClassTable extends ViewStatistics<Analysis
     protected boolean isRunning() {
         return manager != null && manager.isRunning();
     }
+
+    /**
+     * Shows the given statistics in the table
+     * 
+     * @param summary
+     */
+    private void setTable(StatisticsEquivalenceClasses summary) {
+        
+        // Update the table
+        table.setRedraw(false);
+        table.removeAll();
+        
+        createItem(Resources.getMessage("EquivalenceClassStatistics.4"), //$NON-NLS-1$
+                       format(summary.getAverageEquivalenceClassSizeIncludingOutliers(), summary.getNumberOfTuplesIncludingOutliers()),
+                       format(summary.getAverageEquivalenceClassSize(), summary.getNumberOfTuples()));
+        
+        createItem(Resources.getMessage("EquivalenceClassStatistics.5"), //$NON-NLS-1$
+                   format(summary.getMaximalEquivalenceClassSizeIncludingOutliers(), summary.getNumberOfTuplesIncludingOutliers()),
+                   format(summary.getMaximalEquivalenceClassSize(), summary.getNumberOfTuples()));
+
+        createItem(Resources.getMessage("EquivalenceClassStatistics.6"), //$NON-NLS-1$
+                   format(summary.getMinimalEquivalenceClassSizeIncludingOutliers(), summary.getNumberOfTuplesIncludingOutliers()),
+                   format(summary.getMinimalEquivalenceClassSize(), summary.getNumberOfTuples()));
+
+        createItem(Resources.getMessage("EquivalenceClassStatistics.7"), //$NON-NLS-1$
+                   SWTUtil.getPrettyString(summary.getNumberOfEquivalenceClassesIncludingOutliers()),
+                   SWTUtil.getPrettyString(summary.getNumberOfEquivalenceClasses()));
+
+        createItem(Resources.getMessage("EquivalenceClassStatistics.8"), //$NON-NLS-1$
+                   SWTUtil.getPrettyString(summary.getNumberOfTuplesIncludingOutliers()),
+                   format(summary.getNumberOfTuples(), summary.getNumberOfTuplesIncludingOutliers()));
+
+        createItem(Resources.getMessage("EquivalenceClassStatistics.9"), //$NON-NLS-1$
+                   format(summary.getNumberOfOutlyingTuples(), summary.getNumberOfTuplesIncludingOutliers()),
+                   SWTUtil.getPrettyString(0));
+        
+        table.setRedraw(true);
+    }
 }
@@ -16,7 +16,10 @@
  */
 package org.deidentifier.arx.gui.view.impl.utility;
 
+import java.util.Map;
+
 import org.deidentifier.arx.aggregates.StatisticsBuilderInterruptible;
+import org.deidentifier.arx.aggregates.StatisticsListener;
 import org.deidentifier.arx.aggregates.StatisticsSummary;
 import org.deidentifier.arx.gui.Controller;
 import org.deidentifier.arx.gui.model.ModelEvent.ModelPart;
@@ -30,6 +33,7 @@ import org.eclipse.swt.SWT;
 import org.eclipse.swt.layout.FillLayout;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.TableColumn;
 import org.eclipse.swt.widgets.TableItem;
 
@@ -135,6 +139,7 @@ public class ViewStatisticsSummaryTable extends ViewStatistics<AnalysisContextDi
         // The statistics builder
         final StatisticsBuilderInterruptible builder = context.handle.getStatistics().getInterruptibleInstance();
         final String attribute = context.attribute;
+        final Display display = table.getDisplay();
         
         // Create an analysis
         Analysis analysis = new Analysis(){
@@ -144,7 +149,7 @@ public class ViewStatisticsSummaryTable extends ViewStatistics<AnalysisContextDi
 
             @Override
             public int getProgress() {
-                return 0;
+                return builder.getProgress();
             }
             
             @Override
@@ -161,26 +166,7 @@ public class ViewStatisticsSummaryTable extends ViewStatistics<AnalysisContextDi
                 }
 
                 // Now update the table
-                table.setRedraw(false);
-                table.removeAll();
-                
-                createItem(Resources.getMessage("SummaryStatistics.13"), String.valueOf(summary.getScale())); //$NON-NLS-1$
-                createItem(Resources.getMessage("SummaryStatistics.12"), String.valueOf(summary.getNumberOfMeasuresAsString())); //$NON-NLS-1$
-                
-                if (summary.isModeAvailable()) createItem(Resources.getMessage("SummaryStatistics.2"), summary.getModeAsString()); //$NON-NLS-1$
-                if (summary.isMedianAvailable()) createItem(Resources.getMessage("SummaryStatistics.3"), summary.getMedianAsString()); //$NON-NLS-1$
-                if (summary.isMinAvailable()) createItem(Resources.getMessage("SummaryStatistics.4"), summary.getMinAsString()); //$NON-NLS-1$
-                if (summary.isMaxAvailable()) createItem(Resources.getMessage("SummaryStatistics.5"), summary.getMaxAsString());                 //$NON-NLS-1$
-                if (summary.isArithmeticMeanAvailable()) createItem(Resources.getMessage("SummaryStatistics.6"), summary.getArithmeticMeanAsString()); //$NON-NLS-1$
-                if (summary.isSampleVarianceAvailable()) createItem(Resources.getMessage("SummaryStatistics.7"), summary.getSampleVarianceAsString()); //$NON-NLS-1$
-                if (summary.isPopulationVarianceAvailable()) createItem(Resources.getMessage("SummaryStatistics.8"), summary.getPopulationVarianceAsString()); //$NON-NLS-1$
-                if (summary.isStdDevAvailable()) createItem(Resources.getMessage("SummaryStatistics.14"), summary.getStdDevAsString()); //$NON-NLS-1$
-                if (summary.isRangeAvailable()) createItem(Resources.getMessage("SummaryStatistics.9"), summary.getRangeAsString()); //$NON-NLS-1$
-                if (summary.isKurtosisAvailable()) createItem(Resources.getMessage("SummaryStatistics.10"), summary.getKurtosisAsString()); //$NON-NLS-1$
-                if (summary.isGeometricMeanAvailable()) createItem(Resources.getMessage("SummaryStatistics.11"), summary.getGeometricMeanAsString()); //$NON-NLS-1$
-
-                table.setRedraw(true);
-                
+                setTable(summary);
                 setStatusDone();
             }
 
@@ -203,7 +189,22 @@ public class ViewStatisticsSummaryTable extends ViewStatistics<AnalysisContextDi
                 // TODO: This view computes the statistics for all attributes, each time the selected attribute is changed
                 // TODO: This is done because of list-wise deletion, could be implemented more efficient anyways, however
                 boolean listwiseDeletion = getModel() != null ? getModel().getUseListwiseDeletion() : true;
-                this.summary = builder.getSummaryStatistics(listwiseDeletion).get(attribute);
+                this.summary = builder.getSummaryStatistics(listwiseDeletion, new StatisticsListener<Map<String, StatisticsSummary<?>>>() {
+                    @Override
+                    public void update(Map<String, StatisticsSummary<?>> result, int progress) {
+                        
+                        // Show intermediate results
+                        final StatisticsSummary<?> intermediate = result.get(attribute);
+                        display.asyncExec(new Runnable() {
+                            public void run() {
+                                if (!stopped && isEnabled() && !table.isDisposed()) {
+                                    setTable(intermediate);
+                                    setStatusPreliminary();
+                                }
+                            }
+                        });
+                    }
+                }).get(attribute);
 
                 // Our users are patient
                 while (System.currentTimeMillis() - time < MINIMAL_WORKING_TIME && !stopped){
@@ -227,4 +228,33 @@ public class ViewStatisticsSummaryTable extends ViewStatistics<AnalysisContextDi
     protected boolean isRunning() {
         return manager != null && manager.isRunning();
     }
+
+    /**
+     * Shows the given statistics in the table
+     * 
+     * @param summary
+     */
+    private void setTable(StatisticsSummary<?> summary) {
+        
+        // Update the table
+        table.setRedraw(false);
+        table.removeAll();
+        
+        createItem(Resources.getMessage("SummaryStatistics.13"), String.valueOf(summary.getScale())); //$NON-NLS-1$
+        createItem(Resources.getMessage("SummaryStatistics.12"), String.valueOf(summary.getNumberOfMeasuresAsString())); //$NON-NLS-1$
+        
+        if (summary.isModeAvailable()) createItem(Resources.getMessage("SummaryStatistics.2"), summary.getModeAsString()); //$NON-NLS-1$
+        if (summary.isMedianAvailable()) createItem(Resources.getMessage("SummaryStatistics.3"), summary.getMedianAsString()); //$NON-NLS-1$
+        if (summary.isMinAvailable()) createItem(Resources.getMessage("SummaryStatistics.4"), summary.getMinAsString()); //$NON-NLS-1$
+        if (summary.isMaxAvailable()) createItem(Resources.getMessage("SummaryStatistics.5"), summary.getMaxAsString());                 //$NON-NLS-1$
+        if (summary.isArithmeticMeanAvailable()) createItem(Resources.getMessage("SummaryStatistics.6"), summary.getArithmeticMeanAsString()); //$NON-NLS-1$
+        if (summary.isSampleVarianceAvailable()) createItem(Resources.getMessage("SummaryStatistics.7"), summary.getSampleVarianceAsString()); //$NON-NLS-1$
+        if (summary.isPopulationVarianceAvailable()) createItem(Resources.getMessage("SummaryStatistics.8"), summary.getPopulationVarianceAsString()); //$NON-NLS-1$
+        if (summary.isStdDevAvailable()) createItem(Resources.getMessage("SummaryStatistics.14"), summary.getStdDevAsString()); //$NON-NLS-1$
+        if (summary.isRangeAvailable()) createItem(Resources.getMessage("SummaryStatistics.9"), summary.getRangeAsString()); //$NON-NLS-1$
+        if (summary.isKurtosisAvailable()) createItem(Resources.getMessage("SummaryStatistics.10"), summary.getKurtosisAsString()); //$NON-NLS-1$
+        if (summary.isGeometricMeanAvailable()) createItem(Resources.getMessage("SummaryStatistics.11"), summary.getGeometricMeanAsString()); //$NON-NLS-1$
+
+        table.setRedraw(true);
+    }
 }
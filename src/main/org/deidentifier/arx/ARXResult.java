@@ -18,22 +18,33 @@
 package org.deidentifier.arx;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.deidentifier.arx.ARXAnonymizer.Result;
 import org.deidentifier.arx.ARXLattice.ARXNode;
+import org.deidentifier.arx.algorithm.MondrianAlgorithm;
+import org.deidentifier.arx.criteria.EDDifferentialPrivacy;
+import org.deidentifier.arx.criteria.KAnonymity;
 import org.deidentifier.arx.criteria.PrivacyCriterion;
 import org.deidentifier.arx.exceptions.RollbackRequiredException;
 import org.deidentifier.arx.framework.check.NodeChecker;
 import org.deidentifier.arx.framework.check.TransformedData;
 import org.deidentifier.arx.framework.check.distribution.DistributionAggregateFunction;
+import org.deidentifier.arx.framework.check.groupify.HashGroupify;
+import org.deidentifier.arx.framework.check.groupify.HashGroupifyEntry;
 import org.deidentifier.arx.framework.data.Data;
 import org.deidentifier.arx.framework.data.DataManager;
 import org.deidentifier.arx.framework.data.Dictionary;
 import org.deidentifier.arx.framework.lattice.SolutionSpace;
 import org.deidentifier.arx.framework.lattice.Transformation;
 import org.deidentifier.arx.metric.Metric;
+import org.deidentifier.arx.risk.RiskEstimateBuilder;
+
+import cern.colt.list.LongArrayList;
 
 /**
  * Encapsulates the results of an execution of the ARX algorithm.
@@ -76,6 +87,9 @@ public class ARXResult {
     /** The registry. */
     private final SolutionSpace    solutionSpace;
 
+    /** Whether this result has been replaced by appending records */
+    private boolean                replaced             = false;
+
     /**
      * Internal constructor for deserialization.
      *
@@ -188,7 +202,120 @@ public class ARXResult {
         this.solutionSpace = solutionSpace;
     }
 
+    /**
+     * Appends the given records to the input data and returns a result for the extended dataset.
+     * Instead of searching the complete solution space again, the current optimum as well as its
+     * direct successors and predecessors are checked. Only if none of them is a solution, more
+     * generalized transformations are checked level by level. If this result does not contain a
+     * solution, the complete solution space is searched. Note that the extended dataset is encoded
+     * and checked completely, meaning that costs depend on its size and not only on the number of
+     * appended records.<br>
+     * <br>
+     * The header of the given data must contain the same attributes as the input data. All values of
+     * quasi-identifiers must be contained in the according hierarchies. Research subsets and
+     * differential privacy are not supported. If the records cannot be appended, this result remains
+     * valid. Otherwise, all output handles of this result are released and the returned result replaces
+     * this result, which will throw an IllegalStateException when being used to access data.
+     *
+     * @param data The records to append
+     * @return The result for the extended dataset
+     * @throws IOException
+     */
+    public ARXResult append(org.deidentifier.arx.Data data) throws IOException {
+
+        // Check
+        checkReplaced();
+        if (data == null) {
+            throw new NullPointerException("Data must not be null");
+        }
+        if (config.getSubset() != null || config.isPrivacyModelSpecified(EDDifferentialPrivacy.class)) {
+            throw new UnsupportedOperationException("Appending records is not supported for research subsets and differential privacy");
+        }
+
+        // Encode the extended dataset. This result remains valid, if the records cannot be encoded.
+        final long time = System.currentTimeMillis();
+        final DataHandleInput handle = registry.getInputHandle();
+        final Dictionary dictionary = handle.getAppendableDictionary();
+        final int[][] extended = handle.getAppendedData(data.iterator(), dictionary);
+        final DataManager manager = new DataManager(handle.header,
+                                                    extended,
+                                                    dictionary,
+                                                    definition,
+                                                    config.getPrivacyModels(),
+                                                    getAggregateFunctions(definition));
+
+        // Release output handles and update the input handle, which is shared with the new result
+        replaced = true;
+        registry.reset();
+        bufferLockedByHandle = null;
+        bufferLockedByNode = null;
+        handle.update(extended, dictionary);
+        handle.getRegistry().createInputSubset(config);
+        handle.update(manager.getDataGeneralized().getArray(),
+                      manager.getDataAnalyzed().getArray(),
+                      manager.getDataStatic().getArray());
+
+        // Search the complete solution space, if there is no previous solution
+        if (optimalNode == null) {
+            return new ARXAnonymizer().anonymize(manager, definition, config).asResult(config, handle);
+        }
+
+        // Initialize
+        config.initialize(manager);
+        final Metric<?> metric = config.getQualityModel();
+        metric.initialize(manager, definition, manager.getDataGeneralized(), manager.getHierarchies(), config);
+        final SolutionSpace solutionSpace = new SolutionSpace(manager.getHierarchiesMinLevels(), manager.getHierarchiesMaxLevels());
+        final NodeChecker checker = new NodeChecker(manager,
+                                                    metric,
+                                                    config.getInternalConfiguration(),
+                                                    0,
+                                                    0d,
+                                                    0d,
+                                                    solutionSpace);
+
+        // Check the neighborhood of the previous optimum
+        final Transformation previous = solutionSpace.getTransformation(optimalNode.getTransformation());
+        final List<Transformation> candidates = new ArrayList<Transformation>();
+        candidates.add(previous);
+        candidates.addAll(getTransformations(solutionSpace, previous.getSuccessors()));
+        candidates.addAll(getTransformations(solutionSpace, previous.getPredecessors()));
+        Transformation optimum = check(checker, solutionSpace, candidates, null);
+
+        // Move towards more generalized transformations, if required
+        List<Transformation> level = candidates.subList(1, 1 + previous.getSuccessors().size());
+        while (optimum == null && !level.isEmpty()) {
+            final List<Transformation> next = new ArrayList<Transformation>();
+            for (Transformation transformation : level) {
+                for (Transformation successor : getTransformations(solutionSpace, transformation.getSuccessors())) {
+                    if (!successor.hasProperty(solutionSpace.getPropertyChecked()) && !next.contains(successor)) {
+                        next.add(successor);
+                    }
+                }
+            }
+            optimum = check(checker, solutionSpace, next, null);
+            level = next;
+        }
+        
+        // Deactivate history to prevent bugs when sorting data
+        checker.getHistory().reset();
+        checker.getHistory().setSize(0);
 
+        // Create result
+        final ARXLattice lattice = new ARXLattice(solutionSpace,
+                                                  false,
+                                                  optimum,
+                                                  manager.getDataGeneralized().getHeader(),
+                                                  config.getInternalConfiguration());
+        handle.setLocked(true);
+        return new ARXResult(registry,
+                             manager,
+                             checker,
+                             definition,
+                             config,
+                             lattice,
+                             System.currentTimeMillis() - time,
+                             solutionSpace);
+    }
 
     /**
      * Returns the configuration used.
@@ -286,6 +413,9 @@ public class ARXResult {
      */
     public DataHandle getOutput(ARXNode node, boolean fork) {
         
+        // Check
+        checkReplaced();
+
         // Check lock
         if (fork && bufferLockedByHandle != null) {
             throw new RuntimeException("The buffer is currently locked by another handle");
@@ -372,6 +502,73 @@ public class ARXResult {
         return getOutput(optimalNode, fork);
     }
 
+    /**
+     * Returns a risk estimator for the data obtained by applying the given transformation. Estimates are
+     * derived from the equivalence classes of the transformation, without materializing the output data,
+     * which makes it possible to efficiently compare the risks of large numbers of transformations. The
+     * results match the estimates for <code>getOutput(node).getView()</code>. Only estimates which can be
+     * derived from the classes are available. Classes are defined by generalized attributes, meaning that
+     * results may differ for microaggregated attributes. As the transformation is applied to the buffer of
+     * this result, output handles which have not been forked are released, like in {@link #getOutput(ARXNode, boolean)}.
+     * 
+     * @param node the transformation
+     * @param model the population model
+     * @return
+     */
+    public RiskEstimateBuilder getRiskEstimator(ARXNode node, ARXPopulationModel model) {
+        return getRiskEstimator(node, model, ARXSolverConfiguration.create());
+    }
+
+    /**
+     * Returns a risk estimator for the data obtained by applying the given transformation. Estimates are
+     * derived from the equivalence classes of the transformation, without materializing the output data,
+     * which makes it possible to efficiently compare the risks of large numbers of transformations. The
+     * results match the estimates for <code>getOutput(node).getView()</code>. Only estimates which can be
+     * derived from the classes are available. Classes are defined by generalized attributes, meaning that
+     * results may differ for microaggregated attributes. As the transformation is applied to the buffer of
+     * this result, output handles which have not been forked are released, like in {@link #getOutput(ARXNode, boolean)}.
+     * 
+     * @param node the transformation
+     * @param model the population model
+     * @param solverconfig the solver configuration
+     * @return
+     */
+    public RiskEstimateBuilder getRiskEstimator(ARXNode node, ARXPopulationModel model, ARXSolverConfiguration solverconfig) {
+
+        // Check
+        checkReplaced();
+
+        // Release lock, as the buffer is overwritten
+        if (bufferLockedByHandle != null) {
+            registry.release(bufferLockedByHandle);
+            bufferLockedByHandle = null;
+            bufferLockedByNode = null;
+        }
+
+        // Group
+        final Transformation transformation = solutionSpace.getTransformation(node.getTransformation());
+        HashGroupify groupify = checker.groupify(transformation);
+        boolean subset = checker.getConfiguration().getSubset() != null;
+
+        // Collect sizes of unsuppressed classes in the research subset and the overall data
+        int[] sizes = new int[groupify.getNumberOfEquivalenceClasses() * 2];
+        int index = 0;
+        HashGroupifyEntry entry = groupify.getFirstEquivalenceClass();
+        while (entry != null) {
+            if (entry.isNotOutlier && entry.count > 0) {
+                sizes[index++] = entry.count;
+                sizes[index++] = subset ? entry.pcount : entry.count;
+            }
+            entry = entry.nextOrdered;
+        }
+        if (index != sizes.length) {
+            sizes = Arrays.copyOf(sizes, index);
+        }
+
+        // Return
+        return new RiskEstimateBuilder(model, sizes, groupify.isPrivacyModelFulfilled(), solverconfig, config);
+    }
+
     /**
      * Returns the execution time (wall clock).
      *
@@ -388,6 +585,9 @@ public class ARXResult {
      */
     public boolean isOptimizable(DataHandle handle) {
 
+        // Check
+        checkReplaced();
+
         // Check, if output
         if (!(handle instanceof DataHandleOutput)) {
             return false;
@@ -596,6 +796,9 @@ public class ARXResult {
             // Update data types
             output.updateDataTypes(result.optimum.getGeneralization());
             
+            // Invalidate cached information about the handle
+            output.getRegistry().modified();
+            
             // Mark as optimized
             if (optimized != 0) {
                 output.setOptimized(true);
@@ -703,6 +906,157 @@ public class ARXResult {
         }
     }
 
+    /**
+     * This method replaces the given data output with the result of a Mondrian-style local
+     * recoding algorithm, which performs a top-down specialization over the generalization
+     * hierarchies. Different records may be generalized to different levels, which typically
+     * results in significantly less suppression and generalization than global recoding.
+     * The suppression limit is not checked, as only records which are also suppressed by
+     * all transformations of the solution space are suppressed. Currently, only k-anonymity is supported. Partitions are processed in parallel, using
+     * one thread per available processor.
+     * 
+     * @param handle
+     * @return The number of records which have not been suppressed
+     * @throws RollbackRequiredException
+     */
+    public int optimizeTopDown(DataHandle handle) throws RollbackRequiredException {
+        return this.optimizeTopDown(handle, Runtime.getRuntime().availableProcessors(), new ARXListener(){
+            @Override
+            public void progress(double progress) {
+                // Empty by design
+            }
+        });
+    }
+
+    /**
+     * This method replaces the given data output with the result of a Mondrian-style local
+     * recoding algorithm, which performs a top-down specialization over the generalization
+     * hierarchies. Different records may be generalized to different levels, which typically
+     * results in significantly less suppression and generalization than global recoding.
+     * The suppression limit is not checked, as only records which are also suppressed by
+     * all transformations of the solution space are suppressed. Currently, only k-anonymity is supported.
+     * 
+     * @param handle
+     * @param threads The number of threads used for processing partitions in parallel
+     * @param listener Called from the threads processing partitions, calls are serialized
+     * @return The number of records which have not been suppressed
+     * @throws RollbackRequiredException
+     */
+    public int optimizeTopDown(DataHandle handle, int threads, ARXListener listener) throws RollbackRequiredException {
+
+        // Check
+        checkReplaced();
+
+        // Check if null
+        if (listener == null) {
+            throw new NullPointerException("Listener must not be null");
+        }
+        
+        // Check if null
+        if (handle == null) {
+            throw new NullPointerException("Handle must not be null");
+        }
+
+        // Check bounds
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be >= 1");
+        }
+        
+        // Check if output
+        if (!(handle instanceof DataHandleOutput)) {
+            throw new IllegalArgumentException("Local recoding can only be applied to output data");
+        }
+        
+        // Extract
+        DataHandleOutput output = (DataHandleOutput)handle;
+        
+        // Check, if input matches
+        if (output.getInputBuffer() == null || !output.getInputBuffer().equals(this.checker.getInputBuffer())) {
+            throw new IllegalArgumentException("This output data is not associated to the correct input data");
+        }
+        
+        // Check, if supported
+        for (PrivacyCriterion c : config.getPrivacyModels()) {
+            if (!(c instanceof KAnonymity)) {
+                throw new IllegalStateException("Top-down local recoding is only supported for k-anonymity.");
+            }
+        }
+        if (!this.definition.getQuasiIdentifiersWithMicroaggregation().isEmpty()) {
+            throw new IllegalStateException("Top-down local recoding is not supported for microaggregation.");
+        }
+        
+        // Prepare
+        MondrianAlgorithm algorithm = new MondrianAlgorithm(output.getInputBuffer(),
+                                                            output.getOutputBufferGeneralized().getArray(),
+                                                            manager.getHierarchies(),
+                                                            manager.getHierarchiesMinLevels(),
+                                                            manager.getHierarchiesMaxLevels(),
+                                                            config.getMinimalGroupSize(),
+                                                            threads);
+        algorithm.setListener(listener);
+        
+        // Execute and update the handle. If anything happens, the operation needs to be
+        // rolled back, because the buffer might be in an inconsistent state
+        try {
+            
+            // Execute
+            int recoded = algorithm.traverse();
+            
+            // Update data types
+            output.updateDataTypes(algorithm.getMaximalLevels());
+            
+            // Invalidate cached information about the handle
+            output.getRegistry().modified();
+            
+            // Mark as optimized
+            output.setOptimized(true);
+            
+            // Return
+            return recoded;
+            
+        } catch (Exception e) {
+            throw new RollbackRequiredException("Handle must be rebuild to guarantee privacy", e);
+        }
+    }
+
+    /**
+     * Checks the given transformations and returns the best solution, starting with the given optimum
+     * 
+     * @param checker
+     * @param solutionSpace
+     * @param transformations
+     * @param optimum
+     * @return
+     */
+    private Transformation check(NodeChecker checker,
+                                 SolutionSpace solutionSpace,
+                                 List<Transformation> transformations,
+                                 Transformation optimum) {
+        for (Transformation transformation : transformations) {
+            transformation.setChecked(checker.check(transformation, true));
+            if (transformation.hasProperty(solutionSpace.getPropertyAnonymous())) {
+                if (optimum == null) {
+                    optimum = transformation;
+                } else {
+                    int compare = transformation.getInformationLoss().compareTo(optimum.getInformationLoss());
+                    if (compare < 0 || (compare == 0 && transformation.getLevel() < optimum.getLevel())) {
+                        optimum = transformation;
+                    }
+                }
+            }
+        }
+        return optimum;
+    }
+
+    /**
+     * Throws an exception, if this result has been replaced by appending records
+     */
+    private void checkReplaced() {
+        if (replaced) {
+            throw new IllegalStateException("This result has been replaced by appending records");
+        }
+    }
+
     /**
      * Returns a map of all microaggregation functions
      * @param definition
@@ -716,6 +1070,21 @@ public class ARXResult {
         return result;
     }
     
+    /**
+     * Returns the transformations with the given identifiers
+     * 
+     * @param solutionSpace
+     * @param identifiers
+     * @return
+     */
+    private List<Transformation> getTransformations(SolutionSpace solutionSpace, LongArrayList identifiers) {
+        List<Transformation> result = new ArrayList<Transformation>();
+        for (int i = 0; i < identifiers.size(); i++) {
+            result.add(solutionSpace.getTransformation(identifiers.getQuick(i)));
+        }
+        return result;
+    }
+
     /**
      * Releases the buffer.
      *
@@ -27,7 +27,10 @@ import java.util.List;
 import java.util.NoSuchElementException;
 
 import org.apache.poi.ss.formula.functions.T;
+import org.deidentifier.arx.framework.data.Dictionary;
+import org.deidentifier.arx.io.BinaryDataInput;
 import org.deidentifier.arx.io.CSVDataInput;
+import org.deidentifier.arx.io.CSVDataInputParallel;
 import org.deidentifier.arx.io.CSVSyntax;
 import org.deidentifier.arx.io.ImportAdapter;
 import org.deidentifier.arx.io.ImportConfiguration;
@@ -117,6 +120,95 @@ public abstract class Data {
 
     }
 
+    /**
+     * A data object for data which has already been encoded.
+     *
+     * @author Fabian Prasser
+     */
+    static class EncodedData extends Data {
+
+        /** The header. */
+        private final String[]   header;
+
+        /** The encoded data. */
+        private final int[][]    data;
+
+        /** The dictionary. */
+        private final Dictionary dictionary;
+
+        /**
+         * Creates a new instance.
+         *
+         * @param header the header
+         * @param data the encoded data
+         * @param dictionary the finalized dictionary
+         */
+        private EncodedData(final String[] header, final int[][] data, final Dictionary dictionary) {
+            this.header = header;
+            this.data = data;
+            this.dictionary = dictionary;
+        }
+
+        @Override
+        protected Iterator<String[]> iterator() {
+            return new Iterator<String[]>() {
+
+                private final String[][] mapping = dictionary.getMapping();
+                private int              pos     = -1;
+
+                @Override
+                public boolean hasNext() {
+                    return pos < data.length;
+                }
+
+                @Override
+                public String[] next() throws NoSuchElementException {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    if (pos++ == -1) {
+                        return header;
+                    }
+                    int[] tuple = data[pos - 1];
+                    String[] result = new String[tuple.length];
+                    for (int i = 0; i < tuple.length; i++) {
+                        result[i] = mapping[i][tuple[i]];
+                    }
+                    return result;
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        /**
+         * Returns the encoded data
+         * @return
+         */
+        int[][] getData() {
+            return data;
+        }
+
+        /**
+         * Returns the dictionary
+         * @return
+         */
+        Dictionary getDictionary() {
+            return dictionary;
+        }
+
+        /**
+         * Returns the header
+         * @return
+         */
+        String[] getHeader() {
+            return header;
+        }
+    }
+
     /**
      * A data object for iterators.
      *
@@ -163,6 +255,15 @@ public abstract class Data {
 
         ImportConfiguration config = source.getConfiguration();
         ImportAdapter adapter = ImportAdapter.create(config);
+
+        // Use encoded data, if supported
+        String[][] dictionaries = new String[config.getColumns().size()][];
+        int[][] data = adapter.readEncoded(dictionaries);
+        if (data != null) {
+            Data result = new EncodedData(adapter.getHeader(), data, new Dictionary(dictionaries));
+            result.getDefinition().parse(adapter);
+            return result;
+        }
         return create(adapter);
     }
 
@@ -256,6 +357,67 @@ public abstract class Data {
         return new IterableData(new CSVDataInput(file, charset, config, datatypes).iterator());
     }
 
+    /**
+     * Creates a new data object from a CSV file, which is parsed and encoded with multiple threads.
+     *
+     * @param file the file
+     * @param config the config
+     * @param threads the number of threads
+     * @return the data
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static Data create(final File file, final Charset charset, final CSVSyntax config, final int threads) throws IOException {
+        return create(file, charset, config, null, threads);
+    }
+
+    /**
+     * Creates a new data object from a CSV file, which is parsed and encoded with multiple threads.
+     *
+     * @param file the file
+     * @param config the config
+     * @param datatypes the datatypes
+     * @param threads the number of threads
+     * @return the data
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static Data create(final File file, final Charset charset, final CSVSyntax config, final DataType<T>[] datatypes, final int threads) throws IOException {
+        CSVDataInputParallel input = new CSVDataInputParallel(file, charset, config, datatypes, threads);
+        input.read();
+        return new EncodedData(input.getHeader(), input.getData(), input.getDictionary());
+    }
+
+    /**
+     * Creates a new data object from a file in the binary format written by
+     * {@link DataHandle#saveBinary(File)}. The file is memory mapped and the data is
+     * loaded without parsing or re-encoding. The stored data definition is restored.
+     *
+     * @param file the file
+     * @return the data
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static Data createBinary(final File file) throws IOException {
+        BinaryDataInput input = new BinaryDataInput(file);
+        input.read();
+        Data data = new EncodedData(input.getHeader(), input.getData(), new Dictionary(input.getDictionaries()));
+        if (input.getDefinition() != null) {
+            data.getDefinition().read(input.getDefinition());
+        }
+        return data;
+    }
+
+    /**
+     * Creates a new data object from a file in the binary format written by
+     * {@link DataHandle#saveBinary(String)}. The file is memory mapped and the data is
+     * loaded without parsing or re-encoding. The stored data definition is restored.
+     *
+     * @param path the path
+     * @return the data
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static Data createBinary(final String path) throws IOException {
+        return createBinary(new File(path));
+    }
+
     /**
      * Creates a new data object from a CSV file.
      *
@@ -482,6 +644,22 @@ public abstract class Data {
     /** The data definition. */
     private DataDefinition  definition = new DataDefinition();
 
+    /**
+     * Appends the rows of the given data object to the handle of this data object. The header of
+     * the given data must contain the same attributes, in any order. Existing values keep their
+     * encoding, new values are added to the dictionary. To append rows to data which has already
+     * been anonymized, use {@link ARXResult#append(Data)}.
+     *
+     * @param data
+     */
+    public void append(final Data data) {
+        DataHandleInput handle = (DataHandleInput) getHandle();
+        if (handle.isLocked()) {
+            throw new RuntimeException("This data handle is locked. Please release it first");
+        }
+        handle.append(data.iterator());
+    }
+
     /**
      * Returns the data definition.
      *
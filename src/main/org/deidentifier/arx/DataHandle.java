@@ -20,19 +20,27 @@ package org.deidentifier.arx;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.security.NoSuchAlgorithmException;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.math3.util.Pair;
 import org.deidentifier.arx.ARXLattice.ARXNode;
@@ -43,7 +51,13 @@ import org.deidentifier.arx.DataType.ARXInteger;
 import org.deidentifier.arx.DataType.DataTypeDescription;
 import org.deidentifier.arx.aggregates.StatisticsBuilder;
 import org.deidentifier.arx.certificate.elements.ElementData;
+import org.deidentifier.arx.common.EquivalenceClassIndex;
+import org.deidentifier.arx.common.WrappedBoolean;
+import org.deidentifier.arx.framework.data.Dictionary;
+import org.deidentifier.arx.io.BinaryDataOutput;
+import org.deidentifier.arx.io.CSVDataChecksum;
 import org.deidentifier.arx.io.CSVDataOutput;
+import org.deidentifier.arx.io.CSVDataOutputEncoded;
 import org.deidentifier.arx.io.CSVSyntax;
 import org.deidentifier.arx.risk.RiskEstimateBuilder;
 import org.deidentifier.arx.risk.RiskModelHistogram;
@@ -64,6 +78,12 @@ import cern.colt.Swapper;
  */
 public abstract class DataHandle {
 
+    /** Minimal number of checks of values against data types for which these are performed in parallel. */
+    private static final long MIN_PARALLEL_TYPE_CHECKS = 1 << 18;
+
+    /** Maximal number of entries in each cache, the least recently used entries are evicted. */
+    private static final int  MAX_CACHE_SIZE           = 16;
+
     /** The data types. */
     protected DataType<?>[][]   dataTypes  = null;
 
@@ -81,6 +101,27 @@ public abstract class DataHandle {
 
     /** The current research subset. */
     protected DataHandle        subset     = null;
+
+    /** Cached equivalence classes per set of quasi-identifiers. */
+    private final Map<Set<String>, RiskModelHistogram>      equivalenceClasses             = DataHandle.<Set<String>, RiskModelHistogram> createCache();
+
+    /** Registry version for which the equivalence classes have been cached. */
+    private long                                            equivalenceClassesVersion      = -1L;
+
+    /** Cached indices of equivalence classes per set of columns. */
+    private final Map<List<Integer>, EquivalenceClassIndex> equivalenceClassIndices        = DataHandle.<List<Integer>, EquivalenceClassIndex> createCache();
+
+    /** Registry version for which the indices of equivalence classes have been cached. */
+    private long                                            equivalenceClassIndicesVersion = -1L;
+
+    /** Order of rows for which the indices of equivalence classes have been cached. */
+    private long                                            equivalenceClassIndicesOrder   = -1L;
+
+    /** Cached frequencies of encoded values per column or combination of columns. */
+    private final Map<List<Integer>, int[]>                 frequencies                    = DataHandle.<List<Integer>, int[]> createCache();
+
+    /** Registry version for which the frequencies have been cached. */
+    private long                                            frequenciesVersion             = -1L;
     
     /**
      * Returns the name of the specified column.
@@ -90,6 +131,30 @@ public abstract class DataHandle {
      */
     public abstract String getAttributeName(int col);
 
+    /**
+     * Returns a hex-encoded SHA-256 tree checksum of the CSV representation of the data, which is
+     * computed in parallel from the encoded representation. See
+     * {@link CSVDataChecksum#getSHA256TreeChecksum(String[], CSVDataOutputEncoded.Column[], int, BitSet, String)}.
+     *
+     * @param config the CSV syntax
+     * @return the checksum
+     * @throws NoSuchAlgorithmException
+     */
+    public String getChecksum(final CSVSyntax config) throws NoSuchAlgorithmException {
+        checkRegistry();
+        CSVDataOutputEncoded.Column[] columns = getEncodedColumns();
+        if (columns == null) {
+            final String[][] dictionaries = new String[getNumColumns()][];
+            final int[][] data = getEncodedData(dictionaries);
+            columns = new CSVDataOutputEncoded.Column[dictionaries.length];
+            for (int column = 0; column < columns.length; column++) {
+                columns[column] = new CSVDataOutputEncoded.Column(dictionaries[column], data, column, -1, false);
+            }
+            return new CSVDataChecksum(config).getSHA256TreeChecksum(header, columns, getNumRows(), null, DataType.ANY_VALUE);
+        }
+        return new CSVDataChecksum(config).getSHA256TreeChecksum(header, columns, getNumRows(), getSuppressedRows(), DataType.ANY_VALUE);
+    }
+
     /**
      * Returns the index of the given attribute, -1 if it is not in the header.
      *
@@ -316,25 +381,9 @@ public abstract class DataHandle {
 
         checkRegistry();
         checkColumn(column);
-        double distinct = this.getDistinctValues(column).length;
-        List<Pair<DataType<?>, Double>> result = new ArrayList<Pair<DataType<?>, Double>>();
-        DataTypeDescription<U> description = DataType.list(clazz);
-        if (description.hasFormat()) {
-            for (String format : description.getExampleFormats()) {
-                DataType<U> type = description.newInstance(format, locale);
-                double matching = getNumConformingValues(column, type) / distinct;
-                if (matching >= threshold) {
-                    result.add(new Pair<DataType<?>, Double>(type, matching));
-                }
-            }
-        } else {
-            DataType<U> type = description.newInstance();
-            double matching = getNumConformingValues(column, type) / distinct;
-            if (matching >= threshold) {
-                result.add(new Pair<DataType<?>, Double>(type, matching));
-            }
-        }
-        return result;
+        List<DataType<?>> types = new ArrayList<DataType<?>>();
+        getCandidateDataTypes(types, clazz, locale);
+        return getMatchingDataTypes(this.getDistinctValues(column), types, threshold);
     }
 
     /**
@@ -373,10 +422,11 @@ public abstract class DataHandle {
 
         checkRegistry();
         checkColumn(column);
-        List<Pair<DataType<?>, Double>> result = new ArrayList<Pair<DataType<?>, Double>>();
-        result.addAll(getMatchingDataTypes(column, Long.class, locale, threshold));
-        result.addAll(getMatchingDataTypes(column, Date.class, locale, threshold));
-        result.addAll(getMatchingDataTypes(column, Double.class, locale, threshold));
+        List<DataType<?>> types = new ArrayList<DataType<?>>();
+        getCandidateDataTypes(types, Long.class, locale);
+        getCandidateDataTypes(types, Date.class, locale);
+        getCandidateDataTypes(types, Double.class, locale);
+        List<Pair<DataType<?>, Double>> result = getMatchingDataTypes(this.getDistinctValues(column), types, threshold);
         result.add(new Pair<DataType<?>, Double>(DataType.STRING, 1.0d));
         
         // Sort order
@@ -646,9 +696,7 @@ public abstract class DataHandle {
      * @throws IOException Signals that an I/O exception has occurred.
      */
     public void save(final File file) throws IOException {
-        checkRegistry();
-        final CSVDataOutput output = new CSVDataOutput(file);
-        output.write(iterator());
+        save(file, new CSVSyntax());
     }
 
     /**
@@ -659,9 +707,7 @@ public abstract class DataHandle {
      * @throws IOException Signals that an I/O exception has occurred.
      */
     public void save(final File file, final char separator) throws IOException {
-        checkRegistry();
-        final CSVDataOutput output = new CSVDataOutput(file, separator);
-        output.write(iterator());
+        save(file, new CSVSyntax(separator));
     }
 
     /**
@@ -673,10 +719,64 @@ public abstract class DataHandle {
      */
     public void save(final File file, final CSVSyntax config) throws IOException {
         checkRegistry();
+        final CSVDataOutputEncoded.Column[] columns = getEncodedColumns();
+        if (columns != null) {
+            final CSVDataOutputEncoded output = new CSVDataOutputEncoded(config);
+            output.write(file, header, columns, getNumRows(), getSuppressedRows(), DataType.ANY_VALUE);
+            return;
+        }
         final CSVDataOutput output = new CSVDataOutput(file, config);
         output.write(iterator());
     }
 
+    /**
+     * Writes the data to multiple CSV files in parallel. Rows are distributed evenly
+     * and the header is only written into the first file, i.e. concatenating all
+     * files results in the same output as {@link #save(File, CSVSyntax)}.
+     *
+     * @param files the files
+     * @param config the config
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public void save(final File[] files, final CSVSyntax config) throws IOException {
+        checkRegistry();
+        final CSVDataOutputEncoded.Column[] columns = getEncodedColumns();
+        if (columns != null) {
+            final CSVDataOutputEncoded output = new CSVDataOutputEncoded(config);
+            output.write(files, header, columns, getNumRows(), getSuppressedRows(), DataType.ANY_VALUE);
+            return;
+        }
+
+        // Write sequentially
+        final Iterator<String[]> iterator = iterator();
+        final int rows = getNumRows();
+        for (int i = 0; i < files.length; i++) {
+            final int count = (int) ((long) rows * (i + 1) / files.length) - (int) ((long) rows * i / files.length) + (i == 0 ? 1 : 0);
+            final CSVDataOutput output = new CSVDataOutput(files[i], config);
+            output.write(new Iterator<String[]>() {
+                
+                /** Number of rows written */
+                private int written = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return written < count && iterator.hasNext();
+                }
+
+                @Override
+                public String[] next() {
+                    written++;
+                    return iterator.next();
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            });
+        }
+    }
+
     /**
      * Writes the data to a CSV file.
      *
@@ -684,9 +784,7 @@ public abstract class DataHandle {
      * @throws IOException Signals that an I/O exception has occurred.
      */
     public void save(final OutputStream out) throws IOException {
-        checkRegistry();
-        final CSVDataOutput output = new CSVDataOutput(out);
-        output.write(iterator());
+        save(out, new CSVSyntax());
     }
 
     /**
@@ -697,9 +795,7 @@ public abstract class DataHandle {
      * @throws IOException Signals that an I/O exception has occurred.
      */
     public void save(final OutputStream out, final char separator) throws IOException {
-        checkRegistry();
-        final CSVDataOutput output = new CSVDataOutput(out, separator);
-        output.write(iterator());
+        save(out, new CSVSyntax(separator));
     }
 
     /**
@@ -711,6 +807,12 @@ public abstract class DataHandle {
      */
     public void save(final OutputStream out, final CSVSyntax config) throws IOException {
         checkRegistry();
+        final CSVDataOutputEncoded.Column[] columns = getEncodedColumns();
+        if (columns != null) {
+            final CSVDataOutputEncoded output = new CSVDataOutputEncoded(config);
+            output.write(out, header, columns, getNumRows(), getSuppressedRows(), DataType.ANY_VALUE);
+            return;
+        }
         final CSVDataOutput output = new CSVDataOutput(out, config);
         output.write(iterator());
     }
@@ -722,9 +824,7 @@ public abstract class DataHandle {
      * @throws IOException Signals that an I/O exception has occurred.
      */
     public void save(final String path) throws IOException {
-        checkRegistry();
-        final CSVDataOutput output = new CSVDataOutput(path);
-        output.write(iterator());
+        save(new File(path), new CSVSyntax());
     }
 
     /**
@@ -735,9 +835,7 @@ public abstract class DataHandle {
      * @throws IOException Signals that an I/O exception has occurred.
      */
     public void save(final String path, final char separator) throws IOException {
-        checkRegistry();
-        final CSVDataOutput output = new CSVDataOutput(path, separator);
-        output.write(iterator());
+        save(new File(path), new CSVSyntax(separator));
     }
 
     /**
@@ -748,9 +846,45 @@ public abstract class DataHandle {
      * @throws IOException Signals that an I/O exception has occurred.
      */
     public void save(final String path, final CSVSyntax config) throws IOException {
+        save(new File(path), config);
+    }
+
+    /**
+     * Writes the data to a file in a binary columnar format, including the data
+     * definition and outliers. The file can be loaded with {@link Data#createBinary(File)}
+     * without any parsing.
+     *
+     * @param file the file
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public void saveBinary(final File file) throws IOException {
         checkRegistry();
-        final CSVDataOutput output = new CSVDataOutput(path, config);
-        output.write(iterator());
+        final String[] header = new String[getNumColumns()];
+        for (int column = 0; column < header.length; column++) {
+            header[column] = getAttributeName(column);
+        }
+        final String[][] dictionaries = new String[header.length][];
+        final int[][] data = getEncodedData(dictionaries);
+        final BitSet outliers = new BitSet();
+        for (int row = 0; row < data.length; row++) {
+            if (isOutlier(row)) {
+                outliers.set(row);
+            }
+        }
+        final BinaryDataOutput output = new BinaryDataOutput(file);
+        output.write(header, dictionaries, data, outliers, getDefinition());
+    }
+
+    /**
+     * Writes the data to a file in a binary columnar format, including the data
+     * definition and outliers. The file can be loaded with {@link Data#createBinary(String)}
+     * without any parsing.
+     *
+     * @param path the path
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public void saveBinary(final String path) throws IOException {
+        saveBinary(new File(path));
     }
 
     /**
@@ -916,6 +1050,123 @@ public abstract class DataHandle {
      */
     protected abstract String[] getDistinctValues(int column, boolean ignoreSuppression, InterruptHandler handler);
 
+    /**
+     * Returns the columns of this handle for writing the data directly from its
+     * encoded representation. Returns null if this is not supported.
+     *
+     * @return the columns
+     */
+    protected CSVDataOutputEncoded.Column[] getEncodedColumns() {
+        return null;
+    }
+
+    /**
+     * Returns the data encoded with one dictionary per column. The dictionaries
+     * are stored in the given array.
+     *
+     * @param dictionaries the dictionaries
+     * @return the encoded data
+     */
+    protected int[][] getEncodedData(final String[][] dictionaries) {
+        final int rows = getNumRows();
+        final int columns = getNumColumns();
+        final Dictionary dictionary = new Dictionary(columns);
+        final int[][] data = new int[rows][columns];
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                data[row][column] = dictionary.register(column, internalGetValue(row, column, false));
+            }
+        }
+        dictionary.finalizeAll();
+        System.arraycopy(dictionary.getMapping(), 0, dictionaries, 0, columns);
+        return data;
+    }
+
+    /**
+     * Returns cached equivalence classes for the given set of quasi-identifiers, if any.
+     * Caches are invalidated when the values or suppression states of the handle change.
+     *
+     * @param qis
+     * @return
+     */
+    protected RiskModelHistogram getEquivalenceClasses(Set<String> qis) {
+        synchronized (equivalenceClasses) {
+            if (registry == null || registry.getVersion() != equivalenceClassesVersion) {
+                equivalenceClasses.clear();
+                return null;
+            }
+            return equivalenceClasses.get(qis);
+        }
+    }
+
+    /**
+     * Returns an index of the equivalence classes regarding the given columns, which is
+     * computed from the encoded data. Returns null if this is not supported. Indices are
+     * cached until the values, suppression states or order of rows of the handle change.
+     *
+     * @param columns
+     * @param stop
+     * @return
+     */
+    protected EquivalenceClassIndex getEquivalenceClassIndex(int[] columns, WrappedBoolean stop) {
+        
+        // Check cache
+        List<Integer> key = new ArrayList<Integer>();
+        for (int column : columns) {
+            key.add(column);
+        }
+        synchronized (equivalenceClassIndices) {
+            if (registry == null) {
+                return null;
+            }
+            if (registry.getVersion() != equivalenceClassIndicesVersion || registry.getOrder() != equivalenceClassIndicesOrder) {
+                equivalenceClassIndices.clear();
+                equivalenceClassIndicesVersion = registry.getVersion();
+                equivalenceClassIndicesOrder = registry.getOrder();
+            }
+            EquivalenceClassIndex index = equivalenceClassIndices.get(key);
+            if (index != null) {
+                return index;
+            }
+        }
+        
+        // Obtain columns
+        CSVDataOutputEncoded.Column[] encoded = getEncodedColumns();
+        if (encoded == null) {
+            return null;
+        }
+        CSVDataOutputEncoded.Column[] selected = new CSVDataOutputEncoded.Column[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            selected[i] = encoded[columns[i]];
+        }
+        
+        // Build and cache
+        EquivalenceClassIndex index = new EquivalenceClassIndex(selected, getSuppressedRows(), getNumRows(), stop);
+        synchronized (equivalenceClassIndices) {
+            if (registry != null && registry.getVersion() == equivalenceClassIndicesVersion && registry.getOrder() == equivalenceClassIndicesOrder) {
+                equivalenceClassIndices.put(key, index);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Returns cached frequencies of encoded values for the given columns, if any.
+     * Caches are invalidated when the values or suppression states of the handle change.
+     *
+     * @param columns
+     * @return
+     */
+    protected int[] getFrequencies(List<Integer> columns) {
+        synchronized (frequencies) {
+            if (registry == null || registry.getVersion() != frequenciesVersion) {
+                frequencies.clear();
+                return null;
+            }
+            return frequencies.get(columns);
+        }
+    }
+
     /**
      * Returns the registry associated with this handle.
      *
@@ -925,6 +1176,16 @@ public abstract class DataHandle {
         return registry;
     }
 
+    /**
+     * Returns the rows in which suppressible columns returned by {@link #getEncodedColumns()}
+     * are suppressed. Returns null if there are none.
+     *
+     * @return the suppressed rows
+     */
+    protected BitSet getSuppressedRows() {
+        return null;
+    }
+
     /**
      * A negative integer, zero, or a positive integer as the first argument is
      * less than, equal to, or greater than the second. It uses the specified
@@ -986,6 +1247,44 @@ public abstract class DataHandle {
         return false;
     }
 
+    /**
+     * Caches equivalence classes for the given set of quasi-identifiers.
+     *
+     * @param qis
+     * @param classes
+     */
+    protected void setEquivalenceClasses(Set<String> qis, RiskModelHistogram classes) {
+        synchronized (equivalenceClasses) {
+            if (registry == null) {
+                return;
+            }
+            if (registry.getVersion() != equivalenceClassesVersion) {
+                equivalenceClasses.clear();
+                equivalenceClassesVersion = registry.getVersion();
+            }
+            equivalenceClasses.put(new HashSet<String>(qis), classes);
+        }
+    }
+
+    /**
+     * Caches frequencies of encoded values for the given columns.
+     *
+     * @param columns
+     * @param frequencies
+     */
+    protected void setFrequencies(List<Integer> columns, int[] frequencies) {
+        synchronized (this.frequencies) {
+            if (registry == null) {
+                return;
+            }
+            if (registry.getVersion() != frequenciesVersion) {
+                this.frequencies.clear();
+                frequenciesVersion = registry.getVersion();
+            }
+            this.frequencies.put(new ArrayList<Integer>(columns), frequencies);
+        }
+    }
+
     /**
      * Updates the registry.
      *
@@ -1003,4 +1302,112 @@ public abstract class DataHandle {
     protected void setView(DataHandle handle) {
         subset = handle;
     }
+
+    /**
+     * Creates a cache, which evicts the least recently used entry, if it contains
+     * more than MAX_CACHE_SIZE entries. Caches must be accessed while holding their lock.
+     *
+     * @return
+     */
+    private static <K, V> Map<K, V> createCache() {
+        return new LinkedHashMap<K, V>(MAX_CACHE_SIZE, 0.75f, true) {
+            /** SVUID */
+            private static final long serialVersionUID = -5406232915440311837L;
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > MAX_CACHE_SIZE;
+            }
+        };
+    }
+
+    /**
+     * Adds all candidate data types for the given wrapped class to the list
+     *
+     * @param types
+     * @param clazz
+     * @param locale
+     */
+    private <U> void getCandidateDataTypes(List<DataType<?>> types, Class<U> clazz, Locale locale) {
+        DataTypeDescription<U> description = DataType.list(clazz);
+        if (description.hasFormat()) {
+            for (String format : description.getExampleFormats()) {
+                types.add(description.newInstance(format, locale));
+            }
+        } else {
+            types.add(description.newInstance());
+        }
+    }
+
+    /**
+     * Returns the data types to which at least the given fraction of the distinct values conform.
+     * Each type is evaluated in a separate task, on large inputs the tasks are executed in parallel.
+     * Evaluation of a type stops as soon as it can not reach the threshold anymore.
+     *
+     * @param values
+     * @param types
+     * @param threshold
+     * @return
+     */
+    private List<Pair<DataType<?>, Double>> getMatchingDataTypes(final String[] values,
+                                                                final List<DataType<?>> types,
+                                                                final double threshold) {
+
+        // Prepare
+        final double[] matching = new double[types.size()];
+        final int maxNonMatching = (int) Math.floor((1d - threshold) * values.length + 1e-9);
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int i = 0; i < types.size(); i++) {
+            final int index = i;
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    DataType<?> type = types.get(index);
+                    int nonMatching = 0;
+                    for (String value : values) {
+                        if (!type.isValid(value) && ++nonMatching > maxNonMatching) {
+                            matching[index] = -1d;
+                            return null;
+                        }
+                    }
+                    matching[index] = (double) (values.length - nonMatching) / (double) values.length;
+                    return null;
+                }
+            });
+        }
+
+        // Execute
+        int threads = Math.min(tasks.size(), Runtime.getRuntime().availableProcessors());
+        if (threads > 1 && (long) values.length * (long) tasks.size() >= MIN_PARALLEL_TYPE_CHECKS) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                for (Future<Void> future : executor.invokeAll(tasks)) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            } finally {
+                executor.shutdown();
+            }
+        } else {
+            for (Callable<Void> task : tasks) {
+                try {
+                    task.call();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+
+        // Collect
+        List<Pair<DataType<?>, Double>> result = new ArrayList<Pair<DataType<?>, Double>>();
+        for (int i = 0; i < matching.length; i++) {
+            if (matching[i] >= threshold) {
+                result.add(new Pair<DataType<?>, Double>(types.get(i), matching[i]));
+            }
+        }
+        return result;
+    }
 }
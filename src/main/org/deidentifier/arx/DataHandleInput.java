@@ -25,6 +25,7 @@ import java.util.List;
 import org.deidentifier.arx.DataHandleInternal.InterruptHandler;
 import org.deidentifier.arx.aggregates.StatisticsBuilder;
 import org.deidentifier.arx.framework.data.Dictionary;
+import org.deidentifier.arx.io.CSVDataOutputEncoded;
 
 /**
  * An implementation of the DataHandle interface for input data.
@@ -59,6 +60,19 @@ public class DataHandleInput extends DataHandle {
      */
     protected DataHandleInput(final Data data) {
         
+        // Use data which has already been encoded
+        if (data instanceof Data.EncodedData) {
+            Data.EncodedData encoded = (Data.EncodedData) data;
+            this.setRegistry(new DataRegistry());
+            this.getRegistry().updateInput(this);
+            this.definition = data.getDefinition().clone();
+            super.header = Arrays.copyOf(encoded.getHeader(), encoded.getHeader().length);
+            this.dictionary = encoded.getDictionary();
+            this.data = encoded.getData();
+            this.dataTypes = getDataTypeArray();
+            return;
+        }
+
         // Obtain and check iterator
         final Iterator<String[]> iterator = data.iterator();
         if (!iterator.hasNext()) { 
@@ -190,6 +204,86 @@ public class DataHandleInput extends DataHandle {
         data[row2] = temp;
     }
 
+    /**
+     * Appends the rows provided by the given iterator, which must start with a header containing
+     * the same attributes as this handle, in any order. The dictionary is extended with new values,
+     * the codes of existing values are not changed. The handle is only modified if all rows
+     * could be encoded.
+     *
+     * @param iterator
+     */
+    protected void append(final Iterator<String[]> iterator) {
+        final Dictionary dictionary = getAppendableDictionary();
+        final int[][] data = getAppendedData(iterator, dictionary);
+        this.update(data, dictionary);
+    }
+
+    /**
+     * Returns a copy of the dictionary of this handle, which can be extended with new values
+     * 
+     * @return
+     */
+    protected Dictionary getAppendableDictionary() {
+        checkRegistry();
+        final Dictionary dictionary = new Dictionary(this.dictionary.getMapping().clone());
+        dictionary.definalizeAll();
+        return dictionary;
+    }
+
+    /**
+     * Encodes the rows provided by the given iterator, which must start with a header containing
+     * the same attributes as this handle, in any order. Returns the data of this handle extended
+     * with the encoded rows. New values are added to the given dictionary, which is finalized afterwards.
+     * The handle is not modified.
+     *
+     * @param iterator
+     * @param dictionary A dictionary obtained from {@link #getAppendableDictionary()}
+     * @return
+     */
+    protected int[][] getAppendedData(final Iterator<String[]> iterator, final Dictionary dictionary) {
+
+        // Check
+        checkRegistry();
+        if (!iterator.hasNext()) {
+            throw new IllegalArgumentException("Data object is empty!");
+        }
+
+        // Map columns by name
+        final String[] columns = iterator.next();
+        if (columns.length != header.length) {
+            throw new IllegalArgumentException("Header of appended data does not match");
+        }
+        final int[] indices = new int[header.length];
+        for (int i = 0; i < header.length; i++) {
+            indices[i] = Arrays.asList(columns).indexOf(header[i]);
+            if (indices[i] == -1) {
+                throw new IllegalArgumentException("Attribute '" + header[i] + "' is not contained in the appended data");
+            }
+        }
+
+        // Encode data
+        List<int[]> vals = new ArrayList<int[]>();
+        while (iterator.hasNext()) {
+            final String[] strings = iterator.next();
+            if (strings.length != header.length) {
+                throw new IllegalArgumentException("Inconsistent length of header and records");
+            }
+            final int[] tuple = new int[header.length];
+            for (int i = 0; i < header.length; i++) {
+                tuple[i] = dictionary.register(i, strings[indices[i]]);
+            }
+            vals.add(tuple);
+        }
+        dictionary.finalizeAll();
+
+        // Build array
+        final int[][] data = Arrays.copyOf(this.data, this.data.length + vals.size());
+        for (int i = 0; i < vals.size(); i++) {
+            data[this.data.length + i] = vals.get(i);
+        }
+        return data;
+    }
+
     /**
      * Releases all resources.
      */
@@ -239,6 +333,23 @@ public class DataHandleInput extends DataHandle {
         return vals;
     }
 
+    @Override
+    protected CSVDataOutputEncoded.Column[] getEncodedColumns() {
+        checkRegistry();
+        final CSVDataOutputEncoded.Column[] columns = new CSVDataOutputEncoded.Column[header.length];
+        for (int column = 0; column < columns.length; column++) {
+            columns[column] = new CSVDataOutputEncoded.Column(dictionary.getMapping()[column], data, column, -1, false);
+        }
+        return columns;
+    }
+
+    @Override
+    protected int[][] getEncodedData(final String[][] dictionaries) {
+        checkRegistry();
+        System.arraycopy(dictionary.getMapping(), 0, dictionaries, 0, dictionaries.length);
+        return data;
+    }
+
     /**
      * Returns the input buffer
      * @return
@@ -329,6 +440,22 @@ public class DataHandleInput extends DataHandle {
         }
     }
 
+    /**
+     * Replaces the data and dictionary, e.g. after rows have been appended. Arrays attached
+     * for swapping are detached.
+     *
+     * @param data
+     * @param dictionary
+     */
+    protected void update(int[][] data, Dictionary dictionary) {
+        this.data = data;
+        this.dictionary = dictionary;
+        this.dataGH = null;
+        this.dataDI = null;
+        this.dataIS = null;
+        this.getRegistry().modified();
+    }
+
     /**
      * Updates the definition with further data to swap.
      *
@@ -18,9 +18,16 @@
 package org.deidentifier.arx;
 
 import java.text.ParseException;
+import java.util.BitSet;
 import java.util.Date;
+import java.util.List;
+import java.util.Set;
 
 import org.deidentifier.arx.aggregates.StatisticsBuilder;
+import org.deidentifier.arx.common.EquivalenceClassIndex;
+import org.deidentifier.arx.common.WrappedBoolean;
+import org.deidentifier.arx.io.CSVDataOutputEncoded;
+import org.deidentifier.arx.risk.RiskModelHistogram;
 
 /**
  * Wrapper class that provides information to StatisticsBuilder.
@@ -168,6 +175,34 @@ public class DataHandleInternal {
         return handle.getDouble(row, column);
     }
     
+    /**
+     * Returns cached equivalence classes, if any
+     * @param qis
+     * @return
+     */
+    public RiskModelHistogram getEquivalenceClasses(Set<String> qis) {
+        return handle.getEquivalenceClasses(qis);
+    }
+
+    /**
+     * Returns an index of the equivalence classes regarding the given columns, null if not supported
+     * @param columns
+     * @param stop
+     * @return
+     */
+    public EquivalenceClassIndex getEquivalenceClassIndex(int[] columns, WrappedBoolean stop) {
+        return handle.getEquivalenceClassIndex(columns, stop);
+    }
+
+    /**
+     * Returns cached frequencies of encoded values
+     * @param columns
+     * @return
+     */
+    public int[] getFrequencies(List<Integer> columns) {
+        return handle.getFrequencies(columns);
+    }
+
     /**
      * Method
      * @param attribute
@@ -220,6 +255,22 @@ public class DataHandleInternal {
         }
     }
   
+    /**
+     * Returns the columns of the handle in encoded form, null if not supported
+     * @return
+     */
+    public CSVDataOutputEncoded.Column[] getEncodedColumns() {
+        return handle.getEncodedColumns();
+    }
+
+    /**
+     * Returns the rows in which suppressible encoded columns are suppressed, null if there are none
+     * @return
+     */
+    public BitSet getSuppressedRows() {
+        return handle.getSuppressedRows();
+    }
+
     /**
      * Method
      * @param row
@@ -281,4 +332,22 @@ public class DataHandleInternal {
             return this.handle instanceof DataHandleOutput;
         }
     }
+
+    /**
+     * Caches equivalence classes
+     * @param qis
+     * @param classes
+     */
+    public void setEquivalenceClasses(Set<String> qis, RiskModelHistogram classes) {
+        handle.setEquivalenceClasses(qis, classes);
+    }
+
+    /**
+     * Caches frequencies of encoded values
+     * @param columns
+     * @param frequencies
+     */
+    public void setFrequencies(List<Integer> columns, int[] frequencies) {
+        handle.setFrequencies(columns, frequencies);
+    }
 }
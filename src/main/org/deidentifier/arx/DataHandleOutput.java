@@ -17,6 +17,7 @@
 
 package org.deidentifier.arx;
 
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
@@ -30,6 +31,7 @@ import org.deidentifier.arx.framework.data.Data;
 import org.deidentifier.arx.framework.data.DataManager;
 import org.deidentifier.arx.framework.data.DataManager.AttributeTypeInternal;
 import org.deidentifier.arx.framework.data.Dictionary;
+import org.deidentifier.arx.io.CSVDataOutputEncoded;
 
 /**
  * An implementation of the class DataHandle for output data.
@@ -368,6 +370,11 @@ public class DataHandleOutput extends DataHandle {
             }
         }
         
+        // Invalidate cached information about the handle
+        if (this.registry != null) {
+            this.registry.modified();
+        }
+        
         // Mark as optimized
         this.optimized = true;
     }
@@ -553,6 +560,27 @@ public class DataHandleOutput extends DataHandle {
         handler.checkInterrupt();
         return vals.toArray(new String[vals.size()]);
     }
+    
+    @Override
+    protected CSVDataOutputEncoded.Column[] getEncodedColumns() {
+        checkRegistry();
+        CSVDataOutputEncoded.Column[] columns = new CSVDataOutputEncoded.Column[header.length];
+        for (int col = 0; col < columns.length; col++) {
+            final int key = col * 2;
+            final int type = inverseMap[key];
+            if (type == AttributeTypeInternal.IDENTIFYING) {
+                columns[col] = new CSVDataOutputEncoded.Column(DataType.ANY_VALUE);
+            } else {
+                final int index = inverseMap[key + 1];
+                columns[col] = new CSVDataOutputEncoded.Column(inverseDictionaries[type].getMapping()[index],
+                                                               inverseData[type],
+                                                               index,
+                                                               Data.REMOVE_OUTLIER_MASK,
+                                                               (suppressedAttributeTypes & (1 << type)) != 0);
+            }
+        }
+        return columns;
+    }
         
     /**
      * Returns the input buffer
@@ -579,6 +607,21 @@ public class DataHandleOutput extends DataHandle {
         return outputMicroaggregated;
     }
     
+    @Override
+    protected BitSet getSuppressedRows() {
+        final int[][] array = outputGeneralized.getArray();
+        if (array.length == 0 || array[0].length == 0) {
+            return null;
+        }
+        final BitSet result = new BitSet(array.length);
+        for (int row = 0; row < array.length; row++) {
+            if ((array[row][0] & Data.OUTLIER_MASK) != 0) {
+                result.set(row);
+            }
+        }
+        return result;
+    }
+    
     /**
      * A negative integer, zero, or a positive integer as the first argument is
      * less than, equal to, or greater than the second. It uses the specified
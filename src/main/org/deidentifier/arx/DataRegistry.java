@@ -47,6 +47,12 @@ class DataRegistry {
     /** The output subset handle, if any. */
     private Map<ARXNode, DataHandleSubset> outputSubset = new HashMap<ARXNode, DataHandleSubset>();
 
+    /** Counts modifications of the values or suppression states of registered handles. */
+    private long version = 0L;
+
+    /** Counts modifications of the order of rows of registered handles. */
+    private long order = 0L;
+
     /**
      * Default constructor.
      */
@@ -67,6 +73,9 @@ class DataRegistry {
         if (!output.isEmpty()) {
             replaced |= output.values().iterator().next().internalReplace(column, original, replacement);
         }
+        if (replaced) {
+            this.modified();
+        }
         return replaced;
     }
     
@@ -262,6 +271,26 @@ class DataRegistry {
         return this.input;
     }
 
+    /**
+     * Returns the current version of the order of rows managed by this registry. The version
+     * changes when data is sorted or rows are swapped.
+     *
+     * @return
+     */
+    protected long getOrder() {
+        return this.order;
+    }
+
+    /**
+     * Returns the current version of the data managed by this registry. The version
+     * does not change when data is sorted or rows are swapped.
+     *
+     * @return
+     */
+    protected long getVersion() {
+        return this.version;
+    }
+
     /**
      * Returns a registered handle, if any.
      *
@@ -272,6 +301,13 @@ class DataRegistry {
         return this.output.get(node);
     }
     
+    /**
+     * Marks the data managed by this registry as modified.
+     */
+    protected void modified() {
+        this.version++;
+    }
+
     /**
      * Implementation of {@link DataHandle#isOutlier(row)}.
      *
@@ -401,6 +437,7 @@ class DataRegistry {
         handle.checkRow(from, handle.getNumRows());
         handle.checkRow(to, handle.getNumRows());
         
+        this.order++;
         if (handle instanceof DataHandleSubset){
             sortSubset((DataHandleSubset)handle, swapper, from, to, ascending, columns);
         } else {
@@ -416,6 +453,7 @@ class DataRegistry {
      * @param row2
      */
     protected void swap(DataHandle handle, int row1, int row2) {
+        this.order++;
         if (handle instanceof DataHandleSubset){
             swapSubset((DataHandleSubset)handle, row1, row2);
         } else {
@@ -20,23 +20,47 @@ import java.io.File;
 import java.nio.charset.Charset;
 import java.sql.SQLException;
 
+import org.deidentifier.arx.io.ImportColumnArrow;
 import org.deidentifier.arx.io.ImportColumnCSV;
 import org.deidentifier.arx.io.ImportColumnExcel;
 import org.deidentifier.arx.io.ImportColumnJDBC;
+import org.deidentifier.arx.io.IImportAdapterFactory;
+import org.deidentifier.arx.io.ImportAdapter;
 import org.deidentifier.arx.io.ImportConfiguration;
+import org.deidentifier.arx.io.ImportConfigurationArrow;
 import org.deidentifier.arx.io.ImportConfigurationCSV;
 import org.deidentifier.arx.io.ImportConfigurationExcel;
 import org.deidentifier.arx.io.ImportConfigurationJDBC;
 
 /**
- * This class provides configuration options for importing data from CSV-files, from Excel-files
- * or via a JDBC connection.
+ * This class provides configuration options for importing data from CSV-files, from Excel-files,
+ * from Arrow IPC files or via a JDBC connection.
  *
  * @author Fabian Prasser
  * @author Florian Kohlmayer
  */
 public class DataSource {
     
+    /**
+     * Creates an Arrow IPC file data source.
+     *
+     * @param file
+     * @return
+     */
+    public static DataSource createArrowSource(File file) {
+        return new DataSource(new ImportConfigurationArrow(file.getAbsolutePath()));
+    }
+    
+    /**
+     * Creates an Arrow IPC file data source.
+     *
+     * @param file
+     * @return
+     */
+    public static DataSource createArrowSource(String file) {
+        return createArrowSource(new File(file));
+    }
+    
     /**
      * Creates a CSV data source.
      *
@@ -111,9 +135,31 @@ public class DataSource {
         return new DataSource(url, user, password, table);
     }
     
+    /**
+     * Creates a data source from the given configuration. This can be used for additional
+     * types of data sources, for which an {@link IImportAdapterFactory} has been registered
+     * via {@link ImportAdapter#register(Class, IImportAdapterFactory)}. Columns must be added
+     * to the configuration directly.
+     *
+     * @param config
+     * @return
+     */
+    public static DataSource createSource(ImportConfiguration config) {
+        return new DataSource(config);
+    }
+    
     /** The config. */
     private final ImportConfiguration config;
     
+    /**
+     * Creates a source for the given configuration.
+     *
+     * @param config
+     */
+    private DataSource(ImportConfiguration config) {
+        this.config = config;
+    }
+    
     /**
      * Creates a CSV source.
      *
@@ -182,6 +228,8 @@ public class DataSource {
             config.addColumn(new ImportColumnExcel(index, datatype));
         } else if (config instanceof ImportConfigurationJDBC) {
             config.addColumn(new ImportColumnJDBC(index, datatype));
+        } else if (config instanceof ImportConfigurationArrow) {
+            config.addColumn(new ImportColumnArrow(index, datatype));
         }
     }
     
@@ -198,6 +246,8 @@ public class DataSource {
             config.addColumn(new ImportColumnExcel(index, datatype, cleansing));
         } else if (config instanceof ImportConfigurationJDBC) {
             config.addColumn(new ImportColumnJDBC(index, datatype, cleansing));
+        } else if (config instanceof ImportConfigurationArrow) {
+            config.addColumn(new ImportColumnArrow(index, datatype, cleansing));
         }
     }
     
@@ -225,6 +275,8 @@ public class DataSource {
             config.addColumn(new ImportColumnExcel(index, alias, datatype));
         } else if (config instanceof ImportConfigurationJDBC) {
             config.addColumn(new ImportColumnJDBC(index, alias, datatype));
+        } else if (config instanceof ImportConfigurationArrow) {
+            config.addColumn(new ImportColumnArrow(index, alias, datatype));
         }
     }
     
@@ -243,6 +295,8 @@ public class DataSource {
             config.addColumn(new ImportColumnExcel(index, alias, datatype, cleansing));
         } else if (config instanceof ImportConfigurationJDBC) {
             config.addColumn(new ImportColumnJDBC(index, alias, datatype, cleansing));
+        } else if (config instanceof ImportConfigurationArrow) {
+            config.addColumn(new ImportColumnArrow(index, alias, datatype, cleansing));
         }
     }
     
@@ -268,6 +322,8 @@ public class DataSource {
             config.addColumn(new ImportColumnExcel(name, datatype));
         } else if (config instanceof ImportConfigurationJDBC) {
             config.addColumn(new ImportColumnJDBC(name, datatype));
+        } else if (config instanceof ImportConfigurationArrow) {
+            config.addColumn(new ImportColumnArrow(name, datatype));
         }
     }
     
@@ -285,6 +341,8 @@ public class DataSource {
             config.addColumn(new ImportColumnExcel(name, datatype, cleansing));
         } else if (config instanceof ImportConfigurationJDBC) {
             config.addColumn(new ImportColumnJDBC(name, datatype, cleansing));
+        } else if (config instanceof ImportConfigurationArrow) {
+            config.addColumn(new ImportColumnArrow(name, datatype, cleansing));
         }
     }
     
@@ -312,6 +370,8 @@ public class DataSource {
             config.addColumn(new ImportColumnExcel(name, alias, datatype));
         } else if (config instanceof ImportConfigurationJDBC) {
             config.addColumn(new ImportColumnJDBC(name, alias, datatype));
+        } else if (config instanceof ImportConfigurationArrow) {
+            config.addColumn(new ImportColumnArrow(name, alias, datatype));
         }
     }
     
@@ -329,6 +389,33 @@ public class DataSource {
             config.addColumn(new ImportColumnExcel(name, alias, datatype, cleansing));
         } else if (config instanceof ImportConfigurationJDBC) {
             config.addColumn(new ImportColumnJDBC(name, alias, datatype, cleansing));
+        } else if (config instanceof ImportConfigurationArrow) {
+            config.addColumn(new ImportColumnArrow(name, alias, datatype, cleansing));
+        }
+    }
+    
+    /**
+     * Enables streaming for JDBC sources. Rows will be retrieved in batches of the
+     * given size through a forward-only cursor. Ignored for other sources.
+     *
+     * @param fetchSize
+     */
+    public void setFetchSize(int fetchSize) {
+        if (config instanceof ImportConfigurationJDBC) {
+            ((ImportConfigurationJDBC) config).setFetchSize(fetchSize);
+        }
+    }
+    
+    /**
+     * Enables parallel reads of ranges of a numeric column for JDBC sources,
+     * which have been created with a URL. Ignored for other sources.
+     *
+     * @param column
+     * @param partitions
+     */
+    public void setPartitioning(String column, int partitions) {
+        if (config instanceof ImportConfigurationJDBC) {
+            ((ImportConfigurationJDBC) config).setPartitioning(column, partitions);
         }
     }
     
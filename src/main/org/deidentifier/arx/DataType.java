@@ -74,6 +74,9 @@ public abstract class DataType<T> implements Serializable, Comparator<T> {
         /** Locale. */
         private final Locale                           locale;
 
+        /** Shape of values which are certainly valid, lazily initialized */
+        private transient int[]                        shape;
+
         /**
          * Create a date with a "dd.MM.yyyy" format string
          * for <code>SimpleDateFormat</code> and default locale.
@@ -257,6 +260,15 @@ public abstract class DataType<T> implements Serializable, Comparator<T> {
 
         @Override
         public boolean isValid(String s) {
+            if (s != null) {
+                if (shape == null) {
+                    shape = getDateShape(string);
+                }
+                int result = validateDate(s, shape);
+                if (result != FAST_UNKNOWN) {
+                    return result == FAST_VALID;
+                }
+            }
             try {
                 parse(s);
                 return true;
@@ -541,6 +553,12 @@ public abstract class DataType<T> implements Serializable, Comparator<T> {
 
         @Override
         public boolean isValid(String s) {
+            if (s != null) {
+                int result = format == null ? validateDecimal(s) : validateNumber(s, format);
+                if (result != FAST_UNKNOWN) {
+                    return result == FAST_VALID;
+                }
+            }
             try {
                 parse(s);
                 return true;
@@ -817,6 +835,12 @@ public abstract class DataType<T> implements Serializable, Comparator<T> {
 
         @Override
         public boolean isValid(String s) {
+            if (s != null) {
+                int result = format == null ? validateInteger(s) : validateNumber(s, format);
+                if (result != FAST_UNKNOWN) {
+                    return result == FAST_VALID;
+                }
+            }
             try {
                 parse(s);
                 return true;
@@ -1507,6 +1531,18 @@ public abstract class DataType<T> implements Serializable, Comparator<T> {
     /**  SVUID */
     private static final long serialVersionUID = -4380267779210935078L;
 
+    /** Result of fast validation: value is valid */
+    private static final int  FAST_VALID       = 1;
+
+    /** Result of fast validation: value is invalid */
+    private static final int  FAST_INVALID     = -1;
+
+    /** Result of fast validation: value must be parsed */
+    private static final int  FAST_UNKNOWN     = 0;
+
+    /** Marks digits in shapes of dates */
+    private static final int  SHAPE_DIGIT      = -1;
+
     /** A date data type with default format dd.mm.yyyy */
     public static final DataType<Date>               DATE    = new ARXDate();
 
@@ -1671,6 +1707,242 @@ public abstract class DataType<T> implements Serializable, Comparator<T> {
         return null;
     }
     
+    /**
+     * Returns the shape of values which are certainly valid for the given format of dates. This
+     * is only supported for formats that consist of numeric fields and literals. Each field is
+     * represented by as many digits as specified in the format, all other elements are represented
+     * by their characters. An empty array is returned if the format is not supported.
+     *
+     * @param format
+     * @return
+     */
+    private static int[] getDateShape(String format) {
+        List<Integer> shape = new ArrayList<Integer>();
+        boolean quoted = false;
+        for (int i = 0; i < format.length(); i++) {
+            char c = format.charAt(i);
+            if (c == '\'') {
+                if (i + 1 < format.length() && format.charAt(i + 1) == '\'') {
+                    shape.add((int) c);
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (quoted || !isLetter(c)) {
+                shape.add((int) c);
+            } else {
+                int count = 1;
+                while (i + 1 < format.length() && format.charAt(i + 1) == c) {
+                    count++;
+                    i++;
+                }
+                if ("yMdHhKkmsS".indexOf(c) == -1 || (c == 'M' && count > 2)) {
+                    return new int[0];
+                }
+                for (int j = 0; j < count; j++) {
+                    shape.add(SHAPE_DIGIT);
+                }
+            }
+        }
+        if (quoted) {
+            return new int[0];
+        }
+        int[] result = new int[shape.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = shape.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether the character is an ASCII digit
+     * @param c
+     * @return
+     */
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Returns whether the character is an ASCII letter
+     * @param c
+     * @return
+     */
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    /**
+     * Returns whether the string starts with the given character
+     * @param s
+     * @param c
+     * @return
+     */
+    private static boolean startsWith(String s, char c) {
+        return !s.isEmpty() && s.charAt(0) == c;
+    }
+
+    /**
+     * Checks a value against a lenient <code>SimpleDateFormat</code> with the given shape, without parsing it.
+     * Values matching the shape are valid. Values starting with a letter can not be parsed, if the format
+     * starts with a numeric field, except for letters of the symbol for NaN.
+     *
+     * @param s
+     * @param shape
+     * @return
+     */
+    private static int validateDate(String s, int[] shape) {
+        if (isNull(s)) {
+            return FAST_VALID;
+        } else if (shape.length == 0) {
+            return FAST_UNKNOWN;
+        }
+        if (s.length() == shape.length) {
+            int i = 0;
+            for (; i < shape.length; i++) {
+                char c = s.charAt(i);
+                if (shape[i] == SHAPE_DIGIT ? !isDigit(c) : c != shape[i]) {
+                    break;
+                }
+            }
+            if (i == shape.length) {
+                return FAST_VALID;
+            }
+        }
+        if (shape[0] == SHAPE_DIGIT) {
+            int i = 0;
+            while (i < s.length() && (s.charAt(i) == ' ' || s.charAt(i) == '\t')) {
+                i++;
+            }
+            if (i == s.length() || (isLetter(s.charAt(i)) && s.charAt(i) != 'N')) {
+                return FAST_INVALID;
+            }
+        }
+        return FAST_UNKNOWN;
+    }
+
+    /**
+     * Checks a value against <code>Double.valueOf()</code>, without parsing it. Plain decimals,
+     * optionally with an exponent, are valid. Values starting with letters are invalid, except
+     * for "NaN" and "Infinity".
+     *
+     * @param s
+     * @return
+     */
+    private static int validateDecimal(String s) {
+        if (isNull(s)) {
+            return FAST_VALID;
+        }
+        int start = 0;
+        int end = s.length();
+        while (start < end && s.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && s.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        int i = start;
+        if (i < end && (s.charAt(i) == '+' || s.charAt(i) == '-')) {
+            i++;
+        }
+        if (i == end) {
+            return FAST_INVALID;
+        }
+        char c = s.charAt(i);
+        if (!isDigit(c) && c != '.') {
+            return isLetter(c) && c != 'N' && c != 'I' ? FAST_INVALID : FAST_UNKNOWN;
+        }
+        int digits = 0;
+        while (i < end && isDigit(s.charAt(i))) {
+            i++;
+            digits++;
+        }
+        if (i < end && s.charAt(i) == '.') {
+            i++;
+            while (i < end && isDigit(s.charAt(i))) {
+                i++;
+                digits++;
+            }
+        }
+        if (digits == 0) {
+            return FAST_UNKNOWN;
+        }
+        if (i < end && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+            i++;
+            if (i < end && (s.charAt(i) == '+' || s.charAt(i) == '-')) {
+                i++;
+            }
+            int exponent = 0;
+            while (i < end && isDigit(s.charAt(i))) {
+                i++;
+                exponent++;
+            }
+            if (exponent == 0) {
+                return FAST_UNKNOWN;
+            }
+        }
+        return i == end ? FAST_VALID : FAST_UNKNOWN;
+    }
+
+    /**
+     * Checks a value against <code>Long.valueOf()</code>, without parsing it. Plain integers
+     * that can not overflow are valid, values containing other ASCII characters are invalid.
+     *
+     * @param s
+     * @return
+     */
+    private static int validateInteger(String s) {
+        if (isNull(s)) {
+            return FAST_VALID;
+        }
+        int start = !s.isEmpty() && (s.charAt(0) == '+' || s.charAt(0) == '-') ? 1 : 0;
+        if (start == s.length()) {
+            return FAST_INVALID;
+        }
+        boolean ascii = true;
+        for (int i = start; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (!isDigit(c)) {
+                if (c < 128) {
+                    return FAST_INVALID;
+                }
+                ascii = false;
+            }
+        }
+        return ascii && s.length() - start <= 18 ? FAST_VALID : FAST_UNKNOWN;
+    }
+
+    /**
+     * Checks a value against a <code>DecimalFormat</code>, without parsing it. Plain digits are
+     * valid if the format has no positive prefix and suffix. Values starting with letters that do not
+     * start a prefix or the symbol for NaN are invalid.
+     *
+     * @param s
+     * @param format
+     * @return
+     */
+    private static int validateNumber(String s, DecimalFormat format) {
+        if (isNull(s)) {
+            return FAST_VALID;
+        } else if (s.isEmpty()) {
+            return FAST_INVALID;
+        }
+        if (format.getPositivePrefix().isEmpty() && format.getPositiveSuffix().isEmpty()) {
+            int i = 0;
+            while (i < s.length() && isDigit(s.charAt(i))) {
+                i++;
+            }
+            if (i == s.length()) {
+                return FAST_VALID;
+            }
+        }
+        char c = s.charAt(0);
+        if (isLetter(c) && c != 'N' && !startsWith(format.getPositivePrefix(), c) && !startsWith(format.getNegativePrefix(), c)) {
+            return FAST_INVALID;
+        }
+        return FAST_UNKNOWN;
+    }
+
     /**
      * Provides a list of example formats for the <code>Date</code> data type.
      *
@@ -22,13 +22,23 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.deidentifier.arx.DataType;
+import org.deidentifier.arx.DataType.DataTypeWithFormat;
 import org.deidentifier.arx.DataType.DataTypeWithRatioScale;
 
+import com.carrotsearch.hppc.LongObjectOpenHashMap;
+
 /**
  * This class enables building hierarchies for non-categorical values by mapping them
  * into given intervals.
@@ -383,10 +393,22 @@ public class HierarchyBuilderIntervalBased<T> extends HierarchyBuilderGroupingBa
     }
 
     /** TODO: Is this parameter OK?. */
-    private static final int               INDEX_FANOUT     = 2;
+    private static final int               INDEX_FANOUT          = 2;
+
+    /** Location of null values. */
+    private static final int               LOCATION_NULL         = -1;
+
+    /** Location of values below the lower snap bound. */
+    private static final int               LOCATION_LOWER        = -2;
+
+    /** Location of values above the upper snap bound. */
+    private static final int               LOCATION_UPPER        = -3;
+
+    /** Minimal number of values processed by each thread. */
+    private static final int               MIN_VALUES_PER_THREAD = 1 << 15;
 
     /** SVUID. */
-    private static final long              serialVersionUID = 3663874945543082808L;
+    private static final long              serialVersionUID      = 3663874945543082808L;
     
     /**
      * Creates a new instance. Snapping is disabled. Repetition is disabled. Bound is determined dynamically.
@@ -671,6 +693,24 @@ public class HierarchyBuilderIntervalBased<T> extends HierarchyBuilderGroupingBa
         }
     }
 
+    /**
+     * Returns a data type equivalent to the type of this builder, which may be used
+     * concurrently to it.
+     *
+     * @return
+     */
+    private DataType<T> getDataTypeInstance() {
+        DataType<T> type = getDataType();
+        if (type instanceof DataTypeWithFormat) {
+            DataTypeWithFormat formatted = (DataTypeWithFormat)type;
+            if (formatted.getFormat() != null) {
+                return formatted.getLocale() == null ? type.getDescription().newInstance(formatted.getFormat()) :
+                                                       type.getDescription().newInstance(formatted.getFormat(), formatted.getLocale());
+            }
+        }
+        return type;
+    }
+
     /**
      * Returns the matching interval.
      *
@@ -722,6 +762,31 @@ public class HierarchyBuilderIntervalBased<T> extends HierarchyBuilderGroupingBa
         throw new IllegalStateException("No interval found for: "+type.format(value));
     }
 
+    /**
+     * Returns the index of the interval containing the value, -1 if there is none. Equivalent
+     * to an index lookup, as the intervals are contiguous and sorted.
+     *
+     * @param type
+     * @param value
+     * @return
+     */
+    private int getIntervalIndex(DataTypeWithRatioScale<T> type, T value) {
+        int low = 0;
+        int high = intervals.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (type.compare(intervals.get(mid).min, value) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (high < 0 || type.compare(intervals.get(high).max, value) <= 0) {
+            return -1;
+        }
+        return high;
+    }
+
     /**
      * Returns the matching interval.
      *
@@ -834,8 +899,282 @@ public class HierarchyBuilderIntervalBased<T> extends HierarchyBuilderGroupingBa
     }
     
     @Override
-    @SuppressWarnings("unchecked")
     protected AbstractGroup[][] prepareGroups() {
+        return prepareGroups(getData(), null, null);
+    }
+
+    /**
+     * Executes the given tasks, in parallel if there is more than one.
+     *
+     * @param tasks
+     */
+    private void execute(List<Callable<Void>> tasks) {
+        
+        // Single thread
+        if (tasks.size() <= 1) {
+            for (Callable<Void> task : tasks) {
+                try {
+                    task.call();
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            return;
+        }
+        
+        // Multiple threads
+        ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Returns the number of threads to use for processing the given number of values.
+     *
+     * @param values
+     * @return
+     */
+    private int getThreads(int values) {
+        return Math.max(1, Math.min(values / MIN_VALUES_PER_THREAD, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Locates the values at the given positions. For each value, the index of the interval containing
+     * it, or a negative constant, is stored, as well as the number of times the intervals need to be
+     * shifted. If an order is given, values are visited in this order and the interval located for a
+     * value is reused for all following values that it contains.
+     *
+     * @param type
+     * @param values
+     * @param order
+     * @param lower
+     * @param upper
+     * @param locations
+     * @param shifts
+     * @param from
+     * @param to
+     */
+    @SuppressWarnings("unchecked")
+    private void locate(DataType<T> type,
+                        T[] values,
+                        int[] order,
+                        Range<T> lower,
+                        Range<T> upper,
+                        int[] locations,
+                        int[] shifts,
+                        int from,
+                        int to) {
+
+        // Prepare
+        DataTypeWithRatioScale<T> rType = (DataTypeWithRatioScale<T>)type;
+        T min = intervals.get(0).min;
+        T width = rType.subtract(intervals.get(intervals.size() - 1).max, min);
+        T runMin = null;
+        T runMax = null;
+        int location = 0;
+        int shift = 0;
+        
+        // Locate
+        for (int position = from; position < to; position++) {
+            int i = order == null ? position : order[position];
+            T value = values[i];
+            
+            // Value is contained in the current interval
+            if (runMin != null && rType.compare(value, runMin) >= 0 && rType.compare(value, runMax) < 0) {
+                locations[i] = location;
+                shifts[i] = shift;
+                continue;
+            }
+            
+            runMin = null;
+            if (value == null) {
+                locations[i] = LOCATION_NULL;
+            } else if (rType.compare(value, lower.labelBound) < 0) {
+                throw new IllegalArgumentException(type.format(value)+ " is < lower label bound");
+            } else if (rType.compare(value, lower.snapBound) < 0) {
+                locations[i] = LOCATION_LOWER;
+            } else if (rType.compare(value, upper.labelBound) >= 0) {
+                throw new IllegalArgumentException(type.format(value)+ " is >= upper label bound");
+            } else if (rType.compare(value, upper.snapBound) >= 0) {
+                locations[i] = LOCATION_UPPER;
+            } else {
+                shift = (int)Math.floor(rType.ratio(rType.subtract(value, min), width));
+                T offset = rType.multiply(width, shift);
+                T shifted = rType.subtract(value, offset);
+                location = getIntervalIndex(rType, shifted);
+                
+                // Correct rounding errors for values at the bounds of repetitions
+                if (location == -1) {
+                    int retry = shift + (rType.compare(shifted, min) < 0 ? -1 : +1);
+                    location = getIntervalIndex(rType, rType.subtract(value, rType.multiply(width, retry)));
+                    if (location == -1) {
+                        
+                        // The value is on the bound, which is the lower bound of the next repetition
+                        shift = Math.max(shift, retry);
+                        location = 0;
+                    } else {
+                        shift = retry;
+                    }
+                    offset = rType.multiply(width, shift);
+                }
+                locations[i] = location;
+                shifts[i] = shift;
+                
+                // Remember interval
+                if (order != null) {
+                    runMin = rType.add(intervals.get(location).min, offset);
+                    runMax = rType.add(intervals.get(location).max, offset);
+                    if (rType.compare(runMax, upper.snapBound) > 0) {
+                        runMax = upper.snapBound;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Locates all values. Values are visited in sorted order, which is split into ranges that are
+     * processed in parallel for large inputs. If this fails, the values are visited in their original
+     * order to report the first error.
+     *
+     * @param values
+     * @param order
+     * @param lower
+     * @param upper
+     * @param locations
+     * @param shifts
+     */
+    private void locate(final T[] values,
+                        final int[] order,
+                        final Range<T> lower,
+                        final Range<T> upper,
+                        final int[] locations,
+                        final int[] shifts) {
+
+        // Null values
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) {
+                locations[i] = LOCATION_NULL;
+            }
+        }
+        
+        // Prepare tasks, one for each range of sorted values
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        final int threads = getThreads(order.length);
+        int size = (order.length + threads - 1) / threads;
+        for (int from = 0; from < order.length; from += size) {
+            final int _from = from;
+            final int _to = Math.min(from + size, order.length);
+            final DataType<T> type = threads == 1 ? getDataType() : getDataTypeInstance();
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    locate(type, values, order, lower, upper, locations, shifts, _from, _to);
+                    return null;
+                }
+            });
+        }
+        
+        // Execute
+        try {
+            execute(tasks);
+        } catch (RuntimeException e) {
+            locate(getDataType(), values, null, lower, upper, locations, shifts, 0, values.length);
+            throw e;
+        }
+    }
+
+    /**
+     * Parses all values. Large inputs are split into ranges, which are parsed in parallel.
+     *
+     * @param data
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    private T[] parse(final String[] data) {
+        
+        // Prepare tasks, one for each range of values
+        final T[] values = (T[])new Object[data.length];
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        final int threads = getThreads(data.length);
+        int size = (data.length + threads - 1) / threads;
+        for (int from = 0; from < data.length; from += size) {
+            final int _from = from;
+            final int _to = Math.min(from + size, data.length);
+            final DataType<T> type = threads == 1 ? getDataType() : getDataTypeInstance();
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    for (int i = _from; i < _to; i++) {
+                        values[i] = type.parse(data[i]);
+                    }
+                    return null;
+                }
+            });
+        }
+        
+        // Execute
+        execute(tasks);
+        return values;
+    }
+
+    /**
+     * Returns the indices of all values which are not null, sorted by value.
+     *
+     * @param values
+     * @return
+     */
+    private int[] sort(final T[] values) {
+        
+        // Collect
+        List<Integer> indices = new ArrayList<Integer>();
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                indices.add(i);
+            }
+        }
+        
+        // Sort by the natural order, which is consistent with the order of the data type
+        Collections.sort(indices, new Comparator<Integer>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public int compare(Integer o1, Integer o2) {
+                return ((Comparable<T>)values[o1]).compareTo(values[o2]);
+            }
+        });
+        
+        // Convert
+        int[] result = new int[indices.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = indices.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Prepares the groups for the given data. Parsed and sorted values may be passed, if available.
+     *
+     * @param data
+     * @param values
+     * @param order
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    private AbstractGroup[][] prepareGroups(String[] data, T[] values, int[] order) {
 
         // Check
         String valid = isValid();
@@ -883,7 +1222,6 @@ public class HierarchyBuilderIntervalBased<T> extends HierarchyBuilderGroupingBa
         }
         
         // Prepare
-        String[] data = getData();
         List<AbstractGroup[]> result = new ArrayList<AbstractGroup[]>();
         IndexNode index = nodes.get(0);
         
@@ -905,35 +1243,65 @@ public class HierarchyBuilderIntervalBased<T> extends HierarchyBuilderGroupingBa
             upperSnap = lowerSnap;
         }
         
-        // Create first column
+        // Parse and sort values once and locate them
+        if (values == null) {
+            values = parse(data);
+            order = sort(values);
+        }
+        int[] locations = new int[data.length];
+        int[] shifts = new int[data.length];
+        locate(values, order, tempLower, tempUpper, locations, shifts);
+        
+        // Create first column. Intervals are created only once for each location.
         AbstractGroup[] first = new AbstractGroup[data.length];
+        LongObjectOpenHashMap<AbstractGroup> groups = new LongObjectOpenHashMap<AbstractGroup>();
+        AbstractGroup nullGroup = null;
+        AbstractGroup lowerGroup = null;
+        AbstractGroup upperGroup = null;
+        T width = type.subtract(index.max, index.min);
         for (int i=0; i<data.length; i++){
-            T value = type.parse(data[i]);
-            Interval<T> interval;
             
-            if (value == null) {
-                interval = new Interval<T>(this);
-            } else if (type.compare(value, tempLower.labelBound) < 0) {
-                throw new IllegalArgumentException(type.format(value)+ " is < lower label bound");
-            } else if (type.compare(value, tempLower.snapBound) < 0) {
-                interval = new Interval<T>(this, true, tempLower.snapBound);
-            } else if (type.compare(value, tempUpper.labelBound) >= 0) {
-                throw new IllegalArgumentException(type.format(value)+ " is >= upper label bound");
-            } else if (type.compare(value, tempUpper.snapBound) >= 0) {
-                interval = new Interval<T>(this, false, tempUpper.snapBound);
-            } else {
-                interval = getInterval(index, type, value);    
-            }
-            
-            if (interval.min != null && interval.max != null){
-                if (type.compare(interval.min, lowerSnap.max) < 0){
-                    interval = lowerSnap;
-                } else if (type.compare(interval.max, upperSnap.min) > 0){
-                    interval = upperSnap;
+            switch (locations[i]) {
+            case LOCATION_NULL:
+                if (nullGroup == null) {
+                    nullGroup = getGroup(cache, new Interval<T>(this));
+                }
+                first[i] = nullGroup;
+                break;
+            case LOCATION_LOWER:
+                if (lowerGroup == null) {
+                    lowerGroup = getGroup(cache, new Interval<T>(this, true, tempLower.snapBound));
+                }
+                first[i] = lowerGroup;
+                break;
+            case LOCATION_UPPER:
+                if (upperGroup == null) {
+                    upperGroup = getGroup(cache, new Interval<T>(this, false, tempUpper.snapBound));
                 }
+                first[i] = upperGroup;
+                break;
+            default:
+                long key = ((long)shifts[i] << 32) | locations[i];
+                AbstractGroup group = groups.get(key);
+                if (group == null) {
+                    
+                    // Create interval
+                    Interval<T> interval = intervals.get(locations[i]);
+                    T offset = type.multiply(width, shifts[i]);
+                    T lower = type.add(interval.min, offset);
+                    T upper = type.add(interval.max, offset);
+                    if (type.compare(lower, lowerSnap.max) < 0){
+                        interval = lowerSnap;
+                    } else if (type.compare(upper, upperSnap.min) > 0){
+                        interval = upperSnap;
+                    } else {
+                        interval = new Interval<T>(this, (DataType<T>)type, lower, upper, interval.function);
+                    }
+                    group = getGroup(cache, interval);
+                    groups.put(key, group);
+                }
+                first[i] = group;
             }
-            
-            first[i] = getGroup(cache, interval);
         }
         result.add(first);
         
@@ -941,18 +1309,17 @@ public class HierarchyBuilderIntervalBased<T> extends HierarchyBuilderGroupingBa
         index = null;
         
         // Create other columns
-        List<Group<T>> groups = new ArrayList<Group<T>>();
-        if (!super.getLevels().isEmpty()) groups = super.getLevels().get(0).getGroups();
-        if (cache.size()>1 && !groups.isEmpty()) {
+        List<Group<T>> fanouts = new ArrayList<Group<T>>();
+        if (!super.getLevels().isEmpty()) fanouts = super.getLevels().get(0).getGroups();
+        if (cache.size()>1 && !fanouts.isEmpty()) {
 
             // Prepare
             List<Interval<T>> newIntervals = new ArrayList<Interval<T>>();
             int intervalIndex = 0;
             int multiplier = 0;
-            T width = type.subtract(intervals.get(intervals.size() - 1).max, intervals.get(0).min);
 
             // Merge intervals
-            for (Group<T> group : groups) {
+            for (Group<T> group : fanouts) {
                 
                 // Find min and max
                 T min = null;
@@ -992,9 +1359,8 @@ public class HierarchyBuilderIntervalBased<T> extends HierarchyBuilderGroupingBa
                 }
             }
             
-            // Copy data
-            builder.prepare(data);
-            AbstractGroup[][] columns = builder.getPreparedGroups();
+            // Copy data, values are only parsed and sorted once
+            AbstractGroup[][] columns = builder.prepareGroups(data, values, order);
             for (AbstractGroup[] column : columns) {
                 result.add(column);
             }
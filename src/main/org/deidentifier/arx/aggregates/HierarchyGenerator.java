@@ -0,0 +1,500 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.deidentifier.arx.aggregates;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.deidentifier.arx.AttributeType.Hierarchy;
+import org.deidentifier.arx.DataHandle;
+import org.deidentifier.arx.DataType;
+import org.deidentifier.arx.DataType.ARXDate;
+import org.deidentifier.arx.DataType.ARXString;
+import org.deidentifier.arx.DataType.DataTypeWithRatioScale;
+import org.deidentifier.arx.aggregates.HierarchyBuilderRedactionBased.Order;
+
+/**
+ * This class automatically derives generalization hierarchies from the frequency distributions
+ * of the attributes in a data handle. Ratio-scaled attributes are generalized into equi-depth
+ * intervals, codes of equal length (e.g. ZIP codes) are redacted character by character and all
+ * other attributes are generalized into equi-depth groups of ordered values. The fan-out of each
+ * hierarchy is balanced and its height is bounded, which keeps the size of the resulting solution
+ * space under control. The size of the solution space and the cost of searching it can be estimated
+ * before anonymization is performed.
+ *
+ * @author Fabian Prasser
+ */
+public class HierarchyGenerator {
+
+    /** Default maximal fan-out of each level */
+    public static final int                        DEFAULT_MAX_FANOUT = 10;
+
+    /** Default maximal height of each hierarchy */
+    public static final int                        DEFAULT_MAX_HEIGHT = 6;
+
+    /** Builders */
+    private final Map<String, HierarchyBuilder<?>> builders           = new HashMap<String, HierarchyBuilder<?>>();
+
+    /** Handle */
+    private final DataHandle                       handle;
+
+    /** Heights */
+    private final Map<String, Integer>             heights            = new HashMap<String, Integer>();
+
+    /** Maximal fan-out */
+    private final int                              maxFanout;
+
+    /** Maximal height */
+    private final int                              maxHeight;
+
+    /** Values */
+    private final Map<String, String[]>            values             = new HashMap<String, String[]>();
+
+    /**
+     * Creates a new instance using the default bounds for fan-out and height.
+     *
+     * @param handle
+     */
+    public HierarchyGenerator(DataHandle handle) {
+        this(handle, DEFAULT_MAX_FANOUT, DEFAULT_MAX_HEIGHT);
+    }
+
+    /**
+     * Creates a new instance. The height of each hierarchy includes the level of the original values
+     * and is at least two. The fan-out is only exceeded if this is required to satisfy the bound on
+     * the height.
+     *
+     * @param handle
+     * @param maxFanout
+     * @param maxHeight
+     */
+    public HierarchyGenerator(DataHandle handle, int maxFanout, int maxHeight) {
+        if (handle == null) {
+            throw new IllegalArgumentException("Handle must not be null");
+        }
+        if (maxFanout < 2) {
+            throw new IllegalArgumentException("Fan-out must be at least 2");
+        }
+        if (maxHeight < 2) {
+            throw new IllegalArgumentException("Height must be at least 2");
+        }
+        this.handle = handle;
+        this.maxFanout = maxFanout;
+        this.maxHeight = maxHeight;
+    }
+
+    /**
+     * Returns a builder that has been configured for the given attribute.
+     *
+     * @param attribute
+     * @return
+     */
+    public HierarchyBuilder<?> getBuilder(String attribute) {
+        prepare(attribute);
+        return builders.get(attribute);
+    }
+
+    /**
+     * Returns the height of the hierarchy generated for the given attribute, including the
+     * level of the original values.
+     *
+     * @param attribute
+     * @return
+     */
+    public int getHeight(String attribute) {
+        prepare(attribute);
+        return heights.get(attribute);
+    }
+
+    /**
+     * Returns the hierarchy generated for the given attribute.
+     *
+     * @param attribute
+     * @return
+     */
+    public Hierarchy getHierarchy(String attribute) {
+        prepare(attribute);
+        return builders.get(attribute).build(values.get(attribute));
+    }
+
+    /**
+     * Returns an estimate of the cost of searching the solution space spanned by the hierarchies
+     * generated for the given attributes. The estimate is an upper bound on the number of tuples that
+     * are processed when each transformation is checked once.
+     *
+     * @param attributes
+     * @return
+     */
+    public double getSearchCost(String... attributes) {
+        return (double) getSolutionSpaceSize(attributes) * (double) handle.getNumRows();
+    }
+
+    /**
+     * Returns the number of transformations in the solution space spanned by the hierarchies
+     * generated for the given attributes. This equals the value returned by
+     * <code>SolutionSpace.getSize()</code> if no minimal or maximal generalization levels are defined.
+     * Returns <code>Long.MAX_VALUE</code> if the size cannot be represented.
+     *
+     * @param attributes
+     * @return
+     */
+    public long getSolutionSpaceSize(String... attributes) {
+        long size = 1;
+        for (String attribute : attributes) {
+            long height = getHeight(attribute);
+            if (size > Long.MAX_VALUE / height) {
+                return Long.MAX_VALUE;
+            }
+            size *= height;
+        }
+        return size;
+    }
+
+    /**
+     * Splits the given frequencies into consecutive groups with similar aggregate frequencies.
+     * The given number of groups is targeted, but groups are also closed when they contain the given
+     * maximal number of values. Returns the sizes of the groups.
+     *
+     * @param frequencies
+     * @param from
+     * @param to
+     * @param count
+     * @param fanout
+     * @return
+     */
+    private int[] getEquiDepthGroups(double[] frequencies, int from, int to, int count, int fanout) {
+
+        // Prepare
+        count = Math.max(1, Math.min(count, to - from));
+        double total = 0d;
+        for (int i = from; i < to; i++) {
+            total += frequencies[i];
+        }
+
+        // Split
+        List<Integer> sizes = new ArrayList<Integer>();
+        int size = 0;
+        double cumulative = 0d;
+        for (int i = from; i < to; i++) {
+            size++;
+            cumulative += frequencies[i];
+
+            // Close the group if it is full, if its share has been reached or if all
+            // remaining values are needed for the remaining groups
+            int remainingValues = to - i - 1;
+            int remainingGroups = count - sizes.size() - 1;
+            if (remainingValues > 0 &&
+                (size == fanout || (remainingGroups > 0 &&
+                                    (remainingValues == remainingGroups || cumulative >= total * (sizes.size() + 1) / count)))) {
+                sizes.add(size);
+                size = 0;
+            }
+        }
+        sizes.add(size);
+
+        // Convert
+        int[] result = new int[sizes.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = sizes.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Splits the given frequencies into equi-depth groups, which form the first level of generalization.
+     * Starting with the given fan-out, the fan-out is increased until the groups can be summarized with
+     * this fan-out within the bound on the height. Returns the sizes of the groups, followed by the
+     * fan-out used.
+     *
+     * @param frequencies
+     * @param fanout
+     * @return
+     */
+    private int[][] getEquiDepthGroups(double[] frequencies, int fanout) {
+        while (true) {
+            int[] sizes = getEquiDepthGroups(frequencies, 0, frequencies.length, (int) Math.ceil((double) frequencies.length / (double) fanout), fanout);
+            if (getNumLevels(sizes.length, fanout) <= maxHeight - 3) {
+                return new int[][] { sizes, { fanout } };
+            }
+            fanout++;
+        }
+    }
+
+    /**
+     * Returns the fan-out for the given number of distinct values and generalization steps.
+     *
+     * @param distinct
+     * @param steps
+     * @return
+     */
+    private int getFanout(int distinct, int steps) {
+        int fanout = (int) Math.ceil(Math.pow(distinct, 1d / steps) - 1e-9);
+        while (Math.pow(fanout, steps) < distinct) {
+            fanout++;
+        }
+        return Math.max(2, fanout);
+    }
+
+    /**
+     * Returns the number of levels of groups which are needed to summarize the given number of
+     * groups with the given fan-out
+     *
+     * @param groups
+     * @param fanout
+     * @return
+     */
+    private int getNumLevels(int groups, int fanout) {
+        int levels = 0;
+        while (groups > fanout) {
+            groups = (groups + fanout - 1) / fanout;
+            levels++;
+        }
+        return levels;
+    }
+
+    /**
+     * Splits the given number of elements into groups of at most the given size. The sizes of
+     * the groups differ by at most one and sum up to the number of elements, which prevents
+     * groups from being repeated.
+     *
+     * @param count
+     * @param fanout
+     * @return
+     */
+    private int[] getGroups(int count, int fanout) {
+        int groups = (count + fanout - 1) / fanout;
+        int[] sizes = new int[groups];
+        for (int i = 0; i < groups; i++) {
+            sizes[i] = count / groups + (i < count % groups ? 1 : 0);
+        }
+        return sizes;
+    }
+
+    /**
+     * Creates a builder that generalizes values into equi-depth intervals.
+     *
+     * @param type
+     * @param values
+     * @param frequencies
+     * @return The builder or null if the values cannot be represented by intervals
+     */
+    private <T> HierarchyBuilderIntervalBased<T> getIntervalBuilder(DataType<T> type,
+                                                                    String[] values,
+                                                                    double[] frequencies) {
+
+        // Collect non-null values and their frequencies
+        List<T> parsed = new ArrayList<T>();
+        List<Double> weights = new ArrayList<Double>();
+        for (int i = 0; i < values.length; i++) {
+            if (!values[i].equals(DataType.NULL_VALUE) && type.isValid(values[i])) {
+                parsed.add(type.parse(values[i]));
+                weights.add(frequencies[i]);
+            }
+        }
+
+        // Check
+        int distinct = parsed.size();
+        int steps = getSteps(distinct);
+        if (distinct < 2 || steps < 2) {
+            return null;
+        }
+        double[] weight = new double[distinct];
+        for (int i = 0; i < distinct; i++) {
+            weight[i] = weights.get(i);
+        }
+
+        // Equi-depth intervals
+        @SuppressWarnings("unchecked")
+        DataTypeWithRatioScale<T> rType = (DataTypeWithRatioScale<T>) type;
+        int[][] groups = getEquiDepthGroups(weight, getFanout(distinct, steps));
+        int[] sizes = groups[0];
+        int fanout = groups[1][0];
+        HierarchyBuilderIntervalBased<T> builder = HierarchyBuilderIntervalBased.create(type);
+        int index = 0;
+        for (int i = 0; i < sizes.length; i++) {
+            T min = parsed.get(index);
+            index += sizes[i];
+            T max = index < distinct ? parsed.get(index) : getUpperBound(rType, parsed.get(distinct - 1));
+            builder.addInterval(min, max);
+        }
+
+        // Groups of intervals
+        int count = sizes.length;
+        for (int level = 0; (level < steps - 2 || count > fanout) && count > 1; level++) {
+            sizes = getGroups(count, fanout);
+            for (int size : sizes) {
+                builder.getLevel(level).addGroup(size);
+            }
+            count = sizes.length;
+        }
+        return builder;
+    }
+
+    /**
+     * Creates a builder that generalizes values into equi-depth groups of consecutive values.
+     *
+     * @param type
+     * @param values
+     * @param frequencies
+     * @return
+     */
+    private <T> HierarchyBuilderOrderBased<T> getOrderBuilder(DataType<T> type,
+                                                              String[] values,
+                                                              double[] frequencies) {
+
+        // Prepare
+        HierarchyBuilderOrderBased<T> builder = HierarchyBuilderOrderBased.create(type, values);
+        int distinct = values.length;
+        int steps = getSteps(distinct);
+        if (steps < 2) {
+            return builder;
+        }
+
+        // Equi-depth groups of values
+        int[][] groups = getEquiDepthGroups(frequencies, getFanout(distinct, steps));
+        int[] sizes = groups[0];
+        int fanout = groups[1][0];
+        for (int size : sizes) {
+            builder.getLevel(0).addGroup(size);
+        }
+
+        // Groups of groups
+        int count = sizes.length;
+        for (int level = 1; (level < steps - 1 || count > fanout) && count > 1; level++) {
+            sizes = getGroups(count, fanout);
+            for (int size : sizes) {
+                builder.getLevel(level).addGroup(size);
+            }
+            count = sizes.length;
+        }
+        return builder;
+    }
+
+    /**
+     * Creates a builder that redacts codes of equal length character by character.
+     *
+     * @param values
+     * @return The builder or null if the values do not look like codes
+     */
+    private HierarchyBuilderRedactionBased<?> getRedactionBuilder(String[] values) {
+
+        // Check lengths
+        int length = -1;
+        for (String value : values) {
+            if (value.equals(DataType.NULL_VALUE)) {
+                continue;
+            } else if (length == -1) {
+                length = value.length();
+            } else if (length != value.length()) {
+                return null;
+            }
+        }
+        if (length < 2 || length + 1 > maxHeight) {
+            return null;
+        }
+
+        // Check whether the codes share prefixes
+        Set<Character> prefixes = new HashSet<Character>();
+        int distinct = 0;
+        for (String value : values) {
+            if (!value.equals(DataType.NULL_VALUE)) {
+                prefixes.add(value.charAt(0));
+                distinct++;
+            }
+        }
+        if (prefixes.size() == distinct) {
+            return null;
+        }
+
+        // Create
+        return HierarchyBuilderRedactionBased.create(Order.LEFT_TO_RIGHT, Order.RIGHT_TO_LEFT, ' ', '*');
+    }
+
+    /**
+     * Returns the number of generalization steps for the given number of distinct values.
+     *
+     * @param distinct
+     * @return
+     */
+    private int getSteps(int distinct) {
+        int steps = 1;
+        double capacity = maxFanout;
+        while (capacity < distinct && steps < maxHeight - 1) {
+            capacity *= maxFanout;
+            steps++;
+        }
+        return steps;
+    }
+
+    /**
+     * Returns an exclusive upper bound for intervals that contain the given maximum.
+     *
+     * @param type
+     * @param max
+     * @return
+     */
+    private <T> T getUpperBound(DataTypeWithRatioScale<T> type, T max) {
+        if (type instanceof ARXDate) {
+            return type.add(max, type.fromDouble(24d * 60d * 60d * 1000d));
+        } else {
+            return type.add(max, type.fromDouble(1d));
+        }
+    }
+
+    /**
+     * Configures the builder for the given attribute, if not already done.
+     *
+     * @param attribute
+     */
+    private void prepare(String attribute) {
+
+        // Check
+        if (builders.containsKey(attribute)) {
+            return;
+        }
+        int column = handle.getColumnIndexOf(attribute);
+        if (column == -1) {
+            throw new IllegalArgumentException("Unknown attribute: " + attribute);
+        }
+
+        // Obtain distribution
+        DataType<?> type = handle.getDataType(attribute);
+        StatisticsFrequencyDistribution distribution = handle.getStatistics().getFrequencyDistribution(column, false);
+
+        // Select builder
+        HierarchyBuilder<?> builder = null;
+        if (type instanceof DataTypeWithRatioScale) {
+            builder = getIntervalBuilder(type, distribution.values, distribution.frequency);
+        } else if (type instanceof ARXString) {
+            builder = getRedactionBuilder(distribution.values);
+        }
+        if (builder == null) {
+            builder = getOrderBuilder(type, distribution.values, distribution.frequency);
+        }
+
+        // Store
+        Hierarchy hierarchy = builder.build(distribution.values);
+        String[][] levels = hierarchy.getHierarchy();
+        this.builders.put(attribute, builder);
+        this.heights.put(attribute, levels.length == 0 ? 1 : levels[0].length);
+        this.values.put(attribute, distribution.values);
+    }
+}
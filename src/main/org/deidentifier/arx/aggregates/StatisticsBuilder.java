@@ -19,6 +19,8 @@ package org.deidentifier.arx.aggregates;
 
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
@@ -27,9 +29,12 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
-import org.apache.commons.math3.stat.descriptive.moment.GeometricMean;
 import org.deidentifier.arx.ARXLogisticRegressionConfiguration;
 import org.deidentifier.arx.DataHandleInternal;
 import org.deidentifier.arx.DataHandleInternal.InterruptHandler;
@@ -38,17 +43,24 @@ import org.deidentifier.arx.DataType;
 import org.deidentifier.arx.DataType.ARXString;
 import org.deidentifier.arx.DataType.DataTypeWithRatioScale;
 import org.deidentifier.arx.aggregates.StatisticsContingencyTable.Entry;
+import org.deidentifier.arx.aggregates.StatisticsSummary.StatisticsSummaryMoments;
 import org.deidentifier.arx.aggregates.StatisticsSummary.StatisticsSummaryOrdinal;
+import org.deidentifier.arx.common.EquivalenceClassIndex;
 import org.deidentifier.arx.common.Groupify;
 import org.deidentifier.arx.common.Groupify.Group;
 import org.deidentifier.arx.common.TupleWrapper;
 import org.deidentifier.arx.common.WrappedBoolean;
 import org.deidentifier.arx.common.WrappedInteger;
 import org.deidentifier.arx.exceptions.ComputationInterruptedException;
+import org.deidentifier.arx.io.CSVDataOutputEncoded.Column;
 
 import cern.colt.GenericSorting;
 import cern.colt.Swapper;
 import cern.colt.function.IntComparator;
+import cern.colt.list.IntArrayList;
+
+import com.carrotsearch.hppc.LongIntOpenHashMap;
+import com.carrotsearch.hppc.ObjectIntOpenHashMap;
 
 /**
  * A class offering basic descriptive statistics about data handles.
@@ -57,6 +69,18 @@ import cern.colt.function.IntComparator;
  */
 public class StatisticsBuilder {
 
+    /** Number of chunks into which rows are split, if no chunk size has been set */
+    public static final int         DEFAULT_NUM_CHUNKS           = 10;
+
+    /** Minimal number of rows processed in each chunk, if no chunk size has been set */
+    public static final int         MIN_CHUNK_SIZE               = 1 << 12;
+
+    /** Maximal number of cells for which contingency tables are counted in a dense array */
+    private static final int        DENSE_CONTINGENCY_TABLE_SIZE = 1 << 22;
+
+    /** Number of rows processed in each chunk, 0 if derived from the number of rows */
+    private int                     chunkSize                    = 0;
+
     /** The handle. */
     private DataHandleInternal      handle;
 
@@ -202,6 +226,7 @@ public class StatisticsBuilder {
         
         // Reset stop flag
         interrupt.value = false;
+        progress.value = 0;
         
         // Check
         if (size1 <= 0 || size2 <= 0) {
@@ -296,6 +321,7 @@ public class StatisticsBuilder {
         };
         
         // Result result
+        progress.value = 100;
         return new StatisticsContingencyTable(values1, values2, table.count, max, iterator);
     }
     
@@ -316,35 +342,59 @@ public class StatisticsBuilder {
         
         // Reset stop flag
         interrupt.value = false;
+        progress.value = 0;
         
-        // Init
-        String[] values1 = getDistinctValuesOrdered(column1, hierarchy1);
-        String[] values2 = getDistinctValuesOrdered(column2, hierarchy2);
-        
-        // Create maps of indexes
-        Map<String, Integer> indexes1 = new HashMap<String, Integer>();
-        for (int i = 0; i < values1.length; i++) {
-            checkInterrupt();
-            indexes1.put(values1[i], i);
-        }
-        Map<String, Integer> indexes2 = new HashMap<String, Integer>();
-        for (int i = 0; i < values2.length; i++) {
-            checkInterrupt();
-            indexes2.put(values2[i], i);
-        }
-        
-        // Create entry set
+        // Use encoded data, if available
+        Column[] columns = handle.getEncodedColumns();
+        String[] values1;
+        String[] values2;
         int max = Integer.MIN_VALUE;
         final Map<Entry, Integer> entries = new HashMap<Entry, Integer>();
-        for (int row = 0; row < handle.getNumRows(); row++) {
-            checkInterrupt();
-            int index1 = indexes1.get(handle.getValue(row, column1));
-            int index2 = indexes2.get(handle.getValue(row, column2));
-            Entry entry = new Entry(index1, index2);
-            Integer previous = entries.get(entry);
-            int value = previous != null ? previous + 1 : 1;
-            max = Math.max(max, value);
-            entries.put(entry, value);
+        if (columns != null) {
+            
+            // Init
+            String[] dictionary1 = columns[column1].getDictionary();
+            String[] dictionary2 = columns[column2].getDictionary();
+            values1 = getDistinctValuesOrdered(column1, hierarchy1, getEncodedValues(dictionary1, getEncodedFrequencies(columns, column1)));
+            values2 = getDistinctValuesOrdered(column2, hierarchy2, getEncodedValues(dictionary2, getEncodedFrequencies(columns, column2)));
+            
+            // Create maps of indexes
+            Map<String, Integer> indexes1 = getIndexes(values1);
+            Map<String, Integer> indexes2 = getIndexes(values2);
+            
+            // Create entry set
+            int[] codes = getEncodedFrequencies(columns, column1, column2);
+            for (int i = 0; i < codes.length; i += 3) {
+                checkInterrupt();
+                int index1 = indexes1.get(getEncodedValue(dictionary1, codes[i]));
+                int index2 = indexes2.get(getEncodedValue(dictionary2, codes[i + 1]));
+                Entry entry = new Entry(index1, index2);
+                Integer previous = entries.get(entry);
+                int value = previous != null ? previous + codes[i + 2] : codes[i + 2];
+                max = Math.max(max, value);
+                entries.put(entry, value);
+            }
+        } else {
+            
+            // Init
+            values1 = getDistinctValuesOrdered(column1, hierarchy1);
+            values2 = getDistinctValuesOrdered(column2, hierarchy2);
+            
+            // Create maps of indexes
+            Map<String, Integer> indexes1 = getIndexes(values1);
+            Map<String, Integer> indexes2 = getIndexes(values2);
+            
+            // Create entry set
+            for (int row = 0; row < handle.getNumRows(); row++) {
+                checkInterrupt();
+                int index1 = indexes1.get(handle.getValue(row, column1));
+                int index2 = indexes2.get(handle.getValue(row, column2));
+                Entry entry = new Entry(index1, index2);
+                Integer previous = entries.get(entry);
+                int value = previous != null ? previous + 1 : 1;
+                max = Math.max(max, value);
+                entries.put(entry, value);
+            }
         }
         
         // Create iterator
@@ -384,6 +434,7 @@ public class StatisticsBuilder {
         };
         
         // Result result
+        progress.value = 100;
         return new StatisticsContingencyTable(values1, values2, count, (double) max / (double) count, iterator);
     }
     
@@ -440,8 +491,22 @@ public class StatisticsBuilder {
         // Reset stop flag
         interrupt.value = false;
         
-        // Obtain list and data type
-        final String[] list = getDistinctValues(column);
+        // Obtain list and order
+        return getDistinctValuesOrdered(column, hierarchy, getDistinctValues(column));
+    }
+
+    /**
+     * Orders the given distinct set of data items from the given column. This method assumes
+     * that the order of string data items can (and should) be derived from the provided hierarchy
+     * 
+     * @param column The column
+     * @param hierarchy The hierarchy, may be null
+     * @param list The distinct values
+     * @return
+     */
+    private String[] getDistinctValuesOrdered(int column, String[][] hierarchy, final String[] list) {
+        
+        // Obtain data type
         final String attribute = handle.getAttributeName(column);
         final DataType<?> datatype = handle.getDataType(attribute);
         final int level = handle.getGeneralization(attribute);
@@ -510,9 +575,23 @@ public class StatisticsBuilder {
      * @return
      */
     public StatisticsEquivalenceClasses getEquivalenceClassStatistics() {
+        return getEquivalenceClassStatistics(null);
+    }
+    
+    /**
+     * Returns statistics about the equivalence classes. Rows are processed in chunks and
+     * approximations computed from the rows processed so far are reported to the listener.
+     * If an index of the encoded data is available, it is used directly and no intermediate
+     * results are reported.
+     *
+     * @param listener The listener, may be null
+     * @return
+     */
+    public StatisticsEquivalenceClasses getEquivalenceClassStatistics(StatisticsListener<StatisticsEquivalenceClasses> listener) {
 
         // Reset stop flag
         interrupt.value = false;
+        progress.value = 0;
 
         // Prepare
         Set<String> attributes = handle.getDefinition().getQuasiIdentifyingAttributes();
@@ -524,17 +603,419 @@ public class StatisticsBuilder {
             }
         }
 
-        // Calculate equivalence classes
-        int capacity = handle.getNumRows() / 10;
-        capacity = capacity > 10 ? capacity : 10;
-        Groupify<TupleWrapper> map = new Groupify<TupleWrapper>(capacity);
-        int numRows = handle.getNumRows();
-        for (int row = 0; row < numRows; row++) {
+        // Calculate sizes of equivalence classes, preferably using the shared index
+        int[] sizes;
+        boolean[] outliers;
+        EquivalenceClassIndex classes = handle.getEquivalenceClassIndex(indices, interrupt);
+        if (classes != null) {
+            sizes = classes.getSizes();
+            outliers = new boolean[sizes.length];
+            int[] representatives = classes.getRepresentatives();
+            for (int i = 0; i < representatives.length; i++) {
+                outliers[i] = handle.isOutlier(representatives[i]);
+            }
+        } else {
+            int numRows = handle.getNumRows();
+            int chunk = getChunkSize(numRows);
+            int capacity = Math.min(numRows, chunk) / 10;
+            capacity = capacity > 10 ? capacity : 10;
+            Groupify<TupleWrapper> map = new Groupify<TupleWrapper>(capacity);
+            for (int from = 0; from < numRows; from += chunk) {
+                int to = (int) Math.min((long) from + chunk, numRows);
+                for (int row = from; row < to; row++) {
+    
+                    TupleWrapper tuple = new TupleWrapper(handle, indices, row, false);
+                    map.add(tuple);
+                    checkInterrupt();
+                }
+                
+                // Report intermediate results
+                setProgress(to, numRows);
+                if (listener != null && to < numRows) {
+                    sizes = new int[map.size()];
+                    outliers = new boolean[map.size()];
+                    getSizesAndOutliers(map, sizes, outliers);
+                    listener.update(getEquivalenceClassStatistics(sizes, outliers), progress.value);
+                }
+            }
+            sizes = new int[map.size()];
+            outliers = new boolean[map.size()];
+            getSizesAndOutliers(map, sizes, outliers);
+        }
+
+        // Compute and return
+        StatisticsEquivalenceClasses result = getEquivalenceClassStatistics(sizes, outliers);
+        progress.value = 100;
+        return result;
+    }
+    
+    /**
+     * Returns a frequency distribution for the values in the given column. This method assumes that the
+     * order of string data items can (and should) be derived from the hierarchy provided in the data
+     * definition (if any)
+     * 
+     * @param column The column
+     * @return
+     */
+    public StatisticsFrequencyDistribution getFrequencyDistribution(int column) {
+        return getFrequencyDistribution(column, true);
+    }
+
+
+    /**
+     * Returns a frequency distribution for the values in the given column.
+     *
+     * @param column The column
+     * @param orderFromDefinition Indicates whether the order that should be assumed for string data items
+     *            can (and should) be derived from the hierarchy provided in the data
+     *            definition (if any)
+     * @return
+     */
+    public StatisticsFrequencyDistribution getFrequencyDistribution(int column, boolean orderFromDefinition) {
+        return getFrequencyDistribution(column, getHierarchy(column, orderFromDefinition));
+    }
+
+    /**
+     * Returns a frequency distribution for the values in the given column. The order for string data items
+     * is derived from the provided hierarchy
+     * 
+     * @param column The column
+     * @param hierarchy The hierarchy, may be null
+     * @return
+     */
+    public StatisticsFrequencyDistribution getFrequencyDistribution(int column, String[][] hierarchy) {
 
-            TupleWrapper tuple = new TupleWrapper(handle, indices, row, false);
-            map.add(tuple);
+        // Reset stop flag
+        interrupt.value = false;
+        progress.value = 0;
+        
+        // Use encoded data, if available
+        Column[] columns = handle.getEncodedColumns();
+        String[] values;
+        double[] frequencies;
+        if (columns != null) {
+            
+            // Init
+            String[] dictionary = columns[column].getDictionary();
+            int[] codes = getEncodedFrequencies(columns, column);
+            values = getDistinctValuesOrdered(column, hierarchy, getEncodedValues(dictionary, codes));
+            frequencies = new double[values.length];
+            
+            // Create map of indexes
+            Map<String, Integer> indexes = getIndexes(values);
+            
+            // Sum up frequencies
+            for (int code = 0; code < codes.length; code++) {
+                if (codes[code] != 0) {
+                    frequencies[indexes.get(getEncodedValue(dictionary, code))] += codes[code];
+                }
+            }
+        } else {
+            
+            // Init
+            values = getDistinctValuesOrdered(column, hierarchy);
+            frequencies = new double[values.length];
+            
+            // Create map of indexes
+            Map<String, Integer> indexes = getIndexes(values);
+            
+            // Count frequencies
+            for (int row = 0; row < handle.getNumRows(); row++) {
+                checkInterrupt();
+                String value = handle.getValue(row, column);
+                frequencies[indexes.get(value)]++;
+            }
+        }
+        
+        // Divide by count
+        int count = handle.getNumRows();
+        for (int i = 0; i < frequencies.length; i++) {
             checkInterrupt();
+            frequencies[i] /= (double) count;
         }
+        
+        // Return
+        progress.value = 100;
+        return new StatisticsFrequencyDistribution(values, frequencies, count);
+    }
+
+    /**
+     * 
+     * Returns an interruptible instance of this object.
+     *
+     * @return
+     */
+    public StatisticsBuilderInterruptible getInterruptibleInstance() {
+        return new StatisticsBuilderInterruptible(handle);
+    }
+
+    /**
+     * Returns summary statistics for all attributes.
+     * 
+     * @param listwiseDeletion A flag enabling list-wise deletion
+     * @return
+     */
+    public <T> Map<String, StatisticsSummary<?>> getSummaryStatistics(boolean listwiseDeletion) {
+        return getSummaryStatistics(listwiseDeletion, null);
+    }
+
+    /**
+     * Returns summary statistics for all attributes. Rows are processed in chunks and
+     * approximations computed from the rows processed so far are reported to the listener.
+     * 
+     * @param listwiseDeletion A flag enabling list-wise deletion
+     * @param listener The listener, may be null
+     * @return
+     */
+    public Map<String, StatisticsSummary<?>> getSummaryStatistics(boolean listwiseDeletion,
+                                                                  StatisticsListener<Map<String, StatisticsSummary<?>>> listener) {
+
+        // Reset stop flag
+        interrupt.value = false;
+        progress.value = 0;
+        
+        // Determine frequencies of distinct values
+        String[][] dictionaries = new String[handle.getNumColumns()][];
+        int[][] frequencies = getSummaryFrequencies(listwiseDeletion, dictionaries, listener);
+        
+        // Compute and return
+        Map<String, StatisticsSummary<?>> result = getSummaryStatistics(dictionaries, frequencies);
+        progress.value = 100;
+        return result;
+    }
+
+    /**
+     * Sets the number of rows processed in each chunk by computations that support
+     * intermediate results. Only data structures whose size depends on the number of
+     * distinct values are retained between chunks. By default, rows are split into
+     * {@link #DEFAULT_NUM_CHUNKS} chunks of at least {@link #MIN_CHUNK_SIZE} rows.
+     * 
+     * @param chunkSize
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Checks whether an interruption happened.
+     */
+    private void checkInterrupt() {
+        if (interrupt.value) {
+            throw new ComputationInterruptedException("Interrupted");
+        }
+    }
+    
+    /**
+     * Executes the given tasks, in parallel if an executor is given
+     * 
+     * @param executor The executor, may be null
+     * @param tasks
+     */
+    private <T> void execute(ExecutorService executor, List<Callable<T>> tasks) {
+        if (executor == null) {
+            for (Callable<T> task : tasks) {
+                try {
+                    task.call();
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        } else {
+            try {
+                for (Future<T> future : executor.invokeAll(tasks)) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new RuntimeException(e.getCause());
+            }
+        }
+    }
+    
+    /**
+     * Returns the number of rows processed in each chunk for the given number of rows
+     *
+     * @param rows
+     * @return
+     */
+    private int getChunkSize(int rows) {
+        if (chunkSize > 0) {
+            return chunkSize;
+        }
+        return Math.max(MIN_CHUNK_SIZE, (rows + DEFAULT_NUM_CHUNKS - 1) / DEFAULT_NUM_CHUNKS);
+    }
+    
+    /**
+     * Returns the frequencies of the codes in the given encoded column. The last element
+     * contains the number of values that have been replaced due to suppression.
+     * Results are cached by the handle.
+     *
+     * @param columns
+     * @param column
+     * @return
+     */
+    private int[] getEncodedFrequencies(Column[] columns, int column) {
+        
+        // Check cache
+        List<Integer> key = Arrays.asList(column);
+        int[] result = handle.getFrequencies(key);
+        if (result != null) {
+            return result;
+        }
+        
+        // Prepare
+        Column _column = columns[column];
+        BitSet suppressed = _column.isSuppressible() ? handle.getSuppressedRows() : null;
+        int suppressedCode = _column.getDictionary().length;
+        int rows = handle.getNumRows();
+        
+        // Count
+        result = new int[suppressedCode + 1];
+        for (int row = 0; row < rows; row++) {
+            if ((row & 0xFFFF) == 0) {
+                checkInterrupt();
+                setProgress(row, rows);
+            }
+            result[suppressed != null && suppressed.get(row) ? suppressedCode : _column.getCode(row)]++;
+        }
+        
+        // Cache and return
+        handle.setFrequencies(key, result);
+        return result;
+    }
+
+    /**
+     * Returns the frequencies of all combinations of codes in the given encoded columns.
+     * The result consists of triples (code1, code2, frequency) for all combinations that
+     * occur in the data. Values that have been replaced due to suppression are represented
+     * by a code equal to the size of the respective dictionary. Results are cached by the handle.
+     *
+     * @param columns
+     * @param column1
+     * @param column2
+     * @return
+     */
+    private int[] getEncodedFrequencies(Column[] columns, int column1, int column2) {
+
+        // Check cache
+        List<Integer> key = Arrays.asList(column1, column2);
+        int[] result = handle.getFrequencies(key);
+        if (result != null) {
+            return result;
+        }
+        
+        // Prepare
+        Column _column1 = columns[column1];
+        Column _column2 = columns[column2];
+        BitSet suppressed = handle.getSuppressedRows();
+        BitSet suppressed1 = _column1.isSuppressible() ? suppressed : null;
+        BitSet suppressed2 = _column2.isSuppressible() ? suppressed : null;
+        int suppressedCode1 = _column1.getDictionary().length;
+        int suppressedCode2 = _column2.getDictionary().length;
+        long size1 = suppressedCode1 + 1;
+        long size2 = suppressedCode2 + 1;
+        int rows = handle.getNumRows();
+        
+        // Count, using a dense array for small domains
+        if (size1 * size2 <= DENSE_CONTINGENCY_TABLE_SIZE) {
+            int[] frequencies = new int[(int) (size1 * size2)];
+            int count = 0;
+            for (int row = 0; row < rows; row++) {
+                if ((row & 0xFFFF) == 0) {
+                    checkInterrupt();
+                    setProgress(row, rows);
+                }
+                int code1 = suppressed1 != null && suppressed1.get(row) ? suppressedCode1 : _column1.getCode(row);
+                int code2 = suppressed2 != null && suppressed2.get(row) ? suppressedCode2 : _column2.getCode(row);
+                int index = code1 * (int) size2 + code2;
+                if (frequencies[index]++ == 0) {
+                    count++;
+                }
+            }
+            result = new int[count * 3];
+            int offset = 0;
+            for (int index = 0; index < frequencies.length; index++) {
+                if (frequencies[index] != 0) {
+                    result[offset++] = (int) (index / size2);
+                    result[offset++] = (int) (index % size2);
+                    result[offset++] = frequencies[index];
+                }
+            }
+        } else {
+            LongIntOpenHashMap frequencies = new LongIntOpenHashMap();
+            for (int row = 0; row < rows; row++) {
+                if ((row & 0xFFFF) == 0) {
+                    checkInterrupt();
+                    setProgress(row, rows);
+                }
+                int code1 = suppressed1 != null && suppressed1.get(row) ? suppressedCode1 : _column1.getCode(row);
+                int code2 = suppressed2 != null && suppressed2.get(row) ? suppressedCode2 : _column2.getCode(row);
+                frequencies.putOrAdd(code1 * size2 + code2, 1, 1);
+            }
+            result = new int[frequencies.size() * 3];
+            int offset = 0;
+            final long[] keys = frequencies.keys;
+            final int[] values = frequencies.values;
+            final boolean[] allocated = frequencies.allocated;
+            for (int i = 0; i < allocated.length; i++) {
+                if (allocated[i]) {
+                    result[offset++] = (int) (keys[i] / size2);
+                    result[offset++] = (int) (keys[i] % size2);
+                    result[offset++] = values[i];
+                }
+            }
+        }
+        
+        // Cache and return
+        handle.setFrequencies(key, result);
+        return result;
+    }
+
+    /**
+     * Returns the value represented by the given code
+     * 
+     * @param dictionary
+     * @param code
+     * @return
+     */
+    private String getEncodedValue(String[] dictionary, int code) {
+        return code == dictionary.length ? DataType.ANY_VALUE : dictionary[code];
+    }
+    
+    /**
+     * Returns the distinct values represented by all codes with a frequency larger than zero
+     * 
+     * @param dictionary
+     * @param frequencies
+     * @return
+     */
+    private String[] getEncodedValues(String[] dictionary, int[] frequencies) {
+        Set<String> values = new HashSet<String>();
+        for (int code = 0; code < frequencies.length; code++) {
+            if (frequencies[code] != 0) {
+                values.add(getEncodedValue(dictionary, code));
+            }
+        }
+        return values.toArray(new String[values.size()]);
+    }
+    
+    /**
+     * Computes statistics from the given sizes of equivalence classes
+     * 
+     * @param sizes
+     * @param outliers Whether each class consists of outliers
+     * @return
+     */
+    private StatisticsEquivalenceClasses getEquivalenceClassStatistics(int[] sizes, boolean[] outliers) {
 
         // Now compute the following values
         double averageEquivalenceClassSize = 0d;
@@ -544,35 +1025,32 @@ public class StatisticsBuilder {
         int minimalEquivalenceClassSize = Integer.MAX_VALUE;
         int minimalEquivalenceClassSizeIncludingOutliers = Integer.MAX_VALUE;
         int numberOfEquivalenceClasses = 0;
-        int numberOfEquivalenceClassesIncludingOutliers = map.size();
+        int numberOfEquivalenceClassesIncludingOutliers = sizes.length;
         int numberOfTuples = 0;
         int numberOfOutlyingTuples = 0;
          
         // Let's do it
         boolean containsOutliers = false;
-        Group<TupleWrapper> element = map.first();
-        while (element != null) {
+        for (int i = 0; i < sizes.length; i++) {
             
             checkInterrupt();
-            maximalEquivalenceClassSizeIncludingOutliers = Math.max(element.getCount(), maximalEquivalenceClassSizeIncludingOutliers);
-            minimalEquivalenceClassSizeIncludingOutliers = Math.min(element.getCount(), minimalEquivalenceClassSizeIncludingOutliers);
-            averageEquivalenceClassSizeIncludingOutliers += element.getCount();
-            numberOfTuples += element.getCount();
+            maximalEquivalenceClassSizeIncludingOutliers = Math.max(sizes[i], maximalEquivalenceClassSizeIncludingOutliers);
+            minimalEquivalenceClassSizeIncludingOutliers = Math.min(sizes[i], minimalEquivalenceClassSizeIncludingOutliers);
+            averageEquivalenceClassSizeIncludingOutliers += sizes[i];
+            numberOfTuples += sizes[i];
             
-            if (!element.getElement().isOutlier()) {
+            if (!outliers[i]) {
                 
-                maximalEquivalenceClassSize = Math.max(element.getCount(), maximalEquivalenceClassSize);
-                minimalEquivalenceClassSize = Math.min(element.getCount(), minimalEquivalenceClassSize);
-                averageEquivalenceClassSize += element.getCount();
+                maximalEquivalenceClassSize = Math.max(sizes[i], maximalEquivalenceClassSize);
+                minimalEquivalenceClassSize = Math.min(sizes[i], minimalEquivalenceClassSize);
+                averageEquivalenceClassSize += sizes[i];
                 
             } else {
                 
                 containsOutliers = true;
                 // All suppressed records will collapse into a single group, so we can use the "=" assignment operator here
-                numberOfOutlyingTuples = element.getCount();
+                numberOfOutlyingTuples = sizes[i];
             }
-            
-            element = element.next();
         }
         
         numberOfEquivalenceClasses = numberOfEquivalenceClassesIncludingOutliers;
@@ -602,100 +1080,306 @@ public class StatisticsBuilder {
                                                 numberOfTuples,
                                                 numberOfOutlyingTuples);
     }
-    
+
     /**
-     * Returns a frequency distribution for the values in the given column. This method assumes that the
-     * order of string data items can (and should) be derived from the hierarchy provided in the data
-     * definition (if any)
-     * 
-     * @param column The column
+     * Returns the appropriate hierarchy, if any.
+     *
+     * @param column
+     * @param orderFromDefinition
      * @return
      */
-    public StatisticsFrequencyDistribution getFrequencyDistribution(int column) {
-        return getFrequencyDistribution(column, true);
+    private String[][] getHierarchy(int column, boolean orderFromDefinition) {
+        
+        // Init
+        final String attribute = handle.getAttributeName(column);
+        final String[][] hierarchy = handle.getDefinition().getHierarchy(attribute);
+        final DataType<?> datatype = handle.getDataType(attribute);
+        
+        // Check if hierarchy available
+        if (orderFromDefinition && datatype instanceof ARXString && hierarchy != null) {
+            return hierarchy;
+        } else {
+            return null;
+        }
     }
-
+    
     /**
-     * Returns a frequency distribution for the values in the given column.
+     * Returns a map from the given values to their indexes
      *
-     * @param column The column
-     * @param orderFromDefinition Indicates whether the order that should be assumed for string data items
-     *            can (and should) be derived from the hierarchy provided in the data
-     *            definition (if any)
+     * @param values
      * @return
      */
-    public StatisticsFrequencyDistribution getFrequencyDistribution(int column, boolean orderFromDefinition) {
-        return getFrequencyDistribution(column, getHierarchy(column, orderFromDefinition));
+    private Map<String, Integer> getIndexes(String[] values) {
+        Map<String, Integer> indexes = new HashMap<String, Integer>();
+        for (int i = 0; i < values.length; i++) {
+            checkInterrupt();
+            indexes.put(values[i], i);
+        }
+        return indexes;
     }
-
+    
     /**
-     * Returns a frequency distribution for the values in the given column. The order for string data items
-     * is derived from the provided hierarchy
-     * 
-     * @param column The column
-     * @param hierarchy The hierarchy, may be null
+     * Scales the given string array.
+     *
+     * @param values
+     * @param length The resulting length
      * @return
      */
-    public StatisticsFrequencyDistribution getFrequencyDistribution(int column, String[][] hierarchy) {
-
-        // Reset stop flag
-        interrupt.value = false;
+    private String[] getScaledValues(String[] values, int length) {
         
         // Init
-        String[] values = getDistinctValuesOrdered(column, hierarchy);
-        double[] frequencies = new double[values.length];
+        AggregateFunction<String> function = AggregateFunction.forType(DataType.STRING).createSetFunction();
+        double factor = (double) length / (double) values.length;
+        String[] result = new String[length];
         
-        // Create map of indexes
-        Map<String, Integer> indexes = new HashMap<String, Integer>();
+        // Aggregate
+        int previous = 0;
+        List<String> toAggregate = new ArrayList<String>();
         for (int i = 0; i < values.length; i++) {
+            
             checkInterrupt();
-            indexes.put(values[i], i);
+            
+            int index = (int) Math.round((double) i * factor);
+            index = index < length ? index : length - 1;
+            
+            if (index != previous) {
+                result[previous] = function.aggregate(toAggregate.toArray(new String[toAggregate.size()]));
+                toAggregate.clear();
+                previous = index;
+            }
+            toAggregate.add(values[i]);
         }
         
-        // Count frequencies
-        for (int row = 0; row < handle.getNumRows(); row++) {
-            checkInterrupt();
-            String value = handle.getValue(row, column);
-            frequencies[indexes.get(value)]++;
+        result[length - 1] = function.aggregate(toAggregate.toArray(new String[toAggregate.size()]));
+        return result;
+    }
+    
+    /**
+     * Returns the sizes of the equivalence classes in the given map and whether
+     * each class consists of outliers. The values are stored in the given arrays.
+     *
+     * @param map
+     * @param sizes
+     * @param outliers
+     */
+    private void getSizesAndOutliers(Groupify<TupleWrapper> map, int[] sizes, boolean[] outliers) {
+        int i = 0;
+        Group<TupleWrapper> element = map.first();
+        while (element != null) {
+            sizes[i] = element.getCount();
+            outliers[i++] = element.getElement().isOutlier();
+            element = element.next();
         }
+    }
+    
+    /**
+     * Returns the frequencies of all distinct values of each column. The values
+     * are stored in the given array. Rows are excluded when list-wise deletion
+     * is enabled and they are suppressed or contain a missing value.
+     * 
+     * @param listwiseDeletion
+     * @param dictionaries
+     * @param listener The listener for intermediate results, may be null
+     * @return
+     */
+    private int[][] getSummaryFrequencies(boolean listwiseDeletion,
+                                          String[][] dictionaries,
+                                          StatisticsListener<Map<String, StatisticsSummary<?>>> listener) {
         
-        // Divide by count
-        int count = handle.getNumRows();
-        for (int i = 0; i < frequencies.length; i++) {
-            checkInterrupt();
-            frequencies[i] /= (double) count;
+        // Fall back to a row-wise scan, if encoded columns are not available
+        final Column[] columns = handle.getEncodedColumns();
+        if (columns == null) {
+            return getSummaryFrequencies(listwiseDeletion, dictionaries, handle.getNumRows(), handle.getNumColumns(), listener);
         }
         
-        // Return
-        return new StatisticsFrequencyDistribution(values, frequencies, count);
+        // Prepare
+        final int rows = handle.getNumRows();
+        final BitSet suppressed = handle.getSuppressedRows();
+        for (int col = 0; col < columns.length; col++) {
+            dictionaries[col] = columns[col].getDictionary();
+        }
+        
+        // Determine rows to exclude
+        final BitSet excluded = new BitSet(rows);
+        if (listwiseDeletion) {
+            if (suppressed != null) {
+                excluded.or(suppressed);
+            }
+            for (int col = 0; col < columns.length; col++) {
+                
+                // Check
+                checkInterrupt();
+                
+                // Determine missing values
+                boolean[] missing = new boolean[dictionaries[col].length];
+                boolean anyMissing = false;
+                for (int code = 0; code < missing.length; code++) {
+                    missing[code] = DataType.isNull(dictionaries[col][code]);
+                    anyMissing |= missing[code];
+                }
+                
+                // Exclude rows
+                if (anyMissing) {
+                    for (int row = 0; row < rows; row++) {
+                        if (missing[columns[col].getCode(row)]) {
+                            excluded.set(row);
+                        }
+                    }
+                }
+            }
+        }
+        
+        // Prepare
+        final int[][] result = new int[columns.length][];
+        for (int col = 0; col < columns.length; col++) {
+            result[col] = new int[dictionaries[col].length];
+        }
+        int threads = Math.min(columns.length, Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = threads <= 1 ? null : Executors.newFixedThreadPool(threads);
+        
+        // Count chunk by chunk
+        final int chunk = getChunkSize(rows);
+        try {
+            for (int from = 0; from < rows; from += chunk) {
+                
+                // Prepare tasks, one for each column
+                final int _from = from;
+                final int _to = (int) Math.min((long) from + chunk, rows);
+                List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+                for (int col = 0; col < columns.length; col++) {
+                    final Column column = columns[col];
+                    final BitSet _suppressed = column.isSuppressible() ? suppressed : null;
+                    final int[] frequencies = result[col];
+                    tasks.add(new Callable<Void>() {
+                        @Override
+                        public Void call() throws Exception {
+                            for (int row = excluded.nextClearBit(_from); row < _to; row = excluded.nextClearBit(row + 1)) {
+                                if ((row & 0xFFFF) == 0) {
+                                    checkInterrupt();
+                                }
+                                if (_suppressed == null || !_suppressed.get(row)) {
+                                    frequencies[column.getCode(row)]++;
+                                }
+                            }
+                            return null;
+                        }
+                    });
+                }
+                
+                // Execute
+                execute(executor, tasks);
+                
+                // Report intermediate results
+                setProgress(_to, rows);
+                if (listener != null && _to < rows) {
+                    listener.update(getSummaryStatistics(dictionaries, result), progress.value);
+                }
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+            }
+        }
+        return result;
     }
-
+    
     /**
+     * Returns the frequencies of all distinct values of each column by scanning
+     * the rows of the handle. The values are stored in the given array.
      * 
-     * Returns an interruptible instance of this object.
-     *
+     * @param listwiseDeletion
+     * @param dictionaries
+     * @param rows
+     * @param columns
+     * @param listener The listener for intermediate results, may be null
      * @return
      */
-    public StatisticsBuilderInterruptible getInterruptibleInstance() {
-        return new StatisticsBuilderInterruptible(handle);
+    private int[][] getSummaryFrequencies(boolean listwiseDeletion,
+                                          String[][] dictionaries,
+                                          int rows,
+                                          int columns,
+                                          StatisticsListener<Map<String, StatisticsSummary<?>>> listener) {
+        
+        // Prepare
+        List<ObjectIntOpenHashMap<String>> codes = new ArrayList<ObjectIntOpenHashMap<String>>();
+        List<IntArrayList> frequencies = new ArrayList<IntArrayList>();
+        List<List<String>> values = new ArrayList<List<String>>();
+        for (int col = 0; col < columns; col++) {
+            codes.add(new ObjectIntOpenHashMap<String>());
+            frequencies.add(new IntArrayList());
+            values.add(new ArrayList<String>());
+        }
+        
+        // For each row
+        String[] tuple = new String[columns];
+        int chunk = getChunkSize(rows);
+        for (int row = 0; row < rows; row++) {
+            
+            // Check
+            checkInterrupt();
+            
+            // Check, if we should include this row
+            boolean include = !listwiseDeletion || !handle.isOutlier(row);
+            for (int col = 0; col < columns; col++) {
+                tuple[col] = handle.getValue(row, col);
+                include &= !listwiseDeletion || !DataType.isNull(tuple[col]);
+            }
+            
+            // If yes, count
+            if (include) {
+                for (int col = 0; col < columns; col++) {
+                    ObjectIntOpenHashMap<String> map = codes.get(col);
+                    int code = map.getOrDefault(tuple[col], -1);
+                    if (code == -1) {
+                        code = values.get(col).size();
+                        map.put(tuple[col], code);
+                        values.get(col).add(tuple[col]);
+                        frequencies.get(col).add(0);
+                    }
+                    IntArrayList list = frequencies.get(col);
+                    list.setQuick(code, list.getQuick(code) + 1);
+                }
+            }
+            
+            // Report intermediate results
+            if ((row + 1) % chunk == 0 && row + 1 < rows) {
+                setProgress(row + 1, rows);
+                if (listener != null) {
+                    String[][] _dictionaries = new String[columns][];
+                    int[][] _frequencies = new int[columns][];
+                    for (int col = 0; col < columns; col++) {
+                        _dictionaries[col] = values.get(col).toArray(new String[values.get(col).size()]);
+                        _frequencies[col] = Arrays.copyOf(frequencies.get(col).elements(), frequencies.get(col).size());
+                    }
+                    listener.update(getSummaryStatistics(_dictionaries, _frequencies), progress.value);
+                }
+            }
+        }
+        
+        // Convert
+        int[][] result = new int[columns][];
+        for (int col = 0; col < columns; col++) {
+            dictionaries[col] = values.get(col).toArray(new String[values.get(col).size()]);
+            frequencies.get(col).trimToSize();
+            result[col] = frequencies.get(col).elements();
+        }
+        return result;
     }
-
+    
     /**
-     * Returns summary statistics for all attributes.
+     * Computes summary statistics from the given frequencies of distinct values
      * 
-     * @param listwiseDeletion A flag enabling list-wise deletion
+     * @param dictionaries
+     * @param frequencies
      * @return
      */
     @SuppressWarnings({ "unchecked", "rawtypes" })
-    public <T> Map<String, StatisticsSummary<?>> getSummaryStatistics(boolean listwiseDeletion) {
+    private <T> Map<String, StatisticsSummary<?>> getSummaryStatistics(String[][] dictionaries, int[][] frequencies) {
 
-        // Reset stop flag
-        interrupt.value = false;
-        
-        Map<String, DescriptiveStatistics> statistics = new HashMap<String, DescriptiveStatistics>();
+        // Prepare
+        Map<String, StatisticsSummaryMoments> statistics = new HashMap<String, StatisticsSummaryMoments>();
         Map<String, StatisticsSummaryOrdinal> ordinal = new HashMap<String, StatisticsSummaryOrdinal>();
         Map<String, DataScale> scales = new HashMap<String, DataScale>();
-        Map<String, GeometricMean> geomean = new HashMap<String, GeometricMean>();
         
         // Detect scales
         for (int col = 0; col < handle.getNumColumns(); col++) {
@@ -717,50 +1401,35 @@ public class StatisticsBuilder {
             
             // Store
             scales.put(attribute, scale);
-            statistics.put(attribute, new DescriptiveStatistics());
-            geomean.put(attribute, new GeometricMean());
+            statistics.put(attribute, new StatisticsSummaryMoments());
             ordinal.put(attribute, getSummaryStatisticsOrdinal(handle.getGeneralization(attribute),
                                                                handle.getDataType(attribute),
                                                                handle.getBaseDataType(attribute),
                                                                getHierarchy(col, true)));
         }
         
-        // Compute summary statistics
-        for (int row = 0; row < handle.getNumRows(); row++) {
-            
-            // Check, if we should include this row
-            boolean include = true;
-            if (listwiseDeletion) {
-                for (int col = 0; col < handle.getNumColumns(); col++) {
-                    if (handle.isOutlier(row) || DataType.isNull(handle.getValue(row, col))) {
-                        include = false;
-                        break;
-                    }
-                }
-            }
+        // Compute summary statistics, parsing each distinct value only once
+        for (int col = 0; col < handle.getNumColumns(); col++) {
             
-            // Check
-            checkInterrupt();
+            // Meta
+            String attribute = handle.getAttributeName(col);
+            DataType<?> type = handle.getDataType(attribute);
+            String[] dictionary = dictionaries[col];
+            int[] frequency = frequencies[col];
             
-            // If yes, add
-            if (include) {
+            // For each distinct value
+            for (int code = 0; code < frequency.length; code++) {
                 
-                // For each column
-                for (int col = 0; col < handle.getNumColumns(); col++) {
-                    
-                    // Meta
-                    String value = handle.getValue(row, col);
-                    String attribute = handle.getAttributeName(col);
-                    DataType<?> type = handle.getDataType(attribute);
-                    
-                    // Analyze
-                    if (!DataType.isAny(value) && !DataType.isNull(value)) {
-                        ordinal.get(attribute).addValue(value);
-                        if (type instanceof DataTypeWithRatioScale) {
-                            double doubleValue = ((DataTypeWithRatioScale) type).toDouble(type.parse(value));
-                            statistics.get(attribute).addValue(doubleValue);
-                            geomean.get(attribute).increment(doubleValue + 1d);
-                        }
+                // Check
+                checkInterrupt();
+                
+                // Analyze
+                String value = dictionary[code];
+                if (frequency[code] != 0 && !DataType.isAny(value) && !DataType.isNull(value)) {
+                    ordinal.get(attribute).addValue(value, frequency[code]);
+                    if (type instanceof DataTypeWithRatioScale) {
+                        double doubleValue = ((DataTypeWithRatioScale) type).toDouble(type.parse(value));
+                        statistics.get(attribute).addValue(doubleValue, frequency[code]);
                     }
                 }
             }
@@ -778,6 +1447,7 @@ public class StatisticsBuilder {
             DataScale scale = scales.get(attribute);
             DataType<T> type = (DataType<T>) handle.getDataType(attribute);
             ordinal.get(attribute).analyze();
+            statistics.get(attribute).analyze();
             if (scale == DataScale.NOMINAL) {
                 StatisticsSummaryOrdinal stats = ordinal.get(attribute);
                 result.put(attribute, new StatisticsSummary<T>(DataScale.NOMINAL,
@@ -798,7 +1468,7 @@ public class StatisticsBuilder {
                                                                type.parse(stats.getMax())));
             } else if (scale == DataScale.INTERVAL) {
                 StatisticsSummaryOrdinal stats = ordinal.get(attribute);
-                DescriptiveStatistics stats2 = statistics.get(attribute);
+                StatisticsSummaryMoments stats2 = statistics.get(attribute);
                 boolean isPeriod = type.getDescription().getWrappedClass() == Date.class;
                 
                 // TODO: Something is wrong with commons math's kurtosis
@@ -837,8 +1507,7 @@ public class StatisticsBuilder {
                                                                kurtosis));
             } else if (scale == DataScale.RATIO) {
                 StatisticsSummaryOrdinal stats = ordinal.get(attribute);
-                DescriptiveStatistics stats2 = statistics.get(attribute);
-                GeometricMean geo = geomean.get(attribute);
+                StatisticsSummaryMoments stats2 = statistics.get(attribute);
                 
                 // TODO: Something is wrong with commons math's kurtosis
                 double kurtosis = stats2.getKurtosis();
@@ -874,8 +1543,8 @@ public class StatisticsBuilder {
                                                                toString(type, kurtosis, false, false),
                                                                toValue(type, kurtosis),
                                                                kurtosis,
-                                                               toString(type, geo.getResult() - 1d, false, false),
-                                                               toValue(type, geo.getResult() - 1d),
+                                                               toString(type, stats2.getGeometricMeanOfIncrements(), false, false),
+                                                               toValue(type, stats2.getGeometricMeanOfIncrements()),
                                                                stats2.getGeometricMean()));
             }
         }
@@ -883,73 +1552,6 @@ public class StatisticsBuilder {
         return result;
     }
 
-    /**
-     * Checks whether an interruption happened.
-     */
-    private void checkInterrupt() {
-        if (interrupt.value) {
-            throw new ComputationInterruptedException("Interrupted");
-        }
-    }
-    
-    /**
-     * Returns the appropriate hierarchy, if any.
-     *
-     * @param column
-     * @param orderFromDefinition
-     * @return
-     */
-    private String[][] getHierarchy(int column, boolean orderFromDefinition) {
-        
-        // Init
-        final String attribute = handle.getAttributeName(column);
-        final String[][] hierarchy = handle.getDefinition().getHierarchy(attribute);
-        final DataType<?> datatype = handle.getDataType(attribute);
-        
-        // Check if hierarchy available
-        if (orderFromDefinition && datatype instanceof ARXString && hierarchy != null) {
-            return hierarchy;
-        } else {
-            return null;
-        }
-    }
-    
-    /**
-     * Scales the given string array.
-     *
-     * @param values
-     * @param length The resulting length
-     * @return
-     */
-    private String[] getScaledValues(String[] values, int length) {
-        
-        // Init
-        AggregateFunction<String> function = AggregateFunction.forType(DataType.STRING).createSetFunction();
-        double factor = (double) length / (double) values.length;
-        String[] result = new String[length];
-        
-        // Aggregate
-        int previous = 0;
-        List<String> toAggregate = new ArrayList<String>();
-        for (int i = 0; i < values.length; i++) {
-            
-            checkInterrupt();
-            
-            int index = (int) Math.round((double) i * factor);
-            index = index < length ? index : length - 1;
-            
-            if (index != previous) {
-                result[previous] = function.aggregate(toAggregate.toArray(new String[toAggregate.size()]));
-                toAggregate.clear();
-                previous = index;
-            }
-            toAggregate.add(values[i]);
-        }
-        
-        result[length - 1] = function.aggregate(toAggregate.toArray(new String[toAggregate.size()]));
-        return result;
-    }
-    
     /**
      * Returns a summary statistics object for the given attribute
      * @param generalization
@@ -1000,6 +1602,16 @@ public class StatisticsBuilder {
         }
     }
     
+    /**
+     * Updates the progress
+     *
+     * @param done
+     * @param total
+     */
+    private void setProgress(long done, long total) {
+        this.progress.value = total == 0 ? 100 : (int) (done * 100L / total);
+    }
+    
     /**
      * Orders the given array by data type.
      *
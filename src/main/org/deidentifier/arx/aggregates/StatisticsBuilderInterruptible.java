@@ -396,6 +396,28 @@ public class StatisticsBuilderInterruptible {
         }
     }
 
+    /**
+     * Returns statistics about the equivalence classes. Approximations computed from the
+     * rows processed so far are reported to the listener.
+     *
+     * @param listener The listener, may be null
+     * @return
+     * @throws InterruptedException
+     */
+    public StatisticsEquivalenceClasses
+            getEquivalenceClassStatistics(StatisticsListener<StatisticsEquivalenceClasses> listener) throws InterruptedException {
+        try {
+            return builder.getEquivalenceClassStatistics(listener);
+        } catch (Exception e) {
+            if (e instanceof ComputationInterruptedException) {
+                throw new InterruptedException("Interrupted");
+            } else {
+                throw new InterruptedException("Interrupted by exception: " +
+                                               e.getMessage());
+            }
+        }
+    }
+
     /**
      * Returns a frequency distribution for the values in the given column. This
      * method assumes that the order of string data items can (and should) be
@@ -495,10 +517,42 @@ public class StatisticsBuilderInterruptible {
         }
     }
 
+    /**
+     * Returns summary statistics for all attributes. Approximations computed from the
+     * rows processed so far are reported to the listener.
+     * 
+     * @param listwiseDeletion A flag enabling list-wise deletion
+     * @param listener The listener, may be null
+     * @return
+     * @throws InterruptedException
+     */
+    public Map<String, StatisticsSummary<?>> getSummaryStatistics(boolean listwiseDeletion,
+                                                                  StatisticsListener<Map<String, StatisticsSummary<?>>> listener) throws InterruptedException {
+        try {
+            return builder.getSummaryStatistics(listwiseDeletion, listener);
+        } catch (Exception e) {
+            if (e instanceof ComputationInterruptedException) {
+                throw new InterruptedException("Interrupted");
+            } else {
+                throw new InterruptedException("Interrupted by exception: " + e.getMessage());
+            }
+        }
+    }
+
     /**
      * Interrupts all computations.
      */
     public void interrupt() {
         builder.interrupt();
     }
+
+    /**
+     * Sets the number of rows processed in each chunk by computations that
+     * support intermediate results.
+     * 
+     * @param chunkSize
+     */
+    public void setChunkSize(int chunkSize) {
+        builder.setChunkSize(chunkSize);
+    }
 }
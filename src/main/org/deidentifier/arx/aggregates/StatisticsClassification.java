@@ -18,12 +18,20 @@ package org.deidentifier.arx.aggregates;
 
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.deidentifier.arx.ARXLogisticRegressionConfiguration;
 import org.deidentifier.arx.DataHandleInternal;
+import org.deidentifier.arx.aggregates.classification.ClassificationDataEncoder;
 import org.deidentifier.arx.aggregates.classification.ClassificationDataSpecification;
 import org.deidentifier.arx.aggregates.classification.ClassificationMethod;
 import org.deidentifier.arx.aggregates.classification.ClassificationResult;
@@ -98,6 +106,18 @@ public class StatisticsClassification {
             measurements++;
         }
 
+        /**
+         * Adds all values of the given matrix, which must not have been packed
+         * @param other
+         */
+        void add(PrecisionRecallMatrix other) {
+            for (int i = 0; i < CONFIDENCE_THRESHOLDS.length; i++) {
+                recall[i] += other.recall[i];
+                precision[i] += other.precision[i];
+            }
+            measurements += other.measurements;
+        }
+
         /**
          * Packs the results
          */
@@ -115,6 +135,33 @@ public class StatisticsClassification {
         }
     }
 
+    /**
+     * The results of evaluating a single fold
+     * 
+     * @author Fabian Prasser
+     */
+    private static class StatisticsClassificationFold {
+
+        /** Accuracy */
+        private double                      accuracy;
+        /** Average error */
+        private double                      averageError;
+        /** Classifications */
+        private int                         classifications;
+        /** Precision/recall matrix */
+        private final PrecisionRecallMatrix matrix         = new PrecisionRecallMatrix();
+        /** Original accuracy */
+        private double                      originalAccuracy;
+        /** Original accuracy */
+        private double                      originalAverageError;
+        /** Precision/recall matrix */
+        private final PrecisionRecallMatrix originalMatrix = new PrecisionRecallMatrix();
+        /** ZeroR accuracy */
+        private double                      zeroRAccuracy;
+        /** ZeroR accuracy */
+        private double                      zeroRAverageError;
+    }
+
     /** Accuracy */
     private double                accuracy;
     /** Average error */
@@ -157,7 +204,7 @@ public class StatisticsClassification {
                              DataHandleInternal outputHandle,
                              String[] features,
                              String clazz,
-                             ARXLogisticRegressionConfiguration config,
+                             final ARXLogisticRegressionConfiguration config,
                              WrappedBoolean interrupt,
                              WrappedInteger progress) throws ParseException {
 
@@ -183,103 +230,65 @@ public class StatisticsClassification {
         }
         
         // TODO: Feature is not used. Continuous variables are treated as categorical.
-        ClassificationDataSpecification specification = new ClassificationDataSpecification(inputHandle, 
+        final ClassificationDataSpecification specification = new ClassificationDataSpecification(inputHandle, 
                                                                                             outputHandle, 
                                                                                             features,
                                                                                             clazz,
                                                                                             interrupt);
         
+        // Encode features and classes once, shared by all classifiers
+        final ClassificationDataEncoder inputEncoder = new ClassificationDataEncoder(inputHandle, specification, config, interrupt);
+        final ClassificationDataEncoder outputEncoder = inputHandle == outputHandle ? inputEncoder :
+                                                        new ClassificationDataEncoder(outputHandle, specification, config, interrupt);
+        
+        // Outliers are excluded when training on the output
+        final BitSet outliers = new BitSet();
+        if (inputHandle != outputHandle) {
+            for (int row = 0; row < outputHandle.getNumRows(); row++) {
+                if (outputHandle.isOutlier(row)) {
+                    outliers.set(row);
+                }
+            }
+        }
+        
         // Train and evaluate
         int k = inputHandle.getNumRows() > config.getNumFolds() ? config.getNumFolds() : inputHandle.getNumRows();
-        List<List<Integer>> folds = getFolds(inputHandle.getNumRows(), k);
+        final List<List<Integer>> folds = getFolds(inputHandle.getNumRows(), k);
 
         // Track
-        int classifications = 0;
-        double total = 100d / ((double)inputHandle.getNumRows() * (double)folds.size());
-        double done = 0d;
+        final double total = 100d / ((double)inputHandle.getNumRows() * (double)folds.size());
+        final AtomicLong done = new AtomicLong();
         
-        // For each fold as a validation set
-        for (int evaluationFold = 0; evaluationFold < folds.size(); evaluationFold++) {
-            
-            // Create classifiers
-            ClassificationMethod inputLR = new MultiClassLogisticRegression(specification, config);
-            ClassificationMethod inputZR = new MultiClassZeroR(specification);
-            ClassificationMethod outputLR = null;
-            if (inputHandle != outputHandle) {
-                outputLR = new MultiClassLogisticRegression(specification, config);
-            }
-            
-            // Try
-            try {
-                
-                // Train with all training sets
-                boolean trained = false;
-                for (int trainingFold = 0; trainingFold < folds.size(); trainingFold++) {
-                    if (trainingFold != evaluationFold) {                        
-                        for (int index : folds.get(trainingFold)) {
-                            checkInterrupt();
-                            inputLR.train(inputHandle, outputHandle, index);
-                            inputZR.train(inputHandle, outputHandle, index);
-                            if (outputLR != null && !outputHandle.isOutlier(index)) {
-                                outputLR.train(outputHandle, outputHandle, index);
-                            }
-                            trained = true;
-                            this.progress.value = (int)((++done) * total);
-                        }
+        // Prepare tasks, one for each fold as a validation set
+        List<Callable<StatisticsClassificationFold>> tasks = new ArrayList<Callable<StatisticsClassificationFold>>();
+        final boolean output = inputHandle != outputHandle;
+        for (int fold = 0; fold < folds.size(); fold++) {
+            final int evaluationFold = fold;
+            tasks.add(new Callable<StatisticsClassificationFold>() {
+                @Override
+                public StatisticsClassificationFold call() throws Exception {
+                    try {
+                        return evaluate(inputEncoder, outputEncoder, output, outliers, folds, evaluationFold, done, total, specification, config);
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
                     }
                 }
-                
-                // Close
-                inputLR.close();
-                inputZR.close();
-                if (outputLR != null) {
-                    outputLR.close();
-                }
-                
-                // Now validate
-                for (int index : folds.get(evaluationFold)) {
-                    
-                    // Check
-                    checkInterrupt();
-                    
-                    // If trained
-                    if (trained) {
-                        
-                        // Classify
-                        ClassificationResult resultInputLR = inputLR.classify(inputHandle, index);
-                        ClassificationResult resultInputZR = inputZR.classify(inputHandle, index);
-                        ClassificationResult resultOutputLR = outputLR == null ? null : outputLR.classify(outputHandle, index);
-                        classifications++;
-                        
-                        // Correct result
-                        String actualValue = outputHandle.getValue(index, specification.classIndex, true);
-                        
-                        // Maintain data about inputZR
-                        this.zeroRAverageError += resultInputZR.error(actualValue);
-                        this.zeroRAccuracy += resultInputZR.correct(actualValue) ? 1d : 0d;
-
-                        // Maintain data about inputLR
-                        boolean correct = resultInputLR.correct(actualValue);
-                        this.originalAverageError += resultInputLR.error(actualValue);
-                        this.originalAccuracy += correct ? 1d : 0d;
-                        this.originalMatrix.add(resultInputLR.confidence(), correct);
-
-                        // Maintain data about outputLR                        
-                        if (resultOutputLR != null) {
-                            correct = resultOutputLR.correct(actualValue);
-                            this.averageError += resultOutputLR.error(actualValue);
-                            this.accuracy += correct ? 1d : 0d;
-                            this.matrix.add(resultOutputLR.confidence(), correct);
-                        }
-                    }
-                    
-                    this.progress.value = (int)((++done) * total);
-                }
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
+            });
         }
         
+        // Execute and merge the results in the order of the folds
+        int classifications = 0;
+        for (StatisticsClassificationFold result : execute(tasks)) {
+            classifications += result.classifications;
+            this.zeroRAverageError += result.zeroRAverageError;
+            this.zeroRAccuracy += result.zeroRAccuracy;
+            this.originalAverageError += result.originalAverageError;
+            this.originalAccuracy += result.originalAccuracy;
+            this.originalMatrix.add(result.originalMatrix);
+            this.averageError += result.averageError;
+            this.accuracy += result.accuracy;
+            this.matrix.add(result.matrix);
+        }
         
         // Maintain data about inputZR
         this.zeroRAverageError /= (double)classifications;
@@ -424,6 +433,148 @@ public class StatisticsClassification {
         }
     }
     
+    /**
+     * Trains classifiers on all but the given fold and evaluates them on the given fold
+     * @param inputEncoder
+     * @param outputEncoder
+     * @param output
+     * @param outliers
+     * @param folds
+     * @param evaluationFold
+     * @param done
+     * @param total
+     * @param specification
+     * @param config
+     * @return
+     */
+    private StatisticsClassificationFold evaluate(ClassificationDataEncoder inputEncoder,
+                                                  ClassificationDataEncoder outputEncoder,
+                                                  boolean output,
+                                                  BitSet outliers,
+                                                  List<List<Integer>> folds,
+                                                  int evaluationFold,
+                                                  AtomicLong done,
+                                                  double total,
+                                                  ClassificationDataSpecification specification,
+                                                  ARXLogisticRegressionConfiguration config) {
+
+        // Create classifiers
+        StatisticsClassificationFold result = new StatisticsClassificationFold();
+        ClassificationMethod inputLR = new MultiClassLogisticRegression(specification, config);
+        ClassificationMethod inputZR = new MultiClassZeroR(specification);
+        ClassificationMethod outputLR = null;
+        if (output) {
+            outputLR = new MultiClassLogisticRegression(specification, config);
+        }
+        
+        // Train with all training sets
+        boolean trained = false;
+        for (int trainingFold = 0; trainingFold < folds.size(); trainingFold++) {
+            if (trainingFold != evaluationFold) {                        
+                for (int index : folds.get(trainingFold)) {
+                    checkInterrupt();
+                    inputLR.train(inputEncoder, outputEncoder, index);
+                    inputZR.train(inputEncoder, outputEncoder, index);
+                    if (outputLR != null && !outliers.get(index)) {
+                        outputLR.train(outputEncoder, outputEncoder, index);
+                    }
+                    trained = true;
+                    this.progress.value = (int)(done.incrementAndGet() * total);
+                }
+            }
+        }
+        
+        // Close
+        inputLR.close();
+        inputZR.close();
+        if (outputLR != null) {
+            outputLR.close();
+        }
+        
+        // Now validate
+        for (int index : folds.get(evaluationFold)) {
+            
+            // Check
+            checkInterrupt();
+            
+            // If trained
+            if (trained) {
+                
+                // Classify
+                ClassificationResult resultInputLR = inputLR.classify(inputEncoder, index);
+                ClassificationResult resultInputZR = inputZR.classify(inputEncoder, index);
+                ClassificationResult resultOutputLR = outputLR == null ? null : outputLR.classify(outputEncoder, index);
+                result.classifications++;
+                
+                // Correct result
+                String actualValue = outputEncoder.getClassValue(index);
+                
+                // Maintain data about inputZR
+                result.zeroRAverageError += resultInputZR.error(actualValue);
+                result.zeroRAccuracy += resultInputZR.correct(actualValue) ? 1d : 0d;
+
+                // Maintain data about inputLR
+                boolean correct = resultInputLR.correct(actualValue);
+                result.originalAverageError += resultInputLR.error(actualValue);
+                result.originalAccuracy += correct ? 1d : 0d;
+                result.originalMatrix.add(resultInputLR.confidence(), correct);
+
+                // Maintain data about outputLR                        
+                if (resultOutputLR != null) {
+                    correct = resultOutputLR.correct(actualValue);
+                    result.averageError += resultOutputLR.error(actualValue);
+                    result.accuracy += correct ? 1d : 0d;
+                    result.matrix.add(resultOutputLR.confidence(), correct);
+                }
+            }
+            
+            this.progress.value = (int)(done.incrementAndGet() * total);
+        }
+        
+        // Return
+        return result;
+    }
+
+    /**
+     * Executes the given tasks and returns their results in order. Folds are evaluated
+     * in parallel, as the classifiers trained for different folds are independent.
+     * @param tasks
+     * @return
+     */
+    private List<StatisticsClassificationFold> execute(List<Callable<StatisticsClassificationFold>> tasks) {
+        
+        List<StatisticsClassificationFold> result = new ArrayList<StatisticsClassificationFold>();
+        int threads = Math.min(tasks.size(), Runtime.getRuntime().availableProcessors());
+        if (threads <= 1) {
+            for (Callable<StatisticsClassificationFold> task : tasks) {
+                try {
+                    result.add(task.call());
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        } else {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                for (Future<StatisticsClassificationFold> future : executor.invokeAll(tasks)) {
+                    result.add(future.get());
+                }
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new RuntimeException(e.getCause());
+            } finally {
+                executor.shutdown();
+            }
+        }
+        return result;
+    }
+
     /**
      * Creates the folds
      * @param length
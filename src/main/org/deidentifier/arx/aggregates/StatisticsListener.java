@@ -0,0 +1,36 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.deidentifier.arx.aggregates;
+
+/**
+ * A listener that receives intermediate results of statistics that are computed incrementally.
+ * Intermediate results are approximations computed from the rows that have been processed so far.
+ * The listener is called from the thread performing the computation.
+ *
+ * @author Fabian Prasser
+ * @param <T>
+ */
+public interface StatisticsListener<T> {
+
+    /**
+     * Reports an intermediate result
+     *
+     * @param result The result computed from the rows processed so far
+     * @param progress The progress value in [0, 100]
+     */
+    public void update(T result, int progress);
+}
@@ -20,12 +20,17 @@ import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.deidentifier.arx.DataScale;
 import org.deidentifier.arx.DataType;
 import org.deidentifier.arx.DataType.DataTypeWithRatioScale;
 
+import cern.colt.list.DoubleArrayList;
+import cern.colt.list.IntArrayList;
+
 /**
  * A base class for summary statistics
  * @author Fabian Prasser
@@ -34,28 +39,201 @@ import org.deidentifier.arx.DataType.DataTypeWithRatioScale;
 public class StatisticsSummary<T> {
     
     /**
-     * Summary statistics for variables with ordinal scale
+     * Summary statistics for variables with interval or ratio scale. Values are
+     * added together with their frequencies, so that memory requirements are
+     * bounded by the number of distinct values.
+     * @author Fabian Prasser
+     *
+     */
+    static final class StatisticsSummaryMoments {
+
+        /** Var */
+        private final DoubleArrayList values      = new DoubleArrayList();
+        /** Var */
+        private final IntArrayList    frequencies = new IntArrayList();
+        /** Var */
+        private double                mean        = Double.NaN;
+        /** Var */
+        private double                variance    = Double.NaN;
+        /** Var */
+        private double                populationVariance = Double.NaN;
+        /** Var */
+        private double                kurtosis    = Double.NaN;
+        /** Var */
+        private double                min         = Double.NaN;
+        /** Var */
+        private double                max         = Double.NaN;
+        /** Var */
+        private double                geometricMean = Double.NaN;
+        /** Var */
+        private double                geometricMeanOfIncrements = Double.NaN;
+
+        /**
+         * Adds a value
+         * @param value
+         * @param frequency
+         */
+        public void addValue(double value, int frequency) {
+            this.values.add(value);
+            this.frequencies.add(frequency);
+        }
+
+        /**
+         * Returns the geometric mean
+         * @return
+         */
+        public double getGeometricMean() {
+            return geometricMean;
+        }
+
+        /**
+         * Returns the geometric mean of all values increased by one, decreased by one
+         * @return
+         */
+        public double getGeometricMeanOfIncrements() {
+            return geometricMeanOfIncrements;
+        }
+
+        /**
+         * Returns the (sample) kurtosis
+         * @return
+         */
+        public double getKurtosis() {
+            return kurtosis;
+        }
+
+        /**
+         * Returns the maximum
+         * @return
+         */
+        public double getMax() {
+            return max;
+        }
+
+        /**
+         * Returns the arithmetic mean
+         * @return
+         */
+        public double getMean() {
+            return mean;
+        }
+
+        /**
+         * Returns the minimum
+         * @return
+         */
+        public double getMin() {
+            return min;
+        }
+
+        /**
+         * Returns the population variance
+         * @return
+         */
+        public double getPopulationVariance() {
+            return populationVariance;
+        }
+
+        /**
+         * Returns the (sample) variance
+         * @return
+         */
+        public double getVariance() {
+            return variance;
+        }
+
+        /**
+         * Analyzes the data. Uses the same definitions as commons math's descriptive statistics.
+         */
+        void analyze() {
+
+            // Determine count, sum, min and max
+            double n = 0d;
+            double sum = 0d;
+            double sumOfLogs = 0d;
+            double sumOfLogsOfIncrements = 0d;
+            for (int i = 0; i < values.size(); i++) {
+                double value = values.getQuick(i);
+                double frequency = frequencies.getQuick(i);
+                n += frequency;
+                sum += value * frequency;
+                sumOfLogs += Math.log(value) * frequency;
+                sumOfLogsOfIncrements += Math.log(value + 1d) * frequency;
+                min = i == 0 ? value : Math.min(min, value);
+                max = i == 0 ? value : Math.max(max, value);
+            }
+            
+            // Nothing to do
+            if (n == 0d) {
+                return;
+            }
+            
+            // Mean with correction term
+            double xbar = sum / n;
+            double correction = 0d;
+            for (int i = 0; i < values.size(); i++) {
+                correction += (values.getQuick(i) - xbar) * frequencies.getQuick(i);
+            }
+            mean = xbar + correction / n;
+            
+            // Central moments
+            double accum = 0d;
+            double accum2 = 0d;
+            double accum4 = 0d;
+            for (int i = 0; i < values.size(); i++) {
+                double dev = values.getQuick(i) - mean;
+                double frequency = frequencies.getQuick(i);
+                accum += dev * dev * frequency;
+                accum2 += dev * frequency;
+                accum4 += dev * dev * dev * dev * frequency;
+            }
+            
+            // Variances
+            populationVariance = (accum - (accum2 * accum2 / n)) / n;
+            variance = n == 1d ? 0d : (accum - (accum2 * accum2 / n)) / (n - 1d);
+            
+            // Kurtosis
+            if (n > 3d) {
+                double coefficientOne = (n * (n + 1d)) / ((n - 1d) * (n - 2d) * (n - 3d));
+                double termTwo = (3d * (n - 1d) * (n - 1d)) / ((n - 2d) * (n - 3d));
+                kurtosis = (coefficientOne * (accum4 / (variance * variance))) - termTwo;
+            }
+            
+            // Geometric means
+            geometricMean = Math.exp(sumOfLogs / n);
+            geometricMeanOfIncrements = Math.exp(sumOfLogsOfIncrements / n) - 1d;
+            
+            // Clear
+            values.clear();
+            frequencies.clear();
+        }
+    }
+
+    /**
+     * Summary statistics for variables with ordinal scale. Values are added together
+     * with their frequencies, so that memory requirements are bounded by the number
+     * of distinct values.
      * @author Fabian Prasser
      *
      */
     static final class StatisticsSummaryOrdinal {
 
         /** Var */
-        private final Comparator<String> comparator;
+        private final Comparator<String>   comparator;
         /** Var */
-        private final List<String>       values = new ArrayList<String>();
+        private final Map<String, Integer> frequencies = new LinkedHashMap<String, Integer>();
         /** Var */
-        private String                   mode;
+        private String                     mode;
         /** Var */
-        private String                   median;
+        private String                     median;
         /** Var */
-        private String                   min;
+        private String                     min;
         /** Var */
-        private String                   max;
+        private String                     max;
         /** Var */
-        private int                      numberOfMeasures;
+        private int                        numberOfMeasures;
         /** Var */
-        private DataType<?>              type;
+        private DataType<?>                type;
 
         /**
          * Constructor
@@ -87,16 +265,18 @@ public class StatisticsSummary<T> {
         /**
          * Adds a value
          * @param value
+         * @param frequency
          */
-        public void addValue(String value) {
-            this.values.add(value);
+        public void addValue(String value, int frequency) {
+            Integer count = this.frequencies.get(value);
+            this.frequencies.put(value, count == null ? frequency : count + frequency);
         }
         
         /**
          * Clears the data
          */
         public void clear() {
-            this.values.clear();
+            this.frequencies.clear();
         }
 
         /**
@@ -140,27 +320,36 @@ public class StatisticsSummary<T> {
         }
         
         /**
-         * Returns the index of the next element that does not equal the element at the given index
+         * Returns the value at the given position in the sorted list of all measurements
          * @param index
          * @param values
          * @return
          */
-        private int moveWhileEqual(int index, List<String> values) {
-            String element = values.get(index);
-            // We can do == because of dictionary compression
-            while (index < values.size() && values.get(index) == element) { 
-                index++;
+        private String getValue(long index, List<String> values) {
+            long offset = 0;
+            for (String value : values) {
+                offset += frequencies.get(value);
+                if (index < offset) {
+                    return value;
+                }
             }
-            return index;
+            throw new IndexOutOfBoundsException("Index: " + index);
         }
 
         /**
          * Analyzes the data
          */
         <T> void analyze() {
+            
+            // Sort distinct values
+            List<String> values = new ArrayList<String>(frequencies.keySet());
             Collections.sort(values, comparator);
+            long size = 0;
+            for (String value : values) {
+                size += frequencies.get(value);
+            }
             
-            if (values.size() == 0) {
+            if (size == 0) {
                 min = DataType.NULL_VALUE;
                 max = DataType.NULL_VALUE;
                 mode = DataType.NULL_VALUE;
@@ -171,44 +360,40 @@ public class StatisticsSummary<T> {
                 // Determine simple things
                 min = values.get(0);
                 max = values.get(values.size() - 1);
-                if (values.size() % 2 == 1) {
-                    median = values.get(values.size() / 2);
+                if (size % 2 == 1) {
+                    median = getValue(size / 2, values);
                 } else if (type != null && type instanceof DataTypeWithRatioScale<?>) {
                     @SuppressWarnings("unchecked")
                     DataType<T> dType = (DataType<T>)type;
                     @SuppressWarnings("unchecked")
                     DataTypeWithRatioScale<T> rType = (DataTypeWithRatioScale<T>)dType;
-                    double median1 = rType.toDouble(dType.parse(values.get(values.size() / 2 - 1)));
-                    double median2 = rType.toDouble(dType.parse(values.get(values.size() / 2)));
+                    double median1 = rType.toDouble(dType.parse(getValue(size / 2 - 1, values)));
+                    double median2 = rType.toDouble(dType.parse(getValue(size / 2, values)));
                     median = dType.format(rType.fromDouble((median1 + median2) / 2d));
                 } else {
-                    String median1 = values.get(values.size() / 2 - 1);
-                    String median2 = values.get(values.size() / 2);
-                    if (median1 == median2) {
+                    String median1 = getValue(size / 2 - 1, values);
+                    String median2 = getValue(size / 2, values);
+                    if (median1.equals(median2)) {
                         median = median1;
                     } else {
                         median = DataType.NULL_VALUE;
                     }
                 }
-                numberOfMeasures = values.size();
+                numberOfMeasures = (int) size;
                 
                 // Determine mode
                 int count = 0;
-                int index = 0;
-                mode = values.get(0);
-                while (index < values.size()) {
-                    int nIndex = moveWhileEqual(index, values);
-                    int nCount = nIndex - index;
-                    if (nCount > count) {
-                        mode = values.get(index);
-                        count = nCount;
+                for (String value : values) {
+                    int frequency = frequencies.get(value);
+                    if (frequency > count) {
+                        mode = value;
+                        count = frequency;
                     }
-                    index = nIndex;
                 }
             }
             
             // Clear
-            values.clear();
+            frequencies.clear();
         }
     }
 
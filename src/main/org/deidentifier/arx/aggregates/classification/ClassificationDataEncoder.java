@@ -0,0 +1,270 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2016 Florian Kohlmayer, Fabian Prasser
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.deidentifier.arx.aggregates.classification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.mahout.math.DenseVector;
+import org.apache.mahout.math.Vector;
+import org.apache.mahout.vectorizer.encoders.ConstantValueEncoder;
+import org.apache.mahout.vectorizer.encoders.StaticWordValueEncoder;
+import org.deidentifier.arx.ARXLogisticRegressionConfiguration;
+import org.deidentifier.arx.DataHandleInternal;
+import org.deidentifier.arx.common.WrappedBoolean;
+import org.deidentifier.arx.exceptions.ComputationInterruptedException;
+import org.deidentifier.arx.io.CSVDataOutputEncoded.Column;
+
+import com.carrotsearch.hppc.ObjectIntOpenHashMap;
+
+/**
+ * Encodes the features and classes of a data handle. Each distinct value of a feature
+ * is hashed only once and its contribution to feature vectors is cached. Instances are
+ * immutable and may be shared by multiple classifiers and threads.
+ *
+ * @author Fabian Prasser
+ */
+public class ClassificationDataEncoder {
+
+    /** Column containing the class attribute */
+    private final Column         classColumn;
+    /** Class of each code of the class attribute, -1 if unknown */
+    private final int[]          classes;
+    /** Indices contributed to each vector */
+    private final int[]          constantIndices;
+    /** Weights contributed to each vector */
+    private final double[]       constantWeights;
+    /** Columns containing the features */
+    private final Column[]       features;
+    /** Indices contributed by each code of each feature */
+    private final int[][][]      indices;
+    /** Interrupt */
+    private final WrappedBoolean interrupt;
+    /** Length of vectors */
+    private final int            length;
+    /** Weights contributed by each code of each feature */
+    private final double[][][]   weights;
+
+    /**
+     * Creates a new instance. Values are accessed while ignoring suppression.
+     * @param handle
+     * @param specification
+     * @param config
+     * @param interrupt
+     */
+    public ClassificationDataEncoder(DataHandleInternal handle,
+                                     ClassificationDataSpecification specification,
+                                     ARXLogisticRegressionConfiguration config,
+                                     WrappedBoolean interrupt) {
+
+        // Prepare
+        this.interrupt = interrupt;
+        this.length = config.getVectorLength();
+        ConstantValueEncoder interceptEncoder = new ConstantValueEncoder("intercept");
+        StaticWordValueEncoder wordEncoder = new StaticWordValueEncoder("feature");
+
+        // Obtain columns
+        int[] featureIndices = specification.featureIndices;
+        int[] columns = new int[featureIndices.length + 1];
+        System.arraycopy(featureIndices, 0, columns, 0, featureIndices.length);
+        columns[featureIndices.length] = specification.classIndex;
+        Column[] encoded = getColumns(handle, columns);
+        this.features = new Column[featureIndices.length];
+        System.arraycopy(encoded, 0, this.features, 0, featureIndices.length);
+        this.classColumn = encoded[featureIndices.length];
+
+        // Contributions to each vector
+        DenseVector vector = new DenseVector(length);
+        interceptEncoder.addToVector("1", vector);
+
+        // Special case where there are no features
+        if (featureIndices.length == 0) {
+            wordEncoder.addToVector("Feature:1", 1, vector);
+        }
+        this.constantIndices = getIndices(vector);
+        this.constantWeights = getWeights(vector, constantIndices);
+
+        // TODO: Consider difference between continuous and categorical
+
+        // Contributions of each distinct value of each attribute
+        this.indices = new int[features.length][][];
+        this.weights = new double[features.length][][];
+        for (int i = 0; i < features.length; i++) {
+            String name = "Attribute-" + featureIndices[i];
+            String[] dictionary = features[i].getDictionary();
+            this.indices[i] = new int[dictionary.length][];
+            this.weights[i] = new double[dictionary.length][];
+            for (int code = 0; code < dictionary.length; code++) {
+                checkInterrupt();
+                vector = new DenseVector(length);
+                wordEncoder.addToVector(name + ":" + dictionary[code], 1, vector);
+                this.indices[i][code] = getIndices(vector);
+                this.weights[i][code] = getWeights(vector, indices[i][code]);
+            }
+        }
+
+        // Classes of each distinct value of the class attribute
+        String[] dictionary = classColumn.getDictionary();
+        this.classes = new int[dictionary.length];
+        for (int code = 0; code < dictionary.length; code++) {
+            Integer clazz = specification.classMap.get(dictionary[code]);
+            this.classes[code] = clazz == null ? -1 : clazz;
+        }
+    }
+
+    /**
+     * Returns the value of the class attribute in the given row
+     * @param row
+     * @return
+     */
+    public String getClassValue(int row) {
+        return classColumn.getDictionary()[classColumn.getCode(row)];
+    }
+
+    /**
+     * Encodes the class of the given row
+     * @param row
+     * @return
+     */
+    public int encodeClass(int row) {
+        return classes[classColumn.getCode(row)];
+    }
+
+    /**
+     * Encodes the features of the given row
+     * @param row
+     * @return
+     */
+    public Vector encodeFeatures(int row) {
+
+        // Prepare
+        DenseVector vector = new DenseVector(length);
+        add(vector, constantIndices, constantWeights);
+
+        // For each attribute
+        for (int i = 0; i < features.length; i++) {
+            int code = features[i].getCode(row);
+            add(vector, indices[i][code], weights[i][code]);
+        }
+
+        // Return
+        return vector;
+    }
+
+    /**
+     * Adds the given contributions to the vector
+     * @param vector
+     * @param indices
+     * @param weights
+     */
+    private void add(DenseVector vector, int[] indices, double[] weights) {
+        for (int i = 0; i < indices.length; i++) {
+            int index = indices[i];
+            vector.setQuick(index, vector.getQuick(index) + weights[i]);
+        }
+    }
+
+    /**
+     * Checks whether an interruption happened.
+     */
+    private void checkInterrupt() {
+        if (interrupt.value) {
+            throw new ComputationInterruptedException("Interrupted");
+        }
+    }
+
+    /**
+     * Returns encoded representations of the given columns. If the handle does not
+     * provide encoded data, the columns are encoded by scanning the handle once.
+     * @param handle
+     * @param columns
+     * @return
+     */
+    private Column[] getColumns(DataHandleInternal handle, int[] columns) {
+
+        // Encoded data
+        Column[] result = new Column[columns.length];
+        Column[] encoded = handle.getEncodedColumns();
+        if (encoded != null) {
+            for (int i = 0; i < columns.length; i++) {
+                result[i] = encoded[columns[i]];
+            }
+            return result;
+        }
+
+        // Encode
+        int rows = handle.getNumRows();
+        int[][] data = new int[rows][columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            ObjectIntOpenHashMap<String> codes = new ObjectIntOpenHashMap<String>();
+            List<String> dictionary = new ArrayList<String>();
+            for (int row = 0; row < rows; row++) {
+                if ((row & 0xFFFF) == 0) {
+                    checkInterrupt();
+                }
+                String value = handle.getValue(row, columns[i], true);
+                int code;
+                if (codes.containsKey(value)) {
+                    code = codes.lget();
+                } else {
+                    code = dictionary.size();
+                    codes.put(value, code);
+                    dictionary.add(value);
+                }
+                data[row][i] = code;
+            }
+            result[i] = new Column(dictionary.toArray(new String[dictionary.size()]), data, i, ~0, false);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the indices of all non-zero elements
+     * @param vector
+     * @return
+     */
+    private int[] getIndices(DenseVector vector) {
+        int count = 0;
+        for (int i = 0; i < vector.size(); i++) {
+            if (vector.getQuick(i) != 0d) {
+                count++;
+            }
+        }
+        int[] result = new int[count];
+        count = 0;
+        for (int i = 0; i < vector.size(); i++) {
+            if (vector.getQuick(i) != 0d) {
+                result[count++] = i;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the weights at the given indices
+     * @param vector
+     * @param indices
+     * @return
+     */
+    private double[] getWeights(DenseVector vector, int[] indices) {
+        double[] result = new double[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            result[i] = vector.getQuick(indices[i]);
+        }
+        return result;
+    }
+}
@@ -16,8 +16,6 @@
  */
 package org.deidentifier.arx.aggregates.classification;
 
-import org.deidentifier.arx.DataHandleInternal;
-
 /**
  * Implements a classifier
  * @author Fabian Prasser
@@ -26,11 +24,11 @@ public interface ClassificationMethod {
     
     /**
      * Classify
-     * @param handle
+     * @param features
      * @param row
      * @return
      */
-    public abstract ClassificationResult classify(DataHandleInternal handle, int row);
+    public abstract ClassificationResult classify(ClassificationDataEncoder features, int row);
     
     /**
      * Close
@@ -43,6 +41,6 @@ public interface ClassificationMethod {
      * @param clazz
      * @param row
      */
-    public abstract void train(DataHandleInternal features, DataHandleInternal clazz, int row);
+    public abstract void train(ClassificationDataEncoder features, ClassificationDataEncoder clazz, int row);
 
 }
@@ -22,12 +22,7 @@ import org.apache.mahout.classifier.sgd.L2;
 import org.apache.mahout.classifier.sgd.OnlineLogisticRegression;
 import org.apache.mahout.classifier.sgd.PriorFunction;
 import org.apache.mahout.classifier.sgd.UniformPrior;
-import org.apache.mahout.math.DenseVector;
-import org.apache.mahout.math.Vector;
-import org.apache.mahout.vectorizer.encoders.ConstantValueEncoder;
-import org.apache.mahout.vectorizer.encoders.StaticWordValueEncoder;
 import org.deidentifier.arx.ARXLogisticRegressionConfiguration;
-import org.deidentifier.arx.DataHandleInternal;
 
 /**
  * Implements a classifier
@@ -35,16 +30,10 @@ import org.deidentifier.arx.DataHandleInternal;
  */
 public class MultiClassLogisticRegression implements ClassificationMethod {
 
-    /** Config */
-    private final ARXLogisticRegressionConfiguration config;
-    /** Encoder */
-    private final ConstantValueEncoder               interceptEncoder;
     /** Instance */
-    private final OnlineLogisticRegression           lr;
+    private final OnlineLogisticRegression        lr;
     /** Specification */
-    private final ClassificationDataSpecification    specification;
-    /** Encoder */
-    private final StaticWordValueEncoder             wordEncoder;
+    private final ClassificationDataSpecification specification;
 
     /**
      * Creates a new instance
@@ -55,7 +44,6 @@ public class MultiClassLogisticRegression implements ClassificationMethod {
                                         ARXLogisticRegressionConfiguration config) {
 
         // Store
-        this.config = config;
         this.specification = specification;
         
         // Prepare classifier
@@ -85,10 +73,6 @@ public class MultiClassLogisticRegression implements ClassificationMethod {
         this.lr.stepOffset(config.getStepOffset());
         this.lr.decayExponent(config.getDecayExponent());    
         
-        // Prepare encoders
-        this.interceptEncoder = new ConstantValueEncoder("intercept");
-        this.wordEncoder = new StaticWordValueEncoder("feature");
-        
         // Configure
         this.lr.learningRate(1);
         this.lr.alpha(1);
@@ -98,8 +82,8 @@ public class MultiClassLogisticRegression implements ClassificationMethod {
     }
 
     @Override
-    public ClassificationResult classify(DataHandleInternal features, int row) {
-        return new MultiClassLogisticRegressionClassificationResult(lr.classifyFull(encodeFeatures(features, row)), specification.classMap);
+    public ClassificationResult classify(ClassificationDataEncoder features, int row) {
+        return new MultiClassLogisticRegressionClassificationResult(lr.classifyFull(features.encodeFeatures(row)), specification.classMap);
     }
 
     @Override
@@ -108,50 +92,7 @@ public class MultiClassLogisticRegression implements ClassificationMethod {
     }
 
     @Override
-    public void train(DataHandleInternal features, DataHandleInternal clazz, int row) {
-        lr.train(encodeClass(clazz, row), encodeFeatures(features, row));
-    }
-
-    /**
-     * Encodes a class
-     * @param handle
-     * @param row
-     * @return
-     */
-    private int encodeClass(DataHandleInternal handle, int row) {
-        return specification.classMap.get(handle.getValue(row, specification.classIndex, true));
-    }
-
-    /**
-     * Encodes a feature
-     * @param handle
-     * @param row
-     * @return
-     */
-    private Vector encodeFeatures(DataHandleInternal handle, int row) {
-
-        // Prepare
-        DenseVector vector = new DenseVector(config.getVectorLength());
-        interceptEncoder.addToVector("1", vector);
-        
-        // Special case where there are no features
-        if (specification.featureIndices.length == 0) {
-            wordEncoder.addToVector("Feature:1", 1, vector);
-            return vector;
-        }
-        
-        // TODO: Consider difference between continuous and categorical
-        
-        // For each attribute
-        for (int index : specification.featureIndices) {
-            
-            // Obtain data
-            String name = "Attribute-"+index;
-            String value = handle.getValue(row, index, true);
-            wordEncoder.addToVector(name + ":" + value, 1, vector);
-        }
-        
-        // Return
-        return vector;
+    public void train(ClassificationDataEncoder features, ClassificationDataEncoder clazz, int row) {
+        lr.train(clazz.encodeClass(row), features.encodeFeatures(row));
     }
 }
@@ -0,0 +1,463 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.algorithm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import org.deidentifier.arx.ARXListener;
+import org.deidentifier.arx.framework.data.Data;
+import org.deidentifier.arx.framework.data.GeneralizationHierarchy;
+
+import com.carrotsearch.hppc.IntIntOpenHashMap;
+
+/**
+ * A Mondrian-style local recoding algorithm, which performs a top-down specialization
+ * over the generalization hierarchies. Starting with all records generalized to the
+ * maximal levels, partitions are recursively split by specializing one attribute of
+ * all records within the partition. A split is only performed if each resulting
+ * partition contains at least k records. Records which cannot be generalized into a
+ * partition of size k, even at the maximal levels, are suppressed. No limit on the
+ * number of suppressed records is enforced. Such records are also suppressed by any
+ * k-anonymous transformation within the given levels, meaning that the number of
+ * suppressed records never exceeds the number suppressed by global recoding.<br>
+ * <br>
+ * In contrast to the algorithms which traverse the generalization lattice, different
+ * records may be generalized to different levels. The algorithm works directly on the
+ * encoded data and writes its results into the given output buffer. Partitions are
+ * processed in parallel.
+ *
+ * @author Fabian Prasser
+ */
+public class MondrianAlgorithm {
+
+    /**
+     * A partition which is processed as a fork-join task
+     *
+     * @author Fabian Prasser
+     */
+    private class Partition extends RecursiveAction {
+
+        /** SVUID */
+        private static final long serialVersionUID = -6469418395395394934L;
+
+        /** Levels of all attributes */
+        private final int[]       levels;
+
+        /** Rows */
+        private final int[]       rows;
+
+        /**
+         * Creates a new instance
+         * @param rows
+         * @param levels
+         */
+        private Partition(int[] rows, int[] levels) {
+            this.rows = rows;
+            this.levels = levels;
+        }
+
+        @Override
+        protected void compute() {
+            partition(rows, levels);
+        }
+    }
+
+    /** Minimal number of records of partitions which are processed by separate tasks */
+    private static final int      MIN_TASK_SIZE = 1 << 12;
+
+    /** Input data */
+    private final int[][]         input;
+
+    /** Minimal size of a partition */
+    private final int             k;
+
+    /** Attribute->level->input->output */
+    private final int[][][]       lookup;
+
+    /** Maximal levels */
+    private final int[]           maxLevels;
+
+    /** Minimal levels */
+    private final int[]           minLevels;
+
+    /** Output data */
+    private final int[][]         output;
+
+    /** Number of threads */
+    private final int             threads;
+
+    /** Number of records processed */
+    private int                   done;
+
+    /** The listener */
+    private ARXListener           listener;
+
+    /** Maximal levels of all attributes in the output */
+    private int[]                 levels;
+
+    /** Pool, if parallel */
+    private ForkJoinPool          pool;
+
+    /**
+     * Creates a new instance
+     *
+     * @param input Encoded input data
+     * @param output Buffer for the encoded output data
+     * @param hierarchies The generalization hierarchies
+     * @param minLevels Minimal levels of generalization
+     * @param maxLevels Maximal levels of generalization
+     * @param k Minimal size of a partition
+     * @param threads Number of threads
+     */
+    public MondrianAlgorithm(int[][] input,
+                             int[][] output,
+                             GeneralizationHierarchy[] hierarchies,
+                             int[] minLevels,
+                             int[] maxLevels,
+                             int k,
+                             int threads) {
+
+        // Check
+        if (k < 1) {
+            throw new IllegalArgumentException("Parameter k (" + k + ") must be >=1");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be >=1");
+        }
+        if (input.length != output.length) {
+            throw new IllegalArgumentException("Input and output must have the same number of rows");
+        }
+
+        // Store
+        this.input = input;
+        this.output = output;
+        this.minLevels = minLevels;
+        this.maxLevels = maxLevels;
+        this.k = k;
+        this.threads = threads;
+        this.lookup = new int[hierarchies.length][][];
+        for (int i = 0; i < hierarchies.length; i++) {
+            this.lookup[i] = new int[hierarchies[i].getHeight()][];
+            for (int level = 0; level < lookup[i].length; level++) {
+                this.lookup[i][level] = hierarchies[i].getLevel(level);
+            }
+        }
+    }
+
+    /**
+     * Returns the maximal level of generalization of each attribute in the output,
+     * after the algorithm has been executed
+     *
+     * @return
+     */
+    public int[] getMaximalLevels() {
+        return levels;
+    }
+
+    /**
+     * Sets a listener. If multiple threads are used, the listener is called from the threads
+     * which process the partitions, but calls are serialized and the progress reported is
+     * monotonically increasing.
+     * 
+     * @param listener
+     */
+    public void setListener(ARXListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Executes the algorithm and returns the number of records which have not been suppressed
+     *
+     * @return
+     */
+    public int traverse() {
+
+        // Prepare
+        this.done = 0;
+        this.levels = new int[maxLevels.length];
+
+        // Group by values on the maximal levels
+        int[] rows = new int[input.length];
+        for (int row = 0; row < rows.length; row++) {
+            rows[row] = row;
+        }
+        List<int[]> groups = new ArrayList<int[]>();
+        groups.add(rows);
+        for (int attribute = 0; attribute < maxLevels.length; attribute++) {
+            List<int[]> next = new ArrayList<int[]>();
+            for (int[] group : groups) {
+                next.addAll(split(group, attribute, maxLevels[attribute]));
+            }
+            groups = next;
+        }
+
+        // Suppress groups which are too small and collect partitions. These records are
+        // also suppressed by global recoding, so the suppression limit is not checked.
+        int recoded = 0;
+        List<Partition> partitions = new ArrayList<Partition>();
+        for (int[] group : groups) {
+            if (group.length < k) {
+                write(group, maxLevels, true);
+            } else {
+                partitions.add(new Partition(group, maxLevels.clone()));
+                recoded += group.length;
+            }
+        }
+
+        // Partition
+        if (threads == 1) {
+            for (Partition partition : partitions) {
+                partition(partition.rows, partition.levels);
+            }
+        } else {
+            this.pool = new ForkJoinPool(threads);
+            try {
+                for (Partition partition : partitions) {
+                    pool.execute(partition);
+                }
+                for (Partition partition : partitions) {
+                    partition.join();
+                }
+            } finally {
+                pool.shutdown();
+                pool = null;
+            }
+        }
+
+        // Return
+        return recoded;
+    }
+
+    /**
+     * Recursively splits the given partition and writes the results
+     *
+     * @param rows
+     * @param levels
+     */
+    private void partition(int[] rows, int[] levels) {
+
+        // Find attribute with the largest number of partitions
+        int attribute = -1;
+        int max = 1;
+        for (int i = 0; i < levels.length; i++) {
+            if (levels[i] > minLevels[i]) {
+                int count = getNumPartitions(rows, i, levels[i] - 1);
+                if (count > max) {
+                    attribute = i;
+                    max = count;
+                }
+            }
+        }
+
+        // No further split possible
+        if (attribute == -1) {
+            write(rows, levels, false);
+            return;
+        }
+
+        // Split
+        int[] specialized = levels.clone();
+        specialized[attribute]--;
+        List<int[]> groups = split(rows, attribute, specialized[attribute]);
+
+        // Records from partitions that are too small remain on the current level
+        boolean[] remaining = new boolean[groups.size()];
+        int size = 0;
+        int smallest = -1;
+        for (int i = 0; i < groups.size(); i++) {
+            int[] group = groups.get(i);
+            if (group.length < k) {
+                remaining[i] = true;
+                size += group.length;
+            } else if (smallest == -1 || group.length < groups.get(smallest).length) {
+                smallest = i;
+            }
+        }
+        if (size > 0 && size < k) {
+            remaining[smallest] = true;
+            size += groups.get(smallest).length;
+        }
+
+        // Collect partitions
+        List<Partition> partitions = new ArrayList<Partition>();
+        int[] merged = new int[size];
+        int offset = 0;
+        for (int i = 0; i < groups.size(); i++) {
+            int[] group = groups.get(i);
+            if (remaining[i]) {
+                System.arraycopy(group, 0, merged, offset, group.length);
+                offset += group.length;
+            } else {
+                partitions.add(new Partition(group, specialized));
+            }
+        }
+        if (size > 0) {
+            partitions.add(new Partition(merged, levels));
+        }
+
+        // Recursion
+        List<Partition> tasks = new ArrayList<Partition>();
+        for (Partition partition : partitions) {
+            if (pool != null && partition.rows.length >= MIN_TASK_SIZE) {
+                tasks.add(partition);
+            } else {
+                partition(partition.rows, partition.levels);
+            }
+        }
+        if (!tasks.isEmpty()) {
+            ForkJoinTask.invokeAll(tasks);
+        }
+    }
+
+    /**
+     * Returns the number of partitions which would result from specializing the given
+     * attribute to the given level. Records in partitions smaller than k are merged into
+     * one partition, which is itself merged with another partition, if it is too small.
+     *
+     * @param rows
+     * @param attribute
+     * @param level
+     * @return
+     */
+    private int getNumPartitions(int[] rows, int attribute, int level) {
+
+        // Count
+        int[] lookup = this.lookup[attribute][level];
+        IntIntOpenHashMap counts = new IntIntOpenHashMap();
+        for (int row : rows) {
+            counts.putOrAdd(lookup[input[row][attribute]], 1, 1);
+        }
+
+        // Analyze
+        int large = 0;
+        int small = 0;
+        final int[] values = counts.values;
+        final boolean[] allocated = counts.allocated;
+        for (int i = 0; i < allocated.length; i++) {
+            if (allocated[i]) {
+                if (values[i] >= k) {
+                    large++;
+                } else {
+                    small += values[i];
+                }
+            }
+        }
+
+        // Return
+        return small >= k ? large + 1 : large;
+    }
+
+    /**
+     * Splits the given records into groups with equal values of the given attribute
+     * on the given level
+     *
+     * @param rows
+     * @param attribute
+     * @param level
+     * @return
+     */
+    private List<int[]> split(int[] rows, int attribute, int level) {
+
+        // Assign groups
+        int[] lookup = this.lookup[attribute][level];
+        IntIntOpenHashMap indices = new IntIntOpenHashMap();
+        int[] assignment = new int[rows.length];
+        int[] sizes = new int[rows.length];
+        int count = 0;
+        for (int i = 0; i < rows.length; i++) {
+            int value = lookup[input[rows[i]][attribute]];
+            int index;
+            if (indices.containsKey(value)) {
+                index = indices.lget();
+            } else {
+                index = count++;
+                indices.put(value, index);
+            }
+            assignment[i] = index;
+            sizes[index]++;
+        }
+
+        // Create groups
+        int[][] groups = new int[count][];
+        for (int i = 0; i < count; i++) {
+            groups[i] = new int[sizes[i]];
+            sizes[i] = 0;
+        }
+        for (int i = 0; i < rows.length; i++) {
+            int index = assignment[i];
+            groups[index][sizes[index]++] = rows[i];
+        }
+
+        // Return
+        List<int[]> result = new ArrayList<int[]>();
+        for (int[] group : groups) {
+            result.add(group);
+        }
+        return result;
+    }
+
+    /**
+     * Writes the given records to the output buffer
+     *
+     * @param rows
+     * @param levels
+     * @param suppressed
+     */
+    private void write(int[] rows, int[] levels, boolean suppressed) {
+
+        // Write
+        for (int row : rows) {
+            int[] in = input[row];
+            int[] out = output[row];
+            for (int i = 0; i < levels.length; i++) {
+                out[i] = lookup[i][levels[i]][in[i]];
+            }
+            if (suppressed) {
+                out[0] |= Data.OUTLIER_MASK;
+            }
+        }
+
+        // Track levels
+        if (!suppressed) {
+            synchronized (this.levels) {
+                for (int i = 0; i < levels.length; i++) {
+                    this.levels[i] = Math.max(this.levels[i], levels[i]);
+                }
+            }
+        }
+
+        // Progress
+        progress(rows.length);
+    }
+
+    /**
+     * Tracks the number of records processed and notifies the listener
+     *
+     * @param rows
+     */
+    private synchronized void progress(int rows) {
+        done += rows;
+        if (listener != null) {
+            listener.progress((double) done / (double) input.length);
+        }
+    }
+}
@@ -19,7 +19,8 @@
 /**
  * This package provides algorithms which traverse the generalization lattice.
  * An abstract base class can be utilized to implement novel algorithms within
- * the anonymization framework.
+ * the anonymization framework. Additionally, it provides an algorithm for local recoding
+ * which partitions the data instead of traversing the lattice.
  * 
  * @author Fabian Prasser
  * @author Florian Kohlmayer
@@ -0,0 +1,174 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.common;
+
+import java.util.BitSet;
+
+import org.deidentifier.arx.DataType;
+import org.deidentifier.arx.exceptions.ComputationInterruptedException;
+import org.deidentifier.arx.io.CSVDataOutputEncoded.Column;
+
+import com.carrotsearch.hppc.LongIntOpenHashMap;
+
+/**
+ * An index of the equivalence classes of a data set regarding a set of columns.
+ * It is computed from the encoded representation of the data and stores the
+ * equivalence class of each row, as well as the size and the first row of each
+ * class. Classes are numbered in the order of their first occurrence.
+ * 
+ * @author Fabian Prasser
+ */
+public class EquivalenceClassIndex {
+
+    /** Maximal number of cells for which combinations are mapped with a dense array */
+    private static final int DENSE_TABLE_SIZE = 1 << 22;
+
+    /** Class per row */
+    private final int[]      classes;
+
+    /** Size per class */
+    private final int[]      sizes;
+
+    /** First row per class */
+    private final int[]      representatives;
+
+    /**
+     * Creates a new index
+     * 
+     * @param columns The encoded columns
+     * @param suppressed The rows in which suppressible columns are suppressed, may be null
+     * @param rows The number of rows
+     * @param stop A flag for interrupting the computation
+     */
+    public EquivalenceClassIndex(Column[] columns, BitSet suppressed, int rows, WrappedBoolean stop) {
+
+        // Refine the classes column by column
+        int[] classes = new int[rows];
+        int numClasses = rows == 0 ? 0 : 1;
+        for (Column column : columns) {
+            
+            // Prepare
+            String[] dictionary = column.getDictionary();
+            BitSet _suppressed = column.isSuppressible() ? suppressed : null;
+            int suppressedCode = getCode(dictionary, DataType.ANY_VALUE);
+            long size = dictionary.length + 1;
+            int next = 0;
+            
+            // Assign new classes to combinations of previous classes and codes
+            if (numClasses * size <= DENSE_TABLE_SIZE) {
+                int[] table = new int[(int) (numClasses * size)];
+                for (int row = 0; row < rows; row++) {
+                    checkInterrupt(stop, row);
+                    int code = _suppressed != null && _suppressed.get(row) ? suppressedCode : column.getCode(row);
+                    int index = classes[row] * (int) size + code;
+                    if (table[index] == 0) {
+                        table[index] = ++next;
+                    }
+                    classes[row] = table[index] - 1;
+                }
+            } else {
+                LongIntOpenHashMap table = new LongIntOpenHashMap();
+                for (int row = 0; row < rows; row++) {
+                    checkInterrupt(stop, row);
+                    int code = _suppressed != null && _suppressed.get(row) ? suppressedCode : column.getCode(row);
+                    long key = classes[row] * size + code;
+                    if (table.putIfAbsent(key, next)) {
+                        next++;
+                    }
+                    classes[row] = table.get(key);
+                }
+            }
+            numClasses = next;
+        }
+        
+        // Determine sizes and representatives
+        this.classes = classes;
+        this.sizes = new int[numClasses];
+        this.representatives = new int[numClasses];
+        for (int row = 0; row < rows; row++) {
+            if (sizes[classes[row]]++ == 0) {
+                representatives[classes[row]] = row;
+            }
+        }
+    }
+
+    /**
+     * Returns the equivalence class of each row
+     * 
+     * @return
+     */
+    public int[] getClasses() {
+        return classes;
+    }
+
+    /**
+     * Returns the number of equivalence classes
+     * 
+     * @return
+     */
+    public int getNumClasses() {
+        return sizes.length;
+    }
+
+    /**
+     * Returns the first row of each equivalence class
+     * 
+     * @return
+     */
+    public int[] getRepresentatives() {
+        return representatives;
+    }
+
+    /**
+     * Returns the size of each equivalence class
+     * 
+     * @return
+     */
+    public int[] getSizes() {
+        return sizes;
+    }
+
+    /**
+     * Checks for interruptions
+     * 
+     * @param stop
+     * @param row
+     */
+    private void checkInterrupt(WrappedBoolean stop, int row) {
+        if ((row & 0xFFFF) == 0 && stop != null && stop.value) {
+            throw new ComputationInterruptedException("Interrupted");
+        }
+    }
+
+    /**
+     * Returns the code of the given value. Returns the size of the dictionary, if
+     * the value is not contained.
+     * 
+     * @param dictionary
+     * @param value
+     * @return
+     */
+    private int getCode(String[] dictionary, String value) {
+        for (int code = 0; code < dictionary.length; code++) {
+            if (value.equals(dictionary[code])) {
+                return code;
+            }
+        }
+        return dictionary.length;
+    }
+}
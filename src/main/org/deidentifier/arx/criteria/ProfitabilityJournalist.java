@@ -102,7 +102,7 @@ public class ProfitabilityJournalist extends ProfitabilityProsecutor {
     }
 
     @Override
-    protected double getSuccessProbability(HashGroupifyEntry entry) {
-        return entry.pcount == 0 ? 1d / entry.count : 1d / entry.pcount;
+    protected int getClassSize(HashGroupifyEntry entry) {
+        return entry.pcount == 0 ? entry.count : entry.pcount;
     }
 }
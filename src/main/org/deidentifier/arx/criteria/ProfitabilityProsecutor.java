@@ -43,6 +43,12 @@ public class ProfitabilityProsecutor extends ImplicitPrivacyCriterion {
     /** SVUID */
     private static final long               serialVersionUID = -1698534839214708559L;
 
+    /** Number of class sizes for which thresholds are cached */
+    private static final int                CACHE_SIZE       = 1024;
+
+    /** Relative tolerance for decisions based on thresholds */
+    private static final double             TOLERANCE        = 1e-6d;
+
     /** Configuration */
     private ARXCostBenefitConfiguration     config;
 
@@ -64,6 +70,9 @@ public class ProfitabilityProsecutor extends ImplicitPrivacyCriterion {
     /** Risk model */
     private RiskModelCostBenefit            riskModel;
 
+    /** Thresholds for the product of domain shares of a profitable class, indexed by class size */
+    private transient double[]              thresholds;
+
     /**
      * Creates a new instance of game theoretic approach proposed in:
      * A Game Theoretic Framework for Analyzing Re-Identification Risk.
@@ -107,6 +116,7 @@ public class ProfitabilityProsecutor extends ImplicitPrivacyCriterion {
         this.shares =  manager.getDomainShares();
         this.config = config.getCostBenefitConfiguration();
         this.riskModel = new RiskModelCostBenefit(this.config);
+        this.thresholds = null;
 
         // Prepare consideration of microaggregation
         this.microaggregationFunctions = manager.getMicroaggregationFunctions();
@@ -125,15 +135,31 @@ public class ProfitabilityProsecutor extends ImplicitPrivacyCriterion {
             return false;
         }
         
-        // Calculate information loss and success probability
-        double informationLoss = MetricSDNMEntropyBasedInformationLoss.getEntropyBasedInformationLoss(transformation,
-                                                                                                      entry,
-                                                                                                      shares,
-                                                                                                      this.microaggregationFunctions,
-                                                                                                      this.microaggregationStartIndex,
-                                                                                                      maxIL);
-        double successProbability = getSuccessProbability(entry);
-        double publisherPayoff = riskModel.getExpectedPublisherPayout(informationLoss, successProbability);
+        // Calculate domain share and class size
+        double share = MetricSDNMEntropyBasedInformationLoss.getDomainShare(transformation,
+                                                                            entry,
+                                                                            shares,
+                                                                            this.microaggregationFunctions,
+                                                                            this.microaggregationStartIndex);
+        int size = getClassSize(entry);
+        
+        // The payoff is > 0, iff the share is below a threshold which only depends on the class size.
+        // We only need to evaluate the model, if the share is close to the threshold.
+        if (size < CACHE_SIZE && config.getPublisherBenefit() > 0d && maxIL > 0d) {
+            if (thresholds == null) {
+                thresholds = getThresholds(riskModel, config.getPublisherBenefit(), maxIL);
+            }
+            double threshold = thresholds[size];
+            if (share < threshold * (1d - TOLERANCE)) {
+                return true;
+            } else if (share > threshold * (1d + TOLERANCE)) {
+                return false;
+            }
+        }
+        
+        // Calculate information loss and payoff
+        double informationLoss = MetricSDNMEntropyBasedInformationLoss.getEntropyBasedInformationLoss(share, maxIL);
+        double publisherPayoff = riskModel.getExpectedPublisherPayoutForClassSize(informationLoss, size);
                 
         // We keep the set of records if the payoff is > 0
         return publisherPayoff > 0;
@@ -176,13 +202,13 @@ public class ProfitabilityProsecutor extends ImplicitPrivacyCriterion {
     }
 
     /**
-     * Returns the success probability. If the game is configured to use the journalist risk, 
-     * but no population table is available, we silently default to the prosecutor model.
+     * Returns the size of the class, which determines the success probability. If the game is configured 
+     * to use the journalist risk, but no population table is available, we silently default to the prosecutor model.
      * @param entry
      * @return
      */
-    protected double getSuccessProbability(HashGroupifyEntry entry) {
-        return 1d / entry.count;
+    protected int getClassSize(HashGroupifyEntry entry) {
+        return entry.count;
     }
 
     /**
@@ -191,4 +217,20 @@ public class ProfitabilityProsecutor extends ImplicitPrivacyCriterion {
     protected String toString(String attackerModel) {
         return "profitability (" + attackerModel + ")" + (config != null ? config.toString() : "");
     }
+
+    /**
+     * Returns the thresholds for the product of domain shares of a profitable class, indexed by class size.
+     * A class is profitable, iff the product of its domain shares is below the threshold.
+     * @param riskModel
+     * @param publisherBenefit
+     * @param maxIL
+     * @return
+     */
+    public static double[] getThresholds(RiskModelCostBenefit riskModel, double publisherBenefit, double maxIL) {
+        double[] thresholds = new double[CACHE_SIZE];
+        for (int size = 1; size < CACHE_SIZE; size++) {
+            thresholds[size] = Math.pow(10d, -maxIL * riskModel.getExpectedPublisherLossForClassSize(size) / publisherBenefit);
+        }
+        return thresholds;
+    }
 }
@@ -209,11 +209,7 @@ public class NodeChecker {
         microaggregationDictionary.definalizeAll();
         
         // Apply transition and groupify
-        currentGroupify = transformer.apply(0L, transformation.getGeneralization(), currentGroupify);
-        currentGroupify.stateAnalyze(transformation, true);
-        if (!currentGroupify.isPrivacyModelFulfilled() && !config.isSuppressionAlwaysEnabled()) {
-            currentGroupify.stateResetSuppression();
-        }
+        groupify(transformation);
         
         // Determine information loss
         InformationLoss<?> loss = transformation.getInformationLoss();
@@ -315,6 +311,26 @@ public class NodeChecker {
                                       bound);
     }
     
+    /**
+     * Applies the given transformation and returns the resulting equivalence classes
+     * without computing information loss, performing microaggregation or suppression.
+     * The output buffer of this checker is overwritten and the result is only valid
+     * until this checker is used again.
+     *
+     * @param transformation
+     * @return
+     */
+    public HashGroupify groupify(final Transformation transformation) {
+
+        // Apply transition and groupify
+        currentGroupify = transformer.apply(0L, transformation.getGeneralization(), currentGroupify);
+        currentGroupify.stateAnalyze(transformation, true);
+        if (!currentGroupify.isPrivacyModelFulfilled() && !config.isSuppressionAlwaysEnabled()) {
+            currentGroupify.stateResetSuppression();
+        }
+        return currentGroupify;
+    }
+
     /**
      * Returns the configuration
      * @return
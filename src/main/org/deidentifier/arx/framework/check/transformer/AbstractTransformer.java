@@ -228,8 +228,8 @@ public abstract class AbstractTransformer implements Callable<HashGroupify> {
     /** The column index array. */
     protected final int[]                     columnIndexArray;
     
-    /** The column map array. */
-    protected final int[][][]                 columnMapArray;
+    /** The column map array. Contains the level-major lookup table for each column. */
+    protected final int[][]                   columnMapArray;
     
     /** The mode of operation *. */
     protected final ARXConfigurationInternal  config;
@@ -256,7 +256,7 @@ public abstract class AbstractTransformer implements Callable<HashGroupify> {
     /** The hierarchies. */
     protected final GeneralizationHierarchy[] hierarchies;
     /** The idindex14. */
-    protected int[][]                         idindex0, idindex1, idindex2, idindex3, idindex4, idindex5,
+    protected int[]                           idindex0, idindex1, idindex2, idindex3, idindex4, idindex5,
                                               idindex6, idindex7, idindex8, idindex9, idindex10, idindex11, idindex12, idindex13, idindex14;
     /** The index14. */
     protected int                             index0, index1, index2, index3, index4, index5, index6, index7,
@@ -264,8 +264,8 @@ public abstract class AbstractTransformer implements Callable<HashGroupify> {
     /** The intuple. */
     protected int[]                           intuple;
     
-    /** The generalization hierarchies. */
-    protected int[][][]                       map;
+    /** The generalization hierarchies. Dimension->input->output for the current transformation */
+    protected final int[][]                   map;
     /** The outindices. */
     protected int                             outindex0;
     /** The outindices. */
@@ -394,11 +394,8 @@ public abstract class AbstractTransformer implements Callable<HashGroupify> {
         }
         generalizationIndexArray = new int[arraySizes];
         columnIndexArray = new int[arraySizes];
-        columnMapArray = new int[arraySizes][][];
-        map = new int[hierarchies.length][][];
-        for (int i = 0; i < hierarchies.length; i++) {
-            map[i] = hierarchies[i].getArray();
-        }
+        columnMapArray = new int[arraySizes][];
+        map = new int[hierarchies.length][];
 
         // Prepare delegate
         switch (config.getRequirements()) {
@@ -498,12 +495,14 @@ public abstract class AbstractTransformer implements Callable<HashGroupify> {
         this.generalization = state;
         this.transition = transition;
 
+        // Select the level-major lookup tables for this transformation
         int index = 0;
         for (int i = 0; i < dimensions; i++) {
+            map[i] = hierarchies[i].getLevel(state[i]);
             if ((projection & (1L << i)) == 0) {
                 generalizationIndexArray[index] = state[i];
                 columnIndexArray[index] = i;
-                columnMapArray[index] = hierarchies[i].getArray();
+                columnMapArray[index] = map[i];
                 index++;
             }
         }
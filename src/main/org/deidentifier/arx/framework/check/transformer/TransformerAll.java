@@ -61,8 +61,7 @@ public class TransformerAll extends AbstractTransformer {
             intuple = data[i];
             outtuple = buffer[i];
             for (int d = 0; d < dimensions; d++) {
-                final int state = generalization[d];
-                outtuple[d] = map[d][intuple[d]][state];
+                outtuple[d] = map[d][intuple[d]];
             }
 
             // Call
@@ -83,8 +82,7 @@ public class TransformerAll extends AbstractTransformer {
             intuple = data[element.representative];
             outtuple = buffer[element.representative];
             for (int d = 0; d < dimensions; d++) {
-                final int state = generalization[d];
-                outtuple[d] = map[d][intuple[d]][state];
+                outtuple[d] = map[d][intuple[d]];
             }
 
             // Call
@@ -111,8 +109,7 @@ public class TransformerAll extends AbstractTransformer {
             intuple = data[snapshot[i]];
             outtuple = buffer[snapshot[i]];
             for (int d = 0; d < dimensions; d++) {
-                final int state = generalization[d];
-                outtuple[d] = map[d][intuple[d]][state];
+                outtuple[d] = map[d][intuple[d]];
             }
 
             // Call
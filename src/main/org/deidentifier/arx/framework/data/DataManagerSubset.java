@@ -21,6 +21,7 @@ import java.util.Map;
 
 import org.deidentifier.arx.DataType;
 import org.deidentifier.arx.framework.check.distribution.DistributionAggregateFunction;
+import org.deidentifier.arx.metric.v2.DomainShare;
 
 /**
  * A data manager that is projected onto a given subset. Used for post-optimization.
@@ -103,6 +104,12 @@ public class DataManagerSubset extends DataManager {
         return source.getDistribution(attribute);
     }
 
+    @Override
+    public DomainShare[] getDomainShares() {
+        // Delegate to source
+        return source.getDomainShares();
+    }
+
     @Override
     public int[] getOrder(String attribute) {
         // Delegate to source
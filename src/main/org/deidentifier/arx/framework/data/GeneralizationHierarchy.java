@@ -34,6 +34,9 @@ public class GeneralizationHierarchy {
     /** Input->level->output. */
     protected final int[][] map;
 
+    /** Level->input->output. */
+    protected final int[][] levels;
+
     /** Name. */
     protected final String  attribute;
 
@@ -89,6 +92,9 @@ public class GeneralizationHierarchy {
             vals.clear();
         }
 
+        // Build level-major representation
+        levels = getLevels(map);
+
         // Sanity check
         if (distinctValues[0] < uniqueIn) {
             throw new IllegalArgumentException("Attribute '" + name + "': hierarchy misses some values or contains duplicates"); 
@@ -107,6 +113,7 @@ public class GeneralizationHierarchy {
                                       final int[] distinctValues) {
         this.attribute = name;
         this.map = map;
+        this.levels = getLevels(map);
         this.distinctValues = distinctValues;
     }
     
@@ -200,6 +207,16 @@ public class GeneralizationHierarchy {
         return result;
     }
 
+    /**
+     * Returns a contiguous lookup table mapping all input values to the given level.
+     * 
+     * @param level
+     * @return
+     */
+    public int[] getLevel(final int level) {
+        return levels[level];
+    }
+
     /**
      * Returns the height of the hierarchy.
      *
@@ -217,4 +234,22 @@ public class GeneralizationHierarchy {
     public String getName() {
         return attribute;
     }
+
+    /**
+     * Transposes the given input-major map into one lookup table per level.
+     *
+     * @param map
+     * @return
+     */
+    private int[][] getLevels(final int[][] map) {
+        final int height = map.length == 0 ? 0 : map[0].length;
+        final int[][] result = new int[height][map.length];
+        for (int i = 0; i < map.length; i++) {
+            final int[] row = map[i];
+            for (int level = 0; level < height; level++) {
+                result[level][i] = row[level];
+            }
+        }
+        return result;
+    }
 }
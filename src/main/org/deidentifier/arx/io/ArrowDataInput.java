@@ -0,0 +1,970 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TimeZone;
+
+import org.deidentifier.arx.DataType;
+
+import com.carrotsearch.hppc.LongIntOpenHashMap;
+import com.carrotsearch.hppc.ObjectIntOpenHashMap;
+
+/**
+ * Provides methods for reading files in the Arrow IPC file format. The metadata of the
+ * file is parsed directly from its flatbuffer representation and all record batches are
+ * memory mapped. Columns are read one at a time and encoded with a dictionary, without
+ * materializing rows. Each distinct value is only converted to a string once.<br>
+ * <br>
+ * Supported are top-level columns of the types Null, Int, FloatingPoint (single and double
+ * precision), Utf8, LargeUtf8, Bool, Decimal (128 bit), Date and Timestamp, as well as
+ * dictionary encoded columns with such values. Compressed and big-endian files are not
+ * supported. Dates are represented as <code>yyyy-MM-dd</code> and timestamps as
+ * <code>yyyy-MM-dd HH:mm:ss</code> in UTC. Timestamps with a unit of milli-, micro- or nanoseconds
+ * are followed by a fraction of a second with three, six or nine digits, respectively, e.g.
+ * <code>yyyy-MM-dd HH:mm:ss.SSS</code>. Missing values are represented as {@link DataType#NULL_VALUE}.
+ *
+ * @author Fabian Prasser
+ */
+public class ArrowDataInput {
+
+    /**
+     * A field of the schema
+     *
+     * @author Fabian Prasser
+     */
+    private static class Field {
+
+        /** The name */
+        private String name;
+
+        /** The type of the values */
+        private Type   type;
+
+        /** The type of the indices, null if the field is not dictionary encoded */
+        private Type   index;
+
+        /** The identifier of the dictionary */
+        private long   dictionary;
+
+        /** The index of the first field node */
+        private int    node;
+
+        /** The index of the first buffer */
+        private int    buffer;
+    }
+
+    /**
+     * A type
+     *
+     * @author Fabian Prasser
+     */
+    private static class Type {
+
+        /** The identifier */
+        private int     id;
+
+        /** Bit width of integers and decimals */
+        private int     bitWidth;
+
+        /** Signedness of integers */
+        private boolean signed;
+
+        /** Precision of floating point numbers */
+        private int     precision;
+
+        /** Scale of decimals */
+        private int     scale;
+
+        /** Unit of dates and timestamps */
+        private int     unit;
+
+        /** Whether the type is supported */
+        private boolean supported;
+    }
+
+    /** Magic number */
+    private static final byte[] MAGIC                = "ARROW1".getBytes(StandardCharsets.US_ASCII);
+
+    /** Message header */
+    private static final int    HEADER_DICTIONARY    = 2;
+
+    /** Message header */
+    private static final int    HEADER_RECORD_BATCH  = 3;
+
+    /** Type */
+    private static final int    TYPE_NULL            = 1;
+
+    /** Type */
+    private static final int    TYPE_INT             = 2;
+
+    /** Type */
+    private static final int    TYPE_FLOATING_POINT  = 3;
+
+    /** Type */
+    private static final int    TYPE_BINARY          = 4;
+
+    /** Type */
+    private static final int    TYPE_UTF8            = 5;
+
+    /** Type */
+    private static final int    TYPE_BOOL            = 6;
+
+    /** Type */
+    private static final int    TYPE_DECIMAL         = 7;
+
+    /** Type */
+    private static final int    TYPE_DATE            = 8;
+
+    /** Type */
+    private static final int    TYPE_TIMESTAMP       = 10;
+
+    /** Type */
+    private static final int    TYPE_LIST            = 12;
+
+    /** Type */
+    private static final int    TYPE_STRUCT          = 13;
+
+    /** Type */
+    private static final int    TYPE_UNION           = 14;
+
+    /** Type */
+    private static final int    TYPE_FIXED_SIZE_LIST = 16;
+
+    /** Type */
+    private static final int    TYPE_MAP             = 17;
+
+    /** Type */
+    private static final int    TYPE_LARGE_BINARY    = 19;
+
+    /** Type */
+    private static final int    TYPE_LARGE_UTF8      = 20;
+
+    /** Type */
+    private static final int    TYPE_LARGE_LIST      = 21;
+
+    /** The file */
+    private final File          file;
+
+    /** The fields */
+    private Field[]             fields;
+
+    /** Message metadata of dictionary batches */
+    private List<ByteBuffer>    dictionaryMessages;
+
+    /** Bodies of dictionary batches */
+    private List<ByteBuffer>    dictionaryBodies;
+
+    /** Message metadata of record batches */
+    private List<ByteBuffer>    batchMessages;
+
+    /** Bodies of record batches */
+    private List<ByteBuffer>    batchBodies;
+
+    /** The number of rows */
+    private int                 rows;
+
+    /**
+     * Instantiate.
+     *
+     * @param file the file
+     */
+    public ArrowDataInput(final File file) {
+        this.file = file;
+    }
+
+    /**
+     * Instantiate.
+     *
+     * @param path the path
+     */
+    public ArrowDataInput(final String path) {
+        this(new File(path));
+    }
+
+    /**
+     * Returns the names of all top-level columns
+     *
+     * @return
+     */
+    public String[] getHeader() {
+        String[] header = new String[fields.length];
+        for (int i = 0; i < header.length; i++) {
+            header[i] = fields[i].name;
+        }
+        return header;
+    }
+
+    /**
+     * Returns the number of rows
+     *
+     * @return
+     */
+    public int getNumRows() {
+        return rows;
+    }
+
+    /**
+     * Reads the metadata of the file and maps all record batches.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public void open() throws IOException {
+
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+
+            // Check header and trailer
+            long size = channel.size();
+            if (size < 18) {
+                throw new IOException("Not an Arrow file");
+            }
+            ByteBuffer start = map(channel, 0, MAGIC.length);
+            ByteBuffer end = map(channel, size - 10, 10);
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (start.get(i) != MAGIC[i] || end.get(4 + i) != MAGIC[i]) {
+                    throw new IOException("Not an Arrow file");
+                }
+            }
+            int length = end.getInt(0);
+            if (length <= 0 || length > size - 18) {
+                throw new IOException("Corrupt Arrow file");
+            }
+
+            // Footer
+            ByteBuffer footer = map(channel, size - 10 - length, length);
+            int table = footer.getInt(0);
+            int schema = getTable(footer, table, 1);
+            if (schema == 0) {
+                throw new IOException("Corrupt Arrow file");
+            }
+            if (getShort(footer, schema, 0, 0) != 0) {
+                throw new IOException("Big-endian Arrow files are not supported");
+            }
+
+            // Schema
+            int vector = getTable(footer, schema, 1);
+            int count = vector == 0 ? 0 : footer.getInt(vector);
+            this.fields = new Field[count];
+            int[] position = new int[2];
+            for (int i = 0; i < count; i++) {
+                int element = vector + 4 + 4 * i;
+                int field = element + footer.getInt(element);
+                fields[i] = getField(footer, field, position);
+            }
+
+            // Blocks
+            this.dictionaryMessages = new ArrayList<ByteBuffer>();
+            this.dictionaryBodies = new ArrayList<ByteBuffer>();
+            this.batchMessages = new ArrayList<ByteBuffer>();
+            this.batchBodies = new ArrayList<ByteBuffer>();
+            readBlocks(channel, footer, getTable(footer, table, 2), dictionaryMessages, dictionaryBodies, HEADER_DICTIONARY);
+            readBlocks(channel, footer, getTable(footer, table, 3), batchMessages, batchBodies, HEADER_RECORD_BATCH);
+
+            // Rows
+            long rows = 0;
+            for (ByteBuffer message : batchMessages) {
+                rows += getLong(message, getHeader(message), 0, 0);
+            }
+            if (rows > Integer.MAX_VALUE) {
+                throw new IOException("Too many rows");
+            }
+            this.rows = (int) rows;
+
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new IOException("Corrupt Arrow file", e);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Reads the given column and encodes it with a dictionary. The codes are stored at the
+     * given index of the rows of the given array, which must contain {@link #getNumRows()} rows.
+     * Different columns may be read concurrently.
+     *
+     * @param column the index of the column
+     * @param data the array into which codes are written
+     * @param index the index within each row of the array
+     * @return the dictionary, mapping codes to values
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public String[] read(final int column, final int[][] data, final int index) throws IOException {
+
+        Field field = fields[column];
+        if (!field.type.supported || (field.index != null && field.index.id != TYPE_INT)) {
+            throw new IOException("Type of column '" + field.name + "' is not supported");
+        }
+
+        ObjectIntOpenHashMap<String> codes = new ObjectIntOpenHashMap<String>();
+        List<String> values = new ArrayList<String>();
+        try {
+
+            // Dictionary encoded columns
+            String[] dictionary = field.index == null ? null : readDictionary(field);
+            int[] translation = null;
+            if (dictionary != null) {
+                translation = new int[dictionary.length];
+                Arrays.fill(translation, -1);
+            }
+
+            // Record batches
+            LongIntOpenHashMap cache = new LongIntOpenHashMap();
+            int offset = 0;
+            for (int batch = 0; batch < batchMessages.size(); batch++) {
+                ByteBuffer message = batchMessages.get(batch);
+                ByteBuffer body = batchBodies.get(batch);
+                int header = getHeader(message);
+                int length = (int) getLong(message, header, 0, 0);
+                int nodes = getTable(message, header, 1);
+                int buffers = getTable(message, header, 2);
+                if (nodes == 0 || buffers == 0 || length < 0 || offset + length > data.length) {
+                    throw new IOException("Corrupt Arrow file");
+                }
+                int count = (int) Math.min(length, message.getLong(nodes + 4 + field.node * 16));
+
+                if (dictionary == null) {
+                    readValues(field.type, message, body, buffers, field.buffer, count, data, offset, index, codes, values, cache);
+                } else {
+                    int[][] indices = new int[count][1];
+                    readIndices(field.index, message, body, buffers, field.buffer, count, indices);
+                    for (int row = 0; row < count; row++) {
+                        int key = indices[row][0];
+                        int code;
+                        if (key == -1) {
+                            code = encode(DataType.NULL_VALUE, codes, values);
+                        } else if (key < 0 || key >= dictionary.length) {
+                            throw new IOException("Corrupt Arrow file");
+                        } else {
+                            code = translation[key];
+                            if (code == -1) {
+                                code = encode(dictionary[key], codes, values);
+                                translation[key] = code;
+                            }
+                        }
+                        data[offset + row][index] = code;
+                    }
+                }
+
+                // Fill rows of short columns
+                for (int row = count; row < length; row++) {
+                    data[offset + row][index] = encode(DataType.NULL_VALUE, codes, values);
+                }
+                offset += length;
+            }
+
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new IOException("Corrupt Arrow file", e);
+        }
+        return values.toArray(new String[values.size()]);
+    }
+
+    /**
+     * Registers the given value
+     *
+     * @param value
+     * @param codes
+     * @param values
+     * @return
+     */
+    private int encode(String value, ObjectIntOpenHashMap<String> codes, List<String> values) {
+        if (codes.containsKey(value)) {
+            return codes.lget();
+        }
+        int code = values.size();
+        codes.put(value, code);
+        values.add(value);
+        return code;
+    }
+
+    /**
+     * Returns the absolute position of the given field of a table, 0 if it is not present
+     *
+     * @param buffer
+     * @param table
+     * @param id
+     * @return
+     */
+    private int getField(ByteBuffer buffer, int table, int id) {
+        int vtable = table - buffer.getInt(table);
+        int size = buffer.getShort(vtable) & 0xffff;
+        if (4 + 2 * id >= size) {
+            return 0;
+        }
+        int offset = buffer.getShort(vtable + 4 + 2 * id) & 0xffff;
+        return offset == 0 ? 0 : table + offset;
+    }
+
+    /**
+     * Parses a field and its children
+     *
+     * @param buffer
+     * @param table
+     * @param position the current index of the field node and buffer
+     * @return
+     */
+    private Field getField(ByteBuffer buffer, int table, int[] position) {
+
+        Field field = new Field();
+        int name = getTable(buffer, table, 0);
+        field.name = name == 0 ? "" : getString(buffer, name);
+        field.type = getType(buffer, table);
+        field.node = position[0];
+        field.buffer = position[1];
+        field.dictionary = -1;
+
+        // Dictionary encoding
+        int dictionary = getTable(buffer, table, 4);
+        if (dictionary != 0) {
+            field.dictionary = getLong(buffer, dictionary, 0, 0);
+            int index = getTable(buffer, dictionary, 1);
+            field.index = new Type();
+            field.index.id = TYPE_INT;
+            field.index.bitWidth = index == 0 ? 32 : getInt(buffer, index, 0, 0);
+            field.index.signed = index == 0 || getByte(buffer, index, 1, 0) != 0;
+            field.index.supported = true;
+        }
+
+        // Number of buffers
+        position[0]++;
+        position[1] += field.index != null ? 2 : getBuffers(field.type.id);
+
+        // Children
+        int children = getTable(buffer, table, 5);
+        int count = children == 0 ? 0 : buffer.getInt(children);
+        for (int i = 0; i < count; i++) {
+            int element = children + 4 + 4 * i;
+            getField(buffer, element + buffer.getInt(element), position);
+        }
+        if (field.type.id == TYPE_UNION) {
+            int type = getTable(buffer, table, 3);
+            position[1] += (type != 0 && getShort(buffer, type, 0, 0) == 1) ? 2 : 1;
+        }
+        return field;
+    }
+
+    /**
+     * Returns the number of buffers of the given type, excluding children
+     *
+     * @param type
+     * @return
+     */
+    private int getBuffers(int type) {
+        switch (type) {
+        case TYPE_NULL:
+        case TYPE_UNION:
+            return 0;
+        case TYPE_STRUCT:
+        case TYPE_FIXED_SIZE_LIST:
+            return 1;
+        case TYPE_BINARY:
+        case TYPE_UTF8:
+        case TYPE_LARGE_BINARY:
+        case TYPE_LARGE_UTF8:
+            return 3;
+        case TYPE_LIST:
+        case TYPE_LARGE_LIST:
+        case TYPE_MAP:
+        default:
+            return 2;
+        }
+    }
+
+    /**
+     * Returns a byte field of a table
+     *
+     * @param buffer
+     * @param table
+     * @param id
+     * @param defaultValue
+     * @return
+     */
+    private int getByte(ByteBuffer buffer, int table, int id, int defaultValue) {
+        int position = getField(buffer, table, id);
+        return position == 0 ? defaultValue : buffer.get(position) & 0xff;
+    }
+
+    /**
+     * Returns the header of a message
+     *
+     * @param message
+     * @return
+     * @throws IOException
+     */
+    private int getHeader(ByteBuffer message) throws IOException {
+        int header = getTable(message, message.getInt(0), 2);
+        if (header == 0) {
+            throw new IOException("Corrupt Arrow file");
+        }
+        return header;
+    }
+
+    /**
+     * Returns an int field of a table
+     *
+     * @param buffer
+     * @param table
+     * @param id
+     * @param defaultValue
+     * @return
+     */
+    private int getInt(ByteBuffer buffer, int table, int id, int defaultValue) {
+        int position = getField(buffer, table, id);
+        return position == 0 ? defaultValue : buffer.getInt(position);
+    }
+
+    /**
+     * Returns a long field of a table
+     *
+     * @param buffer
+     * @param table
+     * @param id
+     * @param defaultValue
+     * @return
+     */
+    private long getLong(ByteBuffer buffer, int table, int id, long defaultValue) {
+        int position = getField(buffer, table, id);
+        return position == 0 ? defaultValue : buffer.getLong(position);
+    }
+
+    /**
+     * Returns a short field of a table
+     *
+     * @param buffer
+     * @param table
+     * @param id
+     * @param defaultValue
+     * @return
+     */
+    private int getShort(ByteBuffer buffer, int table, int id, int defaultValue) {
+        int position = getField(buffer, table, id);
+        return position == 0 ? defaultValue : buffer.getShort(position);
+    }
+
+    /**
+     * Returns a string
+     *
+     * @param buffer
+     * @param position
+     * @return
+     */
+    private String getString(ByteBuffer buffer, int position) {
+        byte[] bytes = new byte[buffer.getInt(position)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(position + 4 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the absolute position of a table, string or vector referenced by the given field, 0 if not present
+     *
+     * @param buffer
+     * @param table
+     * @param id
+     * @return
+     */
+    private int getTable(ByteBuffer buffer, int table, int id) {
+        int position = getField(buffer, table, id);
+        return position == 0 ? 0 : position + buffer.getInt(position);
+    }
+
+    /**
+     * Parses the type of a field
+     *
+     * @param buffer
+     * @param field
+     * @return
+     */
+    private Type getType(ByteBuffer buffer, int field) {
+        Type type = new Type();
+        type.id = getByte(buffer, field, 2, 0);
+        int table = getTable(buffer, field, 3);
+        switch (type.id) {
+        case TYPE_NULL:
+        case TYPE_UTF8:
+        case TYPE_LARGE_UTF8:
+        case TYPE_BOOL:
+            type.supported = true;
+            break;
+        case TYPE_INT:
+            type.bitWidth = table == 0 ? 0 : getInt(buffer, table, 0, 0);
+            type.signed = table != 0 && getByte(buffer, table, 1, 0) != 0;
+            type.supported = type.bitWidth == 8 || type.bitWidth == 16 || type.bitWidth == 32 || type.bitWidth == 64;
+            break;
+        case TYPE_FLOATING_POINT:
+            type.precision = table == 0 ? 0 : getShort(buffer, table, 0, 0);
+            type.supported = type.precision == 1 || type.precision == 2;
+            break;
+        case TYPE_DECIMAL:
+            type.precision = table == 0 ? 0 : getInt(buffer, table, 0, 0);
+            type.scale = table == 0 ? 0 : getInt(buffer, table, 1, 0);
+            type.bitWidth = table == 0 ? 128 : getInt(buffer, table, 2, 128);
+            type.supported = type.bitWidth == 128;
+            break;
+        case TYPE_DATE:
+            type.unit = table == 0 ? 1 : getShort(buffer, table, 0, 1);
+            type.supported = type.unit == 0 || type.unit == 1;
+            break;
+        case TYPE_TIMESTAMP:
+            type.unit = table == 0 ? 0 : getShort(buffer, table, 0, 0);
+            type.supported = type.unit >= 0 && type.unit <= 3;
+            break;
+        default:
+            type.supported = false;
+        }
+        return type;
+    }
+
+    /**
+     * Returns whether the value at the given index is valid
+     *
+     * @param body
+     * @param validity
+     * @param length
+     * @param row
+     * @return
+     */
+    private boolean isValid(ByteBuffer body, long validity, long length, int row) {
+        return length == 0 || (body.get((int) (validity + (row >>> 3))) & (1 << (row & 7))) != 0;
+    }
+
+    /**
+     * Maps a section of the file
+     *
+     * @param channel
+     * @param offset
+     * @param length
+     * @return
+     * @throws IOException
+     */
+    private ByteBuffer map(FileChannel channel, long offset, long length) throws IOException {
+        if (offset < 0 || length < 0 || offset + length > channel.size()) {
+            throw new IOException("Corrupt Arrow file");
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Section of Arrow file too large");
+        }
+        ByteBuffer buffer = channel.map(MapMode.READ_ONLY, offset, length);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    /**
+     * Reads the blocks of the given vector
+     *
+     * @param channel
+     * @param footer
+     * @param vector
+     * @param messages
+     * @param bodies
+     * @param type
+     * @throws IOException
+     */
+    private void readBlocks(FileChannel channel,
+                            ByteBuffer footer,
+                            int vector,
+                            List<ByteBuffer> messages,
+                            List<ByteBuffer> bodies,
+                            int type) throws IOException {
+
+        int count = vector == 0 ? 0 : footer.getInt(vector);
+        for (int i = 0; i < count; i++) {
+            int block = vector + 4 + 24 * i;
+            long offset = footer.getLong(block);
+            int length = footer.getInt(block + 8);
+            long bodyLength = footer.getLong(block + 16);
+
+            // Skip the prefix
+            ByteBuffer prefix = map(channel, offset, 8);
+            int skip = prefix.getInt(0) == -1 ? 8 : 4;
+            ByteBuffer message = map(channel, offset + skip, length - skip);
+            if (getByte(message, message.getInt(0), 1, 0) != type) {
+                throw new IOException("Corrupt Arrow file");
+            }
+            int header = getHeader(message);
+            int batch = type == HEADER_DICTIONARY ? getTable(message, header, 1) : header;
+            if (batch == 0) {
+                throw new IOException("Corrupt Arrow file");
+            }
+            if (getField(message, batch, 3) != 0) {
+                throw new IOException("Compressed Arrow files are not supported");
+            }
+            messages.add(message);
+            bodies.add(map(channel, offset + length, bodyLength));
+        }
+    }
+
+    /**
+     * Reads the dictionary of the given field
+     *
+     * @param field
+     * @return
+     * @throws IOException
+     */
+    private String[] readDictionary(Field field) throws IOException {
+
+        List<String> result = new ArrayList<String>();
+        boolean found = false;
+        for (int i = 0; i < dictionaryMessages.size(); i++) {
+            ByteBuffer message = dictionaryMessages.get(i);
+            ByteBuffer body = dictionaryBodies.get(i);
+            int header = getHeader(message);
+            if (getLong(message, header, 0, 0) != field.dictionary) {
+                continue;
+            }
+            if (getByte(message, header, 2, 0) == 0) {
+                result.clear();
+            }
+            found = true;
+
+            // Values, encoded with their own dictionary
+            int batch = getTable(message, header, 1);
+            int length = (int) getLong(message, batch, 0, 0);
+            int buffers = getTable(message, batch, 2);
+            int[][] codes = new int[length][1];
+            ObjectIntOpenHashMap<String> map = new ObjectIntOpenHashMap<String>();
+            List<String> values = new ArrayList<String>();
+            readValues(field.type, message, body, buffers, 0, length, codes, 0, 0, map, values, new LongIntOpenHashMap());
+            for (int row = 0; row < length; row++) {
+                result.add(values.get(codes[row][0]));
+            }
+        }
+        if (!found) {
+            throw new IOException("Dictionary of column '" + field.name + "' not found");
+        }
+        return result.toArray(new String[result.size()]);
+    }
+
+    /**
+     * Reads dictionary indices. Missing values are represented by -1.
+     *
+     * @param type
+     * @param message
+     * @param body
+     * @param buffers
+     * @param buffer
+     * @param length
+     * @param data
+     * @throws IOException
+     */
+    private void readIndices(Type type,
+                             ByteBuffer message,
+                             ByteBuffer body,
+                             int buffers,
+                             int buffer,
+                             int length,
+                             int[][] data) throws IOException {
+        long validity = message.getLong(buffers + 4 + buffer * 16);
+        long validityLength = message.getLong(buffers + 4 + buffer * 16 + 8);
+        long values = message.getLong(buffers + 4 + (buffer + 1) * 16);
+        for (int row = 0; row < length; row++) {
+            if (!isValid(body, validity, validityLength, row)) {
+                data[row][0] = -1;
+            } else {
+                long value = readInt(body, values, row, type);
+                data[row][0] = value < 0 || value > Integer.MAX_VALUE ? -2 : (int) value;
+            }
+        }
+    }
+
+    /**
+     * Reads an integer. Unsigned 64-bit integers are returned as their bit pattern, meaning
+     * that values larger than Long.MAX_VALUE are negative. They are widened when being converted
+     * to strings and rejected when being used as dictionary indices.
+     *
+     * @param body
+     * @param values
+     * @param row
+     * @param type
+     * @return
+     */
+    private long readInt(ByteBuffer body, long values, int row, Type type) {
+        switch (type.bitWidth) {
+        case 8:
+            byte b = body.get((int) (values + row));
+            return type.signed ? b : b & 0xffL;
+        case 16:
+            short s = body.getShort((int) (values + 2L * row));
+            return type.signed ? s : s & 0xffffL;
+        case 32:
+            int i = body.getInt((int) (values + 4L * row));
+            return type.signed ? i : i & 0xffffffffL;
+        default:
+            return body.getLong((int) (values + 8L * row));
+        }
+    }
+
+    /**
+     * Reads values of a column and encodes them
+     *
+     * @param type
+     * @param message
+     * @param body
+     * @param buffers
+     * @param buffer
+     * @param length
+     * @param data
+     * @param offset
+     * @param index
+     * @param codes
+     * @param values
+     * @param cache codes of primitive values
+     * @throws IOException
+     */
+    private void readValues(Type type,
+                            ByteBuffer message,
+                            ByteBuffer body,
+                            int buffers,
+                            int buffer,
+                            int length,
+                            int[][] data,
+                            int offset,
+                            int index,
+                            ObjectIntOpenHashMap<String> codes,
+                            List<String> values,
+                            LongIntOpenHashMap cache) throws IOException {
+
+        // Null type
+        if (type.id == TYPE_NULL) {
+            int code = encode(DataType.NULL_VALUE, codes, values);
+            for (int row = 0; row < length; row++) {
+                data[offset + row][index] = code;
+            }
+            return;
+        }
+
+        // Buffers
+        int descriptor = buffers + 4 + buffer * 16;
+        long validity = message.getLong(descriptor);
+        long validityLength = message.getLong(descriptor + 8);
+        long first = message.getLong(descriptor + 16);
+        long second = type.id == TYPE_UTF8 || type.id == TYPE_LARGE_UTF8 ? message.getLong(descriptor + 32) : 0;
+        SimpleDateFormat format = null;
+        if (type.id == TYPE_DATE || type.id == TYPE_TIMESTAMP) {
+            format = new SimpleDateFormat(type.id == TYPE_DATE ? "yyyy-MM-dd" : "yyyy-MM-dd HH:mm:ss");
+            format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        }
+
+        for (int row = 0; row < length; row++) {
+
+            // Missing values
+            if (!isValid(body, validity, validityLength, row)) {
+                data[offset + row][index] = encode(DataType.NULL_VALUE, codes, values);
+                continue;
+            }
+
+            // Strings and decimals
+            if (type.id == TYPE_UTF8 || type.id == TYPE_LARGE_UTF8) {
+                long start = type.id == TYPE_UTF8 ? body.getInt((int) (first + 4L * row)) : body.getLong((int) (first + 8L * row));
+                long end = type.id == TYPE_UTF8 ? body.getInt((int) (first + 4L * row + 4)) : body.getLong((int) (first + 8L * row + 8));
+                byte[] bytes = new byte[(int) (end - start)];
+                for (int i = 0; i < bytes.length; i++) {
+                    bytes[i] = body.get((int) (second + start + i));
+                }
+                data[offset + row][index] = encode(new String(bytes, StandardCharsets.UTF_8), codes, values);
+                continue;
+            } else if (type.id == TYPE_DECIMAL) {
+                byte[] bytes = new byte[16];
+                for (int i = 0; i < 16; i++) {
+                    bytes[15 - i] = body.get((int) (first + 16L * row + i));
+                }
+                String value = new BigDecimal(new BigInteger(bytes), type.scale).toPlainString();
+                data[offset + row][index] = encode(value, codes, values);
+                continue;
+            }
+
+            // Primitive values
+            long key;
+            switch (type.id) {
+            case TYPE_BOOL:
+                key = (body.get((int) (first + (row >>> 3))) >>> (row & 7)) & 1;
+                break;
+            case TYPE_FLOATING_POINT:
+                key = type.precision == 1 ? Float.floatToIntBits(body.getFloat((int) (first + 4L * row)))
+                                          : Double.doubleToLongBits(body.getDouble((int) (first + 8L * row)));
+                break;
+            case TYPE_DATE:
+                key = type.unit == 0 ? body.getInt((int) (first + 4L * row)) : body.getLong((int) (first + 8L * row));
+                break;
+            case TYPE_TIMESTAMP:
+                key = body.getLong((int) (first + 8L * row));
+                break;
+            default:
+                key = readInt(body, first, row, type);
+                break;
+            }
+            if (cache.containsKey(key)) {
+                data[offset + row][index] = cache.lget();
+            } else {
+                int code = encode(toString(type, key, format), codes, values);
+                cache.put(key, code);
+                data[offset + row][index] = code;
+            }
+        }
+    }
+
+    /**
+     * Converts a primitive value to a string
+     *
+     * @param type
+     * @param key
+     * @param format
+     * @return
+     */
+    private String toString(Type type, long key, SimpleDateFormat format) {
+        switch (type.id) {
+        case TYPE_BOOL:
+            return String.valueOf(key != 0);
+        case TYPE_FLOATING_POINT:
+            return type.precision == 1 ? String.valueOf(Float.intBitsToFloat((int) key)) : String.valueOf(Double.longBitsToDouble(key));
+        case TYPE_DATE:
+            return format.format(new java.util.Date(type.unit == 0 ? key * 86400000L : key));
+        case TYPE_TIMESTAMP:
+            long scale = type.unit == 1 ? 1000L : type.unit == 2 ? 1000000L : type.unit == 3 ? 1000000000L : 1L;
+            long seconds = key / scale;
+            if (key % scale < 0) {
+                seconds--;
+            }
+            String result = format.format(new java.util.Date(seconds * 1000L));
+            if (scale == 1L) {
+                return result;
+            }
+            return result + "." + String.valueOf(scale + key - seconds * scale).substring(1);
+        default:
+            if (!type.signed && type.bitWidth == 64 && key < 0) {
+                return new BigInteger(1, ByteBuffer.allocate(8).putLong(key).array()).toString();
+            }
+            return String.valueOf(key);
+        }
+    }
+}
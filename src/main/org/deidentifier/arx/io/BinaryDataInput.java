@@ -0,0 +1,295 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+import org.deidentifier.arx.DataDefinition;
+
+/**
+ * Provides methods for reading data written by {@link BinaryDataOutput}. All sections
+ * of the file are accessed via memory mapping, codes are unpacked directly from
+ * the mapped buffers.
+ *
+ * @author Fabian Prasser
+ */
+public class BinaryDataInput {
+
+    /** Maximal number of longs mapped at once */
+    private static final long WINDOW_SIZE = 1 << 27;
+
+    /** The file */
+    private final File        file;
+
+    /** The header */
+    private String[]          header;
+
+    /** The dictionaries */
+    private String[][]        dictionaries;
+
+    /** The encoded data */
+    private int[][]           data;
+
+    /** The outliers */
+    private BitSet            outliers;
+
+    /** The definition */
+    private DataDefinition    definition;
+
+    /**
+     * Instantiate.
+     *
+     * @param file the file
+     */
+    public BinaryDataInput(final File file) {
+        this.file = file;
+    }
+
+    /**
+     * Instantiate.
+     *
+     * @param path the path
+     */
+    public BinaryDataInput(final String path) {
+        this(new File(path));
+    }
+
+    /**
+     * Returns the encoded data, one array of codes per row
+     *
+     * @return
+     */
+    public int[][] getData() {
+        return data;
+    }
+
+    /**
+     * Returns the data definition, null if none has been stored
+     *
+     * @return
+     */
+    public DataDefinition getDefinition() {
+        return definition;
+    }
+
+    /**
+     * Returns the dictionaries, one per column, mapping codes to values
+     *
+     * @return
+     */
+    public String[][] getDictionaries() {
+        return dictionaries;
+    }
+
+    /**
+     * Returns the header
+     *
+     * @return
+     */
+    public String[] getHeader() {
+        return header;
+    }
+
+    /**
+     * Returns the outliers
+     *
+     * @return
+     */
+    public BitSet getOutliers() {
+        return outliers;
+    }
+
+    /**
+     * Reads the file.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public void read() throws IOException {
+
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+
+            // Check header and trailer
+            long size = channel.size();
+            if (size < 20) {
+                throw new IOException("Not a binary data file");
+            }
+            ByteBuffer start = map(channel, 0, 8);
+            ByteBuffer end = map(channel, size - 12, 12);
+            long footerOffset = end.getLong();
+            if (start.getInt() != BinaryDataOutput.MAGIC || end.getInt() != BinaryDataOutput.MAGIC) {
+                throw new IOException("Not a binary data file");
+            }
+            if (start.getInt() != BinaryDataOutput.VERSION) {
+                throw new IOException("Unsupported version of binary data file");
+            }
+            if (footerOffset < 8 || footerOffset > size - 12) {
+                throw new IOException("Corrupt binary data file");
+            }
+
+            // Footer
+            ByteBuffer footer = map(channel, footerOffset, size - 12 - footerOffset);
+            int rows = footer.getInt();
+            int columns = footer.getInt();
+            long[] dictionaryOffsets = new long[columns];
+            long[] dictionaryLengths = new long[columns];
+            int[] bits = new int[columns];
+            long[] codeOffsets = new long[columns];
+            this.header = new String[columns];
+            for (int column = 0; column < columns; column++) {
+                header[column] = readString(footer);
+                dictionaryOffsets[column] = footer.getLong();
+                dictionaryLengths[column] = footer.getLong();
+                bits[column] = footer.getInt();
+                codeOffsets[column] = footer.getLong();
+                if (bits[column] < 1 || bits[column] > 32) {
+                    throw new IOException("Corrupt binary data file");
+                }
+            }
+            long outliersOffset = footer.getLong();
+            long definitionOffset = footer.getLong();
+            long definitionLength = footer.getLong();
+
+            // Dictionaries
+            this.dictionaries = new String[columns][];
+            for (int column = 0; column < columns; column++) {
+                ByteBuffer buffer = map(channel, dictionaryOffsets[column], dictionaryLengths[column]);
+                String[] dictionary = new String[buffer.getInt()];
+                for (int i = 0; i < dictionary.length; i++) {
+                    dictionary[i] = readString(buffer);
+                }
+                dictionaries[column] = dictionary;
+            }
+
+            // Codes
+            this.data = new int[rows][columns];
+            for (int column = 0; column < columns; column++) {
+                readCodes(channel, codeOffsets[column], column, bits[column]);
+            }
+
+            // Outliers
+            long[] words = new long[(rows + 63) >>> 6];
+            map(channel, outliersOffset, (long) words.length * 8L).asLongBuffer().get(words);
+            this.outliers = BitSet.valueOf(words);
+
+            // Definition
+            this.definition = null;
+            if (definitionLength > 0) {
+                byte[] bytes = new byte[(int) definitionLength];
+                map(channel, definitionOffset, definitionLength).get(bytes);
+                ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+                try {
+                    this.definition = (DataDefinition) in.readObject();
+                } catch (ClassNotFoundException | ClassCastException e) {
+                    throw new IOException("Corrupt data definition", e);
+                } finally {
+                    in.close();
+                }
+            }
+
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new IOException("Corrupt binary data file", e);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Maps a section of the file
+     *
+     * @param channel
+     * @param offset
+     * @param length
+     * @return
+     * @throws IOException
+     */
+    private ByteBuffer map(FileChannel channel, long offset, long length) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Section of binary data file too large");
+        }
+        return channel.map(MapMode.READ_ONLY, offset, length);
+    }
+
+    /**
+     * Unpacks the codes of the given column
+     *
+     * @param channel
+     * @param offset
+     * @param column
+     * @param bits
+     * @throws IOException
+     */
+    private void readCodes(FileChannel channel, long offset, int column, int bits) throws IOException {
+
+        long remaining = ((long) data.length * bits + 63) >>> 6;
+        long mask = (1L << bits) - 1L;
+        LongBuffer buffer = null;
+        long current = 0L;
+        int available = 0;
+
+        for (int row = 0; row < data.length; row++) {
+            if (available >= bits) {
+                data[row][column] = (int) (current & mask);
+                current >>>= bits;
+                available -= bits;
+            } else {
+
+                // Map next window
+                if (buffer == null || !buffer.hasRemaining()) {
+                    long count = Math.min(remaining, WINDOW_SIZE);
+                    buffer = map(channel, offset, count * 8L).asLongBuffer();
+                    offset += count * 8L;
+                    remaining -= count;
+                }
+
+                // Combine with next word
+                long word = buffer.get();
+                data[row][column] = (int) ((current | (word << available)) & mask);
+                current = word >>> (bits - available);
+                available += 64 - bits;
+            }
+        }
+    }
+
+    /**
+     * Reads a string
+     *
+     * @param buffer
+     * @return
+     */
+    private String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == -1) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
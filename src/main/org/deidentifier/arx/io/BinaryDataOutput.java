@@ -0,0 +1,254 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.io;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+
+import org.deidentifier.arx.DataDefinition;
+
+/**
+ * Provides methods for writing encoded data in a binary columnar format, which can be
+ * loaded via memory mapping without any parsing. The file consists of the following sections:
+ * <ul>
+ * <li>For each column, the dictionary of distinct values</li>
+ * <li>For each column, the codes of all rows, bit-packed with the minimal number of bits</li>
+ * <li>A bitmap marking outliers</li>
+ * <li>The serialized data definition, including data types</li>
+ * <li>A footer with the header and the offsets of all sections</li>
+ * </ul>
+ * The file ends with the offset of the footer.
+ *
+ * @author Fabian Prasser
+ */
+public class BinaryDataOutput {
+
+    /** Magic number */
+    static final int         MAGIC   = 0x41525842;
+
+    /** Version */
+    static final int         VERSION = 1;
+
+    /** The file */
+    private final File       file;
+
+    /** The stream */
+    private DataOutputStream stream;
+
+    /** The current position */
+    private long             position;
+
+    /**
+     * Instantiate.
+     *
+     * @param file the file
+     */
+    public BinaryDataOutput(final File file) {
+        this.file = file;
+    }
+
+    /**
+     * Instantiate.
+     *
+     * @param path the path
+     */
+    public BinaryDataOutput(final String path) {
+        this(new File(path));
+    }
+
+    /**
+     * Writes the given encoded data.
+     *
+     * @param header the header
+     * @param dictionaries one dictionary per column, mapping codes to values
+     * @param data the encoded data, one array of codes per row
+     * @param outliers the outliers, may be null
+     * @param definition the data definition, may be null
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public void write(final String[] header,
+                      final String[][] dictionaries,
+                      final int[][] data,
+                      final BitSet outliers,
+                      final DataDefinition definition) throws IOException {
+
+        // Check
+        if (header.length != dictionaries.length) {
+            throw new IllegalArgumentException("Header and dictionaries don't match");
+        }
+
+        int columns = header.length;
+        int rows = data.length;
+        long[] dictionaryOffsets = new long[columns];
+        long[] dictionaryLengths = new long[columns];
+        int[] bits = new int[columns];
+        long[] codeOffsets = new long[columns];
+
+        this.position = 0;
+        this.stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+        try {
+
+            // Header
+            writeInt(MAGIC);
+            writeInt(VERSION);
+
+            // Dictionaries
+            for (int column = 0; column < columns; column++) {
+                dictionaryOffsets[column] = position;
+                String[] dictionary = dictionaries[column];
+                writeInt(dictionary.length);
+                for (String value : dictionary) {
+                    writeString(value);
+                }
+                dictionaryLengths[column] = position - dictionaryOffsets[column];
+            }
+
+            // Codes
+            for (int column = 0; column < columns; column++) {
+                int size = dictionaries[column].length;
+                bits[column] = size <= 1 ? 1 : 32 - Integer.numberOfLeadingZeros(size - 1);
+                codeOffsets[column] = position;
+                writeCodes(data, column, bits[column]);
+            }
+
+            // Outliers
+            long outliersOffset = position;
+            long[] words = outliers == null ? new long[0] : outliers.toLongArray();
+            int length = (rows + 63) >>> 6;
+            for (int i = 0; i < length; i++) {
+                writeLong(i < words.length ? words[i] : 0L);
+            }
+
+            // Definition
+            long definitionOffset = position;
+            byte[] serialized = new byte[0];
+            if (definition != null) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                ObjectOutputStream out = new ObjectOutputStream(bytes);
+                out.writeObject(definition);
+                out.close();
+                serialized = bytes.toByteArray();
+            }
+            writeBytes(serialized);
+            long definitionLength = serialized.length;
+
+            // Footer
+            long footerOffset = position;
+            writeInt(rows);
+            writeInt(columns);
+            for (int column = 0; column < columns; column++) {
+                writeString(header[column]);
+                writeLong(dictionaryOffsets[column]);
+                writeLong(dictionaryLengths[column]);
+                writeInt(bits[column]);
+                writeLong(codeOffsets[column]);
+            }
+            writeLong(outliersOffset);
+            writeLong(definitionOffset);
+            writeLong(definitionLength);
+            writeLong(footerOffset);
+            writeInt(MAGIC);
+
+        } finally {
+            stream.close();
+            stream = null;
+        }
+    }
+
+    /**
+     * Writes the given bytes
+     *
+     * @param bytes
+     * @throws IOException
+     */
+    private void writeBytes(byte[] bytes) throws IOException {
+        stream.write(bytes);
+        position += bytes.length;
+    }
+
+    /**
+     * Writes the codes of the given column, bit-packed into longs
+     *
+     * @param data
+     * @param column
+     * @param bits
+     * @throws IOException
+     */
+    private void writeCodes(int[][] data, int column, int bits) throws IOException {
+        long current = 0L;
+        int used = 0;
+        for (int row = 0; row < data.length; row++) {
+            long code = data[row][column];
+            current |= code << used;
+            used += bits;
+            if (used >= 64) {
+                writeLong(current);
+                used -= 64;
+                current = used == 0 ? 0L : code >>> (bits - used);
+            }
+        }
+        if (used > 0) {
+            writeLong(current);
+        }
+    }
+
+    /**
+     * Writes an int
+     *
+     * @param value
+     * @throws IOException
+     */
+    private void writeInt(int value) throws IOException {
+        stream.writeInt(value);
+        position += 4;
+    }
+
+    /**
+     * Writes a long
+     *
+     * @param value
+     * @throws IOException
+     */
+    private void writeLong(long value) throws IOException {
+        stream.writeLong(value);
+        position += 8;
+    }
+
+    /**
+     * Writes a string as its length followed by its UTF-8 encoding. Null is encoded by a length of -1.
+     *
+     * @param value
+     * @throws IOException
+     */
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeInt(bytes.length);
+            writeBytes(bytes);
+        }
+    }
+}
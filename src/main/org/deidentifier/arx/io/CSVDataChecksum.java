@@ -20,10 +20,22 @@ package org.deidentifier.arx.io;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
 import java.security.DigestOutputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.deidentifier.arx.io.CSVDataOutputEncoded.Column;
+import org.deidentifier.arx.io.CSVDataOutputEncoded.EncodedColumn;
 
 import com.univocity.parsers.csv.CsvFormat;
 import com.univocity.parsers.csv.CsvWriter;
@@ -36,9 +48,15 @@ import com.univocity.parsers.csv.CsvWriterSettings;
  */
 public class CSVDataChecksum {
 
+    /** Number of rows per chunk of a tree checksum. */
+    public static final int         CHUNK_SIZE = 1 << 16;
+
     /** Settings. */
     private final CsvWriterSettings settings;
 
+    /** Syntax. */
+    private final CSVSyntax         syntax;
+
     /**
      * Instantiate.
      *
@@ -87,6 +105,7 @@ public class CSVDataChecksum {
      */
     public CSVDataChecksum(final char delimiter, final char quote, final char escape, final char[] linebreak) {
         settings = createSettings(delimiter, quote, escape, linebreak);
+        syntax = new CSVSyntax(delimiter, quote, escape, linebreak);
     }
 
     /**
@@ -123,15 +142,143 @@ public class CSVDataChecksum {
         }
         csvwriter.close();
 
-        // Obtain digest
-        byte[] digest = md.digest();
+        // Obtain digest and convert to hex
+        return toHex(md.digest());
+    }
 
-        // And convert to hex
-        StringBuilder builder = new StringBuilder();
-        for (int i = 0; i < digest.length; i++) {
-            builder.append(Integer.toString((digest[i] & 0xff) + 0x100, 16).substring(1));
+    /**
+     * Returns SHA-256 digests for the CSV representation of consecutive chunks of {@link #CHUNK_SIZE} rows
+     * of the given dictionary encoded data. The header is part of the first chunk. Chunks are
+     * serialized directly from the encoded columns and hashed in parallel. All chunks are hashed
+     * on every call, digests are not cached.
+     * 
+     * @param header the header
+     * @param columns the columns
+     * @param rows the number of rows
+     * @param suppressed the suppressed rows, may be null
+     * @param suppressedValue the value for suppressible columns in suppressed rows
+     * @return
+     * @throws NoSuchAlgorithmException
+     */
+    public byte[][] getSHA256ChunkDigests(final String[] header,
+                                          final Column[] columns,
+                                          final int rows,
+                                          final BitSet suppressed,
+                                          final String suppressedValue) throws NoSuchAlgorithmException {
+
+        // Check
+        MessageDigest.getInstance("SHA-256");
+
+        // Prepare
+        final CSVDataOutputEncoded output = new CSVDataOutputEncoded(syntax);
+        final EncodedColumn[] encoded = output.encode(columns, suppressedValue);
+        final byte[] encodedHeader = output.encodeHeader(header);
+        final int chunks = Math.max(1, (rows + CHUNK_SIZE - 1) / CHUNK_SIZE);
+
+        // Create tasks
+        List<Callable<byte[]>> tasks = new ArrayList<Callable<byte[]>>();
+        for (int i = 0; i < chunks; i++) {
+            final int chunk = i;
+            tasks.add(new Callable<byte[]>() {
+                @Override
+                public byte[] call() throws Exception {
+                    MessageDigest md = MessageDigest.getInstance("SHA-256");
+                    md.update((byte) 0);
+                    DigestOutputStream dos = new DigestOutputStream(new OutputStream() {
+                        @Override
+                        public void write(int b) throws IOException {
+                            // Simply drop the data
+                        }
+                    }, md);
+                    output.write(Channels.newChannel(dos),
+                                 chunk == 0 ? encodedHeader : null,
+                                 encoded,
+                                 chunk * CHUNK_SIZE,
+                                 Math.min(rows, (chunk + 1) * CHUNK_SIZE),
+                                 suppressed);
+                    return md.digest();
+                }
+            });
         }
-        return builder.toString();
+
+        // Execute
+        byte[][] result = new byte[chunks][];
+        int threads = Math.min(chunks, Runtime.getRuntime().availableProcessors());
+        if (threads <= 1) {
+            try {
+                for (int i = 0; i < chunks; i++) {
+                    result[i] = tasks.get(i).call();
+                }
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        } else {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<byte[]>> futures = executor.invokeAll(tasks);
+                for (int i = 0; i < chunks; i++) {
+                    result[i] = futures.get(i).get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            } finally {
+                executor.shutdown();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a hex-encoded SHA-256 tree checksum for the given dictionary encoded data. The checksum
+     * is the root of a binary hash tree over the digests returned by
+     * {@link #getSHA256ChunkDigests(String[], Column[], int, BitSet, String)}. The checksum only depends
+     * on the CSV representation of the data, but it differs from {@link #getSHA256Checksum(Iterator)}.
+     * 
+     * @param header the header
+     * @param columns the columns
+     * @param rows the number of rows
+     * @param suppressed the suppressed rows, may be null
+     * @param suppressedValue the value for suppressible columns in suppressed rows
+     * @return
+     * @throws NoSuchAlgorithmException
+     */
+    public String getSHA256TreeChecksum(final String[] header,
+                                        final Column[] columns,
+                                        final int rows,
+                                        final BitSet suppressed,
+                                        final String suppressedValue) throws NoSuchAlgorithmException {
+        return getSHA256TreeChecksum(getSHA256ChunkDigests(header, columns, rows, suppressed, suppressedValue));
+    }
+
+    /**
+     * Returns a hex-encoded SHA-256 tree checksum for the given chunk digests. Pairs of
+     * adjacent digests are combined level by level, an odd digest is promoted unchanged.
+     * 
+     * @param digests
+     * @return
+     * @throws NoSuchAlgorithmException
+     */
+    public String getSHA256TreeChecksum(final byte[][] digests) throws NoSuchAlgorithmException {
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        byte[][] level = digests;
+        while (level.length > 1) {
+            byte[][] next = new byte[(level.length + 1) / 2][];
+            for (int i = 0; i < next.length; i++) {
+                if (2 * i + 1 < level.length) {
+                    md.update((byte) 1);
+                    md.update(level[2 * i]);
+                    md.update(level[2 * i + 1]);
+                    next[i] = md.digest();
+                } else {
+                    next[i] = level[2 * i];
+                }
+            }
+            level = next;
+        }
+        return toHex(level[0]);
     }
     
     /**
@@ -157,4 +304,18 @@ public class CSVDataChecksum {
         settings.setFormat(format);
         return settings;
     }
+
+    /**
+     * Converts the given bytes to hex
+     * 
+     * @param digest
+     * @return
+     */
+    private String toHex(byte[] digest) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < digest.length; i++) {
+            builder.append(Integer.toString((digest[i] & 0xff) + 0x100, 16).substring(1));
+        }
+        return builder.toString();
+    }
 }
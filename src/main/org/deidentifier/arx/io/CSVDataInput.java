@@ -384,6 +384,7 @@ public class CSVDataInput {
             // Next tuple
             CsvParser parser = null;
             String[] next = null;
+            DataTypeValidator validator = cleansing ? new DataTypeValidator(datatypes) : null;
             
             @Override
             public boolean hasNext() {
@@ -404,7 +405,7 @@ public class CSVDataInput {
                         throw new IllegalArgumentException("More columns available in CSV file than data types specified!");
                     }
                     for (int i = 0; i < result.length; i++) {
-                        if (!datatypes[i].isValid(result[i])) {
+                        if (!validator.isValid(i, result[i])) {
                             result[i] = DataType.NULL_VALUE;
                         }
                     }
@@ -0,0 +1,519 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+
+import org.deidentifier.arx.framework.data.Dictionary;
+
+/**
+ * This class tokenizes and encodes a range of a CSV file directly on memory-mapped bytes.
+ * Values are looked up in per-column hash tables of byte sequences, and a string is only created
+ * when a byte sequence is seen for the first time. The class mimics the behavior of the parser
+ * used by CSVDataInput: whitespace around values is ignored, empty lines are skipped and
+ * line breaks within quoted values are normalized. Input which is not well-formed is rejected with
+ * an UnsupportedInputException, in which case the range should be parsed with CSVDataInput.
+ *
+ * @author Fabian Prasser
+ */
+class CSVDataInputMapped {
+
+    /**
+     * A hash table for byte sequences
+     *
+     * @author Fabian Prasser
+     */
+    private static class ByteSequenceMap {
+
+        /** Bytes of all sequences */
+        private byte[] bytes   = new byte[1 << 10];
+        /** Number of bytes used */
+        private int    used    = 0;
+        /** Offset of each sequence */
+        private int[]  offsets = new int[16];
+        /** Length of each sequence */
+        private int[]  lengths = new int[16];
+        /** Hash code of each sequence */
+        private int[]  hashes  = new int[16];
+        /** Code of each sequence */
+        private int[]  codes   = new int[16];
+        /** Number of sequences */
+        private int    size    = 0;
+        /** Hash table, containing indices + 1 */
+        private int[]  table   = new int[32];
+
+        /**
+         * Returns the code of the given sequence, -1 if it is unknown
+         *
+         * @param buffer
+         * @param array
+         * @param offset
+         * @param length
+         * @param hash
+         * @return
+         */
+        private int get(ByteBuffer buffer, byte[] array, int offset, int length, int hash) {
+            int mask = table.length - 1;
+            int slot = hash & mask;
+            while (table[slot] != 0) {
+                int index = table[slot] - 1;
+                if (hashes[index] == hash && lengths[index] == length && equals(index, buffer, array, offset, length)) {
+                    return codes[index];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        /**
+         * Adds the given sequence, which must not be contained in the map
+         *
+         * @param buffer
+         * @param array
+         * @param offset
+         * @param length
+         * @param hash
+         * @param code
+         */
+        private void put(ByteBuffer buffer, byte[] array, int offset, int length, int hash, int code) {
+
+            // Grow
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, size << 1);
+                lengths = Arrays.copyOf(lengths, size << 1);
+                hashes = Arrays.copyOf(hashes, size << 1);
+                codes = Arrays.copyOf(codes, size << 1);
+            }
+            if (used + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length << 1, used + length));
+            }
+            if ((size + 1) << 1 > table.length) {
+                table = new int[table.length << 1];
+                for (int index = 0; index < size; index++) {
+                    insert(index);
+                }
+            }
+
+            // Store
+            for (int i = 0; i < length; i++) {
+                bytes[used + i] = array != null ? array[offset + i] : buffer.get(offset + i);
+            }
+            offsets[size] = used;
+            lengths[size] = length;
+            hashes[size] = hash;
+            codes[size] = code;
+            used += length;
+            insert(size++);
+        }
+
+        /**
+         * Compares the sequence at the given index
+         *
+         * @param index
+         * @param buffer
+         * @param array
+         * @param offset
+         * @param length
+         * @return
+         */
+        private boolean equals(int index, ByteBuffer buffer, byte[] array, int offset, int length) {
+            int start = offsets[index];
+            if (array != null) {
+                for (int i = 0; i < length; i++) {
+                    if (bytes[start + i] != array[offset + i]) {
+                        return false;
+                    }
+                }
+            } else {
+                for (int i = 0; i < length; i++) {
+                    if (bytes[start + i] != buffer.get(offset + i)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Inserts the given index into the hash table
+         *
+         * @param index
+         */
+        private void insert(int index) {
+            int mask = table.length - 1;
+            int slot = hashes[index] & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = index + 1;
+        }
+    }
+
+    /**
+     * Signals that the input cannot be tokenized by this class
+     *
+     * @author Fabian Prasser
+     */
+    static class UnsupportedInputException extends Exception {
+
+        /** SVUID */
+        private static final long serialVersionUID = -4186469522358221549L;
+    }
+
+    /** Initial size of the mapped window */
+    private static final int   WINDOW_SIZE    = 1 << 27;
+
+    /** Maximal size of the mapped window */
+    private static final int   MAX_WINDOW_SIZE = Integer.MAX_VALUE - 8;
+
+    /** Line feed */
+    private static final byte  LF             = '\n';
+
+    /** Carriage return */
+    private static final byte  CR             = '\r';
+
+    /**
+     * Returns whether files with the given charset and syntax can be tokenized by this class.
+     * The charset must encode all ASCII characters with a single byte and no other character with
+     * bytes in the ASCII range. Quotes must be escaped by doubling them, line breaks must end with
+     * a line feed and the delimiter must not be a whitespace character.
+     *
+     * @param charset
+     * @param syntax
+     * @return
+     */
+    static boolean isSupported(Charset charset, CSVSyntax syntax) {
+        String name = charset.name();
+        if (!name.equals("UTF-8") && !name.equals("US-ASCII") && !name.equals("ISO-8859-1") && !name.equals("windows-1252")) {
+            return false;
+        }
+        char[] linebreak = syntax.getLinebreak();
+        if (!Arrays.equals(linebreak, new char[] { '\n' }) && !Arrays.equals(linebreak, new char[] { '\r', '\n' })) {
+            return false;
+        }
+        char delimiter = syntax.getDelimiter();
+        char quote = syntax.getQuote();
+        return syntax.getEscape() == quote && delimiter != quote &&
+               delimiter < 128 && delimiter > ' ' &&
+               quote < 128 && quote > ' ';
+    }
+
+    /** Channel */
+    private final FileChannel       channel;
+    /** Charset */
+    private final Charset           charset;
+    /** Delimiter */
+    private final byte              delimiter;
+    /** Quote */
+    private final byte              quote;
+    /** Whether CRLF within quoted values is normalized */
+    private final boolean           normalize;
+    /** Number of columns */
+    private final int               columns;
+    /** Expected number of values per record, -1 if any number is allowed */
+    private final int               expected;
+    /** Dictionary */
+    private final Dictionary        dictionary;
+    /** Hash tables */
+    private final ByteSequenceMap[] maps;
+    /** Buffer for unescaped values */
+    private byte[]                  scratch = new byte[1 << 10];
+    /** Number of quotes encountered */
+    private long                    quotes  = 0;
+    /** Whether to skip the next record */
+    private boolean                 skip    = false;
+
+    /**
+     * Creates a new instance
+     *
+     * @param channel
+     * @param charset
+     * @param syntax
+     * @param columns
+     * @param expected
+     */
+    CSVDataInputMapped(FileChannel channel, Charset charset, CSVSyntax syntax, int columns, int expected) {
+        this.channel = channel;
+        this.charset = charset;
+        this.delimiter = (byte) syntax.getDelimiter();
+        this.quote = (byte) syntax.getQuote();
+        this.normalize = syntax.getLinebreak().length == 2;
+        this.columns = columns;
+        this.expected = expected;
+        this.dictionary = new Dictionary(columns);
+        this.maps = new ByteSequenceMap[columns];
+        for (int i = 0; i < columns; i++) {
+            this.maps[i] = new ByteSequenceMap();
+        }
+    }
+
+    /**
+     * Encodes the records in the given range, which must start at the beginning of a record.
+     * The dictionary is not finalized.
+     *
+     * @param start
+     * @param end
+     * @param skipFirst Whether to skip the first record
+     * @param rows
+     * @throws IOException
+     * @throws UnsupportedInputException
+     */
+    void encode(long start, long end, boolean skipFirst, List<int[]> rows) throws IOException, UnsupportedInputException {
+
+        long position = start;
+        int window = WINDOW_SIZE;
+        this.skip = skipFirst;
+        while (position < end) {
+
+            // Map window
+            int size = (int) Math.min(window, end - position);
+            boolean last = position + size == end;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+
+            // Parse records which are contained completely
+            int offset = 0;
+            while (offset < size) {
+                int next = parse(buffer, offset, size, last, rows);
+                if (next == -1) {
+                    break;
+                }
+                offset = next;
+            }
+
+            // Enlarge window, if a record does not fit
+            if (offset == 0) {
+                if (window == MAX_WINDOW_SIZE) {
+                    throw new IOException("Record too long");
+                }
+                window = (int) Math.min(MAX_WINDOW_SIZE, (long) window << 1);
+            }
+            position += offset;
+        }
+    }
+
+    /**
+     * Returns the dictionary
+     * @return
+     */
+    Dictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Returns the number of quote characters in the encoded records
+     * @return
+     */
+    long getQuotes() {
+        return quotes;
+    }
+
+    /**
+     * Returns the code of the given value
+     *
+     * @param column
+     * @param buffer
+     * @param array
+     * @param offset
+     * @param length
+     * @return
+     */
+    private int getCode(int column, ByteBuffer buffer, byte[] array, int offset, int length) {
+
+        // Hash
+        int hash = 1;
+        if (array != null) {
+            for (int i = 0; i < length; i++) {
+                hash = 31 * hash + array[offset + i];
+            }
+        } else {
+            for (int i = 0; i < length; i++) {
+                hash = 31 * hash + buffer.get(offset + i);
+            }
+        }
+        hash ^= (hash >>> 16);
+        hash *= 0x85ebca6b;
+        hash ^= (hash >>> 13);
+
+        // Lookup
+        ByteSequenceMap map = maps[column];
+        int code = map.get(buffer, array, offset, length, hash);
+        if (code == -1) {
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = array != null ? array[offset + i] : buffer.get(offset + i);
+            }
+            code = dictionary.register(column, new String(bytes, charset));
+            map.put(buffer, array, offset, length, hash, code);
+        }
+        return code;
+    }
+
+    /**
+     * Returns whether the given byte is whitespace, which is ignored around values
+     *
+     * @param b
+     * @return
+     */
+    private boolean isWhitespace(byte b) {
+        return b >= 0 && b <= ' ' && b != LF;
+    }
+
+    /**
+     * Parses the record starting at the given offset. Returns the offset after the record or -1,
+     * if the record is not contained completely.
+     *
+     * @param buffer
+     * @param offset
+     * @param limit
+     * @param last Whether the limit marks the end of the range
+     * @param rows
+     * @return
+     * @throws UnsupportedInputException
+     */
+    private int parse(ByteBuffer buffer, int offset, int limit, boolean last, List<int[]> rows) throws UnsupportedInputException {
+
+        int[] tuple = skip ? null : new int[columns];
+        int field = 0;
+        long quotes = 0;
+        int i = offset;
+        while (true) {
+
+            // Skip leading whitespace
+            while (i < limit && isWhitespace(buffer.get(i))) {
+                i++;
+            }
+
+            int valueOffset;
+            int valueLength;
+            byte[] array = null;
+            boolean quoted = i < limit && buffer.get(i) == quote;
+
+            if (quoted) {
+
+                // Quoted value
+                i++;
+                quotes++;
+                valueOffset = 0;
+                valueLength = 0;
+                array = scratch;
+                while (true) {
+                    if (i == limit) {
+                        if (last) {
+                            throw new UnsupportedInputException();
+                        }
+                        return -1;
+                    }
+                    byte b = buffer.get(i);
+                    if (b == quote || (b == CR && normalize)) {
+                        if (i + 1 == limit && !last) {
+                            return -1;
+                        }
+                        byte next = i + 1 < limit ? buffer.get(i + 1) : 0;
+                        if (b == quote && next != quote) {
+                            i++;
+                            quotes++;
+                            break;
+                        } else if (b == quote) {
+                            i += 2;
+                            quotes += 2;
+                        } else if (next == LF) {
+                            b = LF;
+                            i += 2;
+                        } else {
+                            i++;
+                        }
+                    } else {
+                        i++;
+                    }
+                    if (valueLength == array.length) {
+                        scratch = array = Arrays.copyOf(array, array.length << 1);
+                    }
+                    array[valueLength++] = b;
+                }
+
+                // Skip trailing whitespace
+                while (i < limit && isWhitespace(buffer.get(i))) {
+                    i++;
+                }
+                if (i == limit && !last) {
+                    return -1;
+                }
+                if (i < limit && buffer.get(i) != delimiter && buffer.get(i) != LF) {
+                    throw new UnsupportedInputException();
+                }
+
+            } else {
+
+                // Unquoted value
+                valueOffset = i;
+                while (i < limit) {
+                    byte b = buffer.get(i);
+                    if (b == delimiter || b == LF) {
+                        break;
+                    } else if (b == quote) {
+                        quotes++;
+                    }
+                    i++;
+                }
+                if (i == limit && !last) {
+                    return -1;
+                }
+                int valueEnd = i;
+                while (valueEnd > valueOffset && isWhitespace(buffer.get(valueEnd - 1))) {
+                    valueEnd--;
+                }
+                valueLength = valueEnd - valueOffset;
+            }
+
+            // Skip empty lines
+            boolean end = i == limit || buffer.get(i) == LF;
+            if (field == 0 && end && !quoted && valueLength == 0) {
+                return i == limit ? i : i + 1;
+            }
+
+            // Encode
+            if (field == columns) {
+                throw new IllegalArgumentException("More columns available in CSV file than specified in the header!");
+            }
+            if (tuple != null) {
+                tuple[field] = getCode(field, buffer, array, valueOffset, valueLength);
+            }
+            field++;
+
+            // Next value or end of record
+            if (end) {
+                if (tuple != null) {
+                    if (expected != -1 && field != expected) {
+                        throw new IllegalArgumentException("More columns available in CSV file than data types specified!");
+                    }
+                    rows.add(field == columns ? tuple : Arrays.copyOf(tuple, field));
+                }
+                this.quotes += quotes;
+                this.skip = false;
+                return i == limit ? i : i + 1;
+            }
+            i++;
+        }
+    }
+}
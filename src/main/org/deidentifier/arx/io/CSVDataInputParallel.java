@@ -0,0 +1,629 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.poi.ss.formula.functions.T;
+import org.deidentifier.arx.DataType;
+import org.deidentifier.arx.framework.data.Dictionary;
+
+/**
+ * This class implements a reader for CSV encoded information, which parses and encodes
+ * a file with multiple threads. The file is split into byte ranges at line breaks, each range
+ * is parsed and encoded with a local dictionary, and the resulting codes are mapped to a
+ * global dictionary afterwards. Codes are assigned in the order in which values appear in
+ * the file, meaning that the result is identical to sequential parsing.<br>
+ * <br>
+ * Splitting is only possible for charsets in which the syntactic characters are encoded with
+ * single bytes (e.g. ASCII, ISO-8859-1 or UTF-8) and if quotes are escaped by doubling them.
+ * Line breaks inside of quoted values are detected after parsing, in which case the file is
+ * parsed again with a single thread. As a chunk may start inside of a quoted value, errors
+ * are not reported for individual chunks, but by parsing the file again with a single thread.<br>
+ * <br>
+ * For common charsets and syntaxes, the chunks are tokenized directly on memory-mapped bytes,
+ * which means that strings are only created for distinct values.
+ *
+ * @author Fabian Prasser
+ */
+public class CSVDataInputParallel {
+
+    /**
+     * A chunk of the file
+     *
+     * @author Fabian Prasser
+     */
+    private static class Chunk {
+
+        /** Offset of the first byte */
+        private final long       start;
+        /** Offset after the last byte */
+        private final long       end;
+        /** Rows */
+        private final List<int[]> rows   = new ArrayList<int[]>();
+        /** Dictionary */
+        private Dictionary       dictionary;
+        /** Number of quote characters */
+        private long             quotes = 0;
+        /** Whether parsing failed */
+        private boolean          failed = false;
+
+        /**
+         * Creates a new instance
+         * @param start
+         * @param end
+         */
+        private Chunk(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * An input stream for a range of a file, which counts the quote characters in the range
+     *
+     * @author Fabian Prasser
+     */
+    private static class RangeInputStream extends InputStream {
+
+        /** Size of the buffer */
+        private static final int  BUFFER_SIZE = 1 << 20;
+
+        /** Channel */
+        private final FileChannel channel;
+        /** Chunk */
+        private final Chunk       chunk;
+        /** Quote */
+        private final byte        quote;
+        /** Buffer */
+        private final ByteBuffer  buffer;
+        /** Position in the file */
+        private long              position;
+
+        /**
+         * Creates a new instance
+         * @param channel
+         * @param chunk
+         * @param quote
+         */
+        private RangeInputStream(FileChannel channel, Chunk chunk, byte quote) {
+            this.channel = channel;
+            this.chunk = chunk;
+            this.quote = quote;
+            this.position = chunk.start;
+            this.buffer = ByteBuffer.allocate((int) Math.min(BUFFER_SIZE, Math.max(1L, chunk.end - chunk.start)));
+            this.buffer.flip();
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return buffer.get() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            len = Math.min(len, buffer.remaining());
+            buffer.get(b, off, len);
+            return len;
+        }
+
+        /**
+         * Fills the buffer, if required. Returns false, if the end of the range has been reached
+         * @return
+         * @throws IOException
+         */
+        private boolean fill() throws IOException {
+            if (buffer.hasRemaining()) {
+                return true;
+            }
+            if (position >= chunk.end) {
+                return false;
+            }
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), chunk.end - position));
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position + buffer.position());
+                if (read < 0) {
+                    throw new IOException("Unexpected end of file");
+                }
+            }
+            buffer.flip();
+            position += buffer.limit();
+
+            // Count quotes
+            byte[] array = buffer.array();
+            long quotes = 0;
+            for (int i = 0; i < buffer.limit(); i++) {
+                if (array[i] == quote) {
+                    quotes++;
+                }
+            }
+            chunk.quotes += quotes;
+            return true;
+        }
+    }
+
+    /** Minimal size of a chunk in bytes */
+    private static final long MIN_CHUNK_SIZE    = 1L << 16;
+
+    /** Number of chunks per thread, for load balancing */
+    private static final int  CHUNKS_PER_THREAD = 4;
+
+    /** File */
+    private final File          file;
+
+    /** Charset */
+    private final Charset       charset;
+
+    /** Syntax */
+    private final CSVSyntax     syntax;
+
+    /** The data type for each column, used for cleansing */
+    private final DataType<T>[] datatypes;
+
+    /** Number of threads */
+    private final int           threads;
+
+    /** Header */
+    private String[]            header;
+
+    /** Encoded data */
+    private int[][]             data;
+
+    /** Dictionary */
+    private Dictionary          dictionary;
+
+    /**
+     * Instantiate.
+     *
+     * @param file the file
+     * @param charset the charset
+     * @param config the config
+     * @param threads the number of threads
+     */
+    public CSVDataInputParallel(final File file, final Charset charset, final CSVSyntax config, final int threads) {
+        this(file, charset, config, null, threads);
+    }
+
+    /**
+     * Instantiate.
+     *
+     * @param file the file
+     * @param charset the charset
+     * @param config the config
+     * @param datatypes the datatypes, values not matching the type will be replaced by DataType.NULL_VALUE
+     * @param threads the number of threads
+     */
+    public CSVDataInputParallel(final File file, final Charset charset, final CSVSyntax config, final DataType<T>[] datatypes, final int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive");
+        }
+        this.file = file;
+        this.charset = charset;
+        this.syntax = config;
+        this.datatypes = datatypes;
+        this.threads = threads;
+    }
+
+    /**
+     * Returns the encoded data, excluding the header. Finalized values are available from the dictionary.
+     *
+     * @return
+     */
+    public int[][] getData() {
+        return data;
+    }
+
+    /**
+     * Returns the dictionary
+     *
+     * @return
+     */
+    public Dictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Returns the header
+     *
+     * @return
+     */
+    public String[] getHeader() {
+        return header;
+    }
+
+    /**
+     * Reads and encodes the file
+     *
+     * @throws IOException
+     */
+    public void read() throws IOException {
+
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+        try {
+            FileChannel channel = input.getChannel();
+
+            // Parse header
+            Chunk all = new Chunk(0, channel.size());
+            Iterator<String[]> iterator = getIterator(channel, all);
+            if (!iterator.hasNext()) {
+                throw new IllegalArgumentException("Data object is empty!");
+            }
+            this.header = iterator.next();
+
+            // Parse in parallel, if possible
+            List<Chunk> chunks = null;
+            if (executor != null && isSplittable()) {
+                chunks = getChunks(channel);
+                parse(channel, chunks, executor, true);
+                if (!isValid(chunks)) {
+                    chunks = null;
+                }
+            }
+
+            // Parse sequentially, otherwise
+            if (chunks == null) {
+                chunks = new ArrayList<Chunk>();
+                chunks.add(new Chunk(0, channel.size()));
+                parse(channel, chunks, null, false);
+            }
+
+            // Merge
+            merge(chunks, executor);
+
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+            }
+            input.close();
+        }
+    }
+
+    /**
+     * Encodes the given chunk
+     *
+     * @param channel
+     * @param chunk
+     * @throws IOException
+     */
+    private void encode(FileChannel channel, Chunk chunk) throws IOException {
+
+        // Tokenize directly on mapped bytes, if possible
+        if (CSVDataInputMapped.isSupported(charset, syntax)) {
+            CSVDataInputMapped input = new CSVDataInputMapped(channel, charset, syntax, header.length, datatypes == null ? -1 : datatypes.length);
+            try {
+                input.encode(chunk.start, chunk.end, chunk.start == 0, chunk.rows);
+                input.getDictionary().finalizeAll();
+                chunk.dictionary = input.getDictionary();
+                chunk.quotes = input.getQuotes();
+                return;
+            } catch (CSVDataInputMapped.UnsupportedInputException e) {
+                chunk.rows.clear();
+            }
+        }
+
+        Dictionary dictionary = new Dictionary(header.length);
+        Iterator<String[]> iterator = getIterator(channel, chunk);
+
+        // Skip header
+        if (chunk.start == 0 && iterator.hasNext()) {
+            iterator.next();
+        }
+
+        // Encode
+        while (iterator.hasNext()) {
+            String[] strings = iterator.next();
+            if (datatypes != null && strings.length != datatypes.length) {
+                throw new IllegalArgumentException("More columns available in CSV file than data types specified!");
+            }
+            if (strings.length > header.length) {
+                throw new IllegalArgumentException("More columns available in CSV file than specified in the header!");
+            }
+            final int[] tuple = new int[strings.length];
+            for (int i = 0; i < strings.length; i++) {
+                tuple[i] = dictionary.register(i, strings[i]);
+            }
+            chunk.rows.add(tuple);
+        }
+
+        // Finalize
+        dictionary.finalizeAll();
+        chunk.dictionary = dictionary;
+    }
+
+    /**
+     * Splits the file into chunks at line breaks
+     *
+     * @param channel
+     * @return
+     * @throws IOException
+     */
+    private List<Chunk> getChunks(FileChannel channel) throws IOException {
+
+        long size = channel.size();
+        long chunkSize = Math.max(MIN_CHUNK_SIZE, size / (threads * CHUNKS_PER_THREAD) + 1);
+        byte linebreak = (byte) syntax.getLinebreak()[syntax.getLinebreak().length - 1];
+
+        // Find boundaries
+        List<Long> boundaries = new ArrayList<Long>();
+        boundaries.add(0L);
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 12);
+        long offset = chunkSize - 1;
+        while (offset < size) {
+
+            // Find next line break
+            long boundary = -1;
+            while (boundary == -1 && offset < size) {
+                buffer.clear();
+                int read = channel.read(buffer, offset);
+                if (read <= 0) {
+                    break;
+                }
+                for (int i = 0; i < read; i++) {
+                    if (buffer.get(i) == linebreak) {
+                        boundary = offset + i + 1;
+                        break;
+                    }
+                }
+                offset += read;
+            }
+            if (boundary == -1 || boundary >= size) {
+                break;
+            }
+            boundaries.add(boundary);
+            offset = Math.max(boundary, boundaries.size() * chunkSize) - 1;
+        }
+        boundaries.add(size);
+
+        // Create chunks
+        List<Chunk> chunks = new ArrayList<Chunk>();
+        for (int i = 0; i < boundaries.size() - 1; i++) {
+            chunks.add(new Chunk(boundaries.get(i), boundaries.get(i + 1)));
+        }
+        return chunks;
+    }
+
+    /**
+     * Returns an iterator over the given chunk
+     * @param channel
+     * @param chunk
+     * @return
+     * @throws IOException
+     */
+    private Iterator<String[]> getIterator(FileChannel channel, Chunk chunk) throws IOException {
+        byte quote = (byte) syntax.getQuote();
+        return new CSVDataInput(new InputStreamReader(new RangeInputStream(channel, chunk, quote), charset),
+                                syntax.getDelimiter(),
+                                syntax.getQuote(),
+                                syntax.getEscape(),
+                                syntax.getLinebreak(),
+                                null).iterator();
+    }
+
+    /**
+     * Returns whether the file can be split at line breaks
+     * @return
+     */
+    private boolean isSplittable() {
+        if (syntax.getEscape() != syntax.getQuote()) {
+            return false;
+        }
+        List<Character> characters = new ArrayList<Character>();
+        characters.add(syntax.getDelimiter());
+        characters.add(syntax.getQuote());
+        for (char c : syntax.getLinebreak()) {
+            characters.add(c);
+        }
+        for (char c : characters) {
+            if (c > 127 || !Arrays.equals(String.valueOf(c).getBytes(charset), new byte[] { (byte) c })) {
+                return false;
+            }
+        }
+        try {
+            return charset.newEncoder().maxBytesPerChar() == 1f || charset.name().equals("UTF-8");
+        } catch (UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Checks whether all chunks have been parsed and start outside of quoted values. The latter is the case if the
+     * number of quotes before the start of each chunk is even, as quotes are escaped by doubling them.
+     *
+     * @param chunks
+     * @return
+     */
+    private boolean isValid(List<Chunk> chunks) {
+        long quotes = 0;
+        for (Chunk chunk : chunks) {
+            if (chunk.failed || quotes % 2 != 0) {
+                return false;
+            }
+            quotes += chunk.quotes;
+        }
+        return true;
+    }
+
+    /**
+     * Merges the chunks into the global dictionary and data array
+     * @param chunks
+     * @param executor
+     * @throws IOException
+     */
+    private void merge(final List<Chunk> chunks, ExecutorService executor) throws IOException {
+
+        // Prepare
+        this.dictionary = new Dictionary(header.length);
+        final int[][][] mappings = new int[chunks.size()][header.length][];
+        final String[][][] locals = new String[chunks.size()][][];
+        final int[] offsets = new int[chunks.size()];
+        final DataTypeValidator validator = datatypes == null ? null : new DataTypeValidator(datatypes);
+        int rows = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            Chunk chunk = chunks.get(i);
+            locals[i] = chunk.dictionary.getMapping();
+            chunk.dictionary = null;
+            offsets[i] = rows;
+            rows += chunk.rows.size();
+        }
+
+        // Build global dictionary in the order of chunks, which preserves the order of first appearance.
+        // Columns are independent of each other and are thus merged and cleansed in parallel.
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int i = 0; i < header.length; i++) {
+            final int column = i;
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    for (int chunk = 0; chunk < locals.length; chunk++) {
+                        String[] local = locals[chunk][column];
+                        int[] mapping = new int[local.length];
+                        for (int code = 0; code < local.length; code++) {
+                            String value = local[code];
+                            if (validator != null && !validator.isValid(column, value)) {
+                                value = DataType.NULL_VALUE;
+                            }
+                            mapping[code] = dictionary.register(column, value);
+                        }
+                        mappings[chunk][column] = mapping;
+                    }
+                    return null;
+                }
+            });
+        }
+        execute(tasks, executor);
+        this.dictionary.finalizeAll();
+
+        // Remap codes and store
+        this.data = new int[rows][];
+        tasks = new ArrayList<Callable<Void>>();
+        for (int i = 0; i < chunks.size(); i++) {
+            final int index = i;
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    Chunk chunk = chunks.get(index);
+                    int[][] mapping = mappings[index];
+                    int offset = offsets[index];
+                    for (int[] tuple : chunk.rows) {
+                        for (int column = 0; column < tuple.length; column++) {
+                            tuple[column] = mapping[column][tuple[column]];
+                        }
+                        // Missing values are padded with zeros, as in DataHandleInput
+                        data[offset++] = tuple.length == header.length ? tuple : Arrays.copyOf(tuple, header.length);
+                    }
+                    chunk.rows.clear();
+                    return null;
+                }
+            });
+        }
+        execute(tasks, executor);
+    }
+
+    /**
+     * Parses and encodes all chunks
+     * @param channel
+     * @param chunks
+     * @param executor
+     * @param defer Whether errors are only recorded in the chunks, as they may start inside of quoted values
+     * @throws IOException
+     */
+    private void parse(final FileChannel channel, List<Chunk> chunks, ExecutorService executor, final boolean defer) throws IOException {
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (final Chunk chunk : chunks) {
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    try {
+                        encode(channel, chunk);
+                    } catch (IllegalArgumentException | IOException e) {
+                        if (!defer) {
+                            throw e;
+                        }
+                        chunk.failed = true;
+                        chunk.rows.clear();
+                        chunk.dictionary = null;
+                    }
+                    return null;
+                }
+            });
+        }
+        execute(tasks, executor);
+    }
+
+    /**
+     * Executes the given tasks
+     * @param tasks
+     * @param executor
+     * @throws IOException
+     */
+    private void execute(List<Callable<Void>> tasks, ExecutorService executor) throws IOException {
+        try {
+            if (executor == null) {
+                for (Callable<Void> task : tasks) {
+                    task.call();
+                }
+            } else {
+                for (Future<Void> future : executor.invokeAll(tasks)) {
+                    future.get();
+                }
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else {
+                throw new IOException(cause);
+            }
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+}
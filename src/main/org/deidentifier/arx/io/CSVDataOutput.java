@@ -324,7 +324,7 @@ public class CSVDataOutput {
      * @param linebreak the linebreak
      * @return the csv writer settings
      */
-    private CsvWriterSettings createSettings(final char delimiter, final char quote, final char escape, final char[] linebreak) {
+    static CsvWriterSettings createSettings(final char delimiter, final char quote, final char escape, final char[] linebreak) {
         CsvFormat format = new CsvFormat();
         format.setDelimiter(delimiter);
         format.setQuote(quote);
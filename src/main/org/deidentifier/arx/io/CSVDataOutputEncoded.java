@@ -0,0 +1,474 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.univocity.parsers.csv.CsvWriter;
+import com.univocity.parsers.csv.CsvWriterSettings;
+
+/**
+ * Provides methods for writing dictionary encoded data as CSV. Each distinct value
+ * is escaped and encoded only once, rows are assembled from the pre-encoded bytes
+ * in a large buffer. The output is identical to the output of {@link CSVDataOutput}.
+ * Data can also be split into multiple part-files, which are written in parallel.
+ *
+ * @author Fabian Prasser
+ */
+public class CSVDataOutputEncoded {
+
+    /**
+     * A column of dictionary encoded data
+     *
+     * @author Fabian Prasser
+     */
+    public static class Column {
+
+        /** The dictionary */
+        private final String[] dictionary;
+
+        /** The data, null if the column is constant */
+        private final int[][]  data;
+
+        /** The index of the column in the data */
+        private final int      index;
+
+        /** Mask applied to codes */
+        private final int      mask;
+
+        /** Whether values are replaced in suppressed rows */
+        private final boolean  suppressible;
+
+        /**
+         * Creates a new column
+         *
+         * @param dictionary the dictionary, mapping codes to values
+         * @param data the data, one array of codes per row
+         * @param index the index of the column within the rows
+         * @param mask a mask to apply to codes
+         * @param suppressible whether values are to be replaced in suppressed rows
+         */
+        public Column(String[] dictionary, int[][] data, int index, int mask, boolean suppressible) {
+            this.dictionary = dictionary;
+            this.data = data;
+            this.index = index;
+            this.mask = mask;
+            this.suppressible = suppressible;
+        }
+
+        /**
+         * Creates a new constant column
+         *
+         * @param value the value
+         */
+        public Column(String value) {
+            this(new String[] { value }, null, 0, 0, false);
+        }
+
+        /**
+         * Returns the code of the value in the given row
+         *
+         * @param row the row
+         * @return the index of the value in the dictionary
+         */
+        public int getCode(int row) {
+            return data == null ? 0 : data[row][index] & mask;
+        }
+
+        /**
+         * Returns the dictionary
+         *
+         * @return the dictionary, mapping codes to values
+         */
+        public String[] getDictionary() {
+            return dictionary;
+        }
+
+        /**
+         * Returns whether values are replaced in suppressed rows
+         *
+         * @return whether the column is suppressible
+         */
+        public boolean isSuppressible() {
+            return suppressible;
+        }
+    }
+
+    /**
+     * A column, encoded for output
+     *
+     * @author Fabian Prasser
+     */
+    static class EncodedColumn {
+
+        /** Encoded values */
+        private byte[][] values;
+
+        /** Encoded suppressed value, null if not suppressible */
+        private byte[]   suppressed;
+
+        /** The data, null if the column is constant */
+        private int[][]  data;
+
+        /** The index of the column in the data */
+        private int      index;
+
+        /** Mask applied to codes */
+        private int      mask;
+    }
+
+    /** Size of the output buffer */
+    private static final int        BUFFER_SIZE = 1 << 22;
+
+    /** Settings */
+    private final CsvWriterSettings settings;
+
+    /** Syntax */
+    private final CSVSyntax         syntax;
+
+    /** Charset */
+    private final Charset           charset;
+
+    /**
+     * Instantiate, using the platform's default charset.
+     *
+     * @param config the config
+     */
+    public CSVDataOutputEncoded(final CSVSyntax config) {
+        this(config, Charset.defaultCharset());
+    }
+
+    /**
+     * Instantiate.
+     *
+     * @param config the config
+     * @param charset the charset
+     */
+    public CSVDataOutputEncoded(final CSVSyntax config, final Charset charset) {
+        this.syntax = config;
+        this.charset = charset;
+        this.settings = CSVDataOutput.createSettings(config.getDelimiter(), config.getQuote(), config.getEscape(), config.getLinebreak());
+    }
+
+    /**
+     * Writes the data into the given files in parallel. Rows are distributed evenly,
+     * the header is written into the first file only. Concatenating the files
+     * results in the same output as writing all data into one file.
+     *
+     * @param files the files
+     * @param header the header
+     * @param columns the columns
+     * @param rows the number of rows
+     * @param suppressed the suppressed rows, may be null
+     * @param suppressedValue the value written for suppressible columns in suppressed rows
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public void write(final File[] files,
+                      final String[] header,
+                      final Column[] columns,
+                      final int rows,
+                      final BitSet suppressed,
+                      final String suppressedValue) throws IOException {
+
+        final EncodedColumn[] encoded = encode(columns, suppressedValue);
+        final byte[] encodedHeader = encodeHeader(header);
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int i = 0; i < files.length; i++) {
+            final File file = files[i];
+            final int part = i;
+            final int from = (int) ((long) rows * i / files.length);
+            final int to = (int) ((long) rows * (i + 1) / files.length);
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws IOException {
+                    FileOutputStream out = new FileOutputStream(file);
+                    try {
+                        write(out.getChannel(), part == 0 ? encodedHeader : null, encoded, from, to, suppressed);
+                    } finally {
+                        out.close();
+                    }
+                    return null;
+                }
+            });
+        }
+
+        ExecutorService executor = files.length > 1 ? Executors.newFixedThreadPool(Math.min(files.length, Runtime.getRuntime().availableProcessors())) : null;
+        try {
+            execute(tasks, executor);
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Writes the data into the given file.
+     *
+     * @param file the file
+     * @param header the header
+     * @param columns the columns
+     * @param rows the number of rows
+     * @param suppressed the suppressed rows, may be null
+     * @param suppressedValue the value written for suppressible columns in suppressed rows
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public void write(final File file,
+                      final String[] header,
+                      final Column[] columns,
+                      final int rows,
+                      final BitSet suppressed,
+                      final String suppressedValue) throws IOException {
+        write(new File[] { file }, header, columns, rows, suppressed, suppressedValue);
+    }
+
+    /**
+     * Writes the data into the given stream. The stream will be flushed but not closed.
+     *
+     * @param out the stream
+     * @param header the header
+     * @param columns the columns
+     * @param rows the number of rows
+     * @param suppressed the suppressed rows, may be null
+     * @param suppressedValue the value written for suppressible columns in suppressed rows
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public void write(final OutputStream out,
+                      final String[] header,
+                      final Column[] columns,
+                      final int rows,
+                      final BitSet suppressed,
+                      final String suppressedValue) throws IOException {
+        write(Channels.newChannel(out), encodeHeader(header), encode(columns, suppressedValue), 0, rows, suppressed);
+        out.flush();
+    }
+
+    /**
+     * Encodes the given columns
+     *
+     * @param columns
+     * @param suppressedValue
+     * @return
+     */
+    EncodedColumn[] encode(Column[] columns, String suppressedValue) {
+        EncodedColumn[] result = new EncodedColumn[columns.length];
+        byte[] suppressed = toBytes(escape(new String[] { suppressedValue })[0]);
+        for (int i = 0; i < columns.length; i++) {
+            Column column = columns[i];
+            EncodedColumn encoded = new EncodedColumn();
+            String[] values = escape(column.dictionary);
+            encoded.values = new byte[values.length][];
+            for (int j = 0; j < values.length; j++) {
+                encoded.values[j] = toBytes(values[j]);
+            }
+            encoded.suppressed = column.suppressible ? suppressed : null;
+            encoded.data = column.data;
+            encoded.index = column.index;
+            encoded.mask = column.mask;
+            result[i] = encoded;
+        }
+        return result;
+    }
+
+    /**
+     * Encodes the header, including the line break
+     *
+     * @param header
+     * @return
+     */
+    byte[] encodeHeader(String[] header) {
+        String[] values = escape(header);
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i != 0) {
+                builder.append(syntax.getDelimiter());
+            }
+            builder.append(values[i]);
+        }
+        builder.append(syntax.getLinebreak());
+        return toBytes(builder.toString());
+    }
+
+    /**
+     * Escapes the given values as the CSV writer would do
+     *
+     * @param values
+     * @return
+     */
+    private String[] escape(String[] values) {
+        StringWriter writer = new StringWriter();
+        CsvWriter csvwriter = new CsvWriter(writer, settings);
+        String[] result = new String[values.length];
+        int linebreak = syntax.getLinebreak().length;
+        for (int i = 0; i < values.length; i++) {
+            csvwriter.writeRow(new Object[] { values[i] == null ? "" : values[i] });
+            csvwriter.flush();
+            String value = writer.toString();
+            result[i] = value.substring(0, value.length() - linebreak);
+            writer.getBuffer().setLength(0);
+        }
+        csvwriter.close();
+        return result;
+    }
+
+    /**
+     * Executes the given tasks
+     * @param tasks
+     * @param executor
+     * @throws IOException
+     */
+    private void execute(List<Callable<Void>> tasks, ExecutorService executor) throws IOException {
+        try {
+            if (executor == null) {
+                for (Callable<Void> task : tasks) {
+                    task.call();
+                }
+            } else {
+                for (Future<Void> future : executor.invokeAll(tasks)) {
+                    future.get();
+                }
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else {
+                throw new IOException(cause);
+            }
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Flushes the buffer into the channel
+     *
+     * @param channel
+     * @param buffer
+     * @throws IOException
+     */
+    private void flush(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Appends the given bytes to the buffer, flushing if required
+     *
+     * @param channel
+     * @param buffer
+     * @param bytes
+     * @throws IOException
+     */
+    private void put(WritableByteChannel channel, ByteBuffer buffer, byte[] bytes) throws IOException {
+        if (buffer.remaining() < bytes.length) {
+            flush(channel, buffer);
+            if (bytes.length > buffer.capacity()) {
+                ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+                while (wrapped.hasRemaining()) {
+                    channel.write(wrapped);
+                }
+                return;
+            }
+        }
+        buffer.put(bytes);
+    }
+
+    /**
+     * Encodes the given string
+     *
+     * @param value
+     * @return
+     */
+    private byte[] toBytes(String value) {
+        return value.getBytes(charset);
+    }
+
+    /**
+     * Writes the given range of rows
+     *
+     * @param channel
+     * @param header the encoded header, null if it should not be written
+     * @param columns
+     * @param from
+     * @param to
+     * @param suppressed
+     * @throws IOException
+     */
+    void write(WritableByteChannel channel,
+                       byte[] header,
+                       EncodedColumn[] columns,
+                       int from,
+                       int to,
+                       BitSet suppressed) throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        byte[] delimiter = toBytes(String.valueOf(syntax.getDelimiter()));
+        byte[] linebreak = toBytes(String.valueOf(syntax.getLinebreak()));
+
+        // Header
+        if (header != null) {
+            put(channel, buffer, header);
+        }
+
+        // Rows
+        for (int row = from; row < to; row++) {
+            boolean outlier = suppressed != null && suppressed.get(row);
+            for (int i = 0; i < columns.length; i++) {
+                if (i != 0) {
+                    put(channel, buffer, delimiter);
+                }
+                EncodedColumn column = columns[i];
+                if (outlier && column.suppressed != null) {
+                    put(channel, buffer, column.suppressed);
+                } else if (column.data == null) {
+                    put(channel, buffer, column.values[0]);
+                } else {
+                    put(channel, buffer, column.values[column.data[row][column.index] & column.mask]);
+                }
+            }
+            put(channel, buffer, linebreak);
+        }
+        flush(channel, buffer);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.io;
+
+import org.deidentifier.arx.DataType;
+import org.deidentifier.arx.DataType.ARXString;
+
+import com.carrotsearch.hppc.ObjectByteOpenHashMap;
+
+/**
+ * Validates values against the data types of columns. The result is cached for each
+ * distinct value, so that each value is only parsed once per column. Instances are
+ * not thread-safe, but different columns may be validated concurrently.
+ *
+ * @author Fabian Prasser
+ */
+class DataTypeValidator {
+
+    /** Maximal number of results cached per column */
+    private static final int                       MAX_CACHE_SIZE = 1 << 16;
+
+    /** Result */
+    private static final byte                      VALID          = 1;
+
+    /** Result */
+    private static final byte                      INVALID        = 2;
+
+    /** The data types */
+    private final DataType<?>[]                    types;
+
+    /** The cached results per column */
+    private final ObjectByteOpenHashMap<String>[] caches;
+
+    /**
+     * Creates a new instance
+     *
+     * @param types
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    DataTypeValidator(DataType<?>[] types) {
+        this.types = types;
+        this.caches = new ObjectByteOpenHashMap[types.length];
+        for (int i = 0; i < types.length; i++) {
+            this.caches[i] = new ObjectByteOpenHashMap<String>();
+        }
+    }
+
+    /**
+     * Returns whether the value is valid for the data type of the given column
+     *
+     * @param column
+     * @param value
+     * @return
+     */
+    boolean isValid(int column, String value) {
+
+        // Trivial cases
+        DataType<?> type = types[column];
+        if (value == null) {
+            return type.isValid(value);
+        } else if (type instanceof ARXString) {
+            return true;
+        }
+
+        // Lookup
+        ObjectByteOpenHashMap<String> cache = caches[column];
+        byte result = cache.get(value);
+        if (result == 0) {
+            result = type.isValid(value) ? VALID : INVALID;
+            if (cache.size() < MAX_CACHE_SIZE) {
+                cache.put(value, result);
+            }
+        }
+        return result == VALID;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.io;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Base class for streaming readers of Excel sheets. Rows are returned in the order in which
+ * they are stored. Each row contains the values of all cells up to the last cell defined,
+ * converted to strings as by setting the type of the cell to string. Missing cells are
+ * represented by empty strings.
+ *
+ * @author Fabian Prasser
+ */
+abstract class ExcelDataInput implements Iterator<String[]> {
+
+    /** Next row */
+    private String[]           next;
+
+    /** Whether the end has been reached */
+    private boolean            done  = false;
+
+    /** Values of the row currently being read */
+    private final List<String> cells = new ArrayList<String>();
+
+    /**
+     * Closes the underlying file
+     */
+    public abstract void close();
+
+    /**
+     * Returns the number of rows in the sheet, as stored in the file. May be an estimate.
+     *
+     * @return
+     */
+    public abstract int getNumRows();
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !done) {
+            try {
+                next = read();
+            } catch (IOException e) {
+                close();
+                throw new RuntimeException("Error while reading Excel file: " + e.getMessage(), e);
+            }
+            if (next == null) {
+                done = true;
+                close();
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public String[] next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String[] result = next;
+        next = null;
+        return result;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Finishes the row currently being read
+     *
+     * @return
+     */
+    protected String[] finishRow() {
+        String[] result = new String[cells.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = cells.get(i) == null ? "" : cells.get(i);
+        }
+        cells.clear();
+        return result;
+    }
+
+    /**
+     * Reads the next row, returns null if there is none
+     *
+     * @return
+     * @throws IOException
+     */
+    protected abstract String[] read() throws IOException;
+
+    /**
+     * Sets the value of a cell in the row currently being read
+     *
+     * @param column
+     * @param value
+     */
+    protected void setCell(int column, String value) {
+        while (cells.size() <= column) {
+            cells.add(null);
+        }
+        cells.set(column, value);
+    }
+}
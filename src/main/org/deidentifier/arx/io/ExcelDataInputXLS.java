@@ -0,0 +1,295 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.TreeSet;
+
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BlankRecord;
+import org.apache.poi.hssf.record.BoolErrRecord;
+import org.apache.poi.hssf.record.CellValueRecordInterface;
+import org.apache.poi.hssf.record.DimensionsRecord;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.MulBlankRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.RecordFactoryInputStream;
+import org.apache.poi.hssf.record.RowRecord;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.hssf.record.StringRecord;
+import org.apache.poi.hssf.usermodel.HSSFErrorConstants;
+import org.apache.poi.poifs.filesystem.DirectoryNode;
+import org.apache.poi.poifs.filesystem.NPOIFSFileSystem;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.util.NumberToTextConverter;
+
+/**
+ * Streaming reader for sheets of XLS files, which pulls records from the workbook stream.
+ * Only the shared strings table is kept in memory.
+ *
+ * @author Fabian Prasser
+ */
+class ExcelDataInputXLS extends ExcelDataInput {
+
+    /** Names of the workbook stream */
+    private static final String[]    WORKBOOK_NAMES = { "Workbook", "WORKBOOK", "BOOK" };
+
+    /** File system */
+    private final NPOIFSFileSystem   filesystem;
+
+    /** Stream */
+    private final InputStream        stream;
+
+    /** Records */
+    private RecordFactoryInputStream records;
+
+    /** Shared strings */
+    private SSTRecord                strings;
+
+    /** Number of rows */
+    private int                      rows           = 0;
+
+    /** Rows which have been defined, but not returned, yet */
+    private final TreeSet<Integer>   pending        = new TreeSet<Integer>();
+
+    /** Completed rows */
+    private final Deque<String[]>    completed      = new ArrayDeque<String[]>();
+
+    /** Row currently being read, -1 if none */
+    private int                      current        = -1;
+
+    /** Last row which has been completed */
+    private int                      last           = -1;
+
+    /** Formula waiting for its cached string result */
+    private FormulaRecord            formula;
+
+    /** Whether the end of the sheet has been reached */
+    private boolean                  end            = false;
+
+    /**
+     * Creates a new instance
+     *
+     * @param file
+     * @param sheet
+     * @throws IOException
+     */
+    ExcelDataInputXLS(String file, int sheet) throws IOException {
+
+        // Open workbook stream
+        this.filesystem = new NPOIFSFileSystem(new File(file), true);
+        DirectoryNode root = filesystem.getRoot();
+        String name = null;
+        for (String candidate : WORKBOOK_NAMES) {
+            if (root.hasEntry(candidate)) {
+                name = candidate;
+                break;
+            }
+        }
+        if (name == null) {
+            filesystem.close();
+            throw new IOException("File does not contain a workbook");
+        }
+        this.stream = root.createDocumentInputStream(name);
+        this.records = new RecordFactoryInputStream(stream, false);
+
+        // Read globals and skip to the sheet
+        try {
+            int depth = 0;
+            int substream = -1;
+            while (true) {
+                Record record = records.nextRecord();
+                if (record == null) {
+                    throw new IOException("Sheet " + sheet + " not found");
+                } else if (record instanceof BOFRecord) {
+                    if (depth++ == 0) {
+                        substream++;
+                        if (substream == sheet + 1) {
+                            break;
+                        }
+                    }
+                } else if (record instanceof EOFRecord) {
+                    depth--;
+                } else if (record instanceof SSTRecord) {
+                    strings = (SSTRecord) record;
+                }
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        } catch (RuntimeException e) {
+            close();
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            stream.close();
+        } catch (Exception e) {
+            /* Ignore silently */
+        }
+        try {
+            filesystem.close();
+        } catch (Exception e) {
+            /* Ignore silently */
+        }
+    }
+
+    @Override
+    public int getNumRows() {
+        return rows;
+    }
+
+    /**
+     * Completes the current row and all pending rows before it
+     *
+     * @param row
+     */
+    private void complete(int row) {
+        while (true) {
+            int empty = pending.isEmpty() ? Integer.MAX_VALUE : pending.first();
+            if (current != -1 && current < row && current <= empty) {
+                pending.remove(current);
+                completed.add(finishRow());
+                last = current;
+                current = -1;
+            } else if (empty < row) {
+                pending.pollFirst();
+                if (empty > last) {
+                    completed.add(new String[0]);
+                    last = empty;
+                }
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the string representation of a cached formula result
+     *
+     * @param record
+     * @param string
+     * @return
+     */
+    private String getFormulaValue(FormulaRecord record, String string) {
+        switch (record.getCachedResultType()) {
+        case Cell.CELL_TYPE_STRING:
+            return string;
+        case Cell.CELL_TYPE_BOOLEAN:
+            return record.getCachedBooleanValue() ? "TRUE" : "FALSE";
+        case Cell.CELL_TYPE_ERROR:
+            return HSSFErrorConstants.getText(record.getCachedErrorValue());
+        default:
+            return NumberToTextConverter.toText(record.getValue());
+        }
+    }
+
+    /**
+     * Sets the value of the given cell
+     *
+     * @param record
+     * @param value
+     */
+    private void setCell(CellValueRecordInterface record, String value) {
+        int row = record.getRow();
+        if (row != current) {
+            complete(row);
+            current = row;
+        }
+        setCell(record.getColumn(), value);
+    }
+
+    @Override
+    protected String[] read() throws IOException {
+
+        while (completed.isEmpty() && !end) {
+
+            Record record;
+            try {
+                record = records.nextRecord();
+            } catch (RuntimeException e) {
+                throw new IOException(e);
+            }
+
+            // Cached string result of a formula
+            if (formula != null) {
+                String string = record instanceof StringRecord ? ((StringRecord) record).getString() : "";
+                setCell(formula, getFormulaValue(formula, string));
+                formula = null;
+                if (record instanceof StringRecord) {
+                    continue;
+                }
+            }
+
+            if (record == null || record instanceof EOFRecord || record instanceof BOFRecord) {
+                end = true;
+                complete(Integer.MAX_VALUE);
+            } else if (record instanceof DimensionsRecord) {
+                rows = ((DimensionsRecord) record).getLastRow();
+            } else if (record instanceof RowRecord) {
+                pending.add(((RowRecord) record).getRowNumber());
+            } else if (record instanceof NumberRecord) {
+                setCell((NumberRecord) record, NumberToTextConverter.toText(((NumberRecord) record).getValue()));
+            } else if (record instanceof LabelSSTRecord) {
+                LabelSSTRecord label = (LabelSSTRecord) record;
+                setCell(label, strings.getString(label.getSSTIndex()).getString());
+            } else if (record instanceof LabelRecord) {
+                setCell((LabelRecord) record, ((LabelRecord) record).getValue());
+            } else if (record instanceof BoolErrRecord) {
+                BoolErrRecord value = (BoolErrRecord) record;
+                if (value.isBoolean()) {
+                    setCell(value, value.getBooleanValue() ? "TRUE" : "FALSE");
+                } else {
+                    setCell(value, HSSFErrorConstants.getText(value.getErrorValue()));
+                }
+            } else if (record instanceof FormulaRecord) {
+                FormulaRecord value = (FormulaRecord) record;
+                if (value.hasCachedResultString()) {
+                    formula = value;
+                } else {
+                    setCell(value, getFormulaValue(value, ""));
+                }
+            } else if (record instanceof BlankRecord) {
+                setCell((BlankRecord) record, "");
+            } else if (record instanceof MulBlankRecord) {
+                MulBlankRecord blank = (MulBlankRecord) record;
+                int row = blank.getRow();
+                if (row != current) {
+                    complete(row);
+                    current = row;
+                }
+                for (int column = blank.getFirstColumn(); column <= blank.getLastColumn(); column++) {
+                    setCell(column, "");
+                }
+            }
+        }
+
+        return completed.pollFirst();
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackageRelationship;
+import org.apache.poi.openxml4j.opc.PackageRelationshipCollection;
+import org.apache.poi.openxml4j.opc.PackageRelationshipTypes;
+
+/**
+ * Streaming reader for sheets of XLSX files, which pulls XML events from the sheet.
+ * Only the shared strings table is kept in memory.
+ *
+ * @author Fabian Prasser
+ */
+class ExcelDataInputXLSX extends ExcelDataInput {
+
+    /** Namespace of relationships */
+    private static final String  NS_RELATIONSHIPS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+    /** Relationship type of shared strings */
+    private static final String  SHARED_STRINGS   = NS_RELATIONSHIPS + "/sharedStrings";
+
+    /** Package */
+    private final OPCPackage     pkg;
+
+    /** Stream */
+    private final InputStream    stream;
+
+    /** XML */
+    private final XMLStreamReader xml;
+
+    /** Shared strings */
+    private final List<String>   strings;
+
+    /** Number of rows */
+    private int                  rows             = 0;
+
+    /**
+     * Creates a new instance
+     *
+     * @param file
+     * @param sheet
+     * @throws IOException
+     */
+    ExcelDataInputXLSX(String file, int sheet) throws IOException {
+
+        try {
+            this.pkg = OPCPackage.open(file, PackageAccess.READ);
+        } catch (InvalidFormatException e) {
+            throw new IOException(e);
+        }
+
+        try {
+
+            // Find workbook
+            PackageRelationshipCollection relationships = pkg.getRelationshipsByType(PackageRelationshipTypes.CORE_DOCUMENT);
+            if (relationships.size() == 0) {
+                throw new IOException("File does not contain a workbook");
+            }
+            PackagePart workbook = pkg.getPart(relationships.getRelationship(0));
+
+            // Load shared strings
+            PackageRelationshipCollection shared = workbook.getRelationshipsByType(SHARED_STRINGS);
+            this.strings = shared.size() == 0 ? new ArrayList<String>() : readSharedStrings(workbook.getRelatedPart(shared.getRelationship(0)));
+
+            // Find sheet
+            String id = getSheetId(workbook, sheet);
+            PackageRelationship relationship = id == null ? null : workbook.getRelationship(id);
+            if (relationship == null) {
+                throw new IOException("Sheet " + sheet + " not found");
+            }
+            this.stream = workbook.getRelatedPart(relationship).getInputStream();
+            this.xml = XMLInputFactory.newInstance().createXMLStreamReader(stream);
+
+        } catch (IOException e) {
+            pkg.revert();
+            throw e;
+        } catch (InvalidFormatException | XMLStreamException e) {
+            pkg.revert();
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            xml.close();
+        } catch (Exception e) {
+            /* Ignore silently */
+        }
+        try {
+            stream.close();
+        } catch (Exception e) {
+            /* Ignore silently */
+        }
+        pkg.revert();
+    }
+
+    @Override
+    public int getNumRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the index of the column of the given cell reference, e.g. 1 for "B3"
+     *
+     * @param reference
+     * @return
+     */
+    private int getColumn(String reference) {
+        int column = 0;
+        for (int i = 0; i < reference.length(); i++) {
+            char c = reference.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                break;
+            }
+            column = column * 26 + (c - 'A' + 1);
+        }
+        return column - 1;
+    }
+
+    /**
+     * Returns the relationship id of the sheet with the given index
+     *
+     * @param workbook
+     * @param sheet
+     * @return
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    private String getSheetId(PackagePart workbook, int sheet) throws IOException, XMLStreamException {
+        InputStream input = workbook.getInputStream();
+        XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(input);
+        try {
+            int index = 0;
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("sheet")) {
+                    if (index++ == sheet) {
+                        return reader.getAttributeValue(NS_RELATIONSHIPS, "id");
+                    }
+                }
+            }
+            return null;
+        } finally {
+            reader.close();
+            input.close();
+        }
+    }
+
+    /**
+     * Reads the text content of the current element, including all nested elements
+     * except for phonetic runs
+     *
+     * @param reader
+     * @param builder
+     * @throws XMLStreamException
+     */
+    private void readText(XMLStreamReader reader, StringBuilder builder) throws XMLStreamException {
+        int depth = 1;
+        int phonetic = 0;
+        boolean text = false;
+        while (depth > 0) {
+            switch (reader.next()) {
+            case XMLStreamConstants.START_ELEMENT:
+                depth++;
+                if (reader.getLocalName().equals("rPh")) {
+                    phonetic++;
+                } else if (reader.getLocalName().equals("t")) {
+                    text = true;
+                }
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                depth--;
+                if (reader.getLocalName().equals("rPh")) {
+                    phonetic--;
+                } else if (reader.getLocalName().equals("t")) {
+                    text = false;
+                }
+                break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+            case XMLStreamConstants.SPACE:
+                if (text && phonetic == 0) {
+                    builder.append(reader.getText());
+                }
+                break;
+            }
+        }
+    }
+
+    /**
+     * Reads the shared strings table
+     *
+     * @param part
+     * @return
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    private List<String> readSharedStrings(PackagePart part) throws IOException, XMLStreamException {
+        List<String> strings = new ArrayList<String>();
+        InputStream input = part.getInputStream();
+        XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(input);
+        try {
+            StringBuilder builder = new StringBuilder();
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("si")) {
+                    builder.setLength(0);
+                    readText(reader, builder);
+                    strings.add(builder.toString());
+                }
+            }
+        } finally {
+            reader.close();
+            input.close();
+        }
+        return strings;
+    }
+
+    @Override
+    protected String[] read() throws IOException {
+
+        try {
+            int column = -1;
+            String type = null;
+            String value = null;
+            StringBuilder builder = new StringBuilder();
+            boolean row = false;
+            while (xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = xml.getLocalName();
+                    if (name.equals("row")) {
+                        row = true;
+                        column = -1;
+                    } else if (name.equals("c")) {
+                        String reference = xml.getAttributeValue(null, "r");
+                        column = reference == null ? column + 1 : getColumn(reference);
+                        type = xml.getAttributeValue(null, "t");
+                        value = null;
+                    } else if (name.equals("v")) {
+                        value = xml.getElementText();
+                    } else if (name.equals("is")) {
+                        builder.setLength(0);
+                        readText(xml, builder);
+                        value = builder.toString();
+                    } else if (name.equals("dimension")) {
+                        String reference = xml.getAttributeValue(null, "ref");
+                        if (reference != null) {
+                            String last = reference.substring(reference.indexOf(':') + 1);
+                            int index = 0;
+                            while (index < last.length() && !Character.isDigit(last.charAt(index))) {
+                                index++;
+                            }
+                            if (index < last.length()) {
+                                rows = Integer.parseInt(last.substring(index));
+                            }
+                        }
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    String name = xml.getLocalName();
+                    if (name.equals("c")) {
+                        setCell(column, getValue(type, value));
+                    } else if (name.equals("row") && row) {
+                        return finishRow();
+                    }
+                }
+            }
+            return null;
+        } catch (XMLStreamException | NumberFormatException | IndexOutOfBoundsException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Returns the string representation of the given value
+     *
+     * @param type
+     * @param value
+     * @return
+     */
+    private String getValue(String type, String value) {
+        if (value == null) {
+            return "";
+        } else if ("s".equals(type)) {
+            return strings.get(Integer.parseInt(value.trim()));
+        } else if ("b".equals(type)) {
+            return "1".equals(value) ? "TRUE" : "FALSE";
+        } else {
+            return value;
+        }
+    }
+}
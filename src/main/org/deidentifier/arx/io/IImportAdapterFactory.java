@@ -0,0 +1,39 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.io;
+
+import java.io.IOException;
+
+/**
+ * Interface to be implemented for supporting additional data sources. Factories are
+ * registered for a type of configuration via {@link ImportAdapter#register(Class, IImportAdapterFactory)}.
+ *
+ * @author Fabian Prasser
+ */
+public interface IImportAdapterFactory {
+
+    /**
+     * Creates an import adapter for the given configuration.
+     *
+     * @param config
+     * @return
+     * @throws IOException
+     */
+    public ImportAdapter create(ImportConfiguration config) throws IOException;
+
+}
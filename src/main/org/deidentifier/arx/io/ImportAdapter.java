@@ -20,7 +20,10 @@ package org.deidentifier.arx.io;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 
 import org.deidentifier.arx.DataType;
 
@@ -34,6 +37,9 @@ import org.deidentifier.arx.DataType;
  * @author Fabian Prasser
  */
 abstract public class ImportAdapter implements Iterator<String[]> {
+
+    /** Registered factories for additional types of configurations */
+    private static final Map<Class<? extends ImportConfiguration>, IImportAdapterFactory> factories = new LinkedHashMap<Class<? extends ImportConfiguration>, IImportAdapterFactory>();
     
     /**
      * Factory method
@@ -56,8 +62,49 @@ abstract public class ImportAdapter implements Iterator<String[]> {
             return new ImportAdapterExcel((ImportConfigurationExcel) config);
         } else if (config instanceof ImportConfigurationJDBC) {
             return new ImportAdapterJDBC((ImportConfigurationJDBC) config);
+        } else if (config instanceof ImportConfigurationArrow) {
+            return new ImportAdapterArrow((ImportConfigurationArrow) config);
         } else {
-            throw new IllegalArgumentException("No adapter defined for this type of configuration");
+            IImportAdapterFactory factory = null;
+            synchronized (factories) {
+                for (Entry<Class<? extends ImportConfiguration>, IImportAdapterFactory> entry : factories.entrySet()) {
+                    if (entry.getKey().isInstance(config)) {
+                        factory = entry.getValue();
+                        break;
+                    }
+                }
+            }
+            if (factory == null) {
+                throw new IllegalArgumentException("No adapter defined for this type of configuration");
+            }
+            return factory.create(config);
+        }
+    }
+
+    /**
+     * Registers a factory for creating adapters for an additional type of configuration.
+     * Factories cannot be registered for the built-in types of configurations. A factory
+     * which has previously been registered for the same type is replaced.
+     * 
+     * @param type The type of configuration
+     * @param factory The factory, null to remove the current factory
+     */
+    public static void register(Class<? extends ImportConfiguration> type, IImportAdapterFactory factory) {
+        if (type == null) {
+            throw new NullPointerException("Type must not be null");
+        }
+        if (ImportConfigurationCSV.class.isAssignableFrom(type) ||
+            ImportConfigurationExcel.class.isAssignableFrom(type) ||
+            ImportConfigurationJDBC.class.isAssignableFrom(type) ||
+            ImportConfigurationArrow.class.isAssignableFrom(type)) {
+            throw new IllegalArgumentException("Factories cannot be registered for built-in types of configurations");
+        }
+        synchronized (factories) {
+            if (factory == null) {
+                factories.remove(type);
+            } else {
+                factories.put(type, factory);
+            }
         }
     }
 
@@ -78,6 +125,9 @@ abstract public class ImportAdapter implements Iterator<String[]> {
     /** Data source configuration used to import actual data. */
     private ImportConfiguration config = null;
 
+    /** Validates values against data types, lazily initialized */
+    private DataTypeValidator   validator;
+
     /**
      * Creates a new instance of this object with given configuration.
      *
@@ -116,6 +166,20 @@ abstract public class ImportAdapter implements Iterator<String[]> {
      */
     public abstract int getProgress();
 
+    /**
+     * Reads all data directly into an encoded representation with one dictionary per column,
+     * if this is supported by the adapter. The dictionaries are stored in the given array.
+     * Returns null if not supported, in which case the data must be obtained by iterating
+     * over this adapter.
+     *
+     * @param dictionaries the dictionaries
+     * @return the codes, one array per row, or null
+     * @throws IOException
+     */
+    public int[][] readEncoded(String[][] dictionaries) throws IOException {
+        return null;
+    }
+
     /**
      * Returns an array with datatypes of columns that should be imported.
      *
@@ -130,4 +194,19 @@ abstract public class ImportAdapter implements Iterator<String[]> {
         return result.toArray(new DataType[result.size()]);
 
     }
+
+    /**
+     * Returns whether the given value matches the data type of the given column. Each
+     * distinct value is only parsed once per column.
+     *
+     * @param column
+     * @param value
+     * @return
+     */
+    protected boolean isValid(int column, String value) {
+        if (validator == null) {
+            validator = new DataTypeValidator(dataTypes);
+        }
+        return validator.isValid(column, value);
+    }
 }
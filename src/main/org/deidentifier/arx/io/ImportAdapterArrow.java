@@ -0,0 +1,276 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.io;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.deidentifier.arx.DataType;
+
+/**
+ * Import adapter for files in the Arrow IPC file format
+ * 
+ * This adapter reads the selected columns one after another with {@link ArrowDataInput}
+ * directly into a dictionary encoded representation, which can be obtained via
+ * {@link #readEncoded(String[][])}. Data types are checked once per distinct value.
+ * Rows are only created when the adapter is used as an iterator.
+ *
+ * @author Fabian Prasser
+ */
+public class ImportAdapterArrow extends ImportAdapter {
+
+    /** The configuration describing the Arrow file. */
+    private ImportConfigurationArrow config;
+
+    /** The input. */
+    private ArrowDataInput           input;
+
+    /** The encoded data, null if not read yet. */
+    private int[][]                  data;
+
+    /** The dictionaries. */
+    private String[][]               dictionaries;
+
+    /** Indicates whether the first row has already been returned. */
+    private boolean                  headerReturned = false;
+
+    /** The current row. */
+    private int                      currentRow     = 0;
+
+    /**
+     * Creates a new instance of this object with given configuration
+     * 
+     * @param config {@link #config}
+     * @throws IOException In case the file cannot be read
+     */
+    protected ImportAdapterArrow(ImportConfigurationArrow config) throws IOException {
+
+        super(config);
+        this.config = config;
+
+        // Read metadata
+        this.input = new ArrowDataInput(config.getFileLocation());
+        this.input.open();
+
+        // Create header
+        String[] names = input.getHeader();
+        config.prepare(names);
+        indexes = getIndexesToImport();
+        dataTypes = getColumnDatatypes();
+        header = new String[indexes.length];
+        List<ImportColumn> columns = config.getColumns();
+        for (int i = 0; i < indexes.length; i++) {
+            ImportColumn column = columns.get(i);
+            header[i] = column.getAliasName() != null ? column.getAliasName() : names[indexes[i]];
+            column.setAliasName(header[i]);
+        }
+    }
+
+    @Override
+    public int getProgress() {
+        if (data == null || data.length == 0) {
+            return 0;
+        }
+        return (int) (((double) currentRow / (double) data.length) * 100d);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !headerReturned || currentRow < input.getNumRows();
+    }
+
+    @Override
+    public String[] next() {
+
+        // Header
+        if (!headerReturned) {
+            headerReturned = true;
+            return header;
+        }
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        // Read
+        if (data == null) {
+            try {
+                read();
+            } catch (IOException e) {
+                throw new IllegalStateException("Error reading from input", e);
+            }
+        }
+
+        // Create row
+        int[] codes = data[currentRow++];
+        String[] result = new String[codes.length];
+        for (int i = 0; i < codes.length; i++) {
+            result[i] = dictionaries[i][codes[i]];
+        }
+        return result;
+    }
+
+    /**
+     * Returns all data encoded with one dictionary per column. The dictionaries are
+     * stored in the given array. This must be called before iterating over this adapter.
+     * 
+     * @param dictionaries
+     * @return
+     * @throws IOException
+     */
+    @Override
+    public int[][] readEncoded(String[][] dictionaries) throws IOException {
+        if (data == null) {
+            read();
+        }
+        System.arraycopy(this.dictionaries, 0, dictionaries, 0, this.dictionaries.length);
+        return data;
+    }
+
+    /**
+     * Dummy.
+     */
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Checks the values of the given column. Invalid values are replaced by
+     * {@link DataType#NULL_VALUE}, if cleansing is enabled.
+     * 
+     * @param column
+     * @param dictionary
+     * @return the resulting dictionary
+     */
+    private String[] cleanse(int column, String[] dictionary) {
+
+        // Check distinct values
+        int[] map = null;
+        for (int code = 0; code < dictionary.length; code++) {
+            if (!isValid(column, dictionary[code])) {
+                if (!config.getColumns().get(column).isCleansing()) {
+                    throw new IllegalArgumentException("Data value does not match data type");
+                }
+                if (map == null) {
+                    map = new int[dictionary.length];
+                }
+                map[code] = -1;
+            }
+        }
+        if (map == null) {
+            return dictionary;
+        }
+
+        // Build new dictionary
+        List<String> values = new ArrayList<String>();
+        int nullCode = -1;
+        for (int code = 0; code < dictionary.length; code++) {
+            if (map[code] != -1) {
+                map[code] = values.size();
+                values.add(dictionary[code]);
+                if (DataType.NULL_VALUE.equals(dictionary[code])) {
+                    nullCode = map[code];
+                }
+            }
+        }
+        if (nullCode == -1) {
+            nullCode = values.size();
+            values.add(DataType.NULL_VALUE);
+        }
+        for (int code = 0; code < dictionary.length; code++) {
+            if (map[code] == -1) {
+                map[code] = nullCode;
+            }
+        }
+
+        // Recode
+        for (int row = 0; row < data.length; row++) {
+            data[row][column] = map[data[row][column]];
+        }
+        return values.toArray(new String[values.size()]);
+    }
+
+    /**
+     * Returns an array with indexes of columns that should be imported
+     * 
+     * @return Array containing indexes of columns that should be imported
+     */
+    private int[] getIndexesToImport() {
+        int[] result = new int[config.getColumns().size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ((ImportColumnArrow) config.getColumns().get(i)).getIndex();
+        }
+        return result;
+    }
+
+    /**
+     * Reads all columns in parallel
+     * 
+     * @throws IOException
+     */
+    private void read() throws IOException {
+
+        // Prepare
+        final int[][] data = new int[input.getNumRows()][indexes.length];
+        final String[][] dictionaries = new String[indexes.length][];
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int i = 0; i < indexes.length; i++) {
+            final int column = i;
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws IOException {
+                    dictionaries[column] = input.read(indexes[column], data, column);
+                    return null;
+                }
+            });
+        }
+
+        // Execute
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(indexes.length, Runtime.getRuntime().availableProcessors())));
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+
+        // Check data types
+        this.data = data;
+        for (int i = 0; i < indexes.length; i++) {
+            dictionaries[i] = cleanse(i, dictionaries[i]);
+        }
+        this.dictionaries = dictionaries;
+    }
+}
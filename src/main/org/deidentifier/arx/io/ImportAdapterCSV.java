@@ -177,7 +177,7 @@ public class ImportAdapterCSV extends ImportAdapter {
             result = new String[indexes.length];
             for (int i = 0; i < indexes.length; i++) {
                 result[i] = row[indexes[i]];
-                if (!dataTypes[i].isValid(result[i])) {
+                if (!isValid(i, result[i])) {
                     if (config.columns.get(i).isCleansing()) {
                         result[i] = DataType.NULL_VALUE;
                     } else {
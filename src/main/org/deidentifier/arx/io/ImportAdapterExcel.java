@@ -17,18 +17,10 @@
 
 package org.deidentifier.arx.io;
 
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
-import org.apache.poi.hssf.usermodel.HSSFWorkbook;
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.deidentifier.arx.DataType;
 import org.deidentifier.arx.io.ImportConfigurationExcel.ExcelFileTypes;
 
@@ -37,7 +29,8 @@ import org.deidentifier.arx.io.ImportConfigurationExcel.ExcelFileTypes;
  * 
  * This adapter can import data from Excel files. It handles both XLS and XLSX
  * files. The file type itself is defined by {@link ImportConfigurationExcel}.
- * The files are accessed using Apache POI.
+ * The files are accessed using Apache POI. Sheets are streamed row by row,
+ * without loading the whole workbook into memory.
  *
  * @author Karol Babioch
  * @author Fabian Prasser
@@ -49,7 +42,7 @@ public class ImportAdapterExcel extends ImportAdapter {
     private ImportConfigurationExcel config;
 
     /** Actual iterator used to go through data. */
-    private Iterator<Row>            iterator;
+    private ExcelDataInput           iterator;
 
     /**
      * Contains the last row as returned by the iterator.
@@ -57,7 +50,7 @@ public class ImportAdapterExcel extends ImportAdapter {
      * @note This row cannot be simply returned, but needs to be further
      *       processed, e.g. to return only selected columns.
      */
-    private Row                      row;
+    private String[]                 row;
 
     /**
      * Indicates whether the first row has already been returned
@@ -74,16 +67,13 @@ public class ImportAdapterExcel extends ImportAdapter {
     /** Current row {@link lastRow} is referencing. */
     private int                      currentRow     = 0;
 
-    /** TODO */
-    private FileInputStream          input;
-
     /**
      * Creates a new instance of this object with given configuration
      * 
-     * Depending upon the file type it either uses HSSF or XSSF to access the
-     * file. In both cases {@link #iterator} will be assigned a reference to
-     * an iterator, which can then be used to access the actual data on a row by
-     * row basis.
+     * Depending upon the file type it either reads the records of the XLS
+     * file or the XML of the XLSX file. In both cases {@link #iterator} will be
+     * assigned a reference to an iterator, which can then be used to access the
+     * actual data on a row by row basis.
      * 
      * @param config
      *            {@link #config}
@@ -97,38 +87,35 @@ public class ImportAdapterExcel extends ImportAdapter {
         this.config = config;
 
         /* Get row iterator */
-        input = new FileInputStream(config.getFileLocation());
-        Workbook workbook = null;
-
         if (config.getExcelFileType() == ExcelFileTypes.XLS) {
-            workbook = new HSSFWorkbook(input);
+            iterator = new ExcelDataInputXLS(config.getFileLocation(), config.getSheetIndex());
         } else if (config.getExcelFileType() == ExcelFileTypes.XLSX) {
-            workbook = new XSSFWorkbook(input);
+            iterator = new ExcelDataInputXLSX(config.getFileLocation(), config.getSheetIndex());
         } else {
-            input.close();
             throw new IllegalArgumentException("File type not supported");
         }
 
-        workbook.setMissingCellPolicy(Row.CREATE_NULL_AS_BLANK);
-        Sheet sheet = workbook.getSheetAt(config.getSheetIndex());
-        iterator = sheet.iterator();
-
-        /* Get total number of rows */
-        totalRows = sheet.getPhysicalNumberOfRows();
-
         /* Check whether there is actual data within the file */
-        if (iterator.hasNext()) {
+        try {
+            if (iterator.hasNext()) {
 
-            row = iterator.next();
-            if (config.getContainsHeader()) {
-                if (!iterator.hasNext()) {
-                    throw new IOException("File contains nothing but header");
+                row = iterator.next();
+                if (config.getContainsHeader()) {
+                    if (!iterator.hasNext()) {
+                        throw new IOException("File contains nothing but header");
+                    }
                 }
+            } else {
+                throw new IOException("File contains no data");
             }
-        } else {
-            throw new IOException("File contains no data");
+        } catch (IOException | RuntimeException e) {
+            iterator.close();
+            throw e;
         }
 
+        /* Get total number of rows */
+        totalRows = Math.max(iterator.getNumRows(), 1);
+
         // Create header
         header = createHeader();
     }
@@ -185,10 +172,9 @@ public class ImportAdapterExcel extends ImportAdapter {
         String[] result = new String[indexes.length];
         for (int i = 0; i < indexes.length; i++) {
 
-            row.getCell(indexes[i]).setCellType(Cell.CELL_TYPE_STRING);
-            result[i] = IOUtil.trim(row.getCell(indexes[i]).getStringCellValue());
+            result[i] = IOUtil.trim(getCell(row, indexes[i]));
 
-            if (!dataTypes[i].isValid(result[i])) {
+            if (!isValid(i, result[i])) {
                 if (config.columns.get(i).isCleansing()) {
                     result[i] = DataType.NULL_VALUE;
                 } else {
@@ -203,11 +189,6 @@ public class ImportAdapterExcel extends ImportAdapter {
             currentRow++;
         } else {
             row = null;
-            try {
-                input.close();
-            } catch (Exception e) {
-                /* Die silently */
-            }
         }
 
         /* Return resulting row */
@@ -252,8 +233,7 @@ public class ImportAdapterExcel extends ImportAdapter {
 
             ImportColumn column = columns.get(i);
 
-            row.getCell(((ImportColumnExcel) column).getIndex()).setCellType(Cell.CELL_TYPE_STRING);
-            String name = IOUtil.trim(row.getCell(((ImportColumnExcel) column).getIndex()).getStringCellValue());
+            String name = IOUtil.trim(getCell(row, ((ImportColumnExcel) column).getIndex()));
 
             if (config.getContainsHeader() && !name.equals("")) {
                 /* Assign name of file itself */
@@ -286,6 +266,17 @@ public class ImportAdapterExcel extends ImportAdapter {
         return header;
     }
 
+    /**
+     * Returns the value of the given cell, or an empty string if the cell does not exist
+     *
+     * @param row
+     * @param index
+     * @return
+     */
+    private String getCell(String[] row, int index) {
+        return index < row.length ? row[index] : "";
+    }
+
     /**
      * Returns an array with indexes of columns that should be imported
      * 
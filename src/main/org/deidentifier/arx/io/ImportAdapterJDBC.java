@@ -18,31 +18,120 @@
 package org.deidentifier.arx.io;
 
 import java.io.IOException;
+import java.sql.Connection;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.deidentifier.arx.DataType;
+import org.deidentifier.arx.DataType.ARXDate;
+import org.deidentifier.arx.DataType.ARXDecimal;
+import org.deidentifier.arx.DataType.ARXInteger;
 
 /**
  * Import adapter for JDBC
  * 
  * This adapter can import data from JDBC sources. The source itself is
  * described by an appropriate {@link ImportConfigurationJDBC} object.
+ * Only the columns to import are queried. Values of numeric and temporal
+ * columns are retrieved with typed getters, if the data type of the column
+ * matches the SQL type. If a fetch size is defined, rows are streamed
+ * through a forward-only cursor. If partitioning is defined, ranges of
+ * a numeric column are read in parallel and rows are returned in the order
+ * in which they have been retrieved.
  * 
  * @author Karol Babioch
  * @author Fabian Prasser
  */
 public class ImportAdapterJDBC extends ImportAdapter {
     
+    /**
+     * A range of the table, which is read with a separate connection
+     * 
+     * @author Fabian Prasser
+     */
+    private class Partition implements Runnable {
+        
+        /** Query */
+        private final String query;
+        
+        /**
+         * Creates a new instance
+         * @param query
+         */
+        private Partition(String query) {
+            this.query = query;
+        }
+        
+        @Override
+        public void run() {
+            Connection connection = null;
+            Statement statement = null;
+            ResultSet resultSet = null;
+            try {
+                connection = config.getNewConnection();
+                statement = createStatement(connection);
+                resultSet = statement.executeQuery(query);
+                int[] types = getTypes(resultSet);
+                while (!closed && resultSet.next()) {
+                    put(getRow(resultSet, types));
+                }
+            } catch (SQLException e) {
+                error = new RuntimeException("Couldn't retrieve data from database");
+            } catch (RuntimeException e) {
+                error = e;
+            } catch (InterruptedException e) {
+                error = new RuntimeException("Couldn't retrieve data from database");
+            } finally {
+                close(resultSet, statement, connection);
+                try {
+                    put(END);
+                } catch (InterruptedException e) {
+                    /* Ignore silently */
+                }
+            }
+        }
+    }
+    
+    /** Marks the end of a partition */
+    private static final String[]   END          = new String[0];
+    
+    /** Number of rows buffered per partition */
+    private static final int        QUEUE_SIZE   = 10000;
+    
+    /** Time in milliseconds after which adding rows is retried, if the import has not been finished */
+    private static final long       PUT_TIMEOUT  = 100;
+    
+    /** Typed access: string */
+    private static final int        TYPE_STRING  = 0;
+    
+    /** Typed access: integer */
+    private static final int        TYPE_INTEGER = 1;
+    
+    /** Typed access: decimal */
+    private static final int        TYPE_DECIMAL = 2;
+    
+    /** Typed access: date */
+    private static final int        TYPE_DATE    = 3;
+    
     /** The configuration describing the CSV file being used. */
     private ImportConfigurationJDBC config;
     
     /**
      * ResultSet containing rows to return.
-     *
+     * 
      * @see {@link #next()}
      */
     private ResultSet               resultSet;
@@ -64,14 +153,47 @@ public class ImportAdapterJDBC extends ImportAdapter {
     
     /**
      * Number of rows that need to be processed in total.
-     *
+     * 
      * @see {@link #getProgress()}
      */
     private int                     totalRows;
     
+    /** Number of rows that have been returned. */
+    private int                     returnedRows;
+    
+    /** Indexes of the columns to import in the result set */
+    private int[]                   columns;
+    
+    /** Typed access for each column */
+    private int[]                   types;
+    
+    /** Previous auto-commit mode, if it has been changed */
+    private Boolean                 autoCommit;
+    
+    /** Partitions, if read in parallel */
+    private List<Partition>         partitions;
+    
+    /** Rows of all partitions, if read in parallel */
+    private BlockingQueue<String[]> queue;
+    
+    /** Number of partitions which have been read completely */
+    private int                     finished;
+    
+    /** Error of a partition */
+    private volatile RuntimeException error;
+    
+    /** Next row, if read in parallel */
+    private String[]                nextRow;
+    
+    /** Executor, if read in parallel */
+    private ExecutorService         executor;
+    
+    /** Whether the import has been finished */
+    private volatile boolean        closed;
+    
     /**
      * Creates a new instance of this object with given configuration.
-     *
+     * 
      * @param config {@link #config}
      * @throws IOException In case of communication errors with JDBC
      * @todo Fix IOException
@@ -99,18 +221,59 @@ public class ImportAdapterJDBC extends ImportAdapter {
                     closeResources();
                     throw new IOException("Table doesn't contain any rows");
                 }
-                
+            
             } else {
                 closeResources();
                 throw new IOException("Couldn't determine number of rows");
             }
+            resultSet.close();
+            statement.close();
+            
+            /* Project onto the columns to import, if their names are known */
+            String projection = getProjection();
+            if (projection != null) {
+                columns = new int[indexes.length];
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i] = i + 1;
+                }
+            } else {
+                projection = "*";
+                columns = indexes;
+            }
+            String query = "SELECT " + projection + " FROM " + config.getTable();
             
             /* Query for actual data */
-            statement = config.getConnection().createStatement();
-            statement.execute("SELECT * FROM " + config.getTable());
-            resultSet = statement.getResultSet();
-            hasNext = resultSet.next();
+            if (config.getFetchSize() != 0 && config.getConnection().getAutoCommit()) {
+                config.getConnection().setAutoCommit(false);
+                autoCommit = true;
+            }
+            statement = createStatement(config.getConnection());
             
+            /* Read partitions in parallel */
+            if (config.getPartitions() > 1 && config.getPartitionColumn() != null && config.canCreateConnections()) {
+                statement.setMaxRows(1);
+                resultSet = statement.executeQuery(query);
+                partitions = getPartitions(query);
+                queue = new ArrayBlockingQueue<String[]>(QUEUE_SIZE * partitions.size());
+                executor = Executors.newFixedThreadPool(partitions.size(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable);
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+                for (Partition partition : partitions) {
+                    executor.execute(partition);
+                }
+                nextRow = getNextRow();
+                hasNext = nextRow != null;
+            } else {
+                resultSet = statement.executeQuery(query);
+                types = getTypes(resultSet);
+                hasNext = resultSet.next();
+            }
+        
         } catch (SQLException e) {
             closeResources();
             throw new IOException(e.getMessage());
@@ -118,32 +281,31 @@ public class ImportAdapterJDBC extends ImportAdapter {
         
         // Create header
         header = createHeader();
+        
+        if (partitions != null) {
+            close(resultSet, null, null);
+            resultSet = null;
+        }
     }
     
     /**
      * Returns the percentage of data that has already been returned
      * 
      * This divides the number of rows that have already been returned by the
-     * number of total rows and casts the result into a percentage. In case of
-     * an {@link SQLException} 0 will be returned.
-     *
+     * number of total rows and casts the result into a percentage.
+     * 
      * @return
      */
     @Override
     public int getProgress() {
-        
-        try {
-            return (int) (((double) resultSet.getRow() / (double) totalRows) * 100d);
-        } catch (SQLException e) {
-            return 0;
-        }
+        return (int) (((double) returnedRows / (double) totalRows) * 100d);
     }
     
     /**
      * Indicates whether there is another element to return
      * 
      * This returns true when there is another element in the result set {@link #resultSet}.
-     *
+     * 
      * @return
      */
     @Override
@@ -165,21 +327,32 @@ public class ImportAdapterJDBC extends ImportAdapter {
             return header;
         }
         
+        /* Return row from partitions */
+        if (partitions != null) {
+            String[] result = nextRow;
+            try {
+                nextRow = getNextRow();
+            } catch (RuntimeException e) {
+                closeResources();
+                throw e;
+            }
+            hasNext = nextRow != null;
+            if (!hasNext) {
+                closeResources();
+            }
+            returnedRows++;
+            return result;
+        }
+        
         try {
             
             /* Create regular row */
-            String[] result = new String[indexes.length];
-            for (int i = 0; i < indexes.length; i++) {
-                
-                result[i] = IOUtil.trim(resultSet.getString(indexes[i]));
-                if (!dataTypes[i].isValid(result[i])) {
-                    if (config.columns.get(i).isCleansing()) {
-                        result[i] = DataType.NULL_VALUE;
-                    } else {
-                        closeResources();
-                        throw new IllegalArgumentException("Data value does not match data type");
-                    }
-                }
+            String[] result;
+            try {
+                result = getRow(resultSet, types);
+            } catch (IllegalArgumentException e) {
+                closeResources();
+                throw e;
             }
             
             /* Move cursor forward and assign result to {@link #hasNext} */
@@ -189,8 +362,9 @@ public class ImportAdapterJDBC extends ImportAdapter {
                 closeResources();
             }
             
+            returnedRows++;
             return result;
-            
+        
         } catch (SQLException e) {
             closeResources();
             throw new RuntimeException("Couldn't retrieve data from database");
@@ -206,9 +380,13 @@ public class ImportAdapterJDBC extends ImportAdapter {
     }
     
     /**
-     * Closes the JDBC resources.
+     * Closes the given resources
+     * 
+     * @param resultSet
+     * @param statement
+     * @param connection
      */
-    private void closeResources() {
+    private void close(ResultSet resultSet, Statement statement, Connection connection) {
         try {
             if (resultSet != null) {
                 resultSet.close();
@@ -223,6 +401,34 @@ public class ImportAdapterJDBC extends ImportAdapter {
         } catch (Exception e) {
             /* Ignore silently */
         }
+        try {
+            if (connection != null) {
+                connection.close();
+            }
+        } catch (Exception e) {
+            /* Ignore silently */
+        }
+    }
+    
+    /**
+     * Closes the JDBC resources.
+     */
+    private void closeResources() {
+        closed = true;
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        close(resultSet, statement, null);
+        try {
+            if (autoCommit != null) {
+                config.getConnection().commit();
+                config.getConnection().setAutoCommit(autoCommit);
+                autoCommit = null;
+            }
+        } catch (Exception e) {
+            /* Ignore silently */
+        }
         try {
             if (config.isManageConnection()) {
                 config.getConnection().close();
@@ -239,7 +445,7 @@ public class ImportAdapterJDBC extends ImportAdapter {
      * returned later on by iterating over this object. Depending upon whether
      * or not names have been assigned explicitly either the appropriate values
      * will be returned, or names from the JDBC metadata will be used.
-     *
+     * 
      * @return
      */
     private String[] createHeader() {
@@ -258,13 +464,12 @@ public class ImportAdapterJDBC extends ImportAdapter {
                 !column.getAliasName().equals("")) {
                 
                 header[i] = column.getAliasName();
-                
+            
             } else {
                 
                 /* Assign name from JDBC metadata */
                 try {
-                    /* +1 offset, because counting in JDBC starts at 1 */
-                    header[i] = IOUtil.trim(resultSet.getMetaData().getColumnName(((ImportColumnJDBC) column).getIndex() + 1));
+                    header[i] = IOUtil.trim(resultSet.getMetaData().getColumnName(this.columns[i]));
                 } catch (SQLException e) {
                     throw new IllegalArgumentException("Index for column '" + ((ImportColumnJDBC) column).getIndex() + "' couldn't be found");
                 }
@@ -277,6 +482,289 @@ public class ImportAdapterJDBC extends ImportAdapter {
         
     }
     
+    /**
+     * Creates a statement for reading data
+     * 
+     * @param connection
+     * @return
+     * @throws SQLException
+     */
+    private Statement createStatement(Connection connection) throws SQLException {
+        Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        if (config.getFetchSize() != 0) {
+            if (connection != config.getConnection()) {
+                connection.setAutoCommit(false);
+            }
+            statement.setFetchSize(config.getFetchSize());
+        }
+        return statement;
+    }
+    
+    /**
+     * Returns the next row from the partitions, null if there is none
+     * 
+     * @return
+     */
+    private String[] getNextRow() {
+        while (finished < partitions.size()) {
+            String[] row;
+            try {
+                row = queue.take();
+            } catch (InterruptedException e) {
+                throw new RuntimeException("Couldn't retrieve data from database");
+            }
+            if (row != END) {
+                return row;
+            }
+            if (error != null) {
+                throw error;
+            }
+            finished++;
+        }
+        return null;
+    }
+    
+    /**
+     * Creates the partitions. The values of the partitioning column are
+     * split into ranges of equal width. Rows with null values form a further
+     * partition.
+     * 
+     * @param query
+     * @return
+     * @throws SQLException
+     */
+    private List<Partition> getPartitions(String query) throws SQLException {
+        
+        /* Determine range */
+        String column = quote(config.getPartitionColumn());
+        Statement statement = config.getConnection().createStatement();
+        long min = 0;
+        long max = 0;
+        try {
+            ResultSet resultSet = statement.executeQuery("SELECT MIN(" + column + "), MAX(" + column + ") FROM " + config.getTable());
+            if (resultSet.next()) {
+                min = resultSet.getLong(1);
+                max = resultSet.getLong(2);
+            }
+            resultSet.close();
+        } finally {
+            statement.close();
+        }
+        
+        /* Create partitions */
+        int count = config.getPartitions();
+        long width = Math.max(1L, (max - min) / count + 1);
+        List<Partition> partitions = new ArrayList<Partition>();
+        for (int i = 0; i < count; i++) {
+            String condition;
+            long lower = min + i * width;
+            long upper = lower + width;
+            if (i == 0) {
+                condition = column + " < " + upper;
+            } else if (i == count - 1) {
+                condition = column + " >= " + lower;
+            } else {
+                condition = column + " >= " + lower + " AND " + column + " < " + upper;
+            }
+            partitions.add(new Partition(query + " WHERE " + condition));
+        }
+        partitions.add(new Partition(query + " WHERE " + column + " IS NULL"));
+        return partitions;
+    }
+    
+    /**
+     * Returns the projection onto the columns to import, null if not all names
+     * can be determined
+     * 
+     * @return
+     */
+    private String getProjection() {
+        
+        /* Determine catalog, schema and name of the table */
+        Connection connection = config.getConnection();
+        String table = config.getTable();
+        String catalog = null;
+        String schema = null;
+        try {
+            catalog = connection.getCatalog();
+            schema = connection.getSchema();
+        } catch (SQLException | AbstractMethodError e) {
+            /* Not supported by the driver */
+        }
+        int separator = table.lastIndexOf('.');
+        if (separator != -1) {
+            schema = table.substring(0, separator);
+            table = table.substring(separator + 1);
+        }
+        
+        /* Determine names of all columns */
+        List<String> names = new ArrayList<String>();
+        ResultSet rs = null;
+        try {
+            rs = connection.getMetaData().getColumns(catalog, schema, table, null);
+            String qualifier = null;
+            while (rs.next()) {
+                
+                /* Tables with the same name in different schemas or catalogs are ambiguous */
+                String current = rs.getString("TABLE_CAT") + "." + rs.getString("TABLE_SCHEM");
+                if (qualifier == null) {
+                    qualifier = current;
+                } else if (!qualifier.equals(current)) {
+                    return null;
+                }
+                names.add(rs.getString("COLUMN_NAME"));
+            }
+        } catch (SQLException e) {
+            return null;
+        } finally {
+            close(rs, null, null);
+        }
+        
+        /* Build projection */
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < indexes.length; i++) {
+            int index = indexes[i] - 1;
+            if (index >= names.size()) {
+                return null;
+            }
+            if (i > 0) {
+                builder.append(", ");
+            }
+            try {
+                builder.append(quote(names.get(index)));
+            } catch (SQLException e) {
+                return null;
+            }
+        }
+        return builder.toString();
+    }
+    
+    /**
+     * Returns a row from the given result set
+     * 
+     * @param resultSet
+     * @param types
+     * @return
+     * @throws SQLException
+     */
+    @SuppressWarnings("unchecked")
+    private String[] getRow(ResultSet resultSet, int[] types) throws SQLException {
+        
+        String[] result = new String[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            
+            /* Typed access, values formatted by the data type are valid */
+            int column = columns[i];
+            switch (types[i]) {
+            case TYPE_INTEGER:
+                long integer = resultSet.getLong(column);
+                if (!resultSet.wasNull()) {
+                    result[i] = ((DataType<Long>) dataTypes[i]).format(integer);
+                    continue;
+                }
+                break;
+            case TYPE_DECIMAL:
+                double decimal = resultSet.getDouble(column);
+                if (!resultSet.wasNull()) {
+                    result[i] = ((DataType<Double>) dataTypes[i]).format(decimal);
+                    continue;
+                }
+                break;
+            case TYPE_DATE:
+                Timestamp timestamp = resultSet.getTimestamp(column);
+                if (timestamp != null) {
+                    result[i] = ((DataType<Date>) dataTypes[i]).format(new Date(timestamp.getTime()));
+                    continue;
+                }
+                break;
+            default:
+                result[i] = IOUtil.trim(resultSet.getString(column));
+                break;
+            }
+            
+            if (!isValid(i, result[i])) {
+                if (config.columns.get(i).isCleansing()) {
+                    result[i] = DataType.NULL_VALUE;
+                } else {
+                    throw new IllegalArgumentException("Data value does not match data type");
+                }
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Determines how to access values of the columns to import, based on
+     * their SQL types and data types
+     * 
+     * @param resultSet
+     * @return
+     * @throws SQLException
+     */
+    private int[] getTypes(ResultSet resultSet) throws SQLException {
+        ResultSetMetaData meta = resultSet.getMetaData();
+        int[] types = new int[indexes.length];
+        for (int i = 0; i < types.length; i++) {
+            switch (meta.getColumnType(columns[i])) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                if (dataTypes[i] instanceof ARXInteger) {
+                    types[i] = TYPE_INTEGER;
+                }
+                break;
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                if (dataTypes[i] instanceof ARXDecimal) {
+                    types[i] = TYPE_DECIMAL;
+                }
+                break;
+            case Types.DATE:
+            case Types.TIMESTAMP:
+                if (dataTypes[i] instanceof ARXDate) {
+                    types[i] = TYPE_DATE;
+                }
+                break;
+            default:
+                types[i] = TYPE_STRING;
+            }
+        }
+        return types;
+    }
+    
+    /**
+     * Adds the given row to the queue. Returns false, if the import has been finished before
+     * 
+     * @param row
+     * @return
+     * @throws InterruptedException
+     */
+    private boolean put(String[] row) throws InterruptedException {
+        while (!closed) {
+            if (queue.offer(row, PUT_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Quotes the given identifier
+     * 
+     * @param identifier
+     * @return
+     * @throws SQLException
+     */
+    private String quote(String identifier) throws SQLException {
+        String quote = config.getConnection().getMetaData().getIdentifierQuoteString();
+        if (quote == null || quote.trim().isEmpty()) {
+            return identifier;
+        }
+        return quote + identifier.replace(quote, quote + quote) + quote;
+    }
+    
     /**
      * Returns an array with indexes of columns that should be imported
      * 
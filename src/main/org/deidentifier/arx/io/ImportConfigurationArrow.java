@@ -0,0 +1,98 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.io;
+
+/**
+ * Configuration describing a file in the Arrow IPC file format
+ * 
+ * Columns can be addressed by their index or by the name of the according field.
+ *
+ * @author Fabian Prasser
+ */
+public class ImportConfigurationArrow extends ImportConfigurationFile {
+
+    /**
+     * Creates a new instance of this object.
+     *
+     * @param fileLocation {@link #setFileLocation(String)}
+     */
+    public ImportConfigurationArrow(String fileLocation) {
+        setFileLocation(fileLocation);
+    }
+
+    /**
+     * Adds a single column to import from
+     * 
+     * This makes sure that only {@link ImportColumnArrow} can be added,
+     * otherwise an {@link IllegalArgumentException} will be thrown.
+     * 
+     * @param column
+     *            A single column to import from, {@link ImportColumnArrow}
+     */
+    @Override
+    public void addColumn(ImportColumn column) {
+
+        if (!(column instanceof ImportColumnArrow)) {
+            throw new IllegalArgumentException("Column needs to be of type ArrowColumn");
+        }
+
+        for (ImportColumn c : columns) {
+            if (((ImportColumnArrow) column).isIndexSpecified() &&
+                ((ImportColumnArrow) column).getIndex() == ((ImportColumnArrow) c).getIndex()) { 
+                throw new IllegalArgumentException("Column for this index already assigned"); 
+            }
+
+            if (!((ImportColumnArrow) column).isIndexSpecified() &&
+                ((ImportColumnArrow) column).getName().equals(((ImportColumnArrow) c).getName())) { 
+                throw new IllegalArgumentException("Column for this name already assigned"); 
+            }
+
+            if (column.getAliasName() != null && c.getAliasName() != null &&
+                c.getAliasName().equals(column.getAliasName())) { 
+                throw new IllegalArgumentException("Column names need to be unique"); 
+            }
+        }
+        this.columns.add(column);
+    }
+
+    /**
+     * Sets the indexes based on the names of the fields.
+     *
+     * @param header
+     */
+    public void prepare(String[] header) {
+
+        for (ImportColumn c : super.getColumns()) {
+            ImportColumnArrow column = (ImportColumnArrow) c;
+            if (!column.isIndexSpecified()) {
+                boolean found = false;
+                for (int i = 0; i < header.length; i++) {
+                    if (header[i].equals(column.getName())) {
+                        found = true;
+                        column.setIndex(i);
+                    }
+                }
+                if (!found) {
+                    throw new IllegalArgumentException("Index for column '" + column.getName() + "' couldn't be found");
+                }
+            } else if (column.getIndex() < 0 || column.getIndex() >= header.length) {
+                throw new IllegalArgumentException("Index for column '" + column.getIndex() + "' couldn't be found");
+            }
+        }
+    }
+}
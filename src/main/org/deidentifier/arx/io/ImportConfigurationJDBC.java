@@ -52,6 +52,32 @@ public class ImportConfigurationJDBC extends ImportConfiguration {
      */
     private final boolean manageConnection;
     
+    /** URL, used to open further connections. */
+    private final String  url;
+    
+    /** User. */
+    private final String  user;
+    
+    /** Password. */
+    private final String  password;
+    
+    /**
+     * Fetch size, 0 if the default of the driver should be used.
+     *
+     * @see {@link #setFetchSize(int)}
+     */
+    private int           fetchSize  = 0;
+    
+    /**
+     * Numeric column used for partitioning.
+     *
+     * @see {@link #setPartitioning(String, int)}
+     */
+    private String        partitionColumn;
+    
+    /** Number of partitions. */
+    private int           partitions = 1;
+    
     /**
      * Creates a new instance of this object.
      *
@@ -62,6 +88,9 @@ public class ImportConfigurationJDBC extends ImportConfiguration {
         this.connection = connection;
         this.table = table;
         this.manageConnection = false;
+        this.url = null;
+        this.user = null;
+        this.password = null;
     }
     
     /**
@@ -75,6 +104,9 @@ public class ImportConfigurationJDBC extends ImportConfiguration {
         this.connection = DriverManager.getConnection(url);
         this.table = table;
         this.manageConnection = true;
+        this.url = url;
+        this.user = null;
+        this.password = null;
     }
     
     /**
@@ -90,6 +122,9 @@ public class ImportConfigurationJDBC extends ImportConfiguration {
         this.connection = DriverManager.getConnection(url, user, password);
         this.table = table;
         this.manageConnection = true;
+        this.url = url;
+        this.user = user;
+        this.password = password;
     }
     
     /**
@@ -138,6 +173,46 @@ public class ImportConfigurationJDBC extends ImportConfiguration {
         }
     }
     
+    /**
+     * Returns the fetch size.
+     *
+     * @return {@link #fetchSize}
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+    
+    /**
+     * Enables streaming. Rows will be retrieved through a forward-only cursor
+     * in batches of the given size, instead of buffering the complete result
+     * set. If a fetch size is defined, auto-commit is disabled during the import,
+     * as this is required by some drivers (e.g. PostgreSQL) to use server-side
+     * cursors. MySQL requires the connection property useCursorFetch=true or a
+     * fetch size of Integer.MIN_VALUE. A fetch size of 0 uses the driver's default.
+     *
+     * @param fetchSize
+     */
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+    
+    /**
+     * Enables parallel reads of the given number of ranges of a numeric column.
+     * Each range is read with a separate connection, which is only possible if
+     * the configuration has been created with a URL. Rows will be returned ordered
+     * by range, which means that the order of rows may differ from the table.
+     *
+     * @param column
+     * @param partitions
+     */
+    public void setPartitioning(String column, int partitions) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("Number of partitions must be positive");
+        }
+        this.partitionColumn = column;
+        this.partitions = partitions;
+    }
+    
     /**
      * 
      *
@@ -188,6 +263,42 @@ public class ImportConfigurationJDBC extends ImportConfiguration {
         return this.connection;
     }
     
+    /**
+     * Returns whether further connections to the database can be opened.
+     *
+     * @return
+     */
+    protected boolean canCreateConnections() {
+        return url != null;
+    }
+    
+    /**
+     * Opens a further connection to the database, if possible.
+     *
+     * @return A new connection or null, if the configuration has not been created with a URL
+     * @throws SQLException
+     */
+    protected Connection getNewConnection() throws SQLException {
+        if (url == null) {
+            return null;
+        }
+        return user == null ? DriverManager.getConnection(url) : DriverManager.getConnection(url, user, password);
+    }
+    
+    /**
+     * @return {@link #partitionColumn}
+     */
+    protected String getPartitionColumn() {
+        return this.partitionColumn;
+    }
+    
+    /**
+     * @return {@link #partitions}
+     */
+    protected int getPartitions() {
+        return this.partitions;
+    }
+    
     /**
      * @return {@link #table}
      */
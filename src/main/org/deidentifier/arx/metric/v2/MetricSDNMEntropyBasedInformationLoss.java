@@ -85,21 +85,25 @@ public class MetricSDNMEntropyBasedInformationLoss extends AbstractMetricSingleD
         //
         // For attributes transformed with microaggregation, we set share_i to 1/#distinct-values-in-eq-class and size_i to the #distinct-values-in-dataset
 
-        int[] generalization = transformation.getGeneralization();
-        double infoLoss = 1d;
-        for (int dimension = 0; dimension < shares.length; dimension++) {
-            int value = entry.key[dimension];
-            int level = generalization[dimension];
-            infoLoss *= shares[dimension].getShare(value, level);
-        }
-        if (microaggregationFunctions != null) {
-            for (int dimension=0; dimension<microaggregationFunctions.length; dimension++){
-                infoLoss *= microaggregationFunctions[dimension].getInformationLoss(entry.distributions[microaggregationStartIndex + dimension]);
-            }
-        }
+        return getEntropyBasedInformationLoss(getDomainShare(transformation,
+                                                             entry,
+                                                             shares,
+                                                             microaggregationFunctions,
+                                                             microaggregationStartIndex),
+                                              maxIL);
+    }
+
+    /**
+     * Implements the entropy-based IL model for the given product of domain shares, as returned by
+     * <code>getDomainShare()</code>. Returns the loss for exactly one record.
+     * @param domainShare
+     * @param maxIL
+     * @return
+     */
+    public static double getEntropyBasedInformationLoss(double domainShare, double maxIL) {
         
         // Finalize
-        double result = Math.log10(infoLoss) / maxIL + 1d;
+        double result = Math.log10(domainShare) / maxIL + 1d;
         
         // TODO: Floating point operations suck
         if (Double.isNaN(result) || result <= -0.001d || result >= +1.001d) {
@@ -114,6 +118,36 @@ public class MetricSDNMEntropyBasedInformationLoss extends AbstractMetricSingleD
         return result;
     }
 
+    /**
+     * Returns the product of the domain shares of all values of the given class, which
+     * is the basis of the entropy-based IL model. Larger products imply a higher information loss.
+     * @param transformation
+     * @param entry
+     * @param shares
+     * @param microaggregationFunctions
+     * @param microaggregationStartIndex
+     * @return
+     */
+    public static double getDomainShare(Transformation transformation,
+                                        HashGroupifyEntry entry,
+                                        DomainShare[] shares,
+                                        DistributionAggregateFunction[] microaggregationFunctions,
+                                        int microaggregationStartIndex) {
+        int[] generalization = transformation.getGeneralization();
+        double share = 1d;
+        for (int dimension = 0; dimension < shares.length; dimension++) {
+            int value = entry.key[dimension];
+            int level = generalization[dimension];
+            share *= shares[dimension].getShare(value, level);
+        }
+        if (microaggregationFunctions != null) {
+            for (int dimension=0; dimension<microaggregationFunctions.length; dimension++){
+                share *= microaggregationFunctions[dimension].getInformationLoss(entry.distributions[microaggregationStartIndex + dimension]);
+            }
+        }
+        return share;
+    }
+
     /**
      * Returns the maximal entropy-based information loss
      * @param domainShares For generalized attributes
@@ -189,13 +189,13 @@ public class MetricSDNMPublisherPayout extends AbstractMetricSingleDimensional {
     }
 
     /**
-     * Returns the success probability. If the game is configured to use journalist risk, 
-     * but no population table is available, we silently default to the prosecutor model.
+     * Returns the size of the class, which determines the success probability. If the game is configured 
+     * to use journalist risk, but no population table is available, we silently default to the prosecutor model.
      * @param entry
      * @return
      */
-    private double getSuccessProbability(HashGroupifyEntry entry) {
-        return !journalistAttackerModel || entry.pcount == 0 ? 1d / entry.count : 1d / entry.pcount;
+    private int getClassSize(HashGroupifyEntry entry) {
+        return !journalistAttackerModel || entry.pcount == 0 ? entry.count : entry.pcount;
     }
 
     @Override
@@ -215,15 +215,15 @@ public class MetricSDNMPublisherPayout extends AbstractMetricSingleDimensional {
         // Compute
         while (entry != null) {
             if (entry.count > 0) {
-                double adversarySuccessProbability = this.getSuccessProbability(entry);
+                int classSize = this.getClassSize(entry);
                 double informationLoss = MetricSDNMEntropyBasedInformationLoss.getEntropyBasedInformationLoss(transformation,
                                                                                                               entry,
                                                                                                               shares,
                                                                                                               microaggregationFunctions,
                                                                                                               microaggregationStartIndex,
                                                                                                               maxIL);
-                double realPayout = modelRisk.getExpectedPublisherPayout(informationLoss, adversarySuccessProbability);
-                double boundPayout = modelRisk.getExpectedPublisherPayout(informationLoss, 0d);
+                double realPayout = modelRisk.getExpectedPublisherPayoutForClassSize(informationLoss, classSize);
+                double boundPayout = modelRisk.getExpectedPublisherBenefit(informationLoss);
                 real += !entry.isNotOutlier ? (sFactor * entry.count * maxPayout) : 
                                               (gFactor * entry.count * (maxPayout - realPayout));
                 bound += gFactor * entry.count * (maxPayout - boundPayout);
@@ -249,7 +249,7 @@ public class MetricSDNMPublisherPayout extends AbstractMetricSingleDimensional {
         int microaggregationStartIndex = super.getMicroaggregationStartIndex();
         
         // Compute
-        double adversarySuccessProbability = this.getSuccessProbability(entry);
+        int classSize = this.getClassSize(entry);
         double informationLoss = MetricSDNMEntropyBasedInformationLoss.getEntropyBasedInformationLoss(transformation,
                                                                                                       entry,
                                                                                                       shares,
@@ -257,8 +257,8 @@ public class MetricSDNMPublisherPayout extends AbstractMetricSingleDimensional {
                                                                                                       microaggregationStartIndex,
                                                                                                       maxIL);
         double maxPayout = this.config.getPublisherBenefit();
-        double realPayout = modelRisk.getExpectedPublisherPayout(informationLoss, adversarySuccessProbability);
-        double boundPayout = modelRisk.getExpectedPublisherPayout(informationLoss, 0d);
+        double realPayout = modelRisk.getExpectedPublisherPayoutForClassSize(informationLoss, classSize);
+        double boundPayout = modelRisk.getExpectedPublisherBenefit(informationLoss);
         double real =  !entry.isNotOutlier ? (sFactor * entry.count * maxPayout) : 
                                              (gFactor * entry.count * (maxPayout - realPayout));
         double bound = gFactor * entry.count * (maxPayout - boundPayout);
@@ -284,7 +284,7 @@ public class MetricSDNMPublisherPayout extends AbstractMetricSingleDimensional {
         while (entry != null) {
             if (entry.count > 0) {
                 double informationLoss = MetricSDNMEntropyBasedInformationLoss.getEntropyBasedInformationLoss(transformation, entry, shares, null, 0, maxIL);
-                double boundPayout = modelRisk.getExpectedPublisherPayout(informationLoss, 0d);
+                double boundPayout = modelRisk.getExpectedPublisherBenefit(informationLoss);
                 bound += gFactor * entry.count * (maxPayout - boundPayout);
             }
             entry = entry.nextOrdered;
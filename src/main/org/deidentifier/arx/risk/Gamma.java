@@ -23,7 +23,7 @@ package org.deidentifier.arx.risk;
  * @author Florian Kohlmayer
  * @author Fabian Prasser
  */
-class Gamma {
+public class Gamma {
 
     /** The Constant B10. */
     private final static double B10            = 5.0 / 66.0;
@@ -72,6 +72,16 @@ class Gamma {
     /** The Constant SMALL_TRIGAMMA. */
     private final static double SMALL_TRIGAMMA = 1e-4;
 
+    /** The Constant TABLE_SIZE. <br>
+     * Number of precomputed values for integer arguments
+     */
+    private final static int    TABLE_SIZE     = 1024;
+
+    /** The Constant MAX_STEPS. <br>
+     * Maximal number of recurrence steps between consecutive arguments of batches
+     */
+    private final static int    MAX_STEPS      = 12;
+
     /** The Constant TETRAGAMMA_1. <br>
      * -2 * Zeta(3) = -2 * Apry constant  
      */
@@ -82,6 +92,140 @@ class Gamma {
      */
     private final static double TRIGAMMA_1     = (StrictMath.PI * StrictMath.PI) / 6.0;                  
 
+    /** Digamma for integer arguments in [1, TABLE_SIZE). */
+    private final static double[] DIGAMMA_INTEGER  = new double[TABLE_SIZE];
+
+    /** Trigamma for integer arguments in [1, TABLE_SIZE). */
+    private final static double[] TRIGAMMA_INTEGER = new double[TABLE_SIZE];
+
+    static {
+        DIGAMMA_INTEGER[0] = Double.NEGATIVE_INFINITY;
+        TRIGAMMA_INTEGER[0] = Double.NEGATIVE_INFINITY;
+        for (int i = 1; i < TABLE_SIZE; i++) {
+            DIGAMMA_INTEGER[i] = computeDigamma(i);
+            TRIGAMMA_INTEGER[i] = computeTrigamma(i);
+        }
+    }
+
+    /**
+     * Approximates the digamma function. Values for small integer arguments
+     * are looked up from a precomputed table.
+     * 
+     * @param x
+     *            input value
+     * @return approximation of digamma for x
+     */
+    public static double digamma(double x) {
+        if (x >= 1.0d && x < TABLE_SIZE && x == (int) x) { return DIGAMMA_INTEGER[(int) x]; }
+        return computeDigamma(x);
+    }
+
+    /**
+     * Approximates the digamma function for each element of the given array.
+     * 
+     * @param x
+     *            input values
+     * @param result
+     *            array into which approximations of digamma for x are written
+     */
+    public static void digamma(double[] x, double[] result) {
+        for (int i = 0; i < x.length; i++) {
+            result[i] = digamma(x[i]);
+        }
+    }
+
+    /**
+     * Approximates the digamma and the trigamma function for the shifted class sizes 
+     * <code>histogram[2i] + shift</code> of a histogram, which is ordered ascending by class 
+     * size, as provided by {@link RiskModelHistogram#getHistogram()}. Consecutive 
+     * arguments are derived from each other via the recurrence relations 
+     * digamma(x+1) = digamma(x) + 1/x and trigamma(x+1) = trigamma(x) - 1/x^2, 
+     * which is much cheaper than evaluating the asymptotic expansions for each class size.
+     * 
+     * @param histogram
+     *            class sizes and counts ordered ascending by size
+     * @param shift
+     *            value added to each class size
+     * @param digamma
+     *            array into which approximations of digamma are written
+     * @param trigamma
+     *            array into which approximations of trigamma are written
+     */
+    public static void digammaAndTrigamma(int[] histogram, double shift, double[] digamma, double[] trigamma) {
+
+        double previous = Double.NaN;
+        for (int i = 0; i < histogram.length; i += 2) {
+
+            int index = i >> 1;
+            double x = histogram[i] + shift;
+            int steps = index == 0 ? -1 : histogram[i] - histogram[i - 2];
+
+            /* Recurrence is only stable for arguments >= 1 */
+            if (steps >= 0 && steps <= MAX_STEPS && previous >= 1.0d) {
+                double resultDigamma = digamma[index - 1];
+                double resultTrigamma = trigamma[index - 1];
+                for (int j = 0; j < steps; j++) {
+                    double y = previous + j;
+                    resultDigamma += 1.0d / y;
+                    resultTrigamma -= 1.0d / (y * y);
+                }
+                digamma[index] = resultDigamma;
+                trigamma[index] = resultTrigamma;
+            } else {
+                digamma[index] = digamma(x);
+                trigamma[index] = trigamma(x);
+            }
+            previous = x;
+        }
+    }
+
+    /**
+     * TODO: Implement efficiently
+     * 
+     * @param x
+     * @return
+     */
+    static double gamma(double x) {
+        return org.apache.commons.math3.special.Gamma.gamma(x);
+    }
+
+    /**
+     * TODO: Implement efficiently
+     * 
+     * @param x
+     * @return
+     */
+    static double logGamma(double x) {
+        return org.apache.commons.math3.special.Gamma.logGamma(x);
+    }
+
+    /**
+     * Approximates the trigamma function. Values for small integer arguments
+     * are looked up from a precomputed table.
+     * 
+     * @param x
+     *            input value
+     * @return approximation of trigamma for x
+     */
+    public static double trigamma(double x) {
+        if (x >= 1.0d && x < TABLE_SIZE && x == (int) x) { return TRIGAMMA_INTEGER[(int) x]; }
+        return computeTrigamma(x);
+    }
+
+    /**
+     * Approximates the trigamma function for each element of the given array.
+     * 
+     * @param x
+     *            input values
+     * @param result
+     *            array into which approximations of trigamma for x are written
+     */
+    public static void trigamma(double[] x, double[] result) {
+        for (int i = 0; i < x.length; i++) {
+            result[i] = trigamma(x[i]);
+        }
+    }
+
     /**
      * Approximates the digamma function. Java port of the
      * "The Lightspeed Matlab toolbox" version 2.7 by Tom Minka see:
@@ -91,7 +235,7 @@ class Gamma {
      *            input value
      * @return approximation of digamma for x
      */
-    static double digamma(double x) {
+    private static double computeDigamma(double x) {
 
         /* Illegal arguments */
         if (Double.isInfinite(x) || Double.isNaN(x)) { return Double.NaN; }
@@ -138,26 +282,6 @@ class Gamma {
         return result;
     }
 
-    /**
-     * TODO: Implement efficiently
-     * 
-     * @param x
-     * @return
-     */
-    static double gamma(double x) {
-        return org.apache.commons.math3.special.Gamma.gamma(x);
-    }
-
-    /**
-     * TODO: Implement efficiently
-     * 
-     * @param x
-     * @return
-     */
-    static double logGamma(double x) {
-        return org.apache.commons.math3.special.Gamma.logGamma(x);
-    }
-
     /**
      * Approximates the trigamma function. Java port of the
      * "The Lightspeed Matlab toolbox" version 2.7 by Tom Minka see:
@@ -167,7 +291,7 @@ class Gamma {
      *            input value
      * @return approximation of trigamma for x
      */
-    static double trigamma(double x) {
+    private static double computeTrigamma(double x) {
         /* Illegal arguments */
         if (Double.isInfinite(x) || Double.isNaN(x)) { return Double.NaN; }
 
@@ -197,12 +321,11 @@ class Gamma {
 
         /* Apply asymptotic formula when X >= B */
         /* This expansion can be computed in Maple via asympt(Psi(1,x),x) */
-        if (x >= LARGE_DIGAMMA) {
+        if (x >= LARGE_TRIGAMMA) {
             double r = 1.0d / (x * x);
             result += (0.5d * r) +
                       ((1.0d + (r * (B2 + (r * (B4 + (r * (B6 + (r * (B8 + (r * B10)))))))))) / x);
         }
         return result;
     }
-
 }
@@ -145,6 +145,8 @@ class ModelPitman extends RiskModelPopulation {
             private final Vector2D                       object      = new Vector2D();
             private final Pair<Vector2D, SquareMatrix2D> result      = new Pair<Vector2D, SquareMatrix2D>(object,
                                                                                                           derivatives);
+            private final double[]                       digammas    = new double[classes.length / 2];
+            private final double[]                       trigammas   = new double[classes.length / 2];
 
             @Override
             public Pair<Vector2D, SquareMatrix2D> evaluate(Vector2D input) {
@@ -178,13 +180,14 @@ class ModelPitman extends RiskModelPopulation {
                 double o4 = 0;
                 double val6 = Gamma.digamma(1d - a);
                 double val7 = Gamma.trigamma(1d - a);
+                Gamma.digammaAndTrigamma(classes, -a, digammas, trigammas);
                 for (int i = 0; i < classes.length; i += 2) {
                     int key = classes[i];
                     int value = classes[i + 1];
 
                     if (key != 1) {
-                        d4 += value * (val7 - Gamma.trigamma(key - a));
-                        o4 += value * (Gamma.digamma(key - a) - val6);
+                        d4 += value * (val7 - trigammas[i >> 1]);
+                        o4 += value * (digammas[i >> 1] - val6);
                     }
                     checkInterrupt();
                 }
@@ -26,6 +26,8 @@ import org.deidentifier.arx.DataHandleInternal;
 import org.deidentifier.arx.common.WrappedBoolean;
 import org.deidentifier.arx.common.WrappedInteger;
 
+import com.carrotsearch.hppc.IntIntOpenHashMap;
+
 /**
  * A builder for risk estimates
  *
@@ -40,8 +42,12 @@ public class RiskEstimateBuilder {
     private final DataHandleInternal     handle;
     /** Fields */
     private final Set<String>            identifiers;
-    /** Equivalence classes */
-    private RiskModelHistogram           classes;
+    /** Equivalence classes, if provided */
+    private final RiskModelHistogram     classes;
+    /** Sizes of equivalence classes in the sample and the population, if provided */
+    private final int[]                  sizes;
+    /** Whether the data is anonymous, if no handle is provided */
+    private final boolean                anonymous;
     /** Asynchronous computation */
     private final WrappedBoolean         stop;
     /** Model */
@@ -134,6 +140,42 @@ public class RiskEstimateBuilder {
         this.handle = handle;
         this.identifiers = identifiers;
         this.classes = classes;
+        this.sizes = null;
+        this.anonymous = false;
+        this.solverconfig = solverconfig;
+        this.arxconfig = arxconfig;
+        synchronized (this) {
+            stop = new WrappedBoolean();
+        }
+    }
+
+    /**
+     * Creates a new instance for equivalence classes that are not backed by a data handle,
+     * e.g. classes of a transformation which has not been applied to the data. Sizes are
+     * provided as size-in-sample[idx], size-in-population[idx+1],... for all classes which have
+     * not been suppressed. Estimates which need access to the data are not available.
+     *
+     * @param population
+     * @param sizes
+     * @param anonymous
+     * @param solverconfig
+     * @param arxconfig
+     */
+    public RiskEstimateBuilder(ARXPopulationModel population,
+                               int[] sizes,
+                               boolean anonymous,
+                               ARXSolverConfiguration solverconfig,
+                               ARXConfiguration arxconfig) {
+        IntIntOpenHashMap distribution = new IntIntOpenHashMap();
+        for (int i = 0; i < sizes.length; i += 2) {
+            distribution.putOrAdd(sizes[i], 1, 1);
+        }
+        this.population = population;
+        this.handle = null;
+        this.identifiers = null;
+        this.classes = new RiskModelHistogram(distribution);
+        this.sizes = sizes;
+        this.anonymous = anonymous;
         this.solverconfig = solverconfig;
         this.arxconfig = arxconfig;
         synchronized (this) {
@@ -159,6 +201,8 @@ public class RiskEstimateBuilder {
         this.handle = handle;
         this.identifiers = identifiers;
         this.classes = null;
+        this.sizes = null;
+        this.anonymous = false;
         this.solverconfig = solverconfig;
         this.arxconfig = arxconfig;
         synchronized (this) {
@@ -173,6 +217,7 @@ public class RiskEstimateBuilder {
      * @return the RiskModelAttributes data from risk analysis
      */
     public RiskModelAttributes getAttributeRisks() {
+        checkHandle();
         progress.value = 0;
         return new RiskModelAttributes(this.population, this.handle, this.identifiers, this.stop, progress, this.solverconfig, this.arxconfig);
     }
@@ -193,6 +238,7 @@ public class RiskEstimateBuilder {
      * @return
      */
     public HIPAAIdentifierMatch[] getHIPAAIdentifiers() {
+        checkHandle();
         return new RiskModelHIPAASafeHarbor().getMatches(handle, 0.5d, stop);
     }
 
@@ -204,6 +250,7 @@ public class RiskEstimateBuilder {
      * @return
      */
     public HIPAAIdentifierMatch[] getHIPAAIdentifiers(double threshold) {
+        checkHandle();
         return new RiskModelHIPAASafeHarbor().getMatches(handle, threshold, stop);
     }
 
@@ -239,7 +286,33 @@ public class RiskEstimateBuilder {
      */
     public RiskModelSampleRisks getSampleBasedReidentificationRisk() {
         progress.value = 0;
-        return new RiskModelSampleRisks(getEquivalenceClassModel(), arxconfig, handle.isAnonymous());
+        return new RiskModelSampleRisks(getEquivalenceClassModel(), arxconfig, isAnonymous());
+    }
+
+    /**
+     * Returns approximate sample-based risk estimates, which are derived from a random
+     * sample of records of the given size. Confidence intervals are computed for
+     * a confidence level of 95%.
+     *
+     * @param sampleSize Number of records to sample
+     * @return
+     */
+    public RiskModelSampleApproximation getSampleBasedRiskApproximation(int sampleSize) {
+        return getSampleBasedRiskApproximation(sampleSize, 0.95d);
+    }
+
+    /**
+     * Returns approximate sample-based risk estimates, which are derived from a random
+     * sample of records of the given size.
+     *
+     * @param sampleSize Number of records to sample
+     * @param confidence Confidence level of the intervals, e.g. 0.95
+     * @return
+     */
+    public RiskModelSampleApproximation getSampleBasedRiskApproximation(int sampleSize, double confidence) {
+        checkHandle();
+        progress.value = 0;
+        return new RiskModelSampleApproximation(handle, identifiers, sampleSize, confidence, stop, progress);
     }
 
     /**
@@ -249,7 +322,7 @@ public class RiskEstimateBuilder {
      */
     public RiskModelSampleRiskDistribution getSampleBasedRiskDistribution() {
         progress.value = 0;
-        return new RiskModelSampleRiskDistribution(getEquivalenceClassModel(), arxconfig, handle.isAnonymous());
+        return new RiskModelSampleRiskDistribution(getEquivalenceClassModel(), arxconfig, isAnonymous());
     }
 
     /**
@@ -260,6 +333,9 @@ public class RiskEstimateBuilder {
      */
     public RiskModelSampleSummary getSampleBasedRiskSummary(double threshold) {
         progress.value = 0;
+        if (sizes != null) {
+            return new RiskModelSampleSummary(sizes, threshold, stop, progress);
+        }
         return new RiskModelSampleSummary(handle, identifiers, threshold, stop, progress);
     }
 
@@ -274,20 +350,45 @@ public class RiskEstimateBuilder {
     }
 
     /**
-     * Returns a model of the equivalence classes in this data set
+     * Makes sure that the estimates are backed by a data handle
+     */
+    private void checkHandle() {
+        if (handle == null) {
+            throw new IllegalStateException("This estimate requires access to the data");
+        }
+    }
+
+    /**
+     * Returns a model of the equivalence classes in this data set. If no classes have been
+     * provided, they are shared with all other builders for the same handle and set of
+     * quasi-identifiers, as long as the handle is not modified.
      *
      * @return
      */
     private RiskModelHistogram getHistogram(double factor) {
         synchronized (this) {
-            if (classes == null) {
+            if (classes != null) {
+                return classes;
+            }
+            RiskModelHistogram histogram = handle.getEquivalenceClasses(identifiers);
+            if (histogram == null) {
                 progress.value = 0;
-                classes = new RiskModelHistogram(handle, identifiers, stop, progress, factor);
+                histogram = new RiskModelHistogram(handle, identifiers, stop, progress, factor);
+                handle.setEquivalenceClasses(identifiers, histogram);
             }
-            return classes;
+            return histogram;
         }
     }
 
+    /**
+     * Returns whether the data is anonymous
+     *
+     * @return
+     */
+    private boolean isAnonymous() {
+        return handle != null ? handle.isAnonymous() : anonymous;
+    }
+
     /**
      * Returns a class providing population-based uniqueness estimates
      *
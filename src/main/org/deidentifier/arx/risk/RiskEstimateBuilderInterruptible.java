@@ -117,6 +117,38 @@ public class RiskEstimateBuilderInterruptible {
         }
     }
     
+    /**
+     * Returns approximate sample-based risk estimates, which are derived from a random
+     * sample of records of the given size. Confidence intervals are computed for
+     * a confidence level of 95%.
+     *
+     * @param sampleSize Number of records to sample
+     * @return
+     */
+    public RiskModelSampleApproximation getSampleBasedRiskApproximation(int sampleSize) throws InterruptedException {
+        try {
+            return parent.getSampleBasedRiskApproximation(sampleSize);
+        } catch (ComputationInterruptedException e) {
+            throw new InterruptedException("Computation interrupted");
+        }
+    }
+
+    /**
+     * Returns approximate sample-based risk estimates, which are derived from a random
+     * sample of records of the given size.
+     *
+     * @param sampleSize Number of records to sample
+     * @param confidence Confidence level of the intervals, e.g. 0.95
+     * @return
+     */
+    public RiskModelSampleApproximation getSampleBasedRiskApproximation(int sampleSize, double confidence) throws InterruptedException {
+        try {
+            return parent.getSampleBasedRiskApproximation(sampleSize, confidence);
+        } catch (ComputationInterruptedException e) {
+            throw new InterruptedException("Computation interrupted");
+        }
+    }
+
     /**
      * Returns a class representing the distribution of prosecutor risks in the sample
      * 
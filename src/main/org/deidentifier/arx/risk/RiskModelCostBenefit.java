@@ -35,9 +35,15 @@ public class RiskModelCostBenefit implements Serializable {
     /** SVUID */
     private static final long                 serialVersionUID = -6124431335607475931L;
 
+    /** Number of class sizes for which expected losses are cached */
+    private static final int                  CACHE_SIZE       = 1024;
+
     /** The underlying configuration */
     private final ARXCostBenefitConfiguration config;
 
+    /** Expected losses of the publisher, indexed by class size */
+    private transient double[]                losses;
+
     /**
      * Creates a new instance
      * @param configuration
@@ -66,6 +72,41 @@ public class RiskModelCostBenefit implements Serializable {
         return config.getPublisherBenefit() * (1d - informationLoss);
     }
 
+    /**
+     * Returns the expected loss of the publisher for a record in an equivalence class
+     * of the given size, i.e. with an adversary success probability of 1/size. Values
+     * are cached, as many classes share the same size.
+     * @param size
+     * @return
+     */
+    public double getExpectedPublisherLossForClassSize(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Class size must be positive: " + size);
+        }
+        if (size >= CACHE_SIZE) {
+            return getExpectedPublisherLoss(1d / size);
+        }
+        if (losses == null) {
+            double[] cache = new double[CACHE_SIZE];
+            for (int i = 1; i < CACHE_SIZE; i++) {
+                cache[i] = getExpectedPublisherLoss(1d / i);
+            }
+            losses = cache;
+        }
+        return losses[size];
+    }
+
+    /**
+     * Returns the expected publisher payout for a record in an equivalence class of the given size
+     * @param informationLoss
+     * @param size
+     * @return
+     */
+    public double getExpectedPublisherPayoutForClassSize(double informationLoss, int size) {
+        // Arguments will be checked in subsequent method calls
+        return getExpectedPublisherBenefit(informationLoss) - getExpectedPublisherLossForClassSize(size);
+    }
+
     /**
      * Returns the expected publisher payout
      * @param informationLoss
@@ -74,10 +115,18 @@ public class RiskModelCostBenefit implements Serializable {
      */
     public double getExpectedPublisherPayout(double informationLoss, double adversarySuccessProbability ) {
         // Arguments will be checked in subsequent method calls
-        return getExpectedPublisherBenefit(informationLoss) - 
-               (getExpectedAdversaryPayout(adversarySuccessProbability) > 0 ? config.getPublisherLoss() * adversarySuccessProbability : 0);
+        return getExpectedPublisherBenefit(informationLoss) - getExpectedPublisherLoss(adversarySuccessProbability);
     }
     
+    /**
+     * Returns the expected loss of the publisher
+     * @param adversarySuccessProbability
+     * @return
+     */
+    private double getExpectedPublisherLoss(double adversarySuccessProbability) {
+        return getExpectedAdversaryPayout(adversarySuccessProbability) > 0 ? config.getPublisherLoss() * adversarySuccessProbability : 0;
+    }
+
     /**
      * Checks the provided argument
      * @param argument
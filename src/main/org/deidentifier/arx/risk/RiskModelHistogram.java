@@ -22,6 +22,7 @@ import java.util.Comparator;
 import java.util.Set;
 
 import org.deidentifier.arx.DataHandleInternal;
+import org.deidentifier.arx.common.EquivalenceClassIndex;
 import org.deidentifier.arx.common.Groupify;
 import org.deidentifier.arx.common.Groupify.Group;
 import org.deidentifier.arx.common.TupleWrapper;
@@ -90,6 +91,13 @@ public class RiskModelHistogram {
         }
         Arrays.sort(indices);
 
+        // Use shared index of equivalence classes, if available
+        EquivalenceClassIndex classes = handle.getEquivalenceClassIndex(indices, stop);
+        if (classes != null) {
+            convertAndAnalyze(getGroupedSizes(handle, classes, stop, progress, factor), stop, progress);
+            return;
+        }
+
         // Calculate equivalence classes
         int capacity = handle.getNumRows() / 10;
         capacity = capacity > 10 ? capacity : 10;
@@ -167,6 +175,46 @@ public class RiskModelHistogram {
         return numRecords;
     }
 
+    /**
+     * Returns the number of equivalence classes per class size, ignoring suppressed records
+     * 
+     * @param handle
+     * @param index
+     * @param stop
+     * @param progress
+     * @param factor
+     * @return
+     */
+    private IntIntOpenHashMap getGroupedSizes(final DataHandleInternal handle,
+                                              final EquivalenceClassIndex index,
+                                              final WrappedBoolean stop,
+                                              final WrappedInteger progress,
+                                              double factor) {
+
+        // Count records that are not suppressed
+        int[] classes = index.getClasses();
+        int[] sizes = new int[index.getNumClasses()];
+        for (int row = 0; row < classes.length; row++) {
+            if (!handle.isOutlier(row)) {
+                sizes[classes[row]]++;
+            }
+            if ((row & 0xFFFF) == 0) {
+                progress.value = (int) Math.round((double) row / (double) classes.length * factor * 80d);
+                if (stop.value) { throw new ComputationInterruptedException(); }
+            }
+        }
+
+        // Group by size
+        IntIntOpenHashMap grouped = new IntIntOpenHashMap();
+        for (int i = 0; i < sizes.length; i++) {
+            if (sizes[i] != 0) {
+                grouped.putOrAdd(sizes[i], 1, 1);
+            }
+        }
+        progress.value = (int) Math.round(100d * factor);
+        return grouped;
+    }
+
     /**
      * Convert and analyze
      * 
@@ -0,0 +1,478 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.risk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.commons.math3.distribution.NormalDistribution;
+import org.deidentifier.arx.DataHandleInternal;
+import org.deidentifier.arx.common.WrappedBoolean;
+import org.deidentifier.arx.common.WrappedInteger;
+import org.deidentifier.arx.exceptions.ComputationInterruptedException;
+import org.deidentifier.arx.io.CSVDataOutputEncoded;
+
+import com.carrotsearch.hppc.IntOpenHashSet;
+import com.carrotsearch.hppc.LongIntOpenHashMap;
+
+/**
+ * Approximates sample-based risk estimates from a uniform random sample of records.
+ * The indices of the sampled rows are drawn first and only the values of these rows
+ * are read. Afterwards, the exact sizes of the equivalence classes of the sampled
+ * records are determined in a single pass, which compares encoded values, if the
+ * handle provides them. Memory requirements are thus bounded by the size of the sample
+ * instead of the number of equivalence classes. As all estimates are averages over
+ * records, they are unbiased and come with confidence intervals.
+ * IMPORTANT: Suppressed records will be ignored!
+ *
+ * @author Fabian Prasser
+ */
+public class RiskModelSampleApproximation {
+
+    /**
+     * An estimate with a confidence interval
+     *
+     * @author Fabian Prasser
+     */
+    public static class Estimate {
+
+        /** Value */
+        private final double value;
+        /** Lower bound */
+        private final double lower;
+        /** Upper bound */
+        private final double upper;
+
+        /**
+         * Creates a new instance
+         * @param value
+         * @param lower
+         * @param upper
+         */
+        protected Estimate(double value, double lower, double upper) {
+            this.value = value;
+            this.lower = lower;
+            this.upper = upper;
+        }
+
+        /**
+         * Returns the lower bound of the confidence interval
+         * @return
+         */
+        public double getLowerBound() {
+            return lower;
+        }
+
+        /**
+         * Returns the upper bound of the confidence interval
+         * @return
+         */
+        public double getUpperBound() {
+            return upper;
+        }
+
+        /**
+         * Returns the point estimate
+         * @return
+         */
+        public double getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return value + " [" + lower + ", " + upper + "]";
+        }
+    }
+
+    /** Seed */
+    private static final long SEED = 0xDEADBEEF;
+
+    /** Number of records */
+    private final double      numRecords;
+    /** Number of sampled records */
+    private final double      numSampledRecords;
+    /** Confidence level */
+    private final double      confidence;
+    /** Average risk */
+    private final Estimate    averageRisk;
+    /** Uniqueness */
+    private final Estimate    uniqueness;
+    /** Risks */
+    private final Estimate[]  recordsAtRisk;
+    /** Cumulative risks */
+    private final Estimate[]  recordsAtCumulativeRisk;
+
+    /**
+     * Creates a new instance by analyzing the given data handle.
+     *
+     * @param handle
+     * @param qis
+     * @param sampleSize
+     * @param confidence
+     * @param stop
+     * @param progress
+     */
+    RiskModelSampleApproximation(final DataHandleInternal handle,
+                                 final Set<String> qis,
+                                 final int sampleSize,
+                                 final double confidence,
+                                 final WrappedBoolean stop,
+                                 final WrappedInteger progress) {
+
+        /* ********************************
+         * Check
+         * ********************************/
+        if (handle == null) { throw new NullPointerException("Handle is null"); }
+        if (qis == null) { throw new NullPointerException("Quasi identifiers must not be null"); }
+        if (sampleSize <= 0) { throw new IllegalArgumentException("Sample size must be positive"); }
+        if (confidence <= 0d || confidence >= 1d) { throw new IllegalArgumentException("Confidence level out of range (0, 1): " + confidence); }
+        for (String q : qis) {
+            if (handle.getColumnIndexOf(q) == -1) { throw new IllegalArgumentException(q + " is not an attribute"); }
+        }
+
+        final int[] indices = new int[qis.size()];
+        int index = 0;
+        for (final String attribute : qis) {
+            indices[index++] = handle.getColumnIndexOf(attribute);
+        }
+        Arrays.sort(indices);
+
+        /* ********************************
+         * Draw sample
+         * ********************************/
+        int numRows = handle.getNumRows();
+        int[] sample = getSample(numRows, sampleSize);
+        int sampled = 0;
+        for (int row : sample) {
+            if (!handle.isOutlier(row)) {
+                sample[sampled++] = row;
+            }
+        }
+        sample = Arrays.copyOf(sample, sampled);
+        
+        /* ********************************
+         * Index sampled tuples
+         * ********************************/
+        // Map values of sampled records to local codes. Only sampled rows are read.
+        CSVDataOutputEncoded.Column[] encoded = handle.getEncodedColumns();
+        CSVDataOutputEncoded.Column[] columns = new CSVDataOutputEncoded.Column[indices.length];
+        int[][] localCodes = new int[indices.length][];
+        List<Map<String, Integer>> localValues = new ArrayList<Map<String, Integer>>();
+        int[][] codes = new int[indices.length][sampled];
+        int[] widths = new int[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            Map<String, Integer> values = new HashMap<String, Integer>();
+            if (encoded != null) {
+                columns[i] = encoded[indices[i]];
+                localCodes[i] = new int[columns[i].getDictionary().length];
+                Arrays.fill(localCodes[i], -1);
+            }
+            for (int j = 0; j < sampled; j++) {
+                String value = handle.getValue(sample[j], indices[i], false);
+                Integer code = values.get(value);
+                if (code == null) {
+                    code = values.size();
+                    values.put(value, code);
+                }
+                codes[i][j] = code;
+                if (encoded != null) {
+                    localCodes[i][columns[i].getCode(sample[j])] = code;
+                }
+            }
+            widths[i] = values.size();
+            localValues.add(encoded != null ? null : values);
+        }
+
+        // Assign classes to sampled records, column by column
+        LongIntOpenHashMap[] prefixes = new LongIntOpenHashMap[indices.length];
+        int[] classes = new int[sampled];
+        int numClasses = sampled == 0 ? 0 : 1;
+        for (int i = 0; i < indices.length; i++) {
+            prefixes[i] = new LongIntOpenHashMap();
+            int next = 0;
+            for (int j = 0; j < sampled; j++) {
+                long key = (long) classes[j] * widths[i] + codes[i][j];
+                if (prefixes[i].putIfAbsent(key, next)) {
+                    next++;
+                }
+                classes[j] = prefixes[i].get(key);
+            }
+            numClasses = next;
+        }
+
+        /* ********************************
+         * Determine class sizes
+         * ********************************/
+        // Requires a single pass, in which encoded data is used, if available
+        int[] sizes = new int[numClasses];
+        int records = 0;
+        for (int row = 0; row < numRows; row++) {
+            setProgress(progress, (double) row / (double) numRows * 100d);
+            if (!handle.isOutlier(row)) {
+                records++;
+                int clazz = 0;
+                for (int i = 0; i < indices.length && clazz != -1; i++) {
+                    int code;
+                    if (encoded != null) {
+                        code = localCodes[i][columns[i].getCode(row)];
+                    } else {
+                        Integer value = localValues.get(i).get(handle.getValue(row, indices[i], false));
+                        code = value == null ? -1 : value;
+                    }
+                    long key = (long) clazz * widths[i] + code;
+                    clazz = code != -1 && prefixes[i].containsKey(key) ? prefixes[i].lget() : -1;
+                }
+                if (clazz != -1 && numClasses != 0) {
+                    sizes[clazz]++;
+                }
+            }
+            if (stop.value) { throw new ComputationInterruptedException(); }
+        }
+        this.numRecords = records;
+        this.numSampledRecords = sampled;
+        this.confidence = confidence;
+
+        /* ********************************
+         * Estimate
+         * ********************************/
+        double[] thresholds = RiskModelSampleRiskDistribution.thresholdsHigh;
+        double[] risks = new double[sampled];
+        int[] atRisk = new int[thresholds.length];
+        int unique = 0;
+        for (int i = 0; i < sampled; i++) {
+            int size = sizes[classes[i]];
+            double risk = 1d / (double) size;
+            risks[i] = risk;
+            unique += size == 1 ? 1 : 0;
+            int bucket = Arrays.binarySearch(thresholds, risk);
+            if (bucket < 0) {
+                bucket = -bucket - 1;
+            }
+            atRisk[bucket]++;
+        }
+
+        // Critical value, including finite population correction
+        double z = new NormalDistribution().inverseCumulativeProbability(1d - (1d - confidence) / 2d);
+        z *= records > 1 ? Math.sqrt((records - sampled) / (double) (records - 1)) : 0d;
+
+        this.averageRisk = getMean(risks, z);
+        this.uniqueness = getProportion(unique, sampled, z);
+        this.recordsAtRisk = new Estimate[thresholds.length];
+        this.recordsAtCumulativeRisk = new Estimate[thresholds.length];
+        int cumulative = 0;
+        for (int i = 0; i < thresholds.length; i++) {
+            cumulative += atRisk[i];
+            this.recordsAtRisk[i] = getProportion(atRisk[i], sampled, z);
+            this.recordsAtCumulativeRisk[i] = getProportion(cumulative, sampled, z);
+        }
+        progress.value = 100;
+    }
+
+    /**
+     * Returns the average re-identification risk
+     *
+     * @return
+     */
+    public Estimate getAverageRisk() {
+        return averageRisk;
+    }
+
+    /**
+     * Returns the lower bounds (exclusive) of the intervals for the according data points.
+     *
+     * @return
+     */
+    public double[] getAvailableLowerRiskThresholds() {
+        return RiskModelSampleRiskDistribution.thresholdsLow;
+    }
+
+    /**
+     * Returns the lower bounds (inclusive) of the intervals for the according data points.
+     *
+     * @return
+     */
+    public double[] getAvailableUpperRiskThresholds() {
+        return RiskModelSampleRiskDistribution.thresholdsHigh;
+    }
+
+    /**
+     * Returns the confidence level of all intervals
+     *
+     * @return
+     */
+    public double getConfidenceLevel() {
+        return confidence;
+    }
+
+    /**
+     * Returns the estimated marketer risk
+     *
+     * @return
+     */
+    public Estimate getEstimatedMarketerRisk() {
+        return averageRisk;
+    }
+
+    /**
+     * Returns the estimated fraction of records for each risk threshold.
+     *
+     * @return
+     */
+    public Estimate[] getFractionOfRecordsForCumulativeRiskThresholds() {
+        return recordsAtCumulativeRisk;
+    }
+
+    /**
+     * Returns the estimated fraction of records for each risk threshold.
+     *
+     * @return
+     */
+    public Estimate[] getFractionOfRecordsForRiskThresholds() {
+        return recordsAtRisk;
+    }
+
+    /**
+     * Returns the estimated fraction of unique records
+     *
+     * @return
+     */
+    public Estimate getFractionOfUniqueTuples() {
+        return uniqueness;
+    }
+
+    /**
+     * Returns the number of records considered
+     *
+     * @return
+     */
+    public double getNumRecords() {
+        return numRecords;
+    }
+
+    /**
+     * Returns the number of records in the sample
+     *
+     * @return
+     */
+    public double getNumSampledRecords() {
+        return numSampledRecords;
+    }
+
+    /**
+     * Returns the estimated number of unique records
+     *
+     * @return
+     */
+    public Estimate getNumUniqueTuples() {
+        return new Estimate(uniqueness.getValue() * numRecords,
+                            uniqueness.getLowerBound() * numRecords,
+                            uniqueness.getUpperBound() * numRecords);
+    }
+
+    /**
+     * Draws the given number of distinct row indices uniformly at random with Floyd's
+     * algorithm. Returns all rows, if the sample size exceeds the number of rows.
+     *
+     * @param numRows
+     * @param sampleSize
+     * @return Sorted row indices
+     */
+    private int[] getSample(int numRows, int sampleSize) {
+        if (sampleSize >= numRows) {
+            int[] result = new int[numRows];
+            for (int row = 0; row < numRows; row++) {
+                result[row] = row;
+            }
+            return result;
+        }
+        Random random = new Random(SEED);
+        IntOpenHashSet selected = new IntOpenHashSet(sampleSize);
+        for (int row = numRows - sampleSize; row < numRows; row++) {
+            if (!selected.add(random.nextInt(row + 1))) {
+                selected.add(row);
+            }
+        }
+        int[] result = selected.toArray();
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Normal approximation for the mean of values in [0, 1]
+     *
+     * @param values
+     * @param z
+     * @return
+     */
+    private Estimate getMean(double[] values, double z) {
+        if (values.length == 0) {
+            return new Estimate(0d, 0d, 0d);
+        }
+        double mean = 0d;
+        for (double value : values) {
+            mean += value;
+        }
+        mean /= values.length;
+        double variance = 0d;
+        for (double value : values) {
+            variance += (value - mean) * (value - mean);
+        }
+        variance = values.length > 1 ? variance / (values.length - 1) : 0d;
+        double delta = z * Math.sqrt(variance / values.length);
+        return new Estimate(mean, Math.max(0d, mean - delta), Math.min(1d, mean + delta));
+    }
+
+    /**
+     * Wilson score interval for a proportion
+     *
+     * @param successes
+     * @param trials
+     * @param z
+     * @return
+     */
+    private Estimate getProportion(int successes, int trials, double z) {
+        if (trials == 0) {
+            return new Estimate(0d, 0d, 0d);
+        }
+        double p = (double) successes / (double) trials;
+        double n = trials;
+        double denominator = 1d + z * z / n;
+        double center = (p + z * z / (2d * n)) / denominator;
+        double delta = z * Math.sqrt(p * (1d - p) / n + z * z / (4d * n * n)) / denominator;
+        return new Estimate(p, Math.max(0d, center - delta), Math.min(1d, center + delta));
+    }
+
+    /**
+     * Updates the progress
+     *
+     * @param progress
+     * @param value
+     */
+    private void setProgress(WrappedInteger progress, double value) {
+        int prog = (int) Math.round(value);
+        if (prog != progress.value) {
+            progress.value = prog;
+        }
+    }
+}
@@ -29,7 +29,7 @@ import org.deidentifier.arx.ARXConfiguration;
 public class RiskModelSampleRiskDistribution {
     
     /** Thresholds */
-    private static final double[] thresholdsLow           = new double[] {  0d,
+    static final double[]         thresholdsLow           = new double[] {  0d,
                                                                             0.00000001d,
                                                                             0.0000001d,
                                                                             0.000001d,
@@ -54,7 +54,7 @@ public class RiskModelSampleRiskDistribution {
                                                                             0.334d,
                                                                             0.5d};
     /** Thresholds */
-    private static final double[] thresholdsHigh          = new double[] {  0.00000001d,
+    static final double[]         thresholdsHigh          = new double[] {  0.00000001d,
                                                                             0.0000001d,
                                                                             0.000001d,
                                                                             0.00001d,
@@ -184,10 +184,31 @@ public class RiskModelSampleSummary {
             sample = getGroups(handle, identifiers, 0d, 0.9d, stop, progress, false);
             population = sample;
         }
+        int[] classes = getClasses(population, sample, stop);
         
-        this.prosecutorRisk = getProsecutorRisk(population, sample, 0.9d, stop, progress);
-        this.journalistRisk = getJournalistRisk(population, sample, 0.933d, stop, progress);
-        this.marketerRisk = getMarketerRisk(population, sample, 0.966d, stop, progress);
+        this.prosecutorRisk = getProsecutorRisk(classes, 0.9d, stop, progress);
+        this.journalistRisk = getJournalistRisk(classes, 0.933d, stop, progress);
+        this.marketerRisk = getMarketerRisk(classes, 0.966d, stop, progress);
+    }
+
+    /**
+     * Creates a new instance from the sizes of equivalence classes, which are
+     * provided as size-in-sample[idx], size-in-population[idx+1],... Only classes
+     * which have not been suppressed must be provided.
+     * 
+     * @param classes Class sizes
+     * @param threshold Acceptable highest probability of re-identification for a single record
+     * @param stop Stop flag
+     * @param progress Progress
+     */
+    RiskModelSampleSummary(int[] classes,
+                           double threshold,
+                           WrappedBoolean stop,
+                           WrappedInteger progress) {
+        this.threshold = threshold;
+        this.prosecutorRisk = getProsecutorRisk(classes, 0.9d, stop, progress);
+        this.journalistRisk = getJournalistRisk(classes, 0.933d, stop, progress);
+        this.marketerRisk = getMarketerRisk(classes, 0.966d, stop, progress);
     }
 
     /**
@@ -222,6 +243,42 @@ public class RiskModelSampleSummary {
         return threshold;
     }
 
+    /**
+     * Returns the sizes of all classes in the sample and the population, ignoring suppressed records
+     * @param population
+     * @param sample
+     * @param stop
+     * @return
+     */
+    private int[] getClasses(Groupify<TupleWrapper> population,
+                             Groupify<TupleWrapper> sample,
+                             WrappedBoolean stop) {
+        
+        int[] classes = new int[sample.size() * 2];
+        int index = 0;
+        Group<TupleWrapper> element = sample.first();
+        while (element != null) {
+            
+            // Only process unsuppressed records
+            if (!element.getElement().isOutlier()) {
+                int groupSizeInSample = element.getCount();
+                int groupSizeInPopulation = groupSizeInSample;
+                if (population != sample) {
+                    groupSizeInPopulation = population.get(element.getElement()).getCount();
+                }
+                classes[index++] = groupSizeInSample;
+                classes[index++] = groupSizeInPopulation;
+            }
+            
+            // Next element
+            element = element.next();
+            
+            // Stop, if required
+            if (stop.value) { throw new ComputationInterruptedException(); }
+        }
+        return index == classes.length ? classes : Arrays.copyOf(classes, index);
+    }
+
     /**
      * Computes the equivalence classes
      * @param handle
@@ -283,15 +340,13 @@ public class RiskModelSampleSummary {
 
     /**
      * Computes risks
-     * @param population
-     * @param sample
+     * @param classes
      * @param offset
      * @param progress 
      * @param stop 
      * @return
      */
-    private JournalistRisk getJournalistRisk(Groupify<TupleWrapper> population,
-                                             Groupify<TupleWrapper> sample,
+    private JournalistRisk getJournalistRisk(int[] classes,
                                              double offset,
                                              WrappedBoolean stop,
                                              WrappedInteger progress) {
@@ -304,45 +359,32 @@ public class RiskModelSampleSummary {
         double numRecordsInSample = 0d;
         double numClassesInSample = 0d;
         double smallestClassSizeInPopulation = Integer.MAX_VALUE;
-        int maxindex = sample.size();
-        int index = 0;
         
         // For each group
-        Group<TupleWrapper> element = sample.first();
-        while (element != null) {
+        for (int i = 0; i < classes.length; i += 2) {
             
             // Track progress
-            int prog = (int) Math.round(offset + (double) index++ / (double) maxindex * 3.3d);
+            int prog = (int) Math.round(offset + (double) i / (double) classes.length * 3.3d);
             if (prog != progress.value) {
                 progress.value = prog;
             }
             
-            // Only process unsuppressed records
-            if (!element.getElement().isOutlier()) {
-                
-                int groupSizeInSample = element.getCount();
-                int groupSizeInPopulation = groupSizeInSample;
-                if (population != sample) {
-                    groupSizeInPopulation = population.get(element.getElement()).getCount();
-                }
-                
-                // Compute rA
-                if (1d / groupSizeInPopulation > threshold) {
-                    rA += groupSizeInSample;
-                }
-                // Compute rB
-                if (groupSizeInPopulation < smallestClassSizeInPopulation) {
-                    smallestClassSizeInPopulation = groupSizeInPopulation;
-                }
-                // Compute rC
-                numClassesInSample++;
-                numRecordsInSample += groupSizeInSample;
-                rC1 += groupSizeInPopulation;
-                rC2 += (double)groupSizeInSample / (double)groupSizeInPopulation;
+            int groupSizeInSample = classes[i];
+            int groupSizeInPopulation = classes[i + 1];
+            
+            // Compute rA
+            if (1d / groupSizeInPopulation > threshold) {
+                rA += groupSizeInSample;
             }
-                
-            // Next element
-            element = element.next();
+            // Compute rB
+            if (groupSizeInPopulation < smallestClassSizeInPopulation) {
+                smallestClassSizeInPopulation = groupSizeInPopulation;
+            }
+            // Compute rC
+            numClassesInSample++;
+            numRecordsInSample += groupSizeInSample;
+            rC1 += groupSizeInPopulation;
+            rC2 += (double)groupSizeInSample / (double)groupSizeInPopulation;
             
             // Stop, if required
             if (stop.value) { throw new ComputationInterruptedException(); }
@@ -365,15 +407,13 @@ public class RiskModelSampleSummary {
 
     /**
      * Computes risks
-     * @param population
-     * @param sample
+     * @param classes
      * @param offset
      * @param progress 
      * @param stop 
      * @return
      */
-    private MarketerRisk getMarketerRisk(Groupify<TupleWrapper> population,
-                                         Groupify<TupleWrapper> sample,
+    private MarketerRisk getMarketerRisk(int[] classes,
                                          double offset,
                                          WrappedBoolean stop,
                                          WrappedInteger progress) {
@@ -381,35 +421,22 @@ public class RiskModelSampleSummary {
         // Init
         double rC = 0d;
         double numRecordsInSample = 0d;
-        int maxindex = sample.size();
-        int index = 0;
         
         // For each group
-        Group<TupleWrapper> element = sample.first();
-        while (element != null) {
+        for (int i = 0; i < classes.length; i += 2) {
             
             // Track progress
-            int prog = (int) Math.round(offset + (double) index++ / (double) maxindex * 3.3d);
+            int prog = (int) Math.round(offset + (double) i / (double) classes.length * 3.3d);
             if (prog != progress.value) {
                 progress.value = prog;
             }
             
-            // Only process unsuppressed records
-            if (!element.getElement().isOutlier()) {
-                
-                int groupSizeInSample = element.getCount();
-                int groupSizeInPopulation = groupSizeInSample;
-                if (population != sample) {
-                    groupSizeInPopulation = population.get(element.getElement()).getCount();
-                }
-                
-                // Compute rC
-                numRecordsInSample += groupSizeInSample;
-                rC += (double)groupSizeInSample / (double)groupSizeInPopulation;
-            }
-                
-            // Next element
-            element = element.next();
+            int groupSizeInSample = classes[i];
+            int groupSizeInPopulation = classes[i + 1];
+            
+            // Compute rC
+            numRecordsInSample += groupSizeInSample;
+            rC += (double)groupSizeInSample / (double)groupSizeInPopulation;
             
             // Stop, if required
             if (stop.value) { throw new ComputationInterruptedException(); }
@@ -424,15 +451,13 @@ public class RiskModelSampleSummary {
 
     /**
      * Computes risks
-     * @param population
-     * @param sample
+     * @param classes
      * @param offset
      * @param progress 
      * @param stop 
      * @return
      */
-    private ProsecutorRisk getProsecutorRisk(Groupify<TupleWrapper> population,
-                                             Groupify<TupleWrapper> sample,
+    private ProsecutorRisk getProsecutorRisk(int[] classes,
                                              double offset,
                                              WrappedBoolean stop,
                                              WrappedInteger progress) {
@@ -444,38 +469,28 @@ public class RiskModelSampleSummary {
         double numRecords = 0d;
         double numClasses = 0d;
         double smallestClassSize = Integer.MAX_VALUE;
-        int maxindex = sample.size();
-        int index = 0;
         
         // For each group
-        Group<TupleWrapper> element = sample.first();
-        while (element != null) {
+        for (int i = 0; i < classes.length; i += 2) {
             
             // Track progress
-            int prog = (int) Math.round(offset + (double) index++ / (double) maxindex * 3.3d);
+            int prog = (int) Math.round(offset + (double) i / (double) classes.length * 3.3d);
             if (prog != progress.value) {
                 progress.value = prog;
             }
             
-            // Only process unsuppressed records
-            if (!element.getElement().isOutlier()) {
-                
-                // Compute rA
-                int groupSize = element.getCount();
-                if (1d / groupSize > threshold) {
-                    rA += groupSize;
-                }
-                // Compute rB
-                if (groupSize < smallestClassSize) {
-                    smallestClassSize = groupSize;
-                }
-                // Compute rC
-                numClasses++;
-                numRecords += groupSize;
+            // Compute rA
+            int groupSize = classes[i];
+            if (1d / groupSize > threshold) {
+                rA += groupSize;
             }
-                
-            // Next element
-            element = element.next();
+            // Compute rB
+            if (groupSize < smallestClassSize) {
+                smallestClassSize = groupSize;
+            }
+            // Compute rC
+            numClasses++;
+            numRecords += groupSize;
             
             // Stop, if required
             if (stop.value) { throw new ComputationInterruptedException(); }
@@ -17,18 +17,30 @@
 
 package org.deidentifier.arx.test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+import org.deidentifier.arx.ARXAnonymizer;
 import org.deidentifier.arx.ARXConfiguration;
+import org.deidentifier.arx.ARXListener;
 import org.deidentifier.arx.ARXPopulationModel;
 import org.deidentifier.arx.ARXPopulationModel.Region;
+import org.deidentifier.arx.ARXResult;
 import org.deidentifier.arx.Data;
+import org.deidentifier.arx.DataHandle;
 import org.deidentifier.arx.DataGeneralizationScheme;
 import org.deidentifier.arx.DataGeneralizationScheme.GeneralizationDegree;
 import org.deidentifier.arx.DataSubset;
+import org.deidentifier.arx.aggregates.StatisticsEquivalenceClasses;
 import org.deidentifier.arx.criteria.DPresence;
 import org.deidentifier.arx.criteria.DistinctLDiversity;
 import org.deidentifier.arx.criteria.EDDifferentialPrivacy;
@@ -37,8 +49,12 @@ import org.deidentifier.arx.criteria.EqualDistanceTCloseness;
 import org.deidentifier.arx.criteria.KAnonymity;
 import org.deidentifier.arx.criteria.KMap;
 import org.deidentifier.arx.criteria.KMap.CellSizeEstimator;
+import org.deidentifier.arx.criteria.PrivacyCriterion;
 import org.deidentifier.arx.criteria.RecursiveCLDiversity;
+import org.deidentifier.arx.exceptions.RollbackRequiredException;
 import org.deidentifier.arx.metric.Metric;
+import org.deidentifier.arx.risk.RiskModelHistogram;
+import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameters;
@@ -84,4 +100,83 @@ public class TestAnonymizationLocalRecoding extends AbstractAnonymizationTest {
         super(testCase);
     }
     
+    /**
+     * Tests top-down local recoding and the statistics of the resulting data. Top-down
+     * local recoding is only supported for k-anonymity, other test cases are skipped.
+     * 
+     * @throws IOException
+     * @throws RollbackRequiredException
+     */
+    @Test
+    public void testTopDownLocalRecoding() throws IOException, RollbackRequiredException {
+        
+        // Check, if supported
+        int k = 0;
+        for (PrivacyCriterion c : testCase.config.getPrivacyModels()) {
+            if (!(c instanceof KAnonymity)) {
+                return;
+            }
+            k = Math.max(k, ((KAnonymity) c).getK());
+        }
+        
+        Data data = getDataObject(testCase);
+        ARXResult result = new ARXAnonymizer().anonymize(data, testCase.config);
+        List<String> attributes = new ArrayList<String>(data.getDefinition().getQuasiIdentifyingAttributes());
+        
+        // Recode sequentially and in parallel
+        List<List<String>> expected = null;
+        for (int threads : new int[] { 1, 2 }) {
+            
+            DataHandle handle = result.getOutput(false);
+            int outliers = 0;
+            for (int row = 0; row < handle.getNumRows(); row++) {
+                outliers += handle.isOutlier(row) ? 1 : 0;
+            }
+            int recoded = result.optimizeTopDown(handle, threads, new ARXListener() {
+                @Override
+                public void progress(double progress) {
+                    assertTrue(progress > 0d && progress <= 1d);
+                }
+            });
+            
+            // Compute sizes of classes
+            List<List<String>> values = new ArrayList<List<String>>();
+            Map<List<String>, Integer> sizes = new HashMap<List<String>, Integer>();
+            int suppressed = 0;
+            for (int row = 0; row < handle.getNumRows(); row++) {
+                List<String> tuple = new ArrayList<String>();
+                for (String attribute : attributes) {
+                    tuple.add(handle.getValue(row, handle.getColumnIndexOf(attribute)));
+                }
+                values.add(tuple);
+                if (handle.isOutlier(row)) {
+                    suppressed++;
+                } else {
+                    sizes.put(tuple, sizes.containsKey(tuple) ? sizes.get(tuple) + 1 : 1);
+                }
+            }
+            
+            // Check privacy and suppression
+            assertEquals(handle.getNumRows() - suppressed, recoded);
+            assertTrue(suppressed <= outliers);
+            for (int size : sizes.values()) {
+                assertTrue(size >= k);
+            }
+            
+            // Compare statistics
+            StatisticsEquivalenceClasses statistics = handle.getStatistics().getEquivalenceClassStatistics();
+            assertEquals(sizes.size(), statistics.getNumberOfEquivalenceClasses());
+            assertTrue(statistics.getMinimalEquivalenceClassSize() >= k);
+            RiskModelHistogram histogram = handle.getRiskEstimator(ARXPopulationModel.create(Region.USA)).getEquivalenceClassModel();
+            assertEquals(sizes.size(), histogram.getNumClasses(), 0d);
+            assertTrue(histogram.getHistogram()[0] >= k);
+            
+            // Results must not depend on the number of threads
+            if (expected == null) {
+                expected = values;
+            } else {
+                assertEquals(expected, values);
+            }
+        }
+    }
 }
@@ -17,11 +17,21 @@
 
 package org.deidentifier.arx.test;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 
 import org.deidentifier.arx.ARXAnonymizer;
 import org.deidentifier.arx.ARXConfiguration;
@@ -30,13 +40,19 @@ import org.deidentifier.arx.ARXLattice.ARXNode;
 import org.deidentifier.arx.ARXResult;
 import org.deidentifier.arx.AttributeType;
 import org.deidentifier.arx.AttributeType.Hierarchy;
+import org.deidentifier.arx.AttributeType.MicroAggregationFunction;
 import org.deidentifier.arx.Data;
 import org.deidentifier.arx.DataHandle;
 import org.deidentifier.arx.DataSelector;
 import org.deidentifier.arx.DataSubset;
+import org.deidentifier.arx.DataType;
 import org.deidentifier.arx.criteria.DPresence;
 import org.deidentifier.arx.criteria.Inclusion;
 import org.deidentifier.arx.criteria.KAnonymity;
+import org.deidentifier.arx.io.CSVDataChecksum;
+import org.deidentifier.arx.io.CSVDataOutput;
+import org.deidentifier.arx.io.CSVDataOutputEncoded;
+import org.deidentifier.arx.io.CSVSyntax;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -47,6 +63,147 @@ import org.junit.Test;
  */
 public class TestDataHandle extends AbstractTest {
     
+    /**
+     * Test case
+     *
+     * @throws IllegalArgumentException
+     * @throws IOException
+     */
+    @Test
+    public void testAppend() throws IllegalArgumentException, IOException {
+        
+        // Split the dataset
+        String[][] rows = iteratorToArray(Data.create("./data/adult.csv", StandardCharsets.UTF_8, ';').getHandle().iterator());
+        int split = rows.length * 2 / 3;
+        Data history = Data.create(Arrays.asList(Arrays.copyOfRange(rows, 0, split)));
+        String[] header = rows[0];
+        String[][] appended = Arrays.copyOfRange(rows, split - 1, rows.length);
+        appended[0] = header;
+        Data delta = Data.create(Arrays.asList(appended));
+        String[][] more = new String[][] { header, rows[1], rows[2] };
+        
+        // Anonymize history
+        ARXConfiguration config = getAppendConfiguration(history);
+        ARXResult result = new ARXAnonymizer().anonymize(history, config);
+        assertTrue(result.getGlobalOptimum() != null);
+        
+        // Append
+        ARXResult extended = result.append(delta);
+        ARXNode optimum = extended.getGlobalOptimum();
+        assertTrue(optimum != null);
+        assertTrue(optimum.getAnonymity() == ARXLattice.Anonymity.ANONYMOUS);
+        assertTrue(extended.getOutput().getNumRows() == rows.length - 1);
+        assertTrue(history.getHandle().getNumRows() == rows.length - 1);
+        
+        // The previous result has been replaced
+        DataHandle current = extended.getOutput();
+        try {
+            result.getOutput();
+            Assert.fail("Replaced result is still usable");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+        try {
+            result.append(delta);
+            Assert.fail("Replaced result is still usable");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+        assertTrue(current.getNumRows() == rows.length - 1);
+        current.release();
+        
+        // Compare with anonymization of the complete dataset
+        Data complete = Data.create(Arrays.asList(rows));
+        ARXResult expected = new ARXAnonymizer().anonymize(complete, getAppendConfiguration(complete));
+        ARXNode node = null;
+        for (ARXNode[] level : expected.getLattice().getLevels()) {
+            for (ARXNode candidate : level) {
+                if (Arrays.equals(candidate.getTransformation(), optimum.getTransformation())) {
+                    node = candidate;
+                }
+            }
+        }
+        assertTrue(node != null);
+        assertTrue(Arrays.deepEquals(iteratorToArray(extended.getOutput().iterator()),
+                                     iteratorToArray(expected.getOutput(node).iterator())));
+        
+        // Values missing in hierarchies
+        DataHandle output = extended.getOutput();
+        List<String> before = getRows(history.getHandle(), output);
+        String[] invalid = rows[1].clone();
+        invalid[1] = "1000";
+        try {
+            extended.append(Data.create(Arrays.asList(new String[][] { header, invalid })));
+            Assert.fail("Missing values not detected");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        assertTrue(history.getHandle().getNumRows() == rows.length - 1);
+        
+        // The previous result must still be usable
+        assertEquals(before, getRows(history.getHandle(), output));
+        output.sort(true, 0, 1);
+        List<String> after = getRows(history.getHandle(), output);
+        Collections.sort(before);
+        Collections.sort(after);
+        assertEquals(before, after);
+        
+        // Append to unlocked data
+        history.getHandle().release();
+        history.append(Data.create(Arrays.asList(more)));
+        assertTrue(history.getHandle().getNumRows() == rows.length + 1);
+        assertTrue(Arrays.equals(history.getHandle().iterator().next(), header));
+    }
+    
+    /**
+     * Test case
+     *
+     * @throws IllegalArgumentException
+     * @throws IOException
+     * @throws NoSuchAlgorithmException 
+     */
+    @Test
+    public void testChecksum() throws IllegalArgumentException, IOException, NoSuchAlgorithmException {
+        
+        // Output and input with different encodings
+        Data data = Data.create("./data/adult.csv", StandardCharsets.UTF_8, ';');
+        ARXConfiguration config = getAppendConfiguration(data);
+        DataHandle output = new ARXAnonymizer().anonymize(data, config).getOutput();
+        CSVSyntax syntax = new CSVSyntax(';');
+        String checksum = output.getChecksum(syntax);
+        Data copy = Data.create(Arrays.asList(iteratorToArray(output.iterator())));
+        assertTrue(checksum.equals(copy.getHandle().getChecksum(syntax)));
+        assertTrue(!checksum.equals(data.getHandle().getChecksum(syntax)));
+        assertTrue(!checksum.equals(output.getChecksum(new CSVSyntax(','))));
+        
+        // Views
+        DataHandle view = output.getView();
+        Data viewCopy = Data.create(Arrays.asList(iteratorToArray(view.iterator())));
+        assertTrue(view.getChecksum(syntax).equals(viewCopy.getHandle().getChecksum(syntax)));
+        
+        // Chunks
+        int rows = CSVDataChecksum.CHUNK_SIZE * 3 + 5;
+        int[][] codes = new int[rows][2];
+        for (int row = 0; row < rows; row++) {
+            codes[row][0] = row % 7;
+            codes[row][1] = row % 3;
+        }
+        String[] header = new String[] { "a", "b" };
+        CSVDataOutputEncoded.Column[] columns = new CSVDataOutputEncoded.Column[] {
+                new CSVDataOutputEncoded.Column(new String[] { "0", "1", "2", "3", "4", "5", "6" }, codes, 0, -1, false),
+                new CSVDataOutputEncoded.Column(new String[] { "x", "y", "z" }, codes, 1, -1, false) };
+        CSVDataChecksum checksummer = new CSVDataChecksum(syntax);
+        byte[][] digests = checksummer.getSHA256ChunkDigests(header, columns, rows, null, "*");
+        assertTrue(digests.length == 4);
+        assertTrue(checksummer.getSHA256TreeChecksum(digests).equals(checksummer.getSHA256TreeChecksum(header, columns, rows, null, "*")));
+        codes[CSVDataChecksum.CHUNK_SIZE * 2 + 1][1] = (codes[CSVDataChecksum.CHUNK_SIZE * 2 + 1][1] + 1) % 3;
+        byte[][] modified = checksummer.getSHA256ChunkDigests(header, columns, rows, null, "*");
+        for (int i = 0; i < digests.length; i++) {
+            assertTrue(Arrays.equals(digests[i], modified[i]) == (i != 2));
+        }
+        assertTrue(!checksummer.getSHA256TreeChecksum(digests).equals(checksummer.getSHA256TreeChecksum(modified)));
+    }
+    
     /**
      * Test case
      *
@@ -242,6 +399,62 @@ public class TestDataHandle extends AbstractTest {
         
     }
     
+    /**
+     * Compares writing data from encoded buffers with writing decoded rows
+     *
+     * @throws IllegalArgumentException
+     * @throws IOException
+     */
+    @Test
+    public void testSave() throws IllegalArgumentException, IOException {
+        
+        // Anonymize with suppression, microaggregation and identifiers
+        final Data data = Data.create("data/adult.csv", StandardCharsets.UTF_8, ';');
+        for (String qi : new String[] { "sex", "race", "marital-status" }) {
+            data.getDefinition().setAttributeType(qi, Hierarchy.create("data/adult_hierarchy_" + qi + ".csv", StandardCharsets.UTF_8, ';'));
+        }
+        data.getDefinition().setAttributeType("age", MicroAggregationFunction.createArithmeticMean());
+        data.getDefinition().setDataType("age", DataType.INTEGER);
+        data.getDefinition().setAttributeType("salary-class", AttributeType.IDENTIFYING_ATTRIBUTE);
+        final ARXConfiguration config = ARXConfiguration.create();
+        config.addPrivacyModel(new KAnonymity(5));
+        config.setMaxOutliers(0.1d);
+        final ARXResult result = new ARXAnonymizer().anonymize(data, config);
+        
+        final CSVSyntax syntax = new CSVSyntax(',', '\"', '\"', new char[] { '\r', '\n' });
+        for (DataHandle handle : new DataHandle[] { result.getOutput(), data.getHandle(), result.getOutput().getView() }) {
+            
+            // Expected
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            new CSVDataOutput(expected, syntax).write(handle.iterator());
+            
+            // Stream
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            handle.save(actual, syntax);
+            assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+            
+            // Part-files
+            File[] files = new File[3];
+            try {
+                for (int i = 0; i < files.length; i++) {
+                    files[i] = File.createTempFile("arx", ".csv");
+                }
+                handle.save(files, syntax);
+                actual = new ByteArrayOutputStream();
+                for (File file : files) {
+                    actual.write(Files.readAllBytes(file.toPath()));
+                }
+                assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+            } finally {
+                for (File file : files) {
+                    if (file != null) {
+                        file.delete();
+                    }
+                }
+            }
+        }
+    }
+    
     /**
      * Test case
      *
@@ -483,4 +696,38 @@ public class TestDataHandle extends AbstractTest {
         
         assertTrue(Arrays.deepEquals(given, expected));
     }
+    
+    /**
+     * Returns the rows of the given input and output handle, row by row
+     * 
+     * @param input
+     * @param output
+     * @return
+     */
+    private List<String> getRows(DataHandle input, DataHandle output) {
+        List<String> result = new ArrayList<String>();
+        Iterator<String[]> iter1 = input.iterator();
+        Iterator<String[]> iter2 = output.iterator();
+        while (iter1.hasNext()) {
+            result.add(Arrays.toString(iter1.next()) + Arrays.toString(iter2.next()));
+        }
+        return result;
+    }
+    
+    /**
+     * Creates a configuration for testing appending records
+     * 
+     * @param data
+     * @return
+     * @throws IOException
+     */
+    private ARXConfiguration getAppendConfiguration(Data data) throws IOException {
+        for (String attribute : new String[] { "age", "education", "race", "sex" }) {
+            data.getDefinition().setAttributeType(attribute, Hierarchy.create("./data/adult_hierarchy_" + attribute + ".csv", StandardCharsets.UTF_8, ';'));
+        }
+        ARXConfiguration config = ARXConfiguration.create();
+        config.addPrivacyModel(new KAnonymity(5));
+        config.setMaxOutliers(0.02d);
+        return config;
+    }
 }
@@ -17,14 +17,57 @@
 
 package org.deidentifier.arx.test;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 
+import org.apache.commons.math3.util.Pair;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.deidentifier.arx.ARXAnonymizer;
+import org.deidentifier.arx.ARXConfiguration;
+import org.deidentifier.arx.ARXResult;
+import org.deidentifier.arx.AttributeType;
+import org.deidentifier.arx.AttributeType.Hierarchy;
 import org.deidentifier.arx.Data;
+import org.deidentifier.arx.DataDefinition;
+import org.deidentifier.arx.DataHandle;
+import org.deidentifier.arx.DataSource;
+import org.deidentifier.arx.DataType;
+import org.deidentifier.arx.DataType.DataTypeDescription;
+import org.deidentifier.arx.criteria.KAnonymity;
+import org.deidentifier.arx.io.BinaryDataInput;
+import org.deidentifier.arx.io.CSVSyntax;
+import org.deidentifier.arx.io.IImportAdapterFactory;
+import org.deidentifier.arx.io.ImportAdapter;
+import org.deidentifier.arx.io.ImportColumn;
+import org.deidentifier.arx.io.ImportColumnArrow;
+import org.deidentifier.arx.io.ImportColumnCSV;
+import org.deidentifier.arx.io.ImportConfiguration;
+import org.deidentifier.arx.io.ImportConfigurationArrow;
 import org.junit.Test;
 
 import cern.colt.Arrays;
@@ -35,6 +78,65 @@ import cern.colt.Arrays;
  * @author Fabian Prasser
  */
 public class TestDataImport extends AbstractTest {
+
+    /**
+     * Adapter for testing the registration of adapters
+     *
+     * @author Fabian Prasser
+     */
+    private static class ImportAdapterTest extends ImportAdapter {
+
+        /** Rows */
+        private final String[][] rows;
+
+        /** Index */
+        private int              index = 0;
+
+        /**
+         * Creates a new instance
+         * 
+         * @param config
+         * @param rows
+         */
+        private ImportAdapterTest(ImportConfiguration config, String[][] rows) {
+            super(config);
+            this.rows = rows;
+            this.header = rows[0];
+        }
+
+        @Override
+        public int getProgress() {
+            return index * 100 / rows.length;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < rows.length;
+        }
+
+        @Override
+        public String[] next() {
+            return rows[index++];
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Configuration for testing the registration of adapters
+     *
+     * @author Fabian Prasser
+     */
+    public static class ImportConfigurationTest extends ImportConfiguration {
+
+        @Override
+        public void addColumn(ImportColumn column) {
+            columns.add(column);
+        }
+    }
     
     /**
      * Test
@@ -52,4 +154,561 @@ public class TestDataImport extends AbstractTest {
             System.out.println(Arrays.toString(result.get(result.size() - 1)));
         }
     }
+
+    /**
+     * Compares parallel with sequential import
+     *
+     * @throws IllegalArgumentException
+     * @throws IOException
+     */
+    @Test
+    public void testParallel() throws IllegalArgumentException, IOException {
+        compareParallel(new File("data/adult.csv"), new CSVSyntax(';'));
+        compareParallel(new File("data/test-import.csv"), new CSVSyntax(';', '\"'));
+
+        // Quoted line breaks, which require falling back to sequential parsing
+        File file = File.createTempFile("arx", ".csv");
+        try {
+            Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8);
+            try {
+                writer.write("id;text;value\n");
+                for (int i = 0; i < 50000; i++) {
+                    if (i % 2 == 0) {
+                        writer.write(i + ";\"multi\nline;\"\"" + (i % 7) + "\"\"\";" + (i % 13) + "\n");
+                    } else {
+                        writer.write(i + ";text-" + (i % 101) + ";" + (i % 13) + "\n");
+                    }
+                }
+            } finally {
+                writer.close();
+            }
+            compareParallel(file, new CSVSyntax(';', '\"'));
+        } finally {
+            file.delete();
+        }
+
+        // Quoted values with more delimiters per line than columns, which span chunk boundaries
+        file = File.createTempFile("arx", ".csv");
+        try {
+            Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8);
+            try {
+                writer.write("id;text\n");
+                for (int i = 0; i < 1000; i++) {
+                    writer.write(i + ";\"");
+                    for (int j = 0; j < 300; j++) {
+                        writer.write("a;b;c;" + (j % 10) + "\n");
+                    }
+                    writer.write("\"\n");
+                }
+            } finally {
+                writer.close();
+            }
+            compareParallel(file, new CSVSyntax(';', '\"'));
+        } finally {
+            file.delete();
+        }
+
+        // Errors are still reported
+        file = File.createTempFile("arx", ".csv");
+        try {
+            Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8);
+            try {
+                writer.write("id;text\n");
+                for (int i = 0; i < 50000; i++) {
+                    writer.write(i + ";text-" + (i % 101) + (i == 40000 ? ";x" : "") + "\n");
+                }
+            } finally {
+                writer.close();
+            }
+            try {
+                Data.create(file, StandardCharsets.UTF_8, new CSVSyntax(';', '\"'), 4);
+                fail("Expected an exception");
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Tests streaming, projected and partitioned import from JDBC sources
+     *
+     * @throws IOException
+     * @throws SQLException
+     * @throws ClassNotFoundException
+     */
+    @Test
+    public void testJDBC() throws IOException, SQLException, ClassNotFoundException {
+
+        Class.forName("org.sqlite.JDBC");
+        File file = File.createTempFile("arx", ".db");
+        try {
+
+            // Create table
+            String url = "jdbc:sqlite:" + file.getAbsolutePath();
+            List<String> expected = new ArrayList<String>();
+            Connection connection = DriverManager.getConnection(url);
+            try {
+                Statement statement = connection.createStatement();
+                statement.execute("CREATE TABLE test (id INTEGER, age INTEGER, weight REAL, name TEXT, extra TEXT, big INTEGER)");
+                statement.close();
+                connection.setAutoCommit(false);
+                PreparedStatement insert = connection.prepareStatement("INSERT INTO test VALUES (?, ?, ?, ?, ?, ?)");
+                for (int i = 0; i < 2000; i++) {
+                    if (i % 97 == 0) {
+                        insert.setNull(1, Types.INTEGER);
+                    } else {
+                        insert.setInt(1, i);
+                    }
+                    insert.setInt(2, i % 90);
+                    insert.setDouble(3, 50d + (i % 40) / 2d);
+                    insert.setString(4, "name-" + (i % 13));
+                    insert.setString(5, "extra");
+                    insert.setLong(6, (1L << 53) + i);
+                    insert.executeUpdate();
+                    expected.add((i % 90) + ";" + (50d + (i % 40) / 2d) + ";" + "name-" + (i % 13) + ";" + ((1L << 53) + i));
+                }
+                insert.close();
+                connection.commit();
+            } finally {
+                connection.close();
+            }
+
+            // Import with different settings
+            for (int mode = 0; mode < 3; mode++) {
+                DataSource source = DataSource.createJDBCSource(url, "test");
+                source.addColumn("age", DataType.INTEGER);
+                source.addColumn("weight", DataType.DECIMAL);
+                source.addColumn("name", DataType.STRING);
+                source.addColumn("big", DataType.DECIMAL);
+                if (mode == 1) {
+                    source.setFetchSize(100);
+                } else if (mode == 2) {
+                    source.setPartitioning("id", 4);
+                }
+                DataHandle handle = Data.create(source).getHandle();
+                assertEquals("age", handle.getAttributeName(0));
+                assertEquals("weight", handle.getAttributeName(1));
+                assertEquals("name", handle.getAttributeName(2));
+                List<String> actual = new ArrayList<String>();
+                for (int row = 0; row < handle.getNumRows(); row++) {
+                    actual.add(handle.getValue(row, 0) + ";" + handle.getValue(row, 1) + ";" + handle.getValue(row, 2) + ";" + handle.getValue(row, 3));
+                }
+
+                // Partitioned reads do not preserve the order of rows
+                if (mode == 2) {
+                    List<String> sorted = new ArrayList<String>(expected);
+                    Collections.sort(sorted);
+                    Collections.sort(actual);
+                    assertEquals(sorted, actual);
+                } else {
+                    assertEquals(expected, actual);
+                }
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Tests writing and loading input and output data in the binary format
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testBinary() throws IOException {
+
+        // Anonymize
+        Data data = Data.create("data/adult.csv", StandardCharsets.UTF_8, ';');
+        String[] qis = { "age", "sex", "race" };
+        for (String qi : qis) {
+            data.getDefinition().setAttributeType(qi, Hierarchy.create("data/adult_hierarchy_" + qi + ".csv", StandardCharsets.UTF_8, ';'));
+        }
+        data.getDefinition().setDataType("age", DataType.INTEGER);
+        data.getDefinition().setAttributeType("salary-class", AttributeType.IDENTIFYING_ATTRIBUTE);
+        ARXConfiguration config = ARXConfiguration.create();
+        config.addPrivacyModel(new KAnonymity(5));
+        config.setMaxOutliers(0.1d);
+        ARXResult result = new ARXAnonymizer().anonymize(data, config);
+
+        File file = File.createTempFile("arx", ".bin");
+        try {
+            for (DataHandle handle : new DataHandle[] { result.getOutput(), data.getHandle() }) {
+
+                // Round trip
+                handle.saveBinary(file);
+                BinaryDataInput input = new BinaryDataInput(file);
+                input.read();
+                DataHandle loaded = Data.createBinary(file).getHandle();
+
+                // Compare data
+                assertEquals(handle.getNumRows(), loaded.getNumRows());
+                assertEquals(handle.getNumColumns(), loaded.getNumColumns());
+                for (int column = 0; column < handle.getNumColumns(); column++) {
+                    assertEquals(handle.getAttributeName(column), loaded.getAttributeName(column));
+                    for (int row = 0; row < handle.getNumRows(); row++) {
+                        assertEquals(handle.getValue(row, column), loaded.getValue(row, column));
+                    }
+                }
+                for (int row = 0; row < handle.getNumRows(); row++) {
+                    assertEquals(handle.isOutlier(row), input.getOutliers().get(row));
+                }
+
+                // Compare definition
+                DataDefinition definition = loaded.getDefinition();
+                for (String qi : qis) {
+                    assertTrue(definition.getQuasiIdentifyingAttributes().contains(qi));
+                    assertArrayEquals(data.getDefinition().getHierarchy(qi), definition.getHierarchy(qi));
+                }
+                assertTrue(definition.getIdentifyingAttributes().contains("salary-class"));
+                assertEquals(DataType.INTEGER, definition.getDataType("age"));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Compares streaming import from Excel files with values obtained from the workbook
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testExcel() throws IOException {
+
+        // Create workbook
+        File file = File.createTempFile("arx", ".xls");
+        List<String> expected = new ArrayList<String>();
+        try {
+            HSSFWorkbook workbook = new HSSFWorkbook();
+            workbook.createSheet("empty").createRow(0).createCell(0).setCellValue("other");
+            Sheet sheet = workbook.createSheet("data");
+            Row header = sheet.createRow(0);
+            String[] names = { "string", "number", "bool", "formula", "sparse" };
+            for (int i = 0; i < names.length; i++) {
+                header.createCell(i).setCellValue(names[i]);
+            }
+            for (int i = 1; i < 1000; i++) {
+                if (i % 100 == 0) {
+                    continue;
+                }
+                Row row = sheet.createRow(i);
+                if (i % 50 == 0) {
+                    continue;
+                }
+                row.createCell(0).setCellValue(" value-" + (i % 17) + " ");
+                if (i % 3 == 0) {
+                    row.createCell(1).setCellValue(i / 3d);
+                } else if (i % 5 == 0) {
+                    row.createCell(1).setCellValue(new Date(1483228800000L + i * 86400000L));
+                } else {
+                    row.createCell(1).setCellValue(i);
+                }
+                row.createCell(2).setCellValue(i % 2 == 0);
+                if (i % 7 == 0) {
+                    row.createCell(3).setCellFormula("1/0");
+                } else if (i % 11 == 0) {
+                    row.createCell(3).setCellFormula("\"text-\"&A" + (i + 1));
+                } else {
+                    row.createCell(3).setCellFormula("B" + (i + 1) + "*2");
+                }
+                if (i % 4 == 0) {
+                    row.createCell(4).setCellValue("x");
+                } else if (i % 4 == 1) {
+                    row.createCell(4, Cell.CELL_TYPE_BLANK);
+                }
+            }
+            workbook.getCreationHelper().createFormulaEvaluator().evaluateAll();
+            FileOutputStream output = new FileOutputStream(file);
+            try {
+                workbook.write(output);
+            } finally {
+                output.close();
+            }
+
+            // Values as obtained by converting cells to strings
+            FileInputStream input = new FileInputStream(file);
+            try {
+                workbook = new HSSFWorkbook(input);
+            } finally {
+                input.close();
+            }
+            workbook.setMissingCellPolicy(Row.CREATE_NULL_AS_BLANK);
+            Iterator<Row> rows = workbook.getSheetAt(1).iterator();
+            rows.next();
+            while (rows.hasNext()) {
+                Row row = rows.next();
+                StringBuilder builder = new StringBuilder();
+                for (int i = 0; i < names.length; i++) {
+                    row.getCell(i).setCellType(Cell.CELL_TYPE_STRING);
+                    builder.append(row.getCell(i).getStringCellValue().trim()).append(";");
+                }
+                expected.add(builder.toString());
+            }
+
+            // Import
+            DataSource source = DataSource.createExcelSource(file, 1, true);
+            for (String name : names) {
+                source.addColumn(name, DataType.STRING);
+            }
+            DataHandle handle = Data.create(source).getHandle();
+            List<String> actual = new ArrayList<String>();
+            for (int row = 0; row < handle.getNumRows(); row++) {
+                StringBuilder builder = new StringBuilder();
+                for (int i = 0; i < names.length; i++) {
+                    assertEquals(names[i], handle.getAttributeName(i));
+                    builder.append(handle.getValue(row, i)).append(";");
+                }
+                actual.add(builder.toString());
+            }
+            assertEquals(expected, actual);
+        } finally {
+            file.delete();
+        }
+
+        // XLS and XLSX files with identical contents
+        FileInputStream input = new FileInputStream("data/test.xls");
+        int columns;
+        try {
+            columns = new HSSFWorkbook(input).getSheetAt(0).getRow(0).getLastCellNum();
+        } finally {
+            input.close();
+        }
+        DataSource xlsSource = DataSource.createExcelSource("data/test.xls", 0, true);
+        DataSource xlsxSource = DataSource.createExcelSource("data/test.xlsx", 0, true);
+        for (int i = 0; i < columns; i++) {
+            xlsSource.addColumn(i);
+            xlsxSource.addColumn(i);
+        }
+        DataHandle xls = Data.create(xlsSource).getHandle();
+        DataHandle xlsx = Data.create(xlsxSource).getHandle();
+        assertEquals(columns, xls.getNumColumns());
+        assertEquals(xls.getNumRows(), xlsx.getNumRows());
+        assertEquals(xls.getNumColumns(), xlsx.getNumColumns());
+        for (int row = 0; row < xls.getNumRows(); row++) {
+            for (int column = 0; column < xls.getNumColumns(); column++) {
+                assertEquals(xls.getValue(row, column), xlsx.getValue(row, column));
+            }
+        }
+    }
+
+    /**
+     * Compares import from Arrow files with import from CSV files and tests registering adapters
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testArrow() throws IOException {
+
+        // Compare with CSV
+        DataSource source = DataSource.createArrowSource("data/test.arrow");
+        source.addColumn("age", DataType.INTEGER);
+        source.addColumn("gender", DataType.STRING);
+        source.addColumn(2, DataType.STRING);
+        source.addColumn("weight", "w", DataType.DECIMAL);
+        DataHandle arrow = Data.create(source).getHandle();
+        DataHandle csv = Data.create("data/test.csv", StandardCharsets.UTF_8, ';').getHandle();
+        assertEquals(csv.getNumRows(), arrow.getNumRows());
+        assertEquals("w", arrow.getAttributeName(3));
+        assertEquals(DataType.INTEGER, arrow.getDefinition().getDataType("age"));
+        for (int row = 0; row < csv.getNumRows(); row++) {
+            for (int column = 0; column < csv.getNumColumns(); column++) {
+                assertEquals(csv.getAttributeName(column), arrow.getAttributeName(column));
+                assertEquals(csv.getValue(row, column), arrow.getValue(row, column));
+            }
+        }
+        String[] weights = { "70.5", DataType.NULL_VALUE, "80.0", "65.25", DataType.NULL_VALUE, "90.0", "77.0" };
+        for (int row = 0; row < weights.length; row++) {
+            assertEquals(weights[row], arrow.getValue(row, 3));
+        }
+
+        // Rows and cleansing
+        ImportConfigurationArrow config = new ImportConfigurationArrow("data/test.arrow");
+        config.addColumn(new ImportColumnArrow("zipcode", DataType.INTEGER));
+        config.addColumn(new ImportColumnArrow("gender", DataType.INTEGER, true));
+        Iterator<String[]> iterator = ImportAdapter.create(config);
+        assertArrayEquals(new String[] { "zipcode", "gender" }, iterator.next());
+        for (int row = 0; row < csv.getNumRows(); row++) {
+            assertArrayEquals(new String[] { csv.getValue(row, 2), DataType.NULL_VALUE }, iterator.next());
+        }
+        assertTrue(!iterator.hasNext());
+
+        // Timestamps with fractions of seconds
+        source = DataSource.createArrowSource("data/test.arrow");
+        for (String unit : new String[] { "s", "ms", "us", "ns" }) {
+            source.addColumn("timestamp_" + unit, DataType.STRING);
+        }
+        DataHandle timestamps = Data.create(source).getHandle();
+        String[][] expected = { { "2017-07-14 02:40:00", ".000", ".000000", ".000000000" },
+                                { "2017-07-14 02:40:00", ".123", ".123456", ".123456789" },
+                                { "2017-07-14 02:40:00", ".246", ".246913", ".246913578" },
+                                { "2017-07-14 02:40:00", ".370", ".370370", ".370370367" },
+                                { "1969-12-31 23:59:59", ".999", ".999999", ".999999999" },
+                                { "2017-07-14 02:40:00", ".000", ".000000", ".000000005" },
+                                { "2017-07-14 02:40:00", ".740", ".740740", ".740740734" } };
+        assertEquals(expected.length, timestamps.getNumRows());
+        for (int row = 0; row < expected.length; row++) {
+            assertEquals(expected[row][0], timestamps.getValue(row, 0));
+            for (int column = 1; column < 4; column++) {
+                assertEquals(expected[row][0] + expected[row][column], timestamps.getValue(row, column));
+            }
+        }
+
+        // Unsigned 64-bit integers
+        source = DataSource.createArrowSource("data/test.arrow");
+        source.addColumn("uint64", DataType.STRING);
+        DataHandle integers = Data.create(source).getHandle();
+        String[] uint64 = { "0", "1", "9223372036854775807", "9223372036854775808",
+                            "18446744073709551615", "9223372036854775850", "42" };
+        assertEquals(uint64.length, integers.getNumRows());
+        for (int row = 0; row < uint64.length; row++) {
+            assertEquals(uint64[row], integers.getValue(row, 0));
+        }
+
+        // Invalid values
+        source = DataSource.createArrowSource(new File("data/test.arrow"));
+        source.addColumn("gender", DataType.INTEGER);
+        try {
+            Data.create(source);
+            assertTrue("Invalid value not detected", false);
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+
+        // Register adapter
+        final String[][] rows = { { "a", "b" }, { "1", "x" }, { "2", "y" } };
+        ImportAdapter.register(ImportConfigurationTest.class, new IImportAdapterFactory() {
+            @Override
+            public ImportAdapter create(ImportConfiguration config) throws IOException {
+                return new ImportAdapterTest(config, rows);
+            }
+        });
+        try {
+            ImportConfigurationTest test = new ImportConfigurationTest();
+            test.addColumn(new ImportColumnCSV(0, DataType.INTEGER));
+            test.addColumn(new ImportColumnCSV(1, DataType.STRING));
+            DataHandle handle = Data.create(DataSource.createSource(test)).getHandle();
+            assertEquals(DataType.INTEGER, handle.getDefinition().getDataType("a"));
+            assertEquals(2, handle.getNumRows());
+            assertEquals("y", handle.getValue(1, 1));
+        } finally {
+            ImportAdapter.register(ImportConfigurationTest.class, null);
+        }
+    }
+
+    /**
+     * Compares import from memory-mapped files with sequential import
+     *
+     * @throws IllegalArgumentException
+     * @throws IOException
+     */
+    @Test
+    public void testMapped() throws IllegalArgumentException, IOException {
+        String[] contents = new String[] {
+                "a;b\n c ; d \n\"x\" ; y\n",
+                "a;b\n\n  \n\t\nc;d\n;\n \" \" ; \n",
+                "a;b\r\n\"a\r\nb\";c\r\n\"\";\"\"\"\"\r\n",
+                "a;b\n\"a\"\"b\";\" x \"\nx\"y;z",
+                "a;b\n\u00e4\u00f6\u00fc;\u20ac\n\u00e4\u00f6\u00fc;\"\u20ac\"\n",
+                "a;b\nx;y\n\"ab\"c;d\n",
+                "a\tb\n x \t y\n\"q\"\tr\n"
+        };
+        for (String content : contents) {
+            File file = File.createTempFile("arx", ".csv");
+            try {
+                Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8);
+                try {
+                    writer.write(content);
+                } finally {
+                    writer.close();
+                }
+                char delimiter = content.startsWith("a\t") ? '\t' : ';';
+                compareParallel(file, new CSVSyntax(delimiter, '\"', '\"', "\r\n"));
+                compareParallel(file, new CSVSyntax(delimiter, '\"', '\"', "\n"));
+            } finally {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Compares validation of values against data types with parsing the values and
+     * the detection of matching data types with counting conforming values
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testDataTypes() throws IOException {
+
+        String[] values = new String[] { "", " ", "NULL", "null", "0", "-1", "+1", "-", "+", "007", "123456789012345678",
+                                         "1234567890123456789", "99999999999999999999", " 1", "1 ", "1.5", ".5", "5.", "-.5e-3",
+                                         "1e10", "1e", "1E+5", "1.5f", "NaN", "Infinity", "-Infinity", "0x1p3", "1,234",
+                                         "1.234,5", "12%", "$12.00", "(\u20ac12,00)", "\u0661\u0662", "abc", "Male",
+                                         "2017-01-31", "2017-1-31", "2017-13-45", "17-01-31", "2017-01-31T10:11:12",
+                                         "2017-01-31T10:11:12Z", "2017-01-31T10:11:12.123Z", "2017-01-31 10:11:12",
+                                         "31.01.2017", "31.01.2017 10:11:12", "31/01/2017", "01/31/17", "10:11:12",
+                                         "T10:11:12", "Tue Jan 31 10:11:12 2017", "2017-01-31abc", "N/A", "\t2017-01-31" };
+
+        for (Locale locale : new Locale[] { Locale.US, Locale.GERMANY, Locale.FRANCE }) {
+            for (Class<?> clazz : new Class<?>[] { Long.class, Date.class, Double.class }) {
+                DataTypeDescription<?> description = DataType.list(clazz);
+                List<DataType<?>> types = new ArrayList<DataType<?>>();
+                types.add(description.newInstance());
+                for (String format : description.getExampleFormats()) {
+                    types.add(description.newInstance(format, locale));
+                }
+                for (DataType<?> type : types) {
+                    for (String value : values) {
+                        boolean expected;
+                        try {
+                            type.parse(value);
+                            expected = true;
+                        } catch (Exception e) {
+                            expected = false;
+                        }
+                        assertEquals(type + " " + value, expected, type.isValid(value));
+                    }
+                }
+            }
+        }
+
+        DataHandle handle = Data.create("data/adult.csv", StandardCharsets.UTF_8, ';').getHandle();
+        for (int column = 0; column < handle.getNumColumns(); column++) {
+            for (double threshold : new double[] { 0d, 0.5d, 0.8d, 1d }) {
+                for (Pair<DataType<?>, Double> match : handle.getMatchingDataTypes(column, Locale.US, threshold)) {
+                    double expected = (double) handle.getNumConformingValues(column, match.getFirst()) /
+                                      (double) handle.getDistinctValues(column).length;
+                    assertEquals(expected, match.getSecond(), 0d);
+                    assertTrue(match.getSecond() >= threshold);
+                }
+            }
+            assertEquals(handle.getMatchingDataTypes(column, Date.class, Locale.US, 0d).size(),
+                         DataType.list(Date.class).getExampleFormats().size());
+        }
+    }
+
+    /**
+     * Compares the result of importing the given file in parallel with sequential import
+     * @param file
+     * @param syntax
+     * @throws IOException
+     */
+    private void compareParallel(File file, CSVSyntax syntax) throws IOException {
+        DataHandle expected = Data.create(file, StandardCharsets.UTF_8, syntax).getHandle();
+        for (int threads : new int[] { 1, 2, 4 }) {
+            DataHandle actual = Data.create(file, StandardCharsets.UTF_8, syntax, threads).getHandle();
+            assertEquals(expected.getNumRows(), actual.getNumRows());
+            assertEquals(expected.getNumColumns(), actual.getNumColumns());
+            for (int column = 0; column < expected.getNumColumns(); column++) {
+                assertEquals(expected.getAttributeName(column), actual.getAttributeName(column));
+                assertArrayEquals(expected.getDistinctValues(column), actual.getDistinctValues(column));
+            }
+            for (int row = 0; row < expected.getNumRows(); row++) {
+                for (int column = 0; column < expected.getNumColumns(); column++) {
+                    assertEquals(expected.getValue(row, column), actual.getValue(row, column));
+                }
+            }
+        }
+    }
 }
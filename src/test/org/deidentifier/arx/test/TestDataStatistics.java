@@ -17,25 +17,44 @@
 
 package org.deidentifier.arx.test;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.deidentifier.arx.ARXAnonymizer;
 import org.deidentifier.arx.ARXConfiguration;
+import org.deidentifier.arx.ARXLogisticRegressionConfiguration;
+import org.deidentifier.arx.ARXPopulationModel;
+import org.deidentifier.arx.ARXPopulationModel.Region;
 import org.deidentifier.arx.ARXResult;
+import org.deidentifier.arx.AttributeType;
+import org.deidentifier.arx.AttributeType.Hierarchy;
+import org.deidentifier.arx.Data;
+import org.deidentifier.arx.DataHandle;
 import org.deidentifier.arx.DataSubset;
 import org.deidentifier.arx.DataType;
+import org.deidentifier.arx.aggregates.StatisticsBuilder;
+import org.deidentifier.arx.aggregates.StatisticsClassification;
 import org.deidentifier.arx.aggregates.StatisticsContingencyTable;
 import org.deidentifier.arx.aggregates.StatisticsContingencyTable.Entry;
+import org.deidentifier.arx.aggregates.StatisticsEquivalenceClasses;
 import org.deidentifier.arx.aggregates.StatisticsFrequencyDistribution;
+import org.deidentifier.arx.aggregates.StatisticsListener;
+import org.deidentifier.arx.aggregates.StatisticsSummary;
 import org.deidentifier.arx.criteria.DPresence;
 import org.deidentifier.arx.criteria.KAnonymity;
+import org.deidentifier.arx.risk.RiskModelHistogram;
 import org.junit.Test;
 
 /**
@@ -296,6 +315,415 @@ public class TestDataStatistics extends AbstractTest {
         assertTrue(Arrays.equals(frequency, distribution.frequency));
     }
     
+    /**
+     * Performs a test.
+     *
+     * @throws IllegalArgumentException
+     * @throws IOException
+     * @throws ParseException 
+     */
+    @Test
+    public void testSummary() throws IllegalArgumentException, IOException, ParseException {
+        
+        Data data = Data.create("./data/adult.csv", StandardCharsets.UTF_8, ';');
+        data.getDefinition().setDataType("age", DataType.INTEGER);
+        data.getDefinition().setAttributeType("age", AttributeType.INSENSITIVE_ATTRIBUTE);
+        for (String attribute : new String[] { "education", "race", "sex" }) {
+            data.getDefinition().setAttributeType(attribute, Hierarchy.create("./data/adult_hierarchy_" + attribute + ".csv", StandardCharsets.UTF_8, ';'));
+        }
+        
+        final ARXConfiguration config = ARXConfiguration.create();
+        config.addPrivacyModel(new KAnonymity(50));
+        config.setMaxOutliers(0.1d);
+        
+        ARXAnonymizer anonymizer = new ARXAnonymizer();
+        ARXResult result = anonymizer.anonymize(data, config);
+        
+        // Check input and output
+        for (boolean listwiseDeletion : new boolean[] { false, true }) {
+            checkSummary(data.getHandle(), "age", listwiseDeletion);
+            checkSummary(result.getOutput(false), "age", listwiseDeletion);
+        }
+    }
+    
+    /**
+     * Performs a test.
+     *
+     * @throws IllegalArgumentException
+     * @throws IOException
+     * @throws ParseException
+     */
+    @Test
+    public void testClassification() throws IllegalArgumentException, IOException, ParseException {
+        
+        Data data = Data.create("./data/adult.csv", StandardCharsets.UTF_8, ';');
+        for (String attribute : new String[] { "age", "education", "sex" }) {
+            data.getDefinition().setAttributeType(attribute, Hierarchy.create("./data/adult_hierarchy_" + attribute + ".csv", StandardCharsets.UTF_8, ';'));
+        }
+        data.getDefinition().setAttributeType("salary-class", AttributeType.INSENSITIVE_ATTRIBUTE);
+        
+        final ARXConfiguration config = ARXConfiguration.create();
+        config.addPrivacyModel(new KAnonymity(50));
+        config.setMaxOutliers(0.1d);
+        
+        ARXAnonymizer anonymizer = new ARXAnonymizer();
+        ARXResult result = anonymizer.anonymize(data, config);
+        
+        String[] features = new String[] { "age", "education", "sex" };
+        ARXLogisticRegressionConfiguration classification = ARXLogisticRegressionConfiguration.create().setNumFolds(5);
+        
+        // Check input
+        DataHandle input = data.getHandle();
+        StatisticsClassification statistics = input.getStatistics().getClassificationPerformance(features, "salary-class", classification);
+        assertEquals(input.getNumRows(), statistics.getNumMeasurements());
+        assertEquals(2, statistics.getNumClasses());
+        assertEquals(statistics.getOriginalAccuracy(), statistics.getAccuracy(), 0d);
+        assertTrue(statistics.getOriginalAccuracy() >= statistics.getZeroRAccuracy());
+        
+        // Check output, results must be deterministic
+        DataHandle output = result.getOutput(false);
+        StatisticsClassification statistics1 = output.getStatistics().getClassificationPerformance(features, "salary-class", classification);
+        StatisticsClassification statistics2 = output.getStatistics().getClassificationPerformance(features, "salary-class", classification);
+        assertEquals(statistics.getOriginalAccuracy(), statistics1.getOriginalAccuracy(), 1e-9);
+        assertEquals(statistics.getZeroRAccuracy(), statistics1.getZeroRAccuracy(), 1e-9);
+        assertEquals(statistics1.getAccuracy(), statistics2.getAccuracy(), 0d);
+        assertEquals(statistics1.getAverageError(), statistics2.getAverageError(), 0d);
+        assertTrue(Arrays.equals(statistics1.getPrecisionRecall().getPrecision(), statistics2.getPrecisionRecall().getPrecision()));
+        assertTrue(Arrays.equals(statistics1.getPrecisionRecall().getRecall(), statistics2.getPrecisionRecall().getRecall()));
+    }
+    
+    /**
+     * Performs a test.
+     *
+     * @throws IllegalArgumentException
+     * @throws IOException
+     */
+    @Test
+    public void testEquivalenceClassesEncoded() throws IllegalArgumentException, IOException {
+        
+        Data data = Data.create("./data/adult.csv", StandardCharsets.UTF_8, ';');
+        for (String attribute : new String[] { "age", "education", "race", "sex" }) {
+            data.getDefinition().setAttributeType(attribute, Hierarchy.create("./data/adult_hierarchy_" + attribute + ".csv", StandardCharsets.UTF_8, ';'));
+        }
+        
+        final ARXConfiguration config = ARXConfiguration.create();
+        config.addPrivacyModel(new KAnonymity(50));
+        config.setMaxOutliers(0.1d);
+        
+        ARXAnonymizer anonymizer = new ARXAnonymizer();
+        ARXResult result = anonymizer.anonymize(data, config);
+        
+        // Check input and output
+        for (DataHandle handle : new DataHandle[] { data.getHandle(), result.getOutput(false) }) {
+            
+            // Compute expected sizes
+            int[] indices = new int[] { handle.getColumnIndexOf("age"), handle.getColumnIndexOf("education"),
+                                        handle.getColumnIndexOf("race"), handle.getColumnIndexOf("sex") };
+            Map<List<String>, Integer> sizes = new HashMap<List<String>, Integer>();
+            Map<List<String>, Integer> sizesWithoutOutliers = new HashMap<List<String>, Integer>();
+            for (int row = 0; row < handle.getNumRows(); row++) {
+                List<String> tuple = new ArrayList<String>();
+                for (int index : indices) {
+                    tuple.add(handle.getValue(row, index));
+                }
+                sizes.put(tuple, sizes.containsKey(tuple) ? sizes.get(tuple) + 1 : 1);
+                if (!handle.isOutlier(row)) {
+                    sizesWithoutOutliers.put(tuple, sizesWithoutOutliers.containsKey(tuple) ? sizesWithoutOutliers.get(tuple) + 1 : 1);
+                }
+            }
+            int max = 0;
+            for (int size : sizes.values()) {
+                max = Math.max(max, size);
+            }
+            
+            // Compare statistics
+            StatisticsEquivalenceClasses statistics = handle.getStatistics().getEquivalenceClassStatistics();
+            assertEquals(sizes.size(), statistics.getNumberOfEquivalenceClassesIncludingOutliers());
+            assertEquals(max, statistics.getMaximalEquivalenceClassSizeIncludingOutliers());
+            assertEquals(handle.getNumRows(), statistics.getNumberOfTuplesIncludingOutliers());
+            
+            // Compare histogram
+            RiskModelHistogram histogram = handle.getRiskEstimator(ARXPopulationModel.create(Region.USA)).getEquivalenceClassModel();
+            assertEquals(sizesWithoutOutliers.size(), histogram.getNumClasses(), 0d);
+            int[] classes = histogram.getHistogram();
+            for (int i = 0; i < classes.length; i += 2) {
+                int count = 0;
+                for (int size : sizesWithoutOutliers.values()) {
+                    count += size == classes[i] ? 1 : 0;
+                }
+                assertEquals(count, classes[i + 1]);
+            }
+        }
+    }
+    
+    /**
+     * Tests that equivalence classes are paired with the suppression states of the correct rows
+     * after the data has been sorted or rows have been swapped.
+     *
+     * @throws IllegalArgumentException
+     * @throws IOException
+     */
+    @Test
+    public void testEquivalenceClassesSorted() throws IllegalArgumentException, IOException {
+        
+        Data data = Data.create("./data/adult.csv", StandardCharsets.UTF_8, ';');
+        for (String attribute : new String[] { "age", "education", "race", "sex" }) {
+            data.getDefinition().setAttributeType(attribute, Hierarchy.create("./data/adult_hierarchy_" + attribute + ".csv", StandardCharsets.UTF_8, ';'));
+        }
+        
+        final ARXConfiguration config = ARXConfiguration.create();
+        config.addPrivacyModel(new KAnonymity(50));
+        config.setMaxOutliers(0.1d);
+        DataHandle handle = new ARXAnonymizer().anonymize(data, config).getOutput(false);
+        
+        // Count outliers
+        int outliers = 0;
+        for (int row = 0; row < handle.getNumRows(); row++) {
+            outliers += handle.isOutlier(row) ? 1 : 0;
+        }
+        assertTrue(outliers > 0);
+        StatisticsEquivalenceClasses statistics = handle.getStatistics().getEquivalenceClassStatistics();
+        assertEquals(outliers, statistics.getNumberOfOutlyingTuples());
+        
+        // Sort and swap
+        handle.sort(true, 1);
+        assertEquals(outliers, handle.getStatistics().getEquivalenceClassStatistics().getNumberOfOutlyingTuples());
+        handle.sort(false, 0);
+        assertEquals(outliers, handle.getStatistics().getEquivalenceClassStatistics().getNumberOfOutlyingTuples());
+        for (int row = 0; row < handle.getNumRows() - 1; row += 2) {
+            handle.swap(row, row + 1);
+        }
+        assertEquals(statistics.toString(), handle.getStatistics().getEquivalenceClassStatistics().toString());
+        
+        // Compare histogram
+        RiskModelHistogram histogram = handle.getRiskEstimator(ARXPopulationModel.create(Region.USA)).getEquivalenceClassModel();
+        assertEquals(handle.getNumRows() - outliers, histogram.getNumRecords(), 0d);
+        assertEquals(statistics.getNumberOfEquivalenceClasses(), histogram.getNumClasses(), 0d);
+    }
+    
+    /**
+     * Performs a test.
+     *
+     * @throws IllegalArgumentException
+     * @throws IOException
+     */
+    @Test
+    public void testFrequenciesEncoded() throws IllegalArgumentException, IOException {
+        
+        Data data = Data.create("./data/adult.csv", StandardCharsets.UTF_8, ';');
+        for (String attribute : new String[] { "age", "education", "race", "sex" }) {
+            data.getDefinition().setAttributeType(attribute, Hierarchy.create("./data/adult_hierarchy_" + attribute + ".csv", StandardCharsets.UTF_8, ';'));
+        }
+        data.getDefinition().setAttributeType("salary-class", AttributeType.INSENSITIVE_ATTRIBUTE);
+        
+        final ARXConfiguration config = ARXConfiguration.create();
+        config.addPrivacyModel(new KAnonymity(50));
+        config.setMaxOutliers(0.1d);
+        
+        ARXAnonymizer anonymizer = new ARXAnonymizer();
+        ARXResult result = anonymizer.anonymize(data, config);
+        
+        // Check input and output, twice to make use of caches
+        for (int i = 0; i < 2; i++) {
+            for (DataHandle handle : new DataHandle[] { data.getHandle(), result.getOutput(false) }) {
+                checkFrequencies(handle, handle.getColumnIndexOf("education"), handle.getColumnIndexOf("salary-class"));
+                checkFrequencies(handle, handle.getColumnIndexOf("age"), handle.getColumnIndexOf("race"));
+            }
+        }
+        
+        // Check after modification
+        DataHandle input = data.getHandle();
+        int column = input.getColumnIndexOf("salary-class");
+        input.replace(column, "<=50K", "low");
+        checkFrequencies(input, input.getColumnIndexOf("education"), column);
+        assertTrue(Arrays.asList(input.getStatistics().getFrequencyDistribution(column).values).contains("low"));
+    }
+    
+    /**
+     * Tests the computation of statistics with intermediate results
+     * 
+     * @throws IllegalArgumentException
+     * @throws IOException
+     */
+    @Test
+    public void testIncrementalStatistics() throws IllegalArgumentException, IOException {
+        
+        Data data = Data.create("./data/adult.csv", StandardCharsets.UTF_8, ';');
+        for (String attribute : new String[] { "age", "education", "race", "sex" }) {
+            data.getDefinition().setAttributeType(attribute, Hierarchy.create("./data/adult_hierarchy_" + attribute + ".csv", StandardCharsets.UTF_8, ';'));
+        }
+        
+        // Anonymize with a research subset
+        Set<Integer> rows = new HashSet<Integer>();
+        for (int row = 0; row < data.getHandle().getNumRows(); row += 2) {
+            rows.add(row);
+        }
+        final ARXConfiguration config = ARXConfiguration.create();
+        config.addPrivacyModel(new KAnonymity(5));
+        config.addPrivacyModel(new DPresence(0.0d, 1.0d, DataSubset.create(data, rows)));
+        config.setMaxOutliers(0.1d);
+        ARXResult result = new ARXAnonymizer().anonymize(data, config);
+        
+        // Check encoded and non-encoded representations
+        final int chunkSize = 5000;
+        final List<Integer> progress = new ArrayList<Integer>();
+        DataHandle output = result.getOutput(false);
+        for (DataHandle handle : new DataHandle[] { output, output.getView() }) {
+            
+            // Expected results
+            StatisticsBuilder builder = handle.getStatistics();
+            String expected = builder.getSummaryStatistics(false).toString();
+            
+            // Incremental computation
+            final int columns = handle.getNumColumns();
+            progress.clear();
+            builder.setChunkSize(chunkSize);
+            Map<String, StatisticsSummary<?>> summary = builder.getSummaryStatistics(false, new StatisticsListener<Map<String, StatisticsSummary<?>>>() {
+                @Override
+                public void update(Map<String, StatisticsSummary<?>> result, int value) {
+                    assertEquals(columns, result.size());
+                    assertTrue(result.get("sex").getNumberOfMeasuresAsString() <= (progress.size() + 1) * chunkSize);
+                    progress.add(value);
+                }
+            });
+            assertEquals(expected, summary.toString());
+            checkProgress(progress, (handle.getNumRows() - 1) / chunkSize);
+        }
+        
+        // Equivalence classes are computed incrementally if no index of encoded data is available
+        DataHandle handle = output.getView();
+        StatisticsBuilder builder = handle.getStatistics();
+        String expected = builder.getEquivalenceClassStatistics().toString();
+        progress.clear();
+        builder.setChunkSize(chunkSize);
+        StatisticsEquivalenceClasses classes = builder.getEquivalenceClassStatistics(new StatisticsListener<StatisticsEquivalenceClasses>() {
+            @Override
+            public void update(StatisticsEquivalenceClasses result, int value) {
+                assertEquals((progress.size() + 1) * chunkSize, result.getNumberOfTuplesIncludingOutliers());
+                progress.add(value);
+            }
+        });
+        assertEquals(expected, classes.toString());
+        checkProgress(progress, (handle.getNumRows() - 1) / chunkSize);
+        
+        // By default, the chunk size is derived from the number of rows
+        progress.clear();
+        handle.getStatistics().getEquivalenceClassStatistics(new StatisticsListener<StatisticsEquivalenceClasses>() {
+            @Override
+            public void update(StatisticsEquivalenceClasses result, int value) {
+                progress.add(value);
+            }
+        });
+        int size = Math.max(StatisticsBuilder.MIN_CHUNK_SIZE, (handle.getNumRows() + StatisticsBuilder.DEFAULT_NUM_CHUNKS - 1) / StatisticsBuilder.DEFAULT_NUM_CHUNKS);
+        checkProgress(progress, (handle.getNumRows() - 1) / size);
+        assertTrue(progress.size() > 1);
+    }
+    
+    /**
+     * Checks the progress reported with intermediate results
+     * 
+     * @param progress
+     * @param updates
+     */
+    private void checkProgress(List<Integer> progress, int updates) {
+        assertEquals(updates, progress.size());
+        int previous = 0;
+        for (int value : progress) {
+            assertTrue(value > previous && value < 100);
+            previous = value;
+        }
+    }
+    
+    /**
+     * Compares the frequency distributions and contingency table of the given columns
+     * with results computed from all individual values.
+     * 
+     * @param handle
+     * @param column1
+     * @param column2
+     */
+    private void checkFrequencies(DataHandle handle, int column1, int column2) {
+        
+        // Compute expected results
+        Map<String, Integer> expected1 = new HashMap<String, Integer>();
+        Map<String, Integer> expected2 = new HashMap<String, Integer>();
+        Map<String, Integer> expected = new HashMap<String, Integer>();
+        for (int row = 0; row < handle.getNumRows(); row++) {
+            String value1 = handle.getValue(row, column1);
+            String value2 = handle.getValue(row, column2);
+            String value = value1 + "\t" + value2;
+            expected1.put(value1, expected1.containsKey(value1) ? expected1.get(value1) + 1 : 1);
+            expected2.put(value2, expected2.containsKey(value2) ? expected2.get(value2) + 1 : 1);
+            expected.put(value, expected.containsKey(value) ? expected.get(value) + 1 : 1);
+        }
+        double count = handle.getNumRows();
+        
+        // Compare distributions
+        StatisticsFrequencyDistribution distribution = handle.getStatistics().getFrequencyDistribution(column1);
+        assertEquals(expected1.size(), distribution.values.length);
+        for (int i = 0; i < distribution.values.length; i++) {
+            assertEquals(expected1.get(distribution.values[i]) / count, distribution.frequency[i], 1e-12);
+        }
+        
+        // Compare contingency tables
+        StatisticsContingencyTable table = handle.getStatistics().getContingencyTable(column1, column2);
+        assertEquals(expected1.size(), table.values1.length);
+        assertEquals(expected2.size(), table.values2.length);
+        int entries = 0;
+        while (table.iterator.hasNext()) {
+            Entry entry = table.iterator.next();
+            String value = table.values1[entry.value1] + "\t" + table.values2[entry.value2];
+            assertEquals(expected.get(value) / count, entry.frequency, 1e-12);
+            entries++;
+        }
+        assertEquals(expected.size(), entries);
+    }
+    
+    /**
+     * Compares the summary statistics for the given attribute with statistics
+     * computed from all individual values.
+     * 
+     * @param handle
+     * @param attribute
+     * @param listwiseDeletion
+     * @throws ParseException
+     */
+    private void checkSummary(DataHandle handle, String attribute, boolean listwiseDeletion) throws ParseException {
+        
+        // Compute expected results
+        int column = handle.getColumnIndexOf(attribute);
+        DescriptiveStatistics expected = new DescriptiveStatistics();
+        for (int row = 0; row < handle.getNumRows(); row++) {
+            boolean include = true;
+            if (listwiseDeletion) {
+                for (int col = 0; col < handle.getNumColumns(); col++) {
+                    if (handle.isOutlier(row) || DataType.isNull(handle.getValue(row, col))) {
+                        include = false;
+                        break;
+                    }
+                }
+            }
+            String value = handle.getValue(row, column);
+            if (include && !DataType.isAny(value) && !DataType.isNull(value)) {
+                expected.addValue(DataType.INTEGER.parse(value));
+            }
+        }
+        
+        // Compare
+        Map<String, StatisticsSummary<?>> summary = handle.getStatistics().getSummaryStatistics(listwiseDeletion);
+        StatisticsSummary<?> actual = summary.get(attribute);
+        assertEquals(expected.getN(), actual.getNumberOfMeasuresAsString());
+        assertEquals(expected.getMean(), actual.getArithmeticMeanAsDouble(), 1e-9);
+        assertEquals(expected.getVariance(), actual.getSampleVarianceAsDouble(), 1e-7);
+        assertEquals(expected.getPopulationVariance(), actual.getPopulationVarianceAsDouble(), 1e-7);
+        double kurtosis = expected.getKurtosis() < 0d ? Double.NaN : expected.getKurtosis();
+        assertEquals(kurtosis, actual.getKurtosisAsDouble(), 1e-7);
+        assertEquals(expected.getMax() - expected.getMin(), actual.getRangeAsDouble(), 0d);
+        assertEquals(expected.getPercentile(50d), Double.valueOf(actual.getMedianAsString()), 0d);
+        assertEquals(expected.getMin(), Double.valueOf(actual.getMinAsString()), 0d);
+        assertEquals(expected.getMax(), Double.valueOf(actual.getMaxAsString()), 0d);
+    }
+    
     /**
      * Checks the two arrays regarding equality, treating a double[][]
      * as a set of comparable double[]'s
@@ -0,0 +1,155 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.test;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.deidentifier.arx.risk.Gamma;
+import org.junit.Test;
+
+/**
+ * Test for the approximations of the digamma and trigamma functions used by the
+ * Pitman model. The main method benchmarks the batched against the scalar evaluation.
+ *
+ * @author Fabian Prasser
+ */
+public class TestGamma {
+
+    /**
+     * Benchmarks the batched evaluation against the scalar evaluation.
+     *
+     * @param args
+     */
+    public static void main(String[] args) {
+        int[] histogram = getHistogram(10000);
+        double[] digamma = new double[histogram.length / 2];
+        double[] trigamma = new double[histogram.length / 2];
+        int repetitions = 100;
+        double shift = -0.3d;
+
+        // Warmup
+        double checksum = 0d;
+        for (int i = 0; i < repetitions; i++) {
+            checksum += scalar(histogram, shift, digamma, trigamma);
+            Gamma.digammaAndTrigamma(histogram, shift, digamma, trigamma);
+        }
+
+        // Scalar
+        long time = System.nanoTime();
+        for (int i = 0; i < repetitions; i++) {
+            checksum += scalar(histogram, shift, digamma, trigamma);
+        }
+        long timeScalar = System.nanoTime() - time;
+
+        // Batch
+        time = System.nanoTime();
+        for (int i = 0; i < repetitions; i++) {
+            Gamma.digammaAndTrigamma(histogram, shift, digamma, trigamma);
+            checksum += digamma[0];
+        }
+        long timeBatch = System.nanoTime() - time;
+
+        System.out.println("Digamma and trigamma for " + (histogram.length / 2) + " class sizes (checksum: " + checksum + ")");
+        System.out.println(" - Scalar: " + (timeScalar / repetitions / 1000) + " [us]");
+        System.out.println(" - Batch: " + (timeBatch / repetitions / 1000) + " [us]");
+    }
+
+    /**
+     * Returns a histogram with the given number of ascending class sizes
+     *
+     * @param size
+     * @return
+     */
+    private static int[] getHistogram(int size) {
+        Random random = new Random(0xDEADBEEF);
+        int[] histogram = new int[size * 2];
+        int key = 0;
+        for (int i = 0; i < histogram.length; i += 2) {
+            key += 1 + (random.nextInt(10) == 0 ? random.nextInt(100) : random.nextInt(3));
+            histogram[i] = key;
+            histogram[i + 1] = 1 + random.nextInt(1000);
+        }
+        return histogram;
+    }
+
+    /**
+     * Compares two values
+     *
+     * @param expected
+     * @param actual
+     * @return
+     */
+    private static boolean isClose(double expected, double actual) {
+        return Math.abs(expected - actual) <= 1e-12 * Math.max(1d, Math.abs(expected));
+    }
+
+    /**
+     * Scalar evaluation
+     *
+     * @param histogram
+     * @param shift
+     * @param digamma
+     * @param trigamma
+     * @return
+     */
+    private static double scalar(int[] histogram, double shift, double[] digamma, double[] trigamma) {
+        for (int i = 0; i < histogram.length; i += 2) {
+            digamma[i >> 1] = Gamma.digamma(histogram[i] + shift);
+            trigamma[i >> 1] = Gamma.trigamma(histogram[i] + shift);
+        }
+        return digamma[0];
+    }
+
+    /**
+     * Compares the batched implementation with the scalar implementation.
+     */
+    @Test
+    public void testBatch() {
+        int[] histogram = getHistogram(10000);
+        double[] digamma = new double[histogram.length / 2];
+        double[] trigamma = new double[histogram.length / 2];
+        for (double shift : new double[] { -0.9d, -0.5d, -0.01d, 0d, 0.3d }) {
+            Gamma.digammaAndTrigamma(histogram, shift, digamma, trigamma);
+            for (int i = 0; i < histogram.length; i += 2) {
+                double x = histogram[i] + shift;
+                assertTrue("Digamma(" + x + ")", isClose(Gamma.digamma(x), digamma[i >> 1]));
+                assertTrue("Trigamma(" + x + ")", isClose(Gamma.trigamma(x), trigamma[i >> 1]));
+            }
+        }
+    }
+
+    /**
+     * Compares against known values.
+     */
+    @Test
+    public void testValues() {
+        double zeta2 = Math.PI * Math.PI / 6d;
+        assertTrue(isClose(-0.57721566490153286d, Gamma.digamma(1d)));
+        assertTrue(isClose(zeta2, Gamma.trigamma(1d)));
+        assertTrue(isClose(zeta2 - 1d, Gamma.trigamma(2d)));
+        assertTrue(isClose(Math.PI * Math.PI / 2d, Gamma.trigamma(0.5d)));
+
+        // Continuity at the boundaries of the tables and the asymptotic expansions
+        for (double x = 0.25d; x < 2000d; x += 0.25d) {
+            assertTrue("Digamma(" + x + ")", isClose(Gamma.digamma(x + 1d), Gamma.digamma(x) + 1d / x));
+            assertTrue("Trigamma(" + x + ")", isClose(Gamma.trigamma(x + 1d), Gamma.trigamma(x) - 1d / (x * x)));
+        }
+    }
+}
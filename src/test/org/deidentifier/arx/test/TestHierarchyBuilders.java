@@ -0,0 +1,244 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.deidentifier.arx.ARXAnonymizer;
+import org.deidentifier.arx.ARXConfiguration;
+import org.deidentifier.arx.ARXResult;
+import org.deidentifier.arx.Data;
+import org.deidentifier.arx.DataHandle;
+import org.deidentifier.arx.DataType;
+import org.deidentifier.arx.aggregates.HierarchyBuilderIntervalBased;
+import org.deidentifier.arx.aggregates.HierarchyBuilderIntervalBased.Range;
+import org.deidentifier.arx.aggregates.HierarchyGenerator;
+import org.deidentifier.arx.criteria.KAnonymity;
+import org.junit.Test;
+
+/**
+ * Test class for hierarchy builders and the automatic generation of hierarchies
+ * 
+ * @author Fabian Prasser
+ */
+public class TestHierarchyBuilders extends AbstractTest {
+    
+    /**
+     * Tests the automatic generation of hierarchies
+     * 
+     * @throws IllegalArgumentException
+     * @throws IOException
+     */
+    @Test
+    public void testHierarchyGeneration() throws IllegalArgumentException, IOException {
+        
+        Data data = Data.create("./data/adult.csv", StandardCharsets.UTF_8, ';');
+        data.getDefinition().setDataType("age", DataType.INTEGER);
+        DataHandle handle = data.getHandle();
+        HierarchyGenerator generator = new HierarchyGenerator(handle, 4, 4);
+        
+        // Check hierarchies
+        String[] attributes = new String[] { "age", "education", "marital-status", "race", "sex" };
+        for (String attribute : attributes) {
+            String[][] hierarchy = generator.getHierarchy(attribute).getHierarchy();
+            int height = generator.getHeight(attribute);
+            assertTrue(height >= 2 && height <= 4);
+            
+            // All values are covered and generalization never increases the number of distinct values
+            Set<String> values = new HashSet<String>(Arrays.asList(handle.getStatistics().getDistinctValues(handle.getColumnIndexOf(attribute))));
+            assertEquals(values.size(), hierarchy.length);
+            
+            // The fan-out may only be exceeded if the values do not fit into the height
+            if (values.size() <= 4 * 4 * 4) {
+                assertTrue(getMaxFanout(hierarchy) <= 4);
+            }
+            int previous = Integer.MAX_VALUE;
+            for (int level = 0; level < height; level++) {
+                Set<String> distinct = new HashSet<String>();
+                for (String[] row : hierarchy) {
+                    assertEquals(height, row.length);
+                    distinct.add(row[level]);
+                }
+                assertTrue(distinct.size() <= previous);
+                previous = distinct.size();
+            }
+            assertEquals(1, previous);
+        }
+        assertTrue(generator.getBuilder("age") instanceof HierarchyBuilderIntervalBased);
+        
+        // Check fan-out and height with default parameters
+        HierarchyGenerator defaults = new HierarchyGenerator(handle);
+        for (String attribute : new String[] { "age", "education", "marital-status", "native-country", "occupation", "race", "sex" }) {
+            String[][] hierarchy = defaults.getHierarchy(attribute).getHierarchy();
+            assertTrue(getMaxFanout(hierarchy) <= HierarchyGenerator.DEFAULT_MAX_FANOUT);
+            assertTrue(hierarchy[0].length <= HierarchyGenerator.DEFAULT_MAX_HEIGHT);
+            assertEquals(hierarchy[0].length, defaults.getHeight(attribute));
+        }
+        
+        // Anonymize and compare the size of the solution space with the estimate
+        for (String attribute : attributes) {
+            data.getDefinition().setAttributeType(attribute, generator.getHierarchy(attribute));
+        }
+        final ARXConfiguration config = ARXConfiguration.create();
+        config.addPrivacyModel(new KAnonymity(5));
+        config.setMaxOutliers(0d);
+        ARXResult result = new ARXAnonymizer().anonymize(data, config);
+        assertTrue(result.getGlobalOptimum() != null);
+        assertEquals(generator.getSolutionSpaceSize(attributes), result.getLattice().getSize());
+        assertEquals(generator.getSolutionSpaceSize(attributes) * (double) handle.getNumRows(), generator.getSearchCost(attributes), 0d);
+    }
+    
+    /**
+     * Tests interval-based hierarchies for a large number of values, which are parsed and located in
+     * parallel on machines with multiple cores. The result must equal the results obtained for small
+     * subsets of the values, which are processed sequentially.
+     */
+    @Test
+    public void testHierarchyIntervalBasedLarge() {
+        
+        // Values, including values in snap ranges and missing values
+        String[] values = new String[101999];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = String.valueOf(i - 999);
+        }
+        values[12345] = DataType.NULL_VALUE;
+        
+        // Build hierarchy for all values
+        String[][] hierarchy = getIntervalBasedBuilder().build(values).getHierarchy();
+        assertEquals(values.length, hierarchy.length);
+        assertEquals(5, hierarchy[0].length);
+        assertEquals("[30, 40]", hierarchy[1029][1]);
+        assertEquals("[30, 50]", hierarchy[1029][2]);
+        assertEquals("[30, 60]", hierarchy[1029][3]);
+        assertEquals("[-500, 10]", hierarchy[999][1]);
+        assertEquals("<-500", hierarchy[0][1]);
+        assertEquals(">=100500", hierarchy[values.length - 1][1]);
+        
+        // Compare with subsets
+        int subsets = 100;
+        for (int subset = 0; subset < subsets; subset++) {
+            List<String> sample = new ArrayList<String>();
+            for (int i = subset; i < values.length; i += subsets) {
+                sample.add(values[i]);
+            }
+            String[][] expected = getIntervalBasedBuilder().build(sample.toArray(new String[sample.size()])).getHierarchy();
+            for (int i = 0; i < expected.length; i++) {
+                assertTrue(Arrays.equals(expected[i], hierarchy[subset + i * subsets]));
+            }
+        }
+    }
+    
+    /**
+     * Tests that interval-based hierarchies report values outside of the label bounds. The first
+     * such value in the order of the input must be reported, even if values are located in a
+     * different order.
+     */
+    @Test
+    public void testHierarchyIntervalBasedOutOfBounds() {
+        
+        for (int size : new int[] { 10, 100000 }) {
+            String[] values = new String[size];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = String.valueOf(i);
+            }
+            values[size / 2] = "200000";
+            values[size - 1] = "-2000";
+            try {
+                getIntervalBasedBuilder().build(values);
+                assertTrue("Value out of bounds not detected", false);
+            } catch (IllegalArgumentException e) {
+                assertEquals("200000 is >= upper label bound", e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Tests values on the bound between two repetitions of intervals, which are affected by
+     * rounding errors when the offset of the repetition is computed
+     */
+    @Test
+    public void testHierarchyIntervalBasedRounding() {
+        
+        HierarchyBuilderIntervalBased<Double> builder = HierarchyBuilderIntervalBased.create(DataType.DECIMAL,
+                                                                                             new Range<Double>(0d, 0d, 0d),
+                                                                                             new Range<Double>(100d, 100d, 100d));
+        builder.addInterval(0d, 0.1d);
+        builder.addInterval(0.1d, 0.2d);
+        builder.addInterval(0.2d, 0.3d);
+        builder.getLevel(0).addGroup(3);
+        
+        // 5.699999999999999 is located in repetition 18 with an offset of 5.3999999999999995
+        String[][] hierarchy = builder.build(new String[] { "5.6", "5.699999999999999", "5.7" }).getHierarchy();
+        assertEquals(hierarchy[0][1], hierarchy[1][1]);
+        assertTrue(!hierarchy[1][1].equals(hierarchy[2][1]));
+        assertEquals(hierarchy[0][2], hierarchy[1][2]);
+        assertTrue(!hierarchy[1][2].equals(hierarchy[2][2]));
+    }
+    
+    /**
+     * Returns the maximal number of distinct children of a node in the given hierarchy
+     * 
+     * @param hierarchy
+     * @return
+     */
+    private int getMaxFanout(String[][] hierarchy) {
+        int max = 0;
+        for (int level = 1; level < hierarchy[0].length; level++) {
+            Map<String, Set<String>> children = new HashMap<String, Set<String>>();
+            for (String[] row : hierarchy) {
+                if (!children.containsKey(row[level])) {
+                    children.put(row[level], new HashSet<String>());
+                }
+                children.get(row[level]).add(row[level - 1]);
+            }
+            for (Set<String> set : children.values()) {
+                max = Math.max(max, set.size());
+            }
+        }
+        return max;
+    }
+    
+    /**
+     * Returns a builder for interval-based hierarchies for testing, which covers the values [-1000, 101000[
+     * 
+     * @return
+     */
+    private HierarchyBuilderIntervalBased<Long> getIntervalBasedBuilder() {
+        HierarchyBuilderIntervalBased<Long> builder = HierarchyBuilderIntervalBased.create(DataType.INTEGER,
+                                                                                           new Range<Long>(0L, -500L, -1000L),
+                                                                                           new Range<Long>(100000L, 100500L, 101000L));
+        builder.addInterval(0L, 10L);
+        builder.addInterval(10L, 20L);
+        builder.addInterval(20L, 30L);
+        builder.getLevel(0).addGroup(2);
+        builder.getLevel(0).addGroup(1);
+        builder.getLevel(1).addGroup(2);
+        return builder;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.deidentifier.arx.ARXAnonymizer;
+import org.deidentifier.arx.ARXConfiguration;
+import org.deidentifier.arx.ARXListener;
+import org.deidentifier.arx.ARXResult;
+import org.deidentifier.arx.AttributeType.Hierarchy;
+import org.deidentifier.arx.Data;
+import org.deidentifier.arx.DataHandle;
+import org.deidentifier.arx.RowSet;
+import org.deidentifier.arx.criteria.KAnonymity;
+import org.deidentifier.arx.criteria.PrivacyCriterion;
+import org.deidentifier.arx.exceptions.RollbackRequiredException;
+import org.deidentifier.arx.framework.check.distribution.DistributionAggregateFunction;
+import org.deidentifier.arx.framework.data.DataManager;
+import org.deidentifier.arx.framework.data.Dictionary;
+import org.deidentifier.arx.metric.v2.DomainShare;
+import org.junit.Test;
+
+/**
+ * Test class for local recoding
+ *
+ * @author Fabian Prasser
+ */
+public class TestLocalRecoding extends AbstractTest {
+
+    /** Quasi-identifiers */
+    private static final String[] QIS = new String[] { "age", "education", "marital-status", "race", "sex" };
+
+    /**
+     * Tests that the data managers of subsets, which are used in each iteration of local recoding,
+     * share the domain shares of the complete dataset.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testDomainShares() throws IOException {
+
+        // Encode the dataset
+        Data data = getData();
+        Iterator<String[]> iterator = data.getHandle().iterator();
+        String[] header = iterator.next();
+        Dictionary dictionary = new Dictionary(header.length);
+        int rows = data.getHandle().getNumRows();
+        int[][] encoded = new int[rows][];
+        for (int row = 0; row < rows; row++) {
+            String[] tuple = iterator.next();
+            encoded[row] = new int[tuple.length];
+            for (int column = 0; column < tuple.length; column++) {
+                encoded[row][column] = dictionary.register(column, tuple[column]);
+            }
+        }
+        dictionary.finalizeAll();
+        Set<PrivacyCriterion> criteria = new HashSet<PrivacyCriterion>();
+        criteria.add(new KAnonymity(5));
+        DataManager manager = new DataManager(header,
+                                              encoded,
+                                              dictionary,
+                                              data.getDefinition(),
+                                              criteria,
+                                              new HashMap<String, DistributionAggregateFunction>());
+
+        // Create subsets
+        RowSet odd = RowSet.create(rows);
+        RowSet even = RowSet.create(rows);
+        for (int row = 0; row < rows; row++) {
+            (row % 2 == 0 ? even : odd).add(row);
+        }
+        DataManager subset1 = manager.getSubsetInstance(odd);
+        DataManager subset2 = manager.getSubsetInstance(even);
+
+        // Compare
+        DomainShare[] shares = manager.getDomainShares();
+        assertEquals(QIS.length, shares.length);
+        assertTrue(shares == subset1.getDomainShares());
+        assertTrue(shares == subset2.getDomainShares());
+        for (int i = 0; i < shares.length; i++) {
+            String attribute = manager.getDataGeneralized().getHeader()[i];
+            assertEquals(data.getDefinition().getHierarchy(attribute).length, shares[i].getDomainSize(), 0d);
+        }
+    }
+
+    /**
+     * Tests top-down local recoding. All classes must contain at least k records and
+     * the records suppressed must be a subset of the records suppressed by global recoding.
+     *
+     * @throws IOException
+     * @throws RollbackRequiredException
+     */
+    @Test
+    public void testTopDown() throws IOException, RollbackRequiredException {
+
+        for (int k : new int[] { 2, 5, 50 }) {
+
+            // Anonymize
+            Data data = getData();
+            ARXConfiguration config = ARXConfiguration.create();
+            config.addPrivacyModel(new KAnonymity(k));
+            config.setMaxOutliers(0.02d);
+            ARXResult result = new ARXAnonymizer().anonymize(data, config);
+            DataHandle handle = result.getOutput(false);
+            boolean[] outliers = new boolean[handle.getNumRows()];
+            for (int row = 0; row < handle.getNumRows(); row++) {
+                outliers[row] = handle.isOutlier(row);
+            }
+
+            // Recode and compute sizes of classes
+            int recoded = result.optimizeTopDown(handle, 2, new ARXListener() {
+                @Override
+                public void progress(double progress) {
+                    assertTrue(progress > 0d && progress <= 1d);
+                }
+            });
+            Map<List<String>, Integer> sizes = new HashMap<List<String>, Integer>();
+            int suppressed = 0;
+            for (int row = 0; row < handle.getNumRows(); row++) {
+                if (handle.isOutlier(row)) {
+                    assertTrue(outliers[row]);
+                    suppressed++;
+                } else {
+                    List<String> tuple = new ArrayList<String>();
+                    for (String attribute : QIS) {
+                        tuple.add(handle.getValue(row, handle.getColumnIndexOf(attribute)));
+                    }
+                    sizes.put(tuple, sizes.containsKey(tuple) ? sizes.get(tuple) + 1 : 1);
+                }
+            }
+
+            // Check
+            assertEquals(handle.getNumRows() - suppressed, recoded);
+            assertTrue(suppressed <= 0.02d * handle.getNumRows());
+            assertTrue(sizes.size() > 1);
+            for (int size : sizes.values()) {
+                assertTrue(size >= k);
+            }
+        }
+    }
+
+    /**
+     * Returns the adult dataset with hierarchies for all quasi-identifiers
+     *
+     * @return
+     * @throws IOException
+     */
+    private Data getData() throws IOException {
+        Data data = Data.create("./data/adult.csv", StandardCharsets.UTF_8, ';');
+        for (String attribute : QIS) {
+            data.getDefinition().setAttributeType(attribute, Hierarchy.create("./data/adult_hierarchy_" + attribute + ".csv", StandardCharsets.UTF_8, ';'));
+        }
+        return data;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.test;
+
+import static org.junit.Assert.assertEquals;
+
+import org.deidentifier.arx.ARXCostBenefitConfiguration;
+import org.deidentifier.arx.criteria.ProfitabilityProsecutor;
+import org.deidentifier.arx.metric.v2.MetricSDNMEntropyBasedInformationLoss;
+import org.deidentifier.arx.risk.RiskModelCostBenefit;
+import org.junit.Test;
+
+/**
+ * Test for the payouts by class size and the thresholds for domain shares, which
+ * are cached by the profitability criteria.
+ *
+ * @author Fabian Prasser
+ */
+public class TestProfitability {
+
+    /** Configurations */
+    private static final ARXCostBenefitConfiguration[] CONFIGURATIONS = new ARXCostBenefitConfiguration[] {
+        ARXCostBenefitConfiguration.create().setAdversaryCost(4d).setAdversaryGain(300d).setPublisherBenefit(1200d).setPublisherLoss(300d),
+        ARXCostBenefitConfiguration.create().setAdversaryCost(50d).setAdversaryGain(1000d).setPublisherBenefit(100d).setPublisherLoss(5000d),
+        ARXCostBenefitConfiguration.create().setAdversaryCost(0d).setAdversaryGain(0d).setPublisherBenefit(500d).setPublisherLoss(0d)
+    };
+
+    /**
+     * Compares the payout for class sizes with the payout for success probabilities.
+     */
+    @Test
+    public void testPayout() {
+        for (ARXCostBenefitConfiguration config : CONFIGURATIONS) {
+            RiskModelCostBenefit model = new RiskModelCostBenefit(config);
+            for (int size = 1; size < 3000; size++) {
+                for (double informationLoss = 0d; informationLoss <= 1d; informationLoss += 0.125d) {
+                    assertEquals(model.getExpectedPublisherPayout(informationLoss, 1d / size),
+                                 model.getExpectedPublisherPayoutForClassSize(informationLoss, size), 0d);
+                }
+            }
+        }
+    }
+
+    /**
+     * Compares decisions based on the cached thresholds with decisions based on the payout.
+     */
+    @Test
+    public void testThresholds() {
+        for (ARXCostBenefitConfiguration config : CONFIGURATIONS) {
+            RiskModelCostBenefit model = new RiskModelCostBenefit(config);
+            for (double maxIL : new double[] { 0.5d, 3d, 12d }) {
+                double[] thresholds = ProfitabilityProsecutor.getThresholds(model, config.getPublisherBenefit(), maxIL);
+                for (int size = 1; size < thresholds.length; size++) {
+                    for (int step = 0; step <= 100; step++) {
+                        double share = Math.pow(10d, -maxIL * step / 100d);
+                        if (Math.abs(share / thresholds[size] - 1d) < 1e-6d) {
+                            continue;
+                        }
+                        double informationLoss = MetricSDNMEntropyBasedInformationLoss.getEntropyBasedInformationLoss(share, maxIL);
+                        boolean expected = model.getExpectedPublisherPayout(informationLoss, 1d / size) > 0d;
+                        assertEquals("Size " + size + ", share " + share, expected, share < thresholds[size]);
+                    }
+                }
+            }
+        }
+    }
+}
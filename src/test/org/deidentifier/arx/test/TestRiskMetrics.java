@@ -28,6 +28,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.deidentifier.arx.ARXAnonymizer;
+import org.deidentifier.arx.ARXLattice.ARXNode;
 import org.deidentifier.arx.ARXConfiguration;
 import org.deidentifier.arx.ARXPopulationModel;
 import org.deidentifier.arx.ARXResult;
@@ -38,8 +39,13 @@ import org.deidentifier.arx.criteria.KAnonymity;
 import org.deidentifier.arx.io.CSVHierarchyInput;
 import org.deidentifier.arx.metric.Metric;
 import org.deidentifier.arx.metric.Metric.AggregateFunction;
+import org.deidentifier.arx.risk.RiskEstimateBuilder;
+import org.deidentifier.arx.risk.RiskModelHistogram;
 import org.deidentifier.arx.risk.RiskModelPopulationUniqueness;
 import org.deidentifier.arx.risk.RiskModelPopulationUniqueness.PopulationUniquenessModel;
+import org.deidentifier.arx.risk.RiskModelSampleApproximation;
+import org.deidentifier.arx.risk.RiskModelSampleApproximation.Estimate;
+import org.deidentifier.arx.risk.RiskModelSampleSummary;
 import org.junit.Test;
 
 /**
@@ -126,6 +132,126 @@ public class TestRiskMetrics {
         assertTrue("Is: " + risk, risk == 0.001922949406538028);
     }
     
+    /**
+     * Test approximate risk estimates using the adult dataset.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testApproximateRisk() throws IOException {
+        Data data = getDataObject("./data/adult.csv");
+        RiskEstimateBuilder builder = data.getHandle().getRiskEstimator(ARXPopulationModel.create(data.getHandle().getNumRows(), 0.1d));
+        double risk = builder.getSampleBasedReidentificationRisk().getAverageRisk();
+        double uniqueness = builder.getSampleBasedUniquenessRisk().getFractionOfUniqueTuples();
+        
+        // Sampling all records is exact
+        RiskModelSampleApproximation approximation = builder.getSampleBasedRiskApproximation(data.getHandle().getNumRows());
+        assertTrue("Is: " + approximation.getAverageRisk(), Math.abs(approximation.getAverageRisk().getValue() - risk) < 1e-9);
+        assertTrue("Is: " + approximation.getAverageRisk(), approximation.getAverageRisk().getLowerBound() == approximation.getAverageRisk().getUpperBound());
+        assertTrue("Is: " + approximation.getFractionOfUniqueTuples(), Math.abs(approximation.getFractionOfUniqueTuples().getValue() - uniqueness) < 1e-9);
+        
+        // Intervals of a sample contain the exact values
+        approximation = builder.getSampleBasedRiskApproximation(5000, 0.99d);
+        assertTrue("Is: " + approximation.getAverageRisk(), approximation.getAverageRisk().getLowerBound() <= risk && risk <= approximation.getAverageRisk().getUpperBound());
+        assertTrue("Is: " + approximation.getFractionOfUniqueTuples(), approximation.getFractionOfUniqueTuples().getLowerBound() <= uniqueness && uniqueness <= approximation.getFractionOfUniqueTuples().getUpperBound());
+        double[] distribution = builder.getSampleBasedRiskDistribution().getFractionOfRecordsForRiskThresholds();
+        for (int i = 0; i < distribution.length; i++) {
+            Estimate estimate = approximation.getFractionOfRecordsForRiskThresholds()[i];
+            assertTrue("Is: " + estimate, estimate.getLowerBound() <= distribution[i] + 1e-9 && distribution[i] <= estimate.getUpperBound() + 1e-9);
+        }
+        
+        // Suppressed records are ignored, with and without encoded data
+        ARXConfiguration config = ARXConfiguration.create();
+        config.addPrivacyModel(new KAnonymity(5));
+        config.setMaxOutliers(0.05d);
+        DataHandle output = new ARXAnonymizer().anonymize(data, config).getOutput();
+        builder = output.getRiskEstimator(ARXPopulationModel.create(output.getNumRows(), 0.1d));
+        risk = builder.getSampleBasedReidentificationRisk().getAverageRisk();
+        approximation = builder.getSampleBasedRiskApproximation(output.getNumRows());
+        assertTrue("Is: " + approximation.getAverageRisk(), Math.abs(approximation.getAverageRisk().getValue() - risk) < 1e-9);
+        approximation = builder.getSampleBasedRiskApproximation(5000);
+        RiskModelSampleApproximation view = output.getView().getRiskEstimator(ARXPopulationModel.create(output.getNumRows(), 0.1d)).getSampleBasedRiskApproximation(5000);
+        assertTrue("Is: " + view.getAverageRisk(), approximation.getAverageRisk().getValue() == view.getAverageRisk().getValue());
+        assertTrue("Is: " + view.getNumRecords(), approximation.getNumRecords() == view.getNumRecords());
+    }
+    
+    /**
+     * Test risk estimates derived from transformations without materializing output data.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testRiskOfTransformations() throws IOException {
+        Data data = getDataObject("./data/adult.csv");
+        ARXPopulationModel population = ARXPopulationModel.create(data.getHandle().getNumRows(), 0.1d);
+        ARXConfiguration config = ARXConfiguration.create();
+        config.addPrivacyModel(new KAnonymity(5));
+        config.setMaxOutliers(0.05d);
+        ARXResult result = new ARXAnonymizer().anonymize(data, config);
+        ARXNode bottom = result.getLattice().getBottom();
+        
+        int index = 0;
+        for (ARXNode[] level : result.getLattice().getLevels()) {
+            for (ARXNode node : level) {
+                
+                // Test a subset of all transformations
+                if (index++ % 25 != 0) {
+                    continue;
+                }
+                DataHandle output = result.getOutput(node, true);
+                RiskEstimateBuilder expected = output.getRiskEstimator(population);
+                String value = output.getValue(0, 0);
+                RiskEstimateBuilder estimated = result.getRiskEstimator(node, population);
+                
+                // Forked output handles must not be affected
+                result.getRiskEstimator(bottom, population);
+                assertTrue(output.getValue(0, 0).equals(value));
+                
+                assertTrue(expected.getSampleBasedReidentificationRisk().getAverageRisk() == estimated.getSampleBasedReidentificationRisk().getAverageRisk());
+                assertTrue(expected.getSampleBasedReidentificationRisk().getHighestRisk() == estimated.getSampleBasedReidentificationRisk().getHighestRisk());
+                assertTrue(expected.getSampleBasedUniquenessRisk().getFractionOfUniqueTuples() == estimated.getSampleBasedUniquenessRisk().getFractionOfUniqueTuples());
+                assertTrue(expected.getPopulationBasedUniquenessRisk().getFractionOfUniqueTuplesPitman() == estimated.getPopulationBasedUniquenessRisk().getFractionOfUniqueTuplesPitman());
+                RiskModelSampleSummary summaryExpected = expected.getSampleBasedRiskSummary(0.2d);
+                RiskModelSampleSummary summaryEstimated = estimated.getSampleBasedRiskSummary(0.2d);
+                assertTrue(summaryExpected.getProsecutorRisk().getRecordsAtRisk() == summaryEstimated.getProsecutorRisk().getRecordsAtRisk());
+                assertTrue(summaryExpected.getJournalistRisk().getSuccessRate() == summaryEstimated.getJournalistRisk().getSuccessRate());
+                assertTrue(summaryExpected.getMarketerRisk().getSuccessRate() == summaryEstimated.getMarketerRisk().getSuccessRate());
+                output.release();
+            }
+        }
+        
+        // Other output handles share the buffer and are released
+        DataHandle output = result.getOutput(bottom, false);
+        result.getRiskEstimator(bottom, population);
+        try {
+            output.getValue(0, 0);
+            fail("Output handle must be released");
+        } catch (RuntimeException e) {
+            // Expected
+        }
+    }
+    
+    /**
+     * Test sharing of equivalence classes between risk estimators.
+     */
+    @Test
+    public void testEquivalenceClassCache() {
+        DataProvider provider = new DataProvider();
+        provider.createDataDefinition();
+        DataHandle handle = provider.getData().getHandle();
+        ARXPopulationModel population = ARXPopulationModel.create(handle.getNumRows(), 0.1d);
+        
+        // Shared between estimators
+        RiskModelHistogram classes = handle.getRiskEstimator(population).getEquivalenceClassModel();
+        assertTrue(classes == handle.getRiskEstimator(population).getEquivalenceClassModel());
+        assertTrue(handle.getRiskEstimator(population).getSampleBasedUniquenessRisk().getFractionOfUniqueTuples() == 1.0d);
+        
+        // Invalidated by modifications
+        handle.replace(1, "female", "f");
+        assertTrue(classes != handle.getRiskEstimator(population).getEquivalenceClassModel());
+        assertTrue(handle.getRiskEstimator(population).getEquivalenceClassModel().getNumClasses() == 7d);
+    }
+    
     /**
      * Test decision rule using the test dataset.
      */